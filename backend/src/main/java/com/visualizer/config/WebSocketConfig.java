@@ -17,9 +17,17 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
         config.setApplicationDestinationPrefixes("/app");
     }
 
+    /**
+     * {@code /ws-visualization} takes plain WebSocket connections itself and
+     * SockJS under it ({@code /ws-visualization/info}, ...) as before. Both
+     * negotiate permessage-deflate with browsers that offer it (Tomcat has it
+     * installed). Binary step frames (see StepBroadcaster) need the plain
+     * endpoint: SockJS only carries text.
+     */
     @Override
     public void registerStompEndpoints(@NonNull StompEndpointRegistry registry) {
-        // Register WebSocket endpoint
+        registry.addEndpoint("/ws-visualization")
+                .setAllowedOriginPatterns("*");
         registry.addEndpoint("/ws-visualization")
                 .setAllowedOriginPatterns("*")
                 .withSockJS();
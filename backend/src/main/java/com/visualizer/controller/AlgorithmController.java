@@ -1,11 +1,19 @@
 package com.visualizer.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.visualizer.model.*;
 import com.visualizer.service.AlgorithmService;
+import com.visualizer.service.PackedTrace;
+import com.visualizer.service.SortSteps;
+import com.visualizer.service.StepPlaybackService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.messaging.handler.annotation.MessageMapping;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import java.util.*;
 import org.springframework.messaging.handler.annotation.SendTo;
 
@@ -20,29 +28,144 @@ public class AlgorithmController {
     @Autowired
     private SimpMessagingTemplate messagingTemplate;
     
+    @Autowired
+    private StepPlaybackService playbackService;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+    private static final int STREAM_FLUSH_EVERY = 1000;
+    
+    /**
+     * Runs a sort and returns its steps. {@code format=packed} returns the
+     * steps as a base64 {@link PackedTrace} instead of JSON objects, and
+     * {@code format=binary} returns the raw trace bytes. The array is sorted
+     * as an {@code int[]}; anything but a list of ints is rejected with 400.
+     */
     @PostMapping("/sort")
-    public Map<String, Object> sort(@RequestBody Map<String, Object> request) {
+    public ResponseEntity<?> sort(@RequestBody Map<String, Object> request,
+                                  @RequestParam(defaultValue = "json") String format) {
         String algorithm = (String) request.get("algorithm");
-        List<Integer> array = (List<Integer>) request.get("array");
         
-        List<Map<String, Object>> steps = algorithmService.sort(algorithm, array);
+        int[] values = toIntArray(request.get("array"));
+        if (values == null) {
+            return ResponseEntity.badRequest().body(Map.of(
+                "success", false,
+                "message", "array must be a list of integers"
+            ));
+        }
         
-        return Map.of(
+        PackedTrace trace = algorithmService.sort(algorithm, values);
+        if (isPacked(format)) {
+            return packedResponse(trace, format, Map.of(
+                "algorithm", algorithm,
+                "finalArray", values
+            ));
+        }
+        // Step maps are built one at a time while the response is written
+        return ResponseEntity.ok(Map.of(
             "algorithm", algorithm,
-            "steps", steps,
-            "finalArray", array
-        );
+            "steps", trace.steps(),
+            "finalArray", values
+        ));
+    }
+    
+    /**
+     * Streams sort steps as newline-delimited JSON while the sort runs, so
+     * large inputs never hold their whole step list in memory. The last line
+     * is a {@code complete} record with the step count and the sorted array.
+     */
+    @PostMapping("/sort/stream")
+    public ResponseEntity<StreamingResponseBody> sortStream(@RequestBody Map<String, Object> request) {
+        String algorithm = (String) request.get("algorithm");
+        List<Integer> array = toIntList(request.get("array"));
+        if (!SortSteps.isSupported(algorithm) || array == null) {
+            return ResponseEntity.badRequest().build();
+        }
+        
+        StreamingResponseBody body = out -> {
+            try (JsonGenerator json = objectMapper.getFactory().createGenerator(out)) {
+                json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                long count = 0;
+                Iterator<Map<String, Object>> steps = algorithmService.sortSteps(algorithm, array);
+                while (steps.hasNext()) {
+                    json.writeObject(steps.next());
+                    json.writeRaw('\n');
+                    if (++count % STREAM_FLUSH_EVERY == 0) {
+                        json.flush();
+                    }
+                }
+                json.writeObject(Map.of(
+                    "type", "complete",
+                    "algorithm", algorithm,
+                    "steps", count,
+                    "finalArray", array
+                ));
+                json.writeRaw('\n');
+            }
+        };
+        return ResponseEntity.ok().contentType(NDJSON).body(body);
+    }
+    
+    /**
+     * Plays sort steps to {@code /topic/sorting} as they are generated. The
+     * sort advances one step per message on the playback scheduler, so the
+     * request returns immediately and memory stays flat.
+     */
+    @PostMapping("/sort/broadcast")
+    public ResponseEntity<Map<String, Object>> sortBroadcast(@RequestBody Map<String, Object> request) {
+        String algorithm = (String) request.get("algorithm");
+        if (!SortSteps.isSupported(algorithm)) {
+            return ResponseEntity.badRequest().body(Map.of(
+                "success", false,
+                "message", "Unknown sort algorithm: " + algorithm
+            ));
+        }
+        List<Integer> array = toIntList(request.get("array"));
+        if (array == null) {
+            return ResponseEntity.badRequest().body(Map.of(
+                "success", false,
+                "message", "array must be a list of integers"
+            ));
+        }
+        String sessionId = (String) request.get("sessionId");
+        long delayMs = request.get("delayMs") instanceof Number delay ? delay.longValue() : 100;
+        
+        String playbackId = playbackService.start(sessionId, "/topic/sorting",
+            algorithmService.sortSteps(algorithm, array), delayMs, true);
+        
+        return ResponseEntity.ok(Map.of(
+            "success", true,
+            "algorithm", algorithm,
+            "playbackId", playbackId
+        ));
     }
     
     @PostMapping("/search")
-    public Map<String, Object> search(@RequestBody Map<String, Object> request) {
+    public ResponseEntity<?> search(@RequestBody Map<String, Object> request,
+                                    @RequestParam(defaultValue = "json") String format) {
         String algorithm = (String) request.get("algorithm");
-        List<Integer> array = (List<Integer>) request.get("array");
+        List<Integer> array = toIntList(request.get("array"));
+        if (array == null) {
+            return ResponseEntity.badRequest().body(Map.of(
+                "success", false,
+                "message", "array must be a list of integers"
+            ));
+        }
         int target = (int) request.get("target");
         
-        Map<String, Object> result = algorithmService.search(algorithm, array, target);
+        if (isPacked(format)) {
+            List<Map<String, Object>> steps = new ArrayList<>();
+            int index = algorithmService.search(algorithm, array, target, steps);
+            return packedResponse(PackedTrace.of(steps), format, Map.of(
+                "found", index != -1,
+                "index", index,
+                "elementsChecked", steps.size()
+            ));
+        }
         
-        return result;
+        return ResponseEntity.ok(algorithmService.search(algorithm, array, target));
     }
     
     @PostMapping("/traverse")
@@ -69,6 +192,55 @@ public class AlgorithmController {
         );
     }
     
+    /** The values as an {@code int[]}, or {@code null} unless every element is an int. */
+    private static int[] toIntArray(Object value) {
+        if (!(value instanceof List<?> list)) {
+            return null;
+        }
+        int[] values = new int[list.size()];
+        for (int i = 0; i < values.length; i++) {
+            if (!(list.get(i) instanceof Integer n)) {
+                return null;
+            }
+            values[i] = n;
+        }
+        return values;
+    }
+    
+    /** A mutable copy of the values, or {@code null} unless every element is an int. */
+    private static List<Integer> toIntList(Object value) {
+        if (!(value instanceof List<?> list)) {
+            return null;
+        }
+        List<Integer> values = new ArrayList<>(list.size());
+        for (Object element : list) {
+            if (!(element instanceof Integer n)) {
+                return null;
+            }
+            values.add(n);
+        }
+        return values;
+    }
+    
+    private boolean isPacked(String format) {
+        return format.equalsIgnoreCase("packed") || format.equalsIgnoreCase("binary");
+    }
+    
+    private ResponseEntity<?> packedResponse(PackedTrace trace, String format, Map<String, Object> fields) {
+        if (format.equalsIgnoreCase("binary")) {
+            return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .header("X-Trace-Steps", String.valueOf(trace.size()))
+                .body(trace.toBytes());
+        }
+        
+        Map<String, Object> body = new LinkedHashMap<>(fields);
+        body.put("format", "packed");
+        body.put("stepCount", trace.size());
+        body.put("trace", trace.toBase64());
+        return ResponseEntity.ok(body);
+    }
+    
     @MessageMapping("/algorithm/step")
     @SendTo("/topic/algorithm/updates")
     public Map<String, Object> broadcastStep(Map<String, Object> step) {
@@ -2,10 +2,16 @@ package com.visualizer.controller;
 
 import com.visualizer.model.FileArray;
 import com.visualizer.model.StoredFile;
+import com.visualizer.model.Workspace;
 import com.visualizer.service.FileStorageService;
+import com.visualizer.service.StepEncoder;
+import com.visualizer.service.StepPlaybackService;
+import com.visualizer.service.StructureJournal;
+import com.visualizer.service.WorkspaceService;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
@@ -17,20 +23,101 @@ import java.util.*;
 @CrossOrigin(origins = "*")
 public class ArrayController {
 
+    private static final String TOPIC = "/topic/array-visualization";
+    private static final long STEP_DELAY_MS = 700;
+
     private final FileStorageService storageService;
-    private final SimpMessagingTemplate messagingTemplate;
-    private FileArray fileArray = new FileArray(10);
+    private final StepPlaybackService playbackService;
+    private final StepEncoder stepEncoder;
+    private final WorkspaceService workspaceService;
 
     @PostMapping("/insert")
     public ResponseEntity<Map<String, Object>> insertFile(
             @RequestParam("file") MultipartFile file,
-            @RequestParam(defaultValue = "0") int index) {
+            @RequestParam(defaultValue = "0") int index,
+            @RequestParam(defaultValue = "true") boolean explain,
+            @RequestParam(required = false) String sessionId) {
+        if (explain) {
+            playbackService.checkCapacity(sessionId, StepPlaybackService.topicFor(TOPIC, sessionId));
+        }
 
         try {
+            Workspace workspace = workspaceService.current(sessionId);
             StoredFile stored = storageService.storeFileOnly(file);
-            List<FileArray.VisualizationStep> steps = fileArray.insert(stored, index);
-            animateSteps(steps, "/topic/array-visualization");
-            return ResponseEntity.ok(Map.of("success", true, "message", "Insert started"));
+            FileArray array = workspace.getFileArray();
+            List<FileArray.VisualizationStep> steps = workspaceService.change(workspace, array, () -> {
+                int before = array.getSize();
+                List<FileArray.VisualizationStep> inserted;
+                try {
+                    inserted = array.insert(stored, index, explain);
+                } catch (IndexOutOfBoundsException e) {
+                    storageService.release(stored);
+                    throw e;
+                }
+                if (array.getSize() == before) {
+                    storageService.release(stored);
+                } else {
+                    workspaceService.record(workspace, StructureJournal.Op.ARRAY_INSERT, stored, index);
+                }
+                return inserted;
+            });
+            if (!explain) {
+                FileArray.VisualizationStep result = steps.get(0);
+                return ResponseEntity.ok(ExplainResponses.outcome(result.getOperation(), result.getDescription(), result.getMetadata()));
+            }
+            String playbackId = animateSteps(sessionId, steps);
+            return ResponseEntity.ok(Map.of("success", true, "playbackId", playbackId, "message", "Insert started"));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest()
+                    .body(Map.of("success", false, "message", e.getMessage()));
+        }
+    }
+
+    /**
+     * Inserts many files one after another from {@code index} (the end when
+     * left out), sent as multipart parts named {@code files} or a ZIP body
+     * (see {@link BulkUploads}). The array grows and shifts at most once, the
+     * journal is written once, and the visualization is a single BULK_INSERT
+     * step; {@code trace=true} animates each insert before it.
+     */
+    @PostMapping("/insert/bulk")
+    public ResponseEntity<Map<String, Object>> insertFiles(
+            @RequestParam(value = "files", required = false) List<MultipartFile> files,
+            @RequestParam(required = false) Integer index,
+            @RequestParam(defaultValue = "true") boolean explain,
+            @RequestParam(defaultValue = "false") boolean trace,
+            @RequestParam(required = false) String sessionId,
+            HttpServletRequest request) {
+        if (explain) {
+            playbackService.checkCapacity(sessionId, StepPlaybackService.topicFor(TOPIC, sessionId));
+        }
+
+        try {
+            Workspace workspace = workspaceService.current(sessionId);
+            List<StoredFile> stored = BulkUploads.store(storageService, files, request, trace);
+            FileArray array = workspace.getFileArray();
+            List<FileArray.VisualizationStep> steps = workspaceService.change(workspace, array, () -> {
+                int from = index != null ? index : array.getSize();
+                List<FileArray.VisualizationStep> inserted;
+                try {
+                    inserted = array.insertAll(stored, from, explain, trace);
+                } catch (IndexOutOfBoundsException e) {
+                    stored.forEach(storageService::release);
+                    throw e;
+                }
+                workspaceService.recordAll(workspace, StructureJournal.Op.ARRAY_INSERT, stored, from);
+                return inserted;
+            });
+            if (!explain) {
+                FileArray.VisualizationStep result = steps.get(steps.size() - 1);
+                return ResponseEntity.ok(ExplainResponses.outcome(result.getOperation(), result.getDescription(), result.getMetadata()));
+            }
+            String playbackId = animateSteps(sessionId, steps);
+            return ResponseEntity.ok(Map.of("success", true, "playbackId", playbackId, "message", "Bulk insert started",
+                    "files", stored.size(), "steps", steps.size()));
+        } catch (FileStorageService.UploadTooLargeException e) {
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE)
+                    .body(Map.of("success", false, "message", e.getMessage()));
         } catch (Exception e) {
             return ResponseEntity.badRequest()
                     .body(Map.of("success", false, "message", e.getMessage()));
@@ -38,68 +125,162 @@ public class ArrayController {
     }
 
     @DeleteMapping("/delete")
-    public ResponseEntity<Map<String, Object>> deleteElement(@RequestParam int index) {
-        List<FileArray.VisualizationStep> steps = fileArray.delete(index);
-        animateSteps(steps, "/topic/array-visualization");
-        return ResponseEntity.ok(Map.of("success", true, "message", "Delete started"));
+    public ResponseEntity<Map<String, Object>> deleteElement(@RequestParam int index,
+                                                             @RequestParam(defaultValue = "true") boolean explain,
+                                                             @RequestParam(required = false) String sessionId) {
+        if (explain) {
+            playbackService.checkCapacity(sessionId, StepPlaybackService.topicFor(TOPIC, sessionId));
+        }
+        Workspace workspace = workspaceService.current(sessionId);
+        FileArray array = workspace.getFileArray();
+        List<FileArray.VisualizationStep> steps = workspaceService.change(workspace, array, () -> {
+            StoredFile removed = array.fileAt(index);
+            List<FileArray.VisualizationStep> deleted = array.delete(index, explain);
+            if (removed != null) {
+                workspaceService.record(workspace, StructureJournal.Op.ARRAY_DELETE, index);
+                storageService.release(removed);
+            }
+            return deleted;
+        });
+        if (!explain) {
+            FileArray.VisualizationStep result = steps.get(0);
+            return ResponseEntity.ok(ExplainResponses.outcome(result.getOperation(), result.getDescription(), result.getMetadata()));
+        }
+        String playbackId = animateSteps(sessionId, steps);
+        return ResponseEntity.ok(Map.of("success", true, "playbackId", playbackId, "message", "Delete started"));
     }
 
     @GetMapping("/search")
-    public ResponseEntity<Map<String, Object>> search(@RequestParam String filename) {
-        List<FileArray.VisualizationStep> steps = fileArray.search(filename);
-        animateSteps(steps, "/topic/array-visualization");
-        return ResponseEntity.ok(Map.of("success", true, "message", "Search started"));
+    public ResponseEntity<Map<String, Object>> search(@RequestParam String filename,
+                                                      @RequestParam(defaultValue = "true") boolean explain,
+                                                      @RequestParam(required = false) String sessionId) {
+        if (explain) {
+            playbackService.checkCapacity(sessionId, StepPlaybackService.topicFor(TOPIC, sessionId));
+        }
+        List<FileArray.VisualizationStep> steps = fileArray(sessionId).search(filename, explain);
+        if (!explain) {
+            FileArray.VisualizationStep result = steps.get(0);
+            return ResponseEntity.ok(ExplainResponses.outcome(result.getOperation(), result.getDescription(), result.getMetadata()));
+        }
+        String playbackId = animateSteps(sessionId, steps);
+        return ResponseEntity.ok(Map.of("success", true, "playbackId", playbackId, "message", "Search started"));
     }
 
     @GetMapping("/access")
-    public ResponseEntity<Map<String, Object>> access(@RequestParam int index) {
-        List<FileArray.VisualizationStep> steps = fileArray.access(index);
-        animateSteps(steps, "/topic/array-visualization");
-        return ResponseEntity.ok(Map.of("success", true, "message", "Access started"));
+    public ResponseEntity<Map<String, Object>> access(@RequestParam int index,
+                                                      @RequestParam(defaultValue = "true") boolean explain,
+                                                      @RequestParam(required = false) String sessionId) {
+        if (explain) {
+            playbackService.checkCapacity(sessionId, StepPlaybackService.topicFor(TOPIC, sessionId));
+        }
+        List<FileArray.VisualizationStep> steps = fileArray(sessionId).access(index, explain);
+        if (!explain) {
+            FileArray.VisualizationStep result = steps.get(0);
+            return ResponseEntity.ok(ExplainResponses.outcome(result.getOperation(), result.getDescription(), result.getMetadata()));
+        }
+        String playbackId = animateSteps(sessionId, steps);
+        return ResponseEntity.ok(Map.of("success", true, "playbackId", playbackId, "message", "Access started"));
     }
 
     @PostMapping("/resize")
-    public ResponseEntity<Map<String, Object>> resize(@RequestParam int capacity) {
-        fileArray.resize(capacity);
-        return ResponseEntity.ok(Map.of("success", true, "capacity", capacity));
+    public ResponseEntity<Map<String, Object>> resize(@RequestParam int capacity,
+                                                      @RequestParam(defaultValue = "true") boolean explain,
+                                                      @RequestParam(required = false) String sessionId) {
+        if (capacity < 0) {
+            return ResponseEntity.badRequest().body(Map.of("success", false, "message", "Capacity must not be negative"));
+        }
+        if (explain) {
+            playbackService.checkCapacity(sessionId, StepPlaybackService.topicFor(TOPIC, sessionId));
+        }
+        Workspace workspace = workspaceService.current(sessionId);
+        FileArray array = workspace.getFileArray();
+        List<FileArray.VisualizationStep> steps = workspaceService.change(workspace, array, () -> {
+            List<StoredFile> files = array.getAllFiles();
+            List<FileArray.VisualizationStep> resized = array.resize(capacity, explain);
+            workspaceService.record(workspace, StructureJournal.Op.ARRAY_RESIZE, capacity);
+            // Shrinking drops the elements past the new capacity
+            files.subList(Math.min(capacity, files.size()), files.size()).forEach(storageService::release);
+            return resized;
+        });
+        if (!explain) {
+            FileArray.VisualizationStep result = steps.get(0);
+            return ResponseEntity.ok(ExplainResponses.outcome(result.getOperation(), result.getDescription(), result.getMetadata()));
+        }
+        String playbackId = animateSteps(sessionId, steps);
+        return ResponseEntity.ok(Map.of("success", true, "playbackId", playbackId, "capacity", capacity));
+    }
+
+    /**
+     * Picks how free slots are kept: contiguous (all at the end, as in a
+     * plain array) or gap (a gap buffer: they stay where the last edit was).
+     */
+    @PostMapping("/mode")
+    public ResponseEntity<Map<String, Object>> setMode(@RequestParam("mode") String mode,
+                                                       @RequestParam(required = false) String sessionId) {
+        FileArray.Mode arrayMode;
+        try {
+            arrayMode = FileArray.Mode.parse(mode);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of(
+                "success", false,
+                "message", "Unknown array mode: " + mode + " (expected contiguous or gap)"
+            ));
+        }
+        Workspace workspace = workspaceService.current(sessionId);
+        FileArray array = workspace.getFileArray();
+        workspaceService.change(workspace, array, () -> {
+            array.setMode(arrayMode);
+            workspaceService.record(workspace, StructureJournal.Op.ARRAY_MODE, arrayMode.ordinal());
+        });
+        return ResponseEntity.ok(Map.of(
+            "success", true,
+            "mode", arrayMode.name(),
+            "message", "Array mode set to " + arrayMode.name()
+        ));
     }
 
     @DeleteMapping("/clear")
-    public ResponseEntity<Map<String, Object>> clearArray() {
-        fileArray.clear();
+    public ResponseEntity<Map<String, Object>> clearArray(@RequestParam(required = false) String sessionId) {
+        Workspace workspace = workspaceService.current(sessionId);
+        FileArray array = workspace.getFileArray();
+        workspaceService.change(workspace, array, () -> {
+            List<StoredFile> files = array.getAllFiles();
+            array.clear();
+            workspaceService.record(workspace, StructureJournal.Op.CLEAR_ARRAY);
+            files.forEach(storageService::release);
+        });
         return ResponseEntity.ok(Map.of("success", true, "message", "Array cleared"));
     }
 
     @GetMapping("/state")
-    public ResponseEntity<Map<String, Object>> state() {
+    public ResponseEntity<Map<String, Object>> state(@RequestParam(required = false) String sessionId) {
+        FileArray array = fileArray(sessionId);
         return ResponseEntity.ok(Map.of(
-            "size", fileArray.getSize(),
-            "capacity", fileArray.getCapacity(),
-            "isEmpty", fileArray.isEmpty(),
-            "files", fileArray.getAllFiles()
+            "mode", array.getMode().name(),
+            "size", array.getSize(),
+            "capacity", array.getCapacity(),
+            "gapStart", array.getGapStart(),
+            "isEmpty", array.isEmpty(),
+            "files", array.getAllFiles()
         ));
     }
 
-    private void animateSteps(List<FileArray.VisualizationStep> steps, String topic) {
-        new Thread(() -> {
-            try {
-                for (int i = 0; i < steps.size(); i++) {
-                    FileArray.VisualizationStep step = steps.get(i);
-                    Map<String, Object> msg = Map.of(
-                        "stepNumber", i + 1,
-                        "totalSteps", steps.size(),
-                        "operation", step.getOperation(),
-                        "description", step.getDescription(),
-                        "elements", step.getCurrentState(),
-                        "highlightedElementId", step.getHighlightedElementId() != null ? step.getHighlightedElementId() : "",
-                        "metadata", step.getMetadata()
-                    );
-                    messagingTemplate.convertAndSend(topic, msg);
-                    Thread.sleep(700);
-                }
-            } catch (InterruptedException ex) {
-                Thread.currentThread().interrupt();
-            }
-        }).start();
+    private FileArray fileArray(String sessionId) {
+        return workspaceService.current(sessionId).getFileArray();
+    }
+
+    private String animateSteps(String sessionId, List<FileArray.VisualizationStep> steps) {
+        StepEncoder.Stream<FileArray.ElementSnapshot> encoder = stepEncoder.stream(null, "elements", "elementId", FileArray.ElementSnapshot::getElementId);
+        return playbackService.start(sessionId, StepPlaybackService.topicFor(TOPIC, sessionId), steps.size(), i -> {
+            FileArray.VisualizationStep step = steps.get(i);
+            Map<String, Object> message = new HashMap<>();
+            message.put("stepNumber", i + 1);
+            message.put("totalSteps", steps.size());
+            message.put("operation", step.getOperation());
+            message.put("description", step.getDescription());
+            message.put("highlightedElementId", step.getHighlightedElementId() != null ? step.getHighlightedElementId() : "");
+            message.put("metadata", step.getMetadata());
+            return encoder.encode(message, step.getCurrentState());
+        }, i -> STEP_DELAY_MS, false);
     }
 }
\ No newline at end of file
@@ -0,0 +1,193 @@
+package com.visualizer.controller;
+
+import com.visualizer.model.FileBPlusTree;
+import com.visualizer.model.StoredFile;
+import com.visualizer.service.BPlusTreeService;
+import com.visualizer.service.FileStorageService;
+import com.visualizer.service.StepEncoder;
+import com.visualizer.service.StepPlaybackService;
+import com.visualizer.service.WorkspaceService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.util.*;
+
+/**
+ * The disk-backed B+ tree index. It is shared by every session; a session id
+ * only picks the topic the animation is played on.
+ */
+@RestController
+@RequestMapping("/api/bptree")
+@RequiredArgsConstructor
+@CrossOrigin(origins = "*")
+public class BPlusTreeController {
+
+    private static final String TOPIC = "/topic/bptree-visualization";
+    private static final long STEP_DELAY_MS = 800;
+    private static final int MAX_RANGE = 1000;
+
+    private final FileStorageService storageService;
+    private final StepPlaybackService playbackService;
+    private final StepEncoder stepEncoder;
+    private final WorkspaceService workspaceService;
+    private final BPlusTreeService bPlusTreeService;
+
+    @PostMapping("/insert")
+    public ResponseEntity<Map<String, Object>> insertFile(@RequestParam("file") MultipartFile file,
+                                                          @RequestParam(defaultValue = "true") boolean explain,
+                                                          @RequestParam(required = false) String sessionId) {
+        workspaceService.checkSessionId(sessionId);
+        if (explain) {
+            playbackService.checkCapacity(sessionId, StepPlaybackService.topicFor(TOPIC, sessionId));
+        }
+        try {
+            StoredFile stored = storageService.storeFileOnly(file);
+            FileBPlusTree tree = bPlusTreeService.getTree();
+            List<FileBPlusTree.VisualizationStep> steps;
+            // The record a name replaces gives its blob back
+            synchronized (tree) {
+                StoredFile replaced = tree.get(stored.getFilename());
+                try {
+                    steps = tree.insert(stored, explain);
+                } catch (IllegalArgumentException e) {
+                    storageService.release(stored);
+                    throw e;
+                }
+                if (replaced != null) {
+                    storageService.release(replaced);
+                }
+            }
+            if (!explain) {
+                FileBPlusTree.VisualizationStep result = steps.get(0);
+                return ResponseEntity.ok(ExplainResponses.outcome(result.getOperation(), result.getDescription(), result.getMetadata()));
+            }
+            String playbackId = animateSteps(sessionId, steps);
+            return ResponseEntity.ok(Map.of("success", true, "playbackId", playbackId, "message", "Insert started", "steps", steps.size()));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest()
+                    .body(Map.of("success", false, "message", e.getMessage()));
+        }
+    }
+
+    @DeleteMapping("/delete")
+    public ResponseEntity<Map<String, Object>> deleteFile(@RequestParam String filename,
+                                                          @RequestParam(defaultValue = "true") boolean explain,
+                                                          @RequestParam(required = false) String sessionId) {
+        workspaceService.checkSessionId(sessionId);
+        if (explain) {
+            playbackService.checkCapacity(sessionId, StepPlaybackService.topicFor(TOPIC, sessionId));
+        }
+        FileBPlusTree tree = bPlusTreeService.getTree();
+        List<FileBPlusTree.VisualizationStep> steps;
+        synchronized (tree) {
+            StoredFile removed = tree.get(filename);
+            steps = tree.delete(filename, explain);
+            if (removed != null) {
+                storageService.release(removed);
+            }
+        }
+        if (!explain) {
+            FileBPlusTree.VisualizationStep result = steps.get(0);
+            return ResponseEntity.ok(ExplainResponses.outcome(result.getOperation(), result.getDescription(), result.getMetadata()));
+        }
+        String playbackId = animateSteps(sessionId, steps);
+        return ResponseEntity.ok(Map.of("success", true, "playbackId", playbackId, "message", "Delete started", "steps", steps.size()));
+    }
+
+    @GetMapping("/search")
+    public ResponseEntity<Map<String, Object>> search(@RequestParam String filename,
+                                                      @RequestParam(defaultValue = "true") boolean explain,
+                                                      @RequestParam(required = false) String sessionId) {
+        workspaceService.checkSessionId(sessionId);
+        if (explain) {
+            playbackService.checkCapacity(sessionId, StepPlaybackService.topicFor(TOPIC, sessionId));
+        }
+        List<FileBPlusTree.VisualizationStep> steps = bPlusTreeService.getTree().search(filename, explain);
+        if (!explain) {
+            FileBPlusTree.VisualizationStep result = steps.get(0);
+            return ResponseEntity.ok(ExplainResponses.outcome(result.getOperation(), result.getDescription(), result.getMetadata()));
+        }
+        String playbackId = animateSteps(sessionId, steps);
+        return ResponseEntity.ok(Map.of("success", true, "playbackId", playbackId, "message", "Search started", "steps", steps.size()));
+    }
+
+    /**
+     * Files with {@code from <= name < to} in name order, at most {@code limit}
+     * (capped at 1000); either bound may be left out. With {@code explain} the
+     * scan is also animated.
+     */
+    @GetMapping("/range")
+    public ResponseEntity<Map<String, Object>> range(@RequestParam(required = false) String from,
+                                                     @RequestParam(required = false) String to,
+                                                     @RequestParam(defaultValue = "100") int limit,
+                                                     @RequestParam(defaultValue = "false") boolean explain,
+                                                     @RequestParam(required = false) String sessionId) {
+        workspaceService.checkSessionId(sessionId);
+        if (limit < 1 || limit > MAX_RANGE) {
+            return ResponseEntity.badRequest()
+                    .body(Map.of("success", false, "message", "limit must be between 1 and " + MAX_RANGE));
+        }
+        if (explain) {
+            playbackService.checkCapacity(sessionId, StepPlaybackService.topicFor(TOPIC, sessionId));
+        }
+        FileBPlusTree tree = bPlusTreeService.getTree();
+        String low = blankToNull(from);
+        String high = blankToNull(to);
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("success", true);
+        List<StoredFile> files = tree.scan(low, high, limit);
+        body.put("count", files.size());
+        body.put("files", files);
+        if (explain) {
+            List<FileBPlusTree.VisualizationStep> steps = tree.range(low, high, limit, true);
+            body.put("playbackId", animateSteps(sessionId, steps));
+            body.put("steps", steps.size());
+        }
+        return ResponseEntity.ok(body);
+    }
+
+    @DeleteMapping("/clear")
+    public ResponseEntity<Map<String, Object>> clear() {
+        FileBPlusTree tree = bPlusTreeService.getTree();
+        synchronized (tree) {
+            tree.forEach(storageService::release);
+            tree.clear();
+        }
+        return ResponseEntity.ok(Map.of("success", true, "message", "B+ tree cleared"));
+    }
+
+    @GetMapping("/state")
+    public ResponseEntity<Map<String, Object>> state() {
+        FileBPlusTree tree = bPlusTreeService.getTree();
+        Map<String, Object> state = new LinkedHashMap<>();
+        state.put("size", tree.getSize());
+        state.put("height", tree.getHeight());
+        state.put("pages", tree.getPageCount());
+        state.put("pageSize", FileBPlusTree.PAGE_SIZE);
+        state.put("cachedPages", tree.getCachedPages());
+        state.put("cacheHits", tree.getCacheHits());
+        state.put("cacheMisses", tree.getCacheMisses());
+        return ResponseEntity.ok(state);
+    }
+
+    private static String blankToNull(String value) {
+        return value == null || value.isBlank() ? null : value;
+    }
+
+    private String animateSteps(String sessionId, List<FileBPlusTree.VisualizationStep> steps) {
+        StepEncoder.Stream<FileBPlusTree.PageSnapshot> encoder = stepEncoder.stream(null, "pages", "pageId", FileBPlusTree.PageSnapshot::getPageId);
+        return playbackService.start(sessionId, StepPlaybackService.topicFor(TOPIC, sessionId), steps.size(), i -> {
+            FileBPlusTree.VisualizationStep step = steps.get(i);
+            Map<String, Object> message = new HashMap<>();
+            message.put("stepNumber", i + 1);
+            message.put("totalSteps", steps.size());
+            message.put("operation", step.getOperation());
+            message.put("description", step.getDescription());
+            message.put("highlightedPageId", step.getHighlightedPageId() != null ? step.getHighlightedPageId() : "");
+            message.put("metadata", step.getMetadata());
+            return encoder.encode(message, step.getCurrentState());
+        }, i -> STEP_DELAY_MS, false);
+    }
+}
@@ -0,0 +1,59 @@
+package com.visualizer.controller;
+
+import com.visualizer.model.StoredFile;
+import com.visualizer.service.FileStorageService;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * The files of a bulk request ({@code POST .../bulk}): the multipart parts
+ * named {@code files}, a ZIP part among them unpacked, or a ZIP archive sent
+ * as the whole body ({@code Content-Type: application/zip}). Only the body
+ * form avoids the multipart size limits, so large datasets go as a ZIP body.
+ */
+final class BulkUploads {
+
+    /** Most files a bulk request may animate one by one with {@code trace=true}. */
+    static final int MAX_TRACE_FILES = 200;
+
+    private BulkUploads() {}
+
+    /**
+     * Stores the request's files. Throws {@link IllegalArgumentException}
+     * when there are none, or too many to trace; the count is checked as the
+     * files arrive, so nothing past the limit is stored, and any that were
+     * are given back.
+     */
+    static List<StoredFile> store(FileStorageService storageService, List<MultipartFile> parts,
+                                  HttpServletRequest request, boolean trace) throws IOException {
+        int maxFiles = trace ? MAX_TRACE_FILES : Integer.MAX_VALUE;
+        List<StoredFile> stored;
+        try {
+            if (parts != null && !parts.isEmpty()) {
+                stored = storageService.storeAll(parts, maxFiles);
+            } else if (isZipBody(request.getContentType())) {
+                if (request.getContentLengthLong() > storageService.getStreamMaxSize()) {
+                    throw new FileStorageService.UploadTooLargeException("Upload exceeds the size limit");
+                }
+                stored = storageService.storeZip(request.getInputStream(), maxFiles);
+            } else {
+                throw new IllegalArgumentException("No files: send parts named 'files' or a ZIP archive as the body");
+            }
+        } catch (FileStorageService.TooManyFilesException e) {
+            throw new IllegalArgumentException("trace is limited to " + MAX_TRACE_FILES + " files", e);
+        }
+
+        if (stored.isEmpty()) {
+            throw new IllegalArgumentException("No files in the request");
+        }
+        return stored;
+    }
+
+    private static boolean isZipBody(String contentType) {
+        return contentType != null && (contentType.startsWith("application/zip")
+            || contentType.startsWith("application/x-zip-compressed"));
+    }
+}
@@ -0,0 +1,31 @@
+package com.visualizer.controller;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Response body for a structure operation run with {@code explain=false}:
+ * nothing is animated, so the body carries the outcome of the single result
+ * step the structure returned. {@code success} is false when that step is
+ * one the structures end on when they could not do the operation, the same
+ * step the animated path would close with.
+ */
+final class ExplainResponses {
+
+    // Result operations of a pop, peek, dequeue, delete or lookup that found nothing to act on
+    private static final Set<String> FAILURES = Set.of(
+        "UNDERFLOW", "EMPTY_STACK", "QUEUE_EMPTY", "QUEUE_FULL", "EMPTY", "INVALID_INDEX", "NOT_FOUND");
+
+    private ExplainResponses() {}
+
+    static Map<String, Object> outcome(String operation, String description, Map<String, Object> metadata) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("success", !FAILURES.contains(operation));
+        body.put("operation", operation);
+        body.put("message", description);
+        body.put("steps", 0);
+        body.putAll(metadata);
+        return body;
+    }
+}
\ No newline at end of file
@@ -1,10 +1,15 @@
 package com.visualizer.controller;
 
 import com.visualizer.model.FileLinkedList;
+import com.visualizer.model.StoredFile;
 import com.visualizer.service.FileStorageService;
+import com.visualizer.service.StepEncoder;
+import com.visualizer.service.StepPlaybackService;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
@@ -16,45 +21,41 @@ import java.util.*;
 @CrossOrigin(origins = "*")
 public class FileStorageController {
     
+    private static final String TOPIC = "/topic/visualization";
+    
     private final FileStorageService storageService;
-    private final SimpMessagingTemplate messagingTemplate;
+    private final StepPlaybackService playbackService;
+    private final StepEncoder stepEncoder;
     
+    /**
+     * Each operation takes {@code explain} (default {@code true}). With it the
+     * recorded steps are animated over WebSocket; without it the list runs the
+     * operation in constant time and the response carries only the outcome.
+     */
     @PostMapping("/upload")
     public ResponseEntity<Map<String, Object>> uploadFile(
-            @RequestParam("file") MultipartFile file) {
+            @RequestParam("file") MultipartFile file,
+            @RequestParam(defaultValue = "true") boolean explain,
+            @RequestParam(required = false) String sessionId) {
+        if (explain) {
+            playbackService.checkCapacity(sessionId, StepPlaybackService.topicFor(TOPIC, sessionId));
+        }
         
         try {
             // Store file and get visualization steps
-            List<FileLinkedList.VisualizationStep> steps = storageService.storeFile(file);
+            List<FileLinkedList.VisualizationStep> steps = storageService.storeFile(sessionId, file, explain);
+            if (!explain) {
+                Map<String, Object> body = summary(steps);
+                body.put("filename", file.getOriginalFilename());
+                return ResponseEntity.ok(body);
+            }
             
             // Send steps via WebSocket with animation delay
-            new Thread(() -> {
-                try {
-                    for (int i = 0; i < steps.size(); i++) {
-                        FileLinkedList.VisualizationStep step = steps.get(i);
-                        
-                        Map<String, Object> message = new HashMap<>();
-                        message.put("stepNumber", i + 1);
-                        message.put("totalSteps", steps.size());
-                        message.put("operation", step.getOperation());
-                        message.put("description", step.getDescription());
-                        message.put("nodes", step.getCurrentState());
-                        message.put("highlightedNodeId", step.getHighlightedNodeId());
-                        message.put("metadata", step.getMetadata());
-                        
-                        messagingTemplate.convertAndSend("/topic/visualization", message);
-                        
-                        // Animation delay based on operation type
-                        int delay = getDelayForOperation(step.getOperation());
-                        Thread.sleep(delay);
-                    }
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                }
-            }).start();
+            String playbackId = animateSteps(sessionId, steps);
             
             return ResponseEntity.ok(Map.of(
                 "success", true,
+                "playbackId", playbackId,
                 "message", "File uploaded! Watch the visualization.",
                 "filename", file.getOriginalFilename(),
                 "steps", steps.size()
@@ -68,36 +69,131 @@ public class FileStorageController {
         }
     }
     
+    /**
+     * Streaming upload: the request body is the raw file
+     * ({@code Content-Type: application/octet-stream}), written straight to
+     * the upload directory without a multipart temp file. Not bound by the
+     * multipart size limits, only by {@code file.stream-max-size}. The real
+     * type can be passed as {@code contentType}, otherwise it is guessed from
+     * the filename.
+     */
+    @PostMapping(value = "/upload/stream", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<Map<String, Object>> uploadFileStream(
+            @RequestParam("filename") String filename,
+            @RequestParam(required = false) String contentType,
+            @RequestParam(defaultValue = "true") boolean explain,
+            HttpServletRequest request,
+            @RequestParam(required = false) String sessionId) {
+        if (request.getContentLengthLong() > storageService.getStreamMaxSize()) {
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(Map.of(
+                "success", false,
+                "message", "Upload exceeds the size limit"
+            ));
+        }
+        if (explain) {
+            playbackService.checkCapacity(sessionId, StepPlaybackService.topicFor(TOPIC, sessionId));
+        }
+        
+        try {
+            StoredFile stored = storageService.storeStream(filename, contentType, request.getInputStream());
+            List<FileLinkedList.VisualizationStep> steps = storageService.addFile(sessionId, stored, explain);
+            
+            Map<String, Object> body;
+            if (explain) {
+                body = new LinkedHashMap<>();
+                body.put("success", true);
+                body.put("playbackId", animateSteps(sessionId, steps));
+                body.put("message", "File uploaded! Watch the visualization.");
+                body.put("steps", steps.size());
+            } else {
+                body = summary(steps);
+            }
+            body.put("filename", filename);
+            body.put("size", stored.getSize());
+            body.put("contentHash", stored.getContentHash());
+            return ResponseEntity.ok(body);
+        
+        } catch (FileStorageService.UploadTooLargeException e) {
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(Map.of(
+                "success", false,
+                "message", e.getMessage()
+            ));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of(
+                "success", false,
+                "message", "Upload failed: " + e.getMessage()
+            ));
+        }
+    }
+    
+    /**
+     * Adds many files to the list, in the order sent, as multipart parts
+     * named {@code files} or a ZIP body (see {@link BulkUploads}). Each is
+     * linked at the tail under one lock, the journal is written once, and
+     * the visualization is a single BULK_INSERT step; {@code trace=true}
+     * animates each insert before it.
+     */
+    @PostMapping("/upload/bulk")
+    public ResponseEntity<Map<String, Object>> uploadFiles(
+            @RequestParam(value = "files", required = false) List<MultipartFile> files,
+            @RequestParam(defaultValue = "true") boolean explain,
+            @RequestParam(defaultValue = "false") boolean trace,
+            @RequestParam(required = false) String sessionId,
+            HttpServletRequest request) {
+        if (explain) {
+            playbackService.checkCapacity(sessionId, StepPlaybackService.topicFor(TOPIC, sessionId));
+        }
+        
+        try {
+            List<StoredFile> stored = BulkUploads.store(storageService, files, request, trace);
+            List<FileLinkedList.VisualizationStep> steps = storageService.addFiles(sessionId, stored, explain, trace);
+            if (!explain) {
+                FileLinkedList.VisualizationStep result = steps.get(steps.size() - 1);
+                return ResponseEntity.ok(ExplainResponses.outcome(result.getOperation(), result.getDescription(), result.getMetadata()));
+            }
+            
+            return ResponseEntity.ok(Map.of(
+                "success", true,
+                "playbackId", animateSteps(sessionId, steps),
+                "message", "Files uploaded! Watch the visualization.",
+                "files", stored.size(),
+                "steps", steps.size()
+            ));
+        
+        } catch (FileStorageService.UploadTooLargeException e) {
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(Map.of(
+                "success", false,
+                "message", e.getMessage()
+            ));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of(
+                "success", false,
+                "message", "Upload failed: " + e.getMessage()
+            ));
+        }
+    }
+    
     @GetMapping("/search")
     public ResponseEntity<Map<String, Object>> searchFile(
-            @RequestParam("filename") String filename) {
+            @RequestParam("filename") String filename,
+            @RequestParam(defaultValue = "true") boolean explain,
+            @RequestParam(required = false) String sessionId) {
+        if (explain) {
+            playbackService.checkCapacity(sessionId, StepPlaybackService.topicFor(TOPIC, sessionId));
+        }
         
         try {
-            List<FileLinkedList.VisualizationStep> steps = storageService.searchFile(filename);
+            List<FileLinkedList.VisualizationStep> steps = storageService.searchFile(sessionId, filename, explain);
+            if (!explain) {
+                return ResponseEntity.ok(summary(steps));
+            }
             
             // Animate search process
-            new Thread(() -> {
-                try {
-                    for (FileLinkedList.VisualizationStep step : steps) {
-                        Map<String, Object> message = new HashMap<>();
-                        message.put("operation", step.getOperation());
-                        message.put("description", step.getDescription());
-                        message.put("nodes", step.getCurrentState());
-                        message.put("highlightedNodeId", step.getHighlightedNodeId());
-                        message.put("metadata", step.getMetadata());
-                        
-                        messagingTemplate.convertAndSend("/topic/visualization", message);
-                        
-                        int delay = getDelayForOperation(step.getOperation());
-                        Thread.sleep(delay);
-                    }
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                }
-            }).start();
+            String playbackId = animateSteps(sessionId, steps);
             
             return ResponseEntity.ok(Map.of(
                 "success", true,
+                "playbackId", playbackId,
                 "message", "Search started for: " + filename,
                 "steps", steps.size()
             ));
@@ -112,34 +208,25 @@ public class FileStorageController {
     
     @DeleteMapping("/delete")
     public ResponseEntity<Map<String, Object>> deleteFile(
-            @RequestParam("filename") String filename) {
+            @RequestParam("filename") String filename,
+            @RequestParam(defaultValue = "true") boolean explain,
+            @RequestParam(required = false) String sessionId) {
+        if (explain) {
+            playbackService.checkCapacity(sessionId, StepPlaybackService.topicFor(TOPIC, sessionId));
+        }
         
         try {
-            List<FileLinkedList.VisualizationStep> steps = storageService.deleteFile(filename);
+            List<FileLinkedList.VisualizationStep> steps = storageService.deleteFile(sessionId, filename, explain);
+            if (!explain) {
+                return ResponseEntity.ok(summary(steps));
+            }
             
             // Animate deletion
-            new Thread(() -> {
-                try {
-                    for (FileLinkedList.VisualizationStep step : steps) {
-                        Map<String, Object> message = new HashMap<>();
-                        message.put("operation", step.getOperation());
-                        message.put("description", step.getDescription());
-                        message.put("nodes", step.getCurrentState());
-                        message.put("highlightedNodeId", step.getHighlightedNodeId());
-                        message.put("metadata", step.getMetadata());
-                        
-                        messagingTemplate.convertAndSend("/topic/visualization", message);
-                        
-                        int delay = getDelayForOperation(step.getOperation());
-                        Thread.sleep(delay);
-                    }
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                }
-            }).start();
+            String playbackId = animateSteps(sessionId, steps);
             
             return ResponseEntity.ok(Map.of(
                 "success", true,
+                "playbackId", playbackId,
                 "message", "Deletion started for: " + filename,
                 "steps", steps.size()
             ));
@@ -153,17 +240,38 @@ public class FileStorageController {
     }
     
     @GetMapping("/state")
-    public ResponseEntity<Map<String, Object>> getCurrentState() {
-        return ResponseEntity.ok(storageService.getCurrentVisualizationState());
+    public ResponseEntity<Map<String, Object>> getCurrentState(@RequestParam(required = false) String sessionId) {
+        return ResponseEntity.ok(storageService.getCurrentVisualizationState(sessionId));
     }
     
     @GetMapping("/list")
-    public ResponseEntity<Map<String, Object>> listAllFiles() {
+    public ResponseEntity<Map<String, Object>> listAllFiles(@RequestParam(required = false) String sessionId) {
         return ResponseEntity.ok(Map.of(
-            "files", storageService.getAllFiles()
+            "files", storageService.getAllFiles(sessionId)
         ));
     }
     
+    private Map<String, Object> summary(List<FileLinkedList.VisualizationStep> steps) {
+        FileLinkedList.VisualizationStep result = steps.get(0);
+        return ExplainResponses.outcome(result.getOperation(), result.getDescription(), result.getMetadata());
+    }
+    
+    private String animateSteps(String sessionId, List<FileLinkedList.VisualizationStep> steps) {
+        StepEncoder.Stream<FileLinkedList.NodeSnapshot> encoder = stepEncoder.stream(null, "nodes", "nodeId", FileLinkedList.NodeSnapshot::getNodeId);
+        return playbackService.start(sessionId, StepPlaybackService.topicFor(TOPIC, sessionId), steps.size(), i -> {
+            FileLinkedList.VisualizationStep step = steps.get(i);
+            
+            Map<String, Object> message = new HashMap<>();
+            message.put("stepNumber", i + 1);
+            message.put("totalSteps", steps.size());
+            message.put("operation", step.getOperation());
+            message.put("description", step.getDescription());
+            message.put("highlightedNodeId", step.getHighlightedNodeId());
+            message.put("metadata", step.getMetadata());
+            return encoder.encode(message, step.getCurrentState());
+        }, i -> getDelayForOperation(steps.get(i).getOperation()), false);
+    }
+    
     // Helper method to determine animation delays
     private int getDelayForOperation(String operation) {
         return switch (operation) {
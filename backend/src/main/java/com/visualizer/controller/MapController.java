@@ -3,6 +3,7 @@ package com.visualizer.controller;
 import com.visualizer.model.*;
 import com.visualizer.service.MapService;
 import com.visualizer.service.AlgorithmService;
+import com.visualizer.service.StepPlaybackService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.messaging.handler.annotation.MessageMapping;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
@@ -24,22 +25,18 @@ public class MapController {
     @Autowired
     private SimpMessagingTemplate messagingTemplate;
     
+    @Autowired
+    private StepPlaybackService playbackService;
+    
     @GetMapping("/{province}")
     public Map<String, Object> getMapData(@PathVariable String province) {
         try {
-            Graph mapGraph = null;
-            
-            switch (province.toLowerCase()) {
-                case "kzn":
-                    mapGraph = mapService.loadKZNMap();
-                    break;
-                case "gauteng":
-                    mapGraph = mapService.loadGautengMap();
-                    break;
-                default:
-                    return Map.of("error", "Invalid province");
+            if (!mapService.isKnownProvince(province)) {
+                return Map.of("error", "Invalid province");
             }
             
+            Graph mapGraph = mapService.getMap(province);
+            
             return Map.of(
                 "province", province,
                 "nodes", mapGraph.getNodes(),
@@ -56,10 +53,11 @@ public class MapController {
         String start = (String) request.get("start");
         String end = (String) request.get("end");
         String algorithm = (String) request.get("algorithm");
+        String sessionId = (String) request.get("sessionId");
+        playbackService.checkCapacity(sessionId, "/topic/pathfinding");
         
         try {
-            Graph mapGraph = province.equals("kzn") ? 
-                mapService.loadKZNMap() : mapService.loadGautengMap();
+            Graph mapGraph = mapService.getMap(province);
             
             List<AlgorithmService.AlgorithmStep> steps = null;
             Map<String, Object> result = new HashMap<>();
@@ -76,12 +74,11 @@ public class MapController {
                     break;
             }
             
-            // Broadcast steps for real-time visualization
+            // Broadcast steps for real-time visualization; playback runs on the
+            // shared scheduler so the response goes back immediately
             if (steps != null) {
-                for (AlgorithmService.AlgorithmStep step : steps) {
-                    messagingTemplate.convertAndSend("/topic/pathfinding", step);
-                    Thread.sleep(100); // Small delay for visualization
-                }
+                String playbackId = playbackService.start(sessionId, "/topic/pathfinding", steps, 100, true);
+                result.put("playbackId", playbackId);
             }
             
             // Extract final path and distance
@@ -95,11 +92,31 @@ public class MapController {
             
             return result;
             
+        } catch (StepPlaybackService.PlaybackRejectedException e) {
+            throw e;
         } catch (Exception e) {
             return Map.of("error", "Failed to find path: " + e.getMessage());
         }
     }
     
+    @PostMapping("/{province}/reload")
+    public Map<String, Object> reloadMap(@PathVariable String province) {
+        if (!mapService.isKnownProvince(province)) {
+            return Map.of("error", "Invalid province");
+        }
+        
+        try {
+            Graph mapGraph = mapService.reload(province);
+            return Map.of(
+                "province", province,
+                "nodes", mapGraph.getNodes().size(),
+                "edges", mapGraph.getEdges().size()
+            );
+        } catch (IOException e) {
+            return Map.of("error", "Failed to reload map data: " + e.getMessage());
+        }
+    }
+    
     @MessageMapping("/pathfinding/route")
     public void handleRouteRequest(Map<String, Object> request) {
         // Broadcast route request to all connected clients
@@ -124,19 +141,18 @@ public class MapController {
     }
     
     private double calculateDistance(Graph graph, List<String> path) {
+        GraphIndex index = graph.getIndex();
         double totalDistance = 0;
         
         for (int i = 0; i < path.size() - 1; i++) {
-            String from = path.get(i);
-            String to = path.get(i + 1);
+            int from = index.indexOf(path.get(i));
+            int to = index.indexOf(path.get(i + 1));
+            if (from < 0 || to < 0) continue;
             
             // Find edge between nodes
-            for (Edge edge : graph.getEdges()) {
-                if ((edge.getSource().equals(from) && edge.getTarget().equals(to)) ||
-                    (edge.getSource().equals(to) && edge.getTarget().equals(from))) {
-                    totalDistance += edge.getWeight();
-                    break;
-                }
+            double weight = index.weightBetween(from, to);
+            if (!Double.isNaN(weight)) {
+                totalDistance += weight;
             }
         }
         
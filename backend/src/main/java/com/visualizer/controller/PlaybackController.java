@@ -0,0 +1,79 @@
+package com.visualizer.controller;
+
+import com.visualizer.service.StepPlaybackService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.*;
+
+@RestController
+@RequestMapping("/api/playback")
+@RequiredArgsConstructor
+@CrossOrigin(origins = "*")
+public class PlaybackController {
+    
+    private final StepPlaybackService playbackService;
+    
+    @GetMapping("/metrics")
+    public ResponseEntity<Map<String, Object>> metrics() {
+        return ResponseEntity.ok(playbackService.getMetrics());
+    }
+    
+    @GetMapping("/{playbackId}")
+    public ResponseEntity<Map<String, Object>> describe(@PathVariable String playbackId) {
+        return playbackService.describe(playbackId)
+            .map(ResponseEntity::ok)
+            .orElseGet(() -> ResponseEntity.status(404).body(Map.of(
+                "success", false,
+                "message", "No active playback: " + playbackId
+            )));
+    }
+    
+    @PostMapping("/{playbackId}/skip")
+    public ResponseEntity<Map<String, Object>> skip(@PathVariable String playbackId,
+                                                    @RequestParam(defaultValue = "0") int steps) {
+        boolean skipped = playbackService.skip(playbackId, steps);
+        return ResponseEntity.ok(Map.of(
+            "success", skipped,
+            "message", skipped ? (steps > 0 ? "Skipped " + steps + " steps" : "Skipped to end") : "No active playback: " + playbackId
+        ));
+    }
+    
+    @PutMapping("/{playbackId}/speed")
+    public ResponseEntity<Map<String, Object>> setSpeed(@PathVariable String playbackId,
+                                                        @RequestParam double speed) {
+        try {
+            boolean updated = playbackService.setSpeed(playbackId, speed);
+            return ResponseEntity.ok(Map.of("success", updated, "speed", speed));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("success", false, "message", e.getMessage()));
+        }
+    }
+    
+    @DeleteMapping("/{playbackId}")
+    public ResponseEntity<Map<String, Object>> cancel(@PathVariable String playbackId) {
+        boolean cancelled = playbackService.cancel(playbackId);
+        return ResponseEntity.ok(Map.of(
+            "success", cancelled,
+            "message", cancelled ? "Playback cancelled" : "No active playback: " + playbackId
+        ));
+    }
+    
+    @DeleteMapping("/session/{sessionId}")
+    public ResponseEntity<Map<String, Object>> cancelSession(@PathVariable String sessionId) {
+        int cancelled = playbackService.cancelSession(sessionId);
+        return ResponseEntity.ok(Map.of("success", true, "cancelled", cancelled));
+    }
+    
+    @PutMapping("/session/{sessionId}/rate")
+    public ResponseEntity<Map<String, Object>> setRate(@PathVariable String sessionId,
+                                                       @RequestParam double stepsPerSecond) {
+        try {
+            playbackService.setSessionRate(sessionId, stepsPerSecond);
+            return ResponseEntity.ok(Map.of("success", true, "stepsPerSecond", stepsPerSecond));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("success", false, "message", e.getMessage()));
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.visualizer.controller;
+
+import com.visualizer.service.StepPlaybackService.PlaybackRejectedException;
+import com.visualizer.service.WorkspaceService.InvalidSessionException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+import java.util.Map;
+
+/**
+ * Turns a full animation queue into 429 Too Many Requests so clients back off
+ * instead of piling more playbacks onto a busy channel, and a malformed
+ * session id into 400 Bad Request.
+ */
+@RestControllerAdvice
+public class PlaybackExceptionHandler {
+    
+    @ExceptionHandler(PlaybackRejectedException.class)
+    public ResponseEntity<Map<String, Object>> playbackRejected(PlaybackRejectedException e) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+            .header(HttpHeaders.RETRY_AFTER, "1")
+            .body(Map.of("success", false, "message", e.getMessage()));
+    }
+    
+    @ExceptionHandler(InvalidSessionException.class)
+    public ResponseEntity<Map<String, Object>> invalidSession(InvalidSessionException e) {
+        return ResponseEntity.badRequest()
+            .body(Map.of("success", false, "message", e.getMessage()));
+    }
+}
@@ -2,10 +2,16 @@ package com.visualizer.controller;
 
 import com.visualizer.model.FileQueue;
 import com.visualizer.model.StoredFile;
+import com.visualizer.model.Workspace;
 import com.visualizer.service.FileStorageService;
+import com.visualizer.service.StepEncoder;
+import com.visualizer.service.StepPlaybackService;
+import com.visualizer.service.StructureJournal;
+import com.visualizer.service.WorkspaceService;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
@@ -17,20 +23,45 @@ import java.util.*;
 @CrossOrigin(origins = "*")
 public class QueueController {
     
+    private static final String TOPIC = "/topic/queue-visualization";
+    private static final long STEP_DELAY_MS = 800;
+    
     private final FileStorageService storageService;
-    private final SimpMessagingTemplate messagingTemplate;
-    private FileQueue fileQueue = new FileQueue(10);
+    private final StepPlaybackService playbackService;
+    private final StepEncoder stepEncoder;
+    private final WorkspaceService workspaceService;
     
     @PostMapping("/enqueue")
-    public ResponseEntity<Map<String, Object>> enqueueFile(@RequestParam("file") MultipartFile file) {
-                try {
+    public ResponseEntity<Map<String, Object>> enqueueFile(@RequestParam("file") MultipartFile file,
+                                                           @RequestParam(defaultValue = "true") boolean explain,
+                                                           @RequestParam(required = false) String sessionId) {
+        if (explain) {
+            playbackService.checkCapacity(sessionId, StepPlaybackService.topicFor(TOPIC, sessionId));
+        }
+        try {
+            Workspace workspace = workspaceService.current(sessionId);
             StoredFile storedFile = storageService.storeFileOnly(file);
-            List<FileQueue.VisualizationStep> steps = fileQueue.enqueue(storedFile);
+            FileQueue queue = workspace.getFileQueue();
+            List<FileQueue.VisualizationStep> steps = workspaceService.change(workspace, queue, () -> {
+                int before = queue.getSize();
+                List<FileQueue.VisualizationStep> enqueued = queue.enqueue(storedFile, explain);
+                if (queue.getSize() == before) {
+                    storageService.release(storedFile);
+                } else {
+                    workspaceService.record(workspace, StructureJournal.Op.ENQUEUE, storedFile);
+                }
+                return enqueued;
+            });
+            if (!explain) {
+                FileQueue.VisualizationStep result = steps.get(0);
+                return ResponseEntity.ok(ExplainResponses.outcome(result.getOperation(), result.getDescription(), result.getMetadata()));
+            }
             
-            animateSteps(steps, "/topic/queue-visualization");
+            String playbackId = animateSteps(sessionId, steps);
             
             return ResponseEntity.ok(Map.of(
                 "success", true,
+                "playbackId", playbackId,
                 "message", "Enqueue started",
                 "steps", steps.size()
             ));
@@ -42,65 +73,183 @@ public class QueueController {
         }
     }
     
+    /**
+     * Enqueues many files, in the order sent, as multipart parts named
+     * {@code files} or a ZIP body (see {@link BulkUploads}). Files past a
+     * full queue are dropped and reported as {@code rejected}. The journal is
+     * written once and the visualization is a single BULK_ENQUEUE step;
+     * {@code trace=true} animates each enqueue before it.
+     */
+    @PostMapping("/enqueue/bulk")
+    public ResponseEntity<Map<String, Object>> enqueueFiles(@RequestParam(value = "files", required = false) List<MultipartFile> files,
+                                                            @RequestParam(defaultValue = "true") boolean explain,
+                                                            @RequestParam(defaultValue = "false") boolean trace,
+                                                            @RequestParam(required = false) String sessionId,
+                                                            HttpServletRequest request) {
+        if (explain) {
+            playbackService.checkCapacity(sessionId, StepPlaybackService.topicFor(TOPIC, sessionId));
+        }
+        try {
+            Workspace workspace = workspaceService.current(sessionId);
+            List<StoredFile> stored = BulkUploads.store(storageService, files, request, trace);
+            FileQueue queue = workspace.getFileQueue();
+            List<FileQueue.VisualizationStep> steps = workspaceService.change(workspace, queue, () -> {
+                int before = queue.getSize();
+                List<FileQueue.VisualizationStep> enqueued = queue.enqueueAll(stored, explain, trace);
+                int added = queue.getSize() - before;
+                workspaceService.recordAll(workspace, StructureJournal.Op.ENQUEUE, stored.subList(0, added));
+                stored.subList(added, stored.size()).forEach(storageService::release);
+                return enqueued;
+            });
+            // The closing BULK_ENQUEUE step counts the files that found room
+            int added = (int) steps.get(steps.size() - 1).getMetadata().get("count");
+            if (!explain) {
+                FileQueue.VisualizationStep result = steps.get(steps.size() - 1);
+                return ResponseEntity.ok(ExplainResponses.outcome(result.getOperation(), result.getDescription(), result.getMetadata()));
+            }
+            
+            String playbackId = animateSteps(sessionId, steps);
+            
+            return ResponseEntity.ok(Map.of(
+                "success", true,
+                "playbackId", playbackId,
+                "message", "Bulk enqueue started",
+                "files", added,
+                "rejected", stored.size() - added,
+                "steps", steps.size()
+            ));
+        } catch (FileStorageService.UploadTooLargeException e) {
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(Map.of(
+                "success", false,
+                "message", e.getMessage()
+            ));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of(
+                "success", false,
+                "message", e.getMessage()
+            ));
+        }
+    }
+    
     @DeleteMapping("/dequeue")
-    public ResponseEntity<Map<String, Object>> dequeueFile() {
+    public ResponseEntity<Map<String, Object>> dequeueFile(@RequestParam(defaultValue = "true") boolean explain,
+                                                           @RequestParam(required = false) String sessionId) {
+        if (explain) {
+            playbackService.checkCapacity(sessionId, StepPlaybackService.topicFor(TOPIC, sessionId));
+        }
         try {
-            List<FileQueue.VisualizationStep> steps = fileQueue.dequeue();
-            animateSteps(steps, "/topic/queue-visualization");
-            return ResponseEntity.ok(Map.of("success", true));
+            Workspace workspace = workspaceService.current(sessionId);
+            FileQueue queue = workspace.getFileQueue();
+            List<FileQueue.VisualizationStep> steps = workspaceService.change(workspace, queue, () -> {
+                StoredFile front = queue.peekFile();
+                List<FileQueue.VisualizationStep> dequeued = queue.dequeue(explain);
+                if (front != null) {
+                    workspaceService.record(workspace, StructureJournal.Op.DEQUEUE);
+                    storageService.release(front);
+                }
+                return dequeued;
+            });
+            if (!explain) {
+                FileQueue.VisualizationStep result = steps.get(0);
+                return ResponseEntity.ok(ExplainResponses.outcome(result.getOperation(), result.getDescription(), result.getMetadata()));
+            }
+            String playbackId = animateSteps(sessionId, steps);
+            return ResponseEntity.ok(Map.of("success", true, "playbackId", playbackId));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(Map.of("success", false, "message", e.getMessage()));
         }
     }
     
     @GetMapping("/peek")
-    public ResponseEntity<Map<String, Object>> peekFile() {
+    public ResponseEntity<Map<String, Object>> peekFile(@RequestParam(defaultValue = "true") boolean explain,
+                                                        @RequestParam(required = false) String sessionId) {
+        if (explain) {
+            playbackService.checkCapacity(sessionId, StepPlaybackService.topicFor(TOPIC, sessionId));
+        }
         try {
-            List<FileQueue.VisualizationStep> steps = fileQueue.peek();
-            animateSteps(steps, "/topic/queue-visualization");
-            return ResponseEntity.ok(Map.of("success", true));
+            List<FileQueue.VisualizationStep> steps = fileQueue(sessionId).peek(explain);
+            if (!explain) {
+                FileQueue.VisualizationStep result = steps.get(0);
+                return ResponseEntity.ok(ExplainResponses.outcome(result.getOperation(), result.getDescription(), result.getMetadata()));
+            }
+            String playbackId = animateSteps(sessionId, steps);
+            return ResponseEntity.ok(Map.of("success", true, "playbackId", playbackId));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(Map.of("success", false, "message", e.getMessage()));
         }
     }
     
-    @GetMapping("/state")
-    public ResponseEntity<Map<String, Object>> getState() {
+    /**
+     * Picks how the queue is stored: linked, or ring (circular), a fixed
+     * array of maxSize slots. Files already queued move over in order.
+     */
+    @PostMapping("/mode")
+    public ResponseEntity<Map<String, Object>> setMode(@RequestParam("mode") String mode,
+                                                       @RequestParam(required = false) String sessionId) {
+        FileQueue.Mode queueMode;
+        try {
+            queueMode = FileQueue.Mode.parse(mode);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of(
+                "success", false,
+                "message", "Unknown queue mode: " + mode + " (expected linked or ring)"
+            ));
+        }
+        Workspace workspace = workspaceService.current(sessionId);
+        FileQueue queue = workspace.getFileQueue();
+        workspaceService.change(workspace, queue, () -> {
+            queue.setMode(queueMode);
+            workspaceService.record(workspace, StructureJournal.Op.QUEUE_MODE, queueMode.ordinal());
+        });
         return ResponseEntity.ok(Map.of(
-            "size", fileQueue.getSize(),
-            "maxSize", fileQueue.getMaxSize(),
-            "isEmpty", fileQueue.isEmpty(),
-            "isFull", fileQueue.isFull(),
-            "files", fileQueue.getAllFiles()
+            "success", true,
+            "mode", queueMode.name(),
+            "message", "Queue mode set to " + queueMode.name()
         ));
     }
     
+    @GetMapping("/state")
+    public ResponseEntity<Map<String, Object>> getState(@RequestParam(required = false) String sessionId) {
+        FileQueue queue = fileQueue(sessionId);
+        Map<String, Object> state = new HashMap<>(queue.ringIndices());
+        state.put("mode", queue.getMode().name());
+        state.put("size", queue.getSize());
+        state.put("maxSize", queue.getMaxSize());
+        state.put("isEmpty", queue.isEmpty());
+        state.put("isFull", queue.isFull());
+        state.put("files", queue.getAllFiles());
+        return ResponseEntity.ok(state);
+    }
+    
     @DeleteMapping("/clear")
-    public ResponseEntity<Map<String, Object>> clearQueue() {
-        fileQueue = new FileQueue(10);
+    public ResponseEntity<Map<String, Object>> clearQueue(@RequestParam(required = false) String sessionId) {
+        Workspace workspace = workspaceService.current(sessionId);
+        FileQueue queue = workspace.getFileQueue();
+        workspaceService.change(workspace, queue, () -> {
+            List<StoredFile> cleared = queue.getAllFiles();
+            queue.clear();
+            workspaceService.record(workspace, StructureJournal.Op.CLEAR_QUEUE);
+            cleared.forEach(storageService::release);
+        });
         return ResponseEntity.ok(Map.of("success", true, "message", "Queue cleared"));
     }
     
-    private void animateSteps(List<FileQueue.VisualizationStep> steps, String topic) {
-        new Thread(() -> {
-            try {
-                for (int i = 0; i < steps.size(); i++) {
-                    FileQueue.VisualizationStep step = steps.get(i);
-                    Map<String, Object> message = Map.of(
-                        "stepNumber", i + 1,
-                        "totalSteps", steps.size(),
-                        "operation", step.getOperation(),
-                        "description", step.getDescription(),
-                        "nodes", step.getCurrentState(),
-                        "highlightedNodeId", step.getHighlightedNodeId() != null ? step.getHighlightedNodeId() : "",
-                        "metadata", step.getMetadata()
-                    );
-                    messagingTemplate.convertAndSend(topic, message);
-                    Thread.sleep(800);
-                }
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-            }
-        }).start();
+    private FileQueue fileQueue(String sessionId) {
+        return workspaceService.current(sessionId).getFileQueue();
+    }
+    
+    private String animateSteps(String sessionId, List<FileQueue.VisualizationStep> steps) {
+        StepEncoder.Stream<FileQueue.NodeSnapshot> encoder = stepEncoder.stream(null, "nodes", "nodeId", FileQueue.NodeSnapshot::getNodeId);
+        return playbackService.start(sessionId, StepPlaybackService.topicFor(TOPIC, sessionId), steps.size(), i -> {
+            FileQueue.VisualizationStep step = steps.get(i);
+            Map<String, Object> message = new HashMap<>();
+            message.put("stepNumber", i + 1);
+            message.put("totalSteps", steps.size());
+            message.put("operation", step.getOperation());
+            message.put("description", step.getDescription());
+            message.put("highlightedNodeId", step.getHighlightedNodeId() != null ? step.getHighlightedNodeId() : "");
+            message.put("metadata", step.getMetadata());
+            return encoder.encode(message, step.getCurrentState());
+        }, i -> STEP_DELAY_MS, false);
     }
-}
+}
\ No newline at end of file
@@ -2,10 +2,16 @@ package com.visualizer.controller;
 
 import com.visualizer.model.FileStack;
 import com.visualizer.model.StoredFile;
+import com.visualizer.model.Workspace;
 import com.visualizer.service.FileStorageService;
+import com.visualizer.service.StepEncoder;
+import com.visualizer.service.StepPlaybackService;
+import com.visualizer.service.StructureJournal;
+import com.visualizer.service.WorkspaceService;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
@@ -17,20 +23,40 @@ import java.util.*;
 @CrossOrigin(origins = "*")
 public class StackController {
     
+    private static final String TOPIC = "/topic/stack-visualization";
+    private static final long STEP_DELAY_MS = 800;
+    
     private final FileStorageService storageService;
-    private final SimpMessagingTemplate messagingTemplate;
-    private FileStack fileStack = new FileStack(10);
+    private final StepPlaybackService playbackService;
+    private final StepEncoder stepEncoder;
+    private final WorkspaceService workspaceService;
     
     @PostMapping("/push")
-    public ResponseEntity<Map<String, Object>> pushFile(@RequestParam("file") MultipartFile file) {
+    public ResponseEntity<Map<String, Object>> pushFile(@RequestParam("file") MultipartFile file,
+                                                        @RequestParam(defaultValue = "true") boolean explain,
+                                                        @RequestParam(required = false) String sessionId) {
+        if (explain) {
+            playbackService.checkCapacity(sessionId, StepPlaybackService.topicFor(TOPIC, sessionId));
+        }
         try {
+            Workspace workspace = workspaceService.current(sessionId);
             StoredFile storedFile = storageService.storeFileOnly(file);
-            List<FileStack.VisualizationStep> steps = fileStack.push(storedFile);
+            FileStack stack = workspace.getFileStack();
+            List<FileStack.VisualizationStep> steps = workspaceService.change(workspace, stack, () -> {
+                List<FileStack.VisualizationStep> pushed = stack.push(storedFile, explain);
+                workspaceService.record(workspace, StructureJournal.Op.PUSH, storedFile);
+                return pushed;
+            });
+            if (!explain) {
+                FileStack.VisualizationStep result = steps.get(0);
+                return ResponseEntity.ok(ExplainResponses.outcome(result.getOperation(), result.getDescription(), result.getMetadata()));
+            }
             
-            animateSteps(steps, "/topic/stack-visualization");
+            String playbackId = animateSteps(sessionId, steps);
             
             return ResponseEntity.ok(Map.of(
                 "success", true,
+                "playbackId", playbackId,
                 "message", "Push started",
                 "steps", steps.size()
             ));
@@ -42,65 +68,139 @@ public class StackController {
         }
     }
     
+    /**
+     * Pushes many files, in the order sent, as multipart parts named
+     * {@code files} or a ZIP body (see {@link BulkUploads}). The stack grows
+     * at most once, the journal is written once, and the visualization is a
+     * single BULK_PUSH step; {@code trace=true} animates each push before it.
+     */
+    @PostMapping("/push/bulk")
+    public ResponseEntity<Map<String, Object>> pushFiles(@RequestParam(value = "files", required = false) List<MultipartFile> files,
+                                                         @RequestParam(defaultValue = "true") boolean explain,
+                                                         @RequestParam(defaultValue = "false") boolean trace,
+                                                         @RequestParam(required = false) String sessionId,
+                                                         HttpServletRequest request) {
+        if (explain) {
+            playbackService.checkCapacity(sessionId, StepPlaybackService.topicFor(TOPIC, sessionId));
+        }
+        try {
+            Workspace workspace = workspaceService.current(sessionId);
+            List<StoredFile> stored = BulkUploads.store(storageService, files, request, trace);
+            FileStack stack = workspace.getFileStack();
+            List<FileStack.VisualizationStep> steps = workspaceService.change(workspace, stack, () -> {
+                List<FileStack.VisualizationStep> pushed = stack.pushAll(stored, explain, trace);
+                workspaceService.recordAll(workspace, StructureJournal.Op.PUSH, stored);
+                return pushed;
+            });
+            if (!explain) {
+                FileStack.VisualizationStep result = steps.get(steps.size() - 1);
+                return ResponseEntity.ok(ExplainResponses.outcome(result.getOperation(), result.getDescription(), result.getMetadata()));
+            }
+            
+            String playbackId = animateSteps(sessionId, steps);
+            
+            return ResponseEntity.ok(Map.of(
+                "success", true,
+                "playbackId", playbackId,
+                "message", "Bulk push started",
+                "files", stored.size(),
+                "steps", steps.size()
+            ));
+        } catch (FileStorageService.UploadTooLargeException e) {
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(Map.of(
+                "success", false,
+                "message", e.getMessage()
+            ));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of(
+                "success", false,
+                "message", e.getMessage()
+            ));
+        }
+    }
+    
     @DeleteMapping("/pop")
-    public ResponseEntity<Map<String, Object>> popFile() {
+    public ResponseEntity<Map<String, Object>> popFile(@RequestParam(defaultValue = "true") boolean explain,
+                                                       @RequestParam(required = false) String sessionId) {
+        if (explain) {
+            playbackService.checkCapacity(sessionId, StepPlaybackService.topicFor(TOPIC, sessionId));
+        }
         try {
-            List<FileStack.VisualizationStep> steps = fileStack.pop();
-            animateSteps(steps, "/topic/stack-visualization");
-            return ResponseEntity.ok(Map.of("success", true));
+            Workspace workspace = workspaceService.current(sessionId);
+            FileStack stack = workspace.getFileStack();
+            List<FileStack.VisualizationStep> steps = workspaceService.change(workspace, stack, () -> {
+                StoredFile top = stack.peekFile();
+                List<FileStack.VisualizationStep> popped = stack.pop(explain);
+                if (top != null) {
+                    workspaceService.record(workspace, StructureJournal.Op.POP);
+                    storageService.release(top);
+                }
+                return popped;
+            });
+            if (!explain) {
+                FileStack.VisualizationStep result = steps.get(0);
+                return ResponseEntity.ok(ExplainResponses.outcome(result.getOperation(), result.getDescription(), result.getMetadata()));
+            }
+            String playbackId = animateSteps(sessionId, steps);
+            return ResponseEntity.ok(Map.of("success", true, "playbackId", playbackId));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(Map.of("success", false, "message", e.getMessage()));
         }
     }
     
     @GetMapping("/peek")
-    public ResponseEntity<Map<String, Object>> peekFile() {
+    public ResponseEntity<Map<String, Object>> peekFile(@RequestParam(defaultValue = "true") boolean explain,
+                                                        @RequestParam(required = false) String sessionId) {
+        if (explain) {
+            playbackService.checkCapacity(sessionId, StepPlaybackService.topicFor(TOPIC, sessionId));
+        }
         try {
-            List<FileStack.VisualizationStep> steps = fileStack.peek();
-            animateSteps(steps, "/topic/stack-visualization");
-            return ResponseEntity.ok(Map.of("success", true));
+            List<FileStack.VisualizationStep> steps = fileStack(sessionId).peek(explain);
+            if (!explain) {
+                FileStack.VisualizationStep result = steps.get(0);
+                return ResponseEntity.ok(ExplainResponses.outcome(result.getOperation(), result.getDescription(), result.getMetadata()));
+            }
+            String playbackId = animateSteps(sessionId, steps);
+            return ResponseEntity.ok(Map.of("success", true, "playbackId", playbackId));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(Map.of("success", false, "message", e.getMessage()));
         }
     }
     
     @GetMapping("/state")
-    public ResponseEntity<Map<String, Object>> getState() {
-        return ResponseEntity.ok(Map.of(
-            "size", fileStack.getSize(),
-            "maxSize", fileStack.getMaxSize(),
-            "isEmpty", fileStack.isEmpty(),
-            "isFull", fileStack.isFull(),
-            "files", fileStack.getAllFiles()
-        ));
+    public ResponseEntity<Map<String, Object>> getState(@RequestParam(required = false) String sessionId) {
+        return ResponseEntity.ok(fileStack(sessionId).state());
     }
     
     @DeleteMapping("/clear")
-    public ResponseEntity<Map<String, Object>> clearStack() {
-        fileStack = new FileStack(10);
+    public ResponseEntity<Map<String, Object>> clearStack(@RequestParam(required = false) String sessionId) {
+        Workspace workspace = workspaceService.current(sessionId);
+        FileStack stack = workspace.getFileStack();
+        workspaceService.change(workspace, stack, () -> {
+            List<StoredFile> cleared = stack.getAllFiles();
+            stack.clear();
+            workspaceService.record(workspace, StructureJournal.Op.CLEAR_STACK);
+            cleared.forEach(storageService::release);
+        });
         return ResponseEntity.ok(Map.of("success", true, "message", "Stack cleared"));
     }
     
-    private void animateSteps(List<FileStack.VisualizationStep> steps, String topic) {
-        new Thread(() -> {
-            try {
-                for (int i = 0; i < steps.size(); i++) {
-                    FileStack.VisualizationStep step = steps.get(i);
-                    Map<String, Object> message = Map.of(
-                        "stepNumber", i + 1,
-                        "totalSteps", steps.size(),
-                        "operation", step.getOperation(),
-                        "description", step.getDescription(),
-                        "nodes", step.getCurrentState(),
-                        "highlightedNodeId", step.getHighlightedNodeId() != null ? step.getHighlightedNodeId() : "",
-                        "metadata", step.getMetadata()
-                    );
-                    messagingTemplate.convertAndSend(topic, message);
-                    Thread.sleep(800);
-                }
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-            }
-        }).start();
+    private FileStack fileStack(String sessionId) {
+        return workspaceService.current(sessionId).getFileStack();
+    }
+    
+    private String animateSteps(String sessionId, List<FileStack.VisualizationStep> steps) {
+        StepEncoder.Stream<FileStack.NodeSnapshot> encoder = stepEncoder.stream(null, "nodes", "nodeId", FileStack.NodeSnapshot::getNodeId);
+        return playbackService.start(sessionId, StepPlaybackService.topicFor(TOPIC, sessionId), steps.size(), i -> {
+            FileStack.VisualizationStep step = steps.get(i);
+            Map<String, Object> message = new HashMap<>();
+            message.put("stepNumber", i + 1);
+            message.put("totalSteps", steps.size());
+            message.put("operation", step.getOperation());
+            message.put("description", step.getDescription());
+            message.put("highlightedNodeId", step.getHighlightedNodeId() != null ? step.getHighlightedNodeId() : "");
+            message.put("metadata", step.getMetadata());
+            return encoder.encode(message, step.getCurrentState());
+        }, i -> STEP_DELAY_MS, false);
     }
-}
+}
\ No newline at end of file
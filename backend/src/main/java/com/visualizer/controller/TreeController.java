@@ -2,10 +2,16 @@ package com.visualizer.controller;
 
 import com.visualizer.model.FileBinaryTree;
 import com.visualizer.model.StoredFile;
+import com.visualizer.model.Workspace;
 import com.visualizer.service.FileStorageService;
+import com.visualizer.service.StepEncoder;
+import com.visualizer.service.StepPlaybackService;
+import com.visualizer.service.StructureJournal;
+import com.visualizer.service.WorkspaceService;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
@@ -17,20 +23,40 @@ import java.util.*;
 @CrossOrigin(origins = "*")
 public class TreeController {
     
+    private static final String TOPIC = "/topic/tree-visualization";
+    private static final long STEP_DELAY_MS = 900;
+    
     private final FileStorageService storageService;
-    private final SimpMessagingTemplate messagingTemplate;
-    private FileBinaryTree binaryTree = new FileBinaryTree();
+    private final StepPlaybackService playbackService;
+    private final StepEncoder stepEncoder;
+    private final WorkspaceService workspaceService;
     
     @PostMapping("/insert")
-    public ResponseEntity<Map<String, Object>> insertFile(@RequestParam("file") MultipartFile file) {
+    public ResponseEntity<Map<String, Object>> insertFile(@RequestParam("file") MultipartFile file,
+                                                          @RequestParam(defaultValue = "true") boolean explain,
+                                                          @RequestParam(required = false) String sessionId) {
+        if (explain) {
+            playbackService.checkCapacity(sessionId, StepPlaybackService.topicFor(TOPIC, sessionId));
+        }
         try {
+            Workspace workspace = workspaceService.current(sessionId);
             StoredFile storedFile = storageService.storeFileOnly(file);
-            List<FileBinaryTree.VisualizationStep> steps = binaryTree.insert(storedFile);
+            FileBinaryTree tree = workspace.getBinaryTree();
+            List<FileBinaryTree.VisualizationStep> steps = workspaceService.change(workspace, tree, () -> {
+                List<FileBinaryTree.VisualizationStep> inserted = tree.insert(storedFile, explain);
+                workspaceService.record(workspace, StructureJournal.Op.TREE_INSERT, storedFile);
+                return inserted;
+            });
+            if (!explain) {
+                FileBinaryTree.VisualizationStep result = steps.get(0);
+                return ResponseEntity.ok(ExplainResponses.outcome(result.getOperation(), result.getDescription(), result.getMetadata()));
+            }
             
-            animateSteps(steps, "/topic/tree-visualization");
+            String playbackId = animateSteps(sessionId, steps);
             
             return ResponseEntity.ok(Map.of(
                 "success", true,
+                "playbackId", playbackId,
                 "message", "Insert started",
                 "steps", steps.size()
             ));
@@ -42,51 +68,147 @@ public class TreeController {
         }
     }
     
+    /**
+     * Inserts many files, in the order sent, as multipart parts named
+     * {@code files} or a ZIP body (see {@link BulkUploads}). The tree's
+     * snapshot is built once, the journal is written once, and the
+     * visualization is a single BULK_INSERT step; {@code trace=true}
+     * animates each insert before it.
+     */
+    @PostMapping("/insert/bulk")
+    public ResponseEntity<Map<String, Object>> insertFiles(@RequestParam(value = "files", required = false) List<MultipartFile> files,
+                                                           @RequestParam(defaultValue = "true") boolean explain,
+                                                           @RequestParam(defaultValue = "false") boolean trace,
+                                                           @RequestParam(required = false) String sessionId,
+                                                           HttpServletRequest request) {
+        if (explain) {
+            playbackService.checkCapacity(sessionId, StepPlaybackService.topicFor(TOPIC, sessionId));
+        }
+        try {
+            Workspace workspace = workspaceService.current(sessionId);
+            List<StoredFile> stored = BulkUploads.store(storageService, files, request, trace);
+            FileBinaryTree tree = workspace.getBinaryTree();
+            List<FileBinaryTree.VisualizationStep> steps = workspaceService.change(workspace, tree, () -> {
+                List<FileBinaryTree.VisualizationStep> inserted = tree.insertAll(stored, explain, trace);
+                workspaceService.recordAll(workspace, StructureJournal.Op.TREE_INSERT, stored);
+                return inserted;
+            });
+            if (!explain) {
+                FileBinaryTree.VisualizationStep result = steps.get(steps.size() - 1);
+                return ResponseEntity.ok(ExplainResponses.outcome(result.getOperation(), result.getDescription(), result.getMetadata()));
+            }
+            
+            String playbackId = animateSteps(sessionId, steps);
+            
+            return ResponseEntity.ok(Map.of(
+                "success", true,
+                "playbackId", playbackId,
+                "message", "Bulk insert started",
+                "files", stored.size(),
+                "steps", steps.size()
+            ));
+        } catch (FileStorageService.UploadTooLargeException e) {
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(Map.of(
+                "success", false,
+                "message", e.getMessage()
+            ));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of(
+                "success", false,
+                "message", e.getMessage()
+            ));
+        }
+    }
+    
     @GetMapping("/search")
-    public ResponseEntity<Map<String, Object>> searchFile(@RequestParam("filename") String filename) {
+    public ResponseEntity<Map<String, Object>> searchFile(@RequestParam("filename") String filename,
+                                                          @RequestParam(defaultValue = "true") boolean explain,
+                                                          @RequestParam(required = false) String sessionId) {
+        if (explain) {
+            playbackService.checkCapacity(sessionId, StepPlaybackService.topicFor(TOPIC, sessionId));
+        }
         try {
-            List<FileBinaryTree.VisualizationStep> steps = binaryTree.search(filename);
-            animateSteps(steps, "/topic/tree-visualization");
-            return ResponseEntity.ok(Map.of("success", true));
+            List<FileBinaryTree.VisualizationStep> steps = binaryTree(sessionId).search(filename, explain);
+            if (!explain) {
+                FileBinaryTree.VisualizationStep result = steps.get(0);
+                return ResponseEntity.ok(ExplainResponses.outcome(result.getOperation(), result.getDescription(), result.getMetadata()));
+            }
+            String playbackId = animateSteps(sessionId, steps);
+            return ResponseEntity.ok(Map.of("success", true, "playbackId", playbackId));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(Map.of("success", false, "message", e.getMessage()));
         }
     }
     
+    /**
+     * Picks how the tree balances itself: bst (none), avl or rb (red-black).
+     * Files already in the tree are reinserted under the new mode.
+     */
+    @PostMapping("/mode")
+    public ResponseEntity<Map<String, Object>> setMode(@RequestParam("mode") String mode,
+                                                       @RequestParam(required = false) String sessionId) {
+        FileBinaryTree.Mode treeMode;
+        try {
+            treeMode = FileBinaryTree.Mode.parse(mode);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of(
+                "success", false,
+                "message", "Unknown tree mode: " + mode + " (expected bst, avl or rb)"
+            ));
+        }
+        Workspace workspace = workspaceService.current(sessionId);
+        FileBinaryTree tree = workspace.getBinaryTree();
+        workspaceService.change(workspace, tree, () -> {
+            tree.setMode(treeMode);
+            workspaceService.record(workspace, StructureJournal.Op.TREE_MODE, treeMode.ordinal());
+        });
+        return ResponseEntity.ok(Map.of(
+            "success", true,
+            "mode", treeMode.name(),
+            "message", "Tree mode set to " + treeMode.name()
+        ));
+    }
+    
     @GetMapping("/state")
-    public ResponseEntity<Map<String, Object>> getState() {
+    public ResponseEntity<Map<String, Object>> getState(@RequestParam(required = false) String sessionId) {
+        FileBinaryTree tree = binaryTree(sessionId);
         return ResponseEntity.ok(Map.of(
-            "size", binaryTree.getSize(),
-            "isEmpty", binaryTree.isEmpty()
+            "size", tree.getSize(),
+            "isEmpty", tree.isEmpty(),
+            "mode", tree.getMode().name()
         ));
     }
     
     @DeleteMapping("/clear")
-    public ResponseEntity<Map<String, Object>> clearTree() {
-        binaryTree = new FileBinaryTree();
+    public ResponseEntity<Map<String, Object>> clearTree(@RequestParam(required = false) String sessionId) {
+        Workspace workspace = workspaceService.current(sessionId);
+        FileBinaryTree tree = workspace.getBinaryTree();
+        workspaceService.change(workspace, tree, () -> {
+            List<StoredFile> cleared = tree.getAllFiles();
+            tree.clear();
+            workspaceService.record(workspace, StructureJournal.Op.CLEAR_TREE);
+            cleared.forEach(storageService::release);
+        });
         return ResponseEntity.ok(Map.of("success", true, "message", "Tree cleared"));
     }
     
-    private void animateSteps(List<FileBinaryTree.VisualizationStep> steps, String topic) {
-        new Thread(() -> {
-            try {
-                for (int i = 0; i < steps.size(); i++) {
-                    FileBinaryTree.VisualizationStep step = steps.get(i);
-                    Map<String, Object> message = Map.of(
-                        "stepNumber", i + 1,
-                        "totalSteps", steps.size(),
-                        "operation", step.getOperation(),
-                        "description", step.getDescription(),
-                        "nodes", step.getCurrentState(),
-                        "highlightedNodeId", step.getHighlightedNodeId() != null ? step.getHighlightedNodeId() : "",
-                        "metadata", step.getMetadata()
-                    );
-                    messagingTemplate.convertAndSend(topic, message);
-                    Thread.sleep(900);
-                }
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-            }
-        }).start();
+    private FileBinaryTree binaryTree(String sessionId) {
+        return workspaceService.current(sessionId).getBinaryTree();
+    }
+    
+    private String animateSteps(String sessionId, List<FileBinaryTree.VisualizationStep> steps) {
+        StepEncoder.Stream<FileBinaryTree.NodeSnapshot> encoder = stepEncoder.stream(null, "nodes", "nodeId", FileBinaryTree.NodeSnapshot::getNodeId);
+        return playbackService.start(sessionId, StepPlaybackService.topicFor(TOPIC, sessionId), steps.size(), i -> {
+            FileBinaryTree.VisualizationStep step = steps.get(i);
+            Map<String, Object> message = new HashMap<>();
+            message.put("stepNumber", i + 1);
+            message.put("totalSteps", steps.size());
+            message.put("operation", step.getOperation());
+            message.put("description", step.getDescription());
+            message.put("highlightedNodeId", step.getHighlightedNodeId() != null ? step.getHighlightedNodeId() : "");
+            message.put("metadata", step.getMetadata());
+            message.put("version", step.getVersion());
+            return encoder.encode(message, step.getCurrentState());
+        }, i -> STEP_DELAY_MS, false);
     }
-}
+}
\ No newline at end of file
@@ -0,0 +1,388 @@
+package com.visualizer.model;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+
+/**
+ * The pages of a {@link FileBPlusTree}: fixed-size, in a memory-mapped file,
+ * with an LRU pool of decoded pages in front.
+ * <p>
+ * Page 0 is the header (root, height, key count, page count, free list).
+ * A node page is {@code [type][count][link]} followed by its entries:
+ * {@code [key][record]} in a leaf, whose link is the next leaf, and
+ * {@code [key][child]} in an internal node, whose link is its leftmost
+ * child. Freed pages are chained through their link and reused.
+ * <p>
+ * Changes are made to the decoded pages and written back when a write
+ * ends ({@link #endWrite}), so the file only ever holds whole operations:
+ * it survives a process crash between operations, not a power loss or a
+ * crash in the middle of writing one back. Pages fetched during a write are
+ * pinned until it ends, so the pool never evicts a page the tree still
+ * holds. Reads may run concurrently with each other (never with a write);
+ * the pool itself is synchronized.
+ */
+final class BPlusPageFile implements Closeable {
+
+    static final int PAGE_SIZE = 8192;
+    static final int HEADER_BYTES = 7;                 // type, count, link
+    static final int NO_PAGE = 0;                      // page 0 is the file header
+
+    private static final int MAGIC = 0x42505452;       // "BPTR"
+    private static final int VERSION = 1;
+    private static final int SEGMENT_PAGES = 1024;     // 8 MB per mapping
+    private static final byte FREE = 0, LEAF = 1, INTERNAL = 2;
+    private static final int RECORD_STRINGS = 5;
+    private static final int RECORD_FIXED = 8 + 12;    // size, upload time
+
+    /**
+     * A decoded node page. Leaves use {@code records}, internal nodes
+     * {@code children}. Records stay encoded (see {@link #encodeRecord}), so
+     * reading a leaf in only splits it into keys and byte slices; a record is
+     * decoded when it is returned.
+     */
+    static final class Page {
+        final int id;
+        final boolean leaf;
+        final ArrayList<String> keys = new ArrayList<>();
+        final ArrayList<byte[]> records;
+        final ArrayList<Integer> children;
+        int next;                                      // leaf: next leaf, or NO_PAGE
+        int bytes = HEADER_BYTES;                      // encoded size
+
+        Page(int id, boolean leaf) {
+            this.id = id;
+            this.leaf = leaf;
+            this.records = leaf ? new ArrayList<>() : null;
+            this.children = leaf ? null : new ArrayList<>();
+        }
+    }
+
+    private final FileChannel channel;
+    private final List<MappedByteBuffer> segments = new ArrayList<>();
+    private final int poolPages;
+    private final LinkedHashMap<Integer, Page> pool = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<Integer, Page> dirty = new LinkedHashMap<>();
+    private final Set<Integer> pinned = new HashSet<>();
+    private final byte[] scratch = new byte[PAGE_SIZE];
+    private boolean writing;
+    private long hits;
+    private long misses;
+
+    // Header
+    int root;
+    int height;
+    long size;
+    private int pageCount;
+    private int freeHead;
+
+    /** Opens {@code file}, creating it with an empty root leaf if it does not exist yet. */
+    BPlusPageFile(Path file, int poolPages) throws IOException {
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.poolPages = Math.max(16, poolPages);
+        if (channel.size() < PAGE_SIZE) {
+            reset();
+            return;
+        }
+        MappedByteBuffer header = segment(0);
+        if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION || header.getInt(8) != PAGE_SIZE) {
+            channel.close();
+            throw new IOException("B+ tree file " + file + " has an unknown format");
+        }
+        root = header.getInt(12);
+        height = header.getInt(16);
+        pageCount = header.getInt(20);
+        freeHead = header.getInt(24);
+        size = header.getLong(28);
+    }
+
+    /** Drops every page and starts over with an empty root leaf. */
+    synchronized void reset() {
+        pool.clear();
+        dirty.clear();
+        pinned.clear();
+        pageCount = 1;
+        freeHead = NO_PAGE;
+        size = 0;
+        height = 1;
+        root = allocate(true).id;
+        writeBack();
+    }
+
+    synchronized Page get(int id) {
+        Page page = pool.get(id);
+        if (page != null) {
+            hits++;
+        } else {
+            misses++;
+            page = decode(id);
+            pool.put(id, page);
+        }
+        if (writing) {
+            pinned.add(id);
+        } else {
+            evict();
+        }
+        return page;
+    }
+
+    synchronized Page allocate(boolean leaf) {
+        int id;
+        if (freeHead != NO_PAGE) {
+            id = freeHead;
+            freeHead = segment(id).getInt(offset(id) + 3);
+        } else {
+            id = pageCount++;
+        }
+        Page page = new Page(id, leaf);
+        pool.put(id, page);
+        if (writing) pinned.add(id);
+        dirty.put(id, page);
+        return page;
+    }
+
+    synchronized void free(Page page) {
+        pool.remove(page.id);
+        dirty.remove(page.id);
+        MappedByteBuffer segment = segment(page.id);
+        int offset = offset(page.id);
+        segment.put(offset, FREE);
+        segment.putShort(offset + 1, (short) 0);
+        segment.putInt(offset + 3, freeHead);
+        freeHead = page.id;
+    }
+
+    synchronized void markDirty(Page page) {
+        dirty.put(page.id, page);
+    }
+
+    /** Pins every page fetched until {@link #endWrite}. */
+    synchronized void beginWrite() {
+        writing = true;
+    }
+
+    /** Writes the changed pages and the header back, then unpins. */
+    synchronized void endWrite() {
+        writeBack();
+        writing = false;
+        pinned.clear();
+        evict();
+    }
+
+    synchronized int pageCount() {
+        return pageCount;
+    }
+
+    synchronized int cachedPages() {
+        return pool.size();
+    }
+
+    synchronized long hits() {
+        return hits;
+    }
+
+    synchronized long misses() {
+        return misses;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (!channel.isOpen()) return;
+        writeBack();
+        for (MappedByteBuffer segment : segments) {
+            segment.force();
+        }
+        channel.close();
+    }
+
+    // ===== SIZES =====
+
+    static int leafEntryBytes(String key, byte[] record) {
+        return 2 + utf8Length(key) + record.length;
+    }
+
+    static int internalEntryBytes(String key) {
+        return 2 + utf8Length(key) + 4;
+    }
+
+    static int utf8Length(String value) {
+        int length = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                length++;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c)) {
+                length += 4;
+                i++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    // ===== ENCODING =====
+
+    private void writeBack() {
+        for (Page page : dirty.values()) {
+            encode(page);
+        }
+        dirty.clear();
+        MappedByteBuffer header = segment(0);
+        header.putInt(0, MAGIC);
+        header.putInt(4, VERSION);
+        header.putInt(8, PAGE_SIZE);
+        header.putInt(12, root);
+        header.putInt(16, height);
+        header.putInt(20, pageCount);
+        header.putInt(24, freeHead);
+        header.putLong(28, size);
+    }
+
+    // Least recently used first, skipping pinned pages; a dirty page is written on the way out
+    private void evict() {
+        Iterator<Page> eldest = pool.values().iterator();
+        while (pool.size() > poolPages && eldest.hasNext()) {
+            Page page = eldest.next();
+            if (pinned.contains(page.id)) continue;
+            if (dirty.remove(page.id) != null) {
+                encode(page);
+            }
+            eldest.remove();
+        }
+    }
+
+    private void encode(Page page) {
+        ByteBuffer out = ByteBuffer.wrap(scratch);
+        out.put(page.leaf ? LEAF : INTERNAL);
+        out.putShort((short) page.keys.size());
+        out.putInt(page.leaf ? page.next : page.children.get(0));
+        for (int i = 0; i < page.keys.size(); i++) {
+            putString(out, page.keys.get(i));
+            if (page.leaf) {
+                out.put(page.records.get(i));
+            } else {
+                out.putInt(page.children.get(i + 1));
+            }
+        }
+        segment(page.id).put(offset(page.id), scratch, 0, out.position());
+    }
+
+    private Page decode(int id) {
+        ByteBuffer in = segment(id).slice(offset(id), PAGE_SIZE);
+        byte type = in.get();
+        if (type != LEAF && type != INTERNAL) {
+            throw new IllegalStateException("Page " + id + " is not a tree node");
+        }
+        Page page = new Page(id, type == LEAF);
+        int count = in.getShort() & 0xFFFF;
+        int link = in.getInt();
+        if (page.leaf) page.next = link; else page.children.add(link);
+        for (int i = 0; i < count; i++) {
+            String key = getString(in);
+            page.keys.add(key);
+            if (page.leaf) {
+                // Five length-prefixed strings, then size and upload time
+                int start = in.position();
+                for (int field = 0; field < RECORD_STRINGS; field++) {
+                    short length = in.getShort();
+                    in.position(in.position() + Math.max(0, length));
+                }
+                byte[] record = new byte[in.position() - start + RECORD_FIXED];
+                in.get(start, record);
+                in.position(start + record.length);
+                page.records.add(record);
+            } else {
+                page.children.add(in.getInt());
+            }
+        }
+        page.bytes = in.position();
+        return page;
+    }
+
+    /** A record without its name, which is the entry's key. */
+    static byte[] encodeRecord(StoredFile file) {
+        String[] strings = {file.getId(), file.getOriginalFilename(), file.getContentType(),
+            file.getStoragePath(), file.getContentHash()};
+        int length = RECORD_FIXED;
+        for (String value : strings) {
+            length += 2 + (value == null ? 0 : utf8Length(value));
+        }
+        ByteBuffer out = ByteBuffer.allocate(length);
+        for (String value : strings) {
+            putString(out, value);
+        }
+        out.putLong(file.getSize());
+        LocalDateTime uploadedAt = file.getUploadedAt();
+        out.putLong(uploadedAt == null ? Long.MIN_VALUE : uploadedAt.toEpochSecond(ZoneOffset.UTC));
+        out.putInt(uploadedAt == null ? 0 : uploadedAt.getNano());
+        return out.array();
+    }
+
+    static StoredFile decodeRecord(String key, byte[] record) {
+        ByteBuffer in = ByteBuffer.wrap(record);
+        StoredFile file = new StoredFile();
+        file.setFilename(key);
+        file.setId(getString(in));
+        file.setOriginalFilename(getString(in));
+        file.setContentType(getString(in));
+        file.setStoragePath(getString(in));
+        file.setContentHash(getString(in));
+        file.setSize(in.getLong());
+        long seconds = in.getLong();
+        int nanos = in.getInt();
+        file.setUploadedAt(seconds == Long.MIN_VALUE ? null : LocalDateTime.ofEpochSecond(seconds, nanos, ZoneOffset.UTC));
+        file.setStatus("idle");
+        return file;
+    }
+
+    private static void putString(ByteBuffer out, String value) {
+        if (value == null) {
+            out.putShort((short) -1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.putShort((short) bytes.length);
+        out.put(bytes);
+    }
+
+    private static String getString(ByteBuffer in) {
+        short length = in.getShort();
+        if (length < 0) return null;
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // ===== MAPPING =====
+
+    private static int offset(int id) {
+        return (id % SEGMENT_PAGES) * PAGE_SIZE;
+    }
+
+    // Segments are mapped as the file grows; mapping past the end extends it
+    private MappedByteBuffer segment(int id) {
+        int index = id / SEGMENT_PAGES;
+        try {
+            while (segments.size() <= index) {
+                long position = (long) segments.size() * SEGMENT_PAGES * PAGE_SIZE;
+                segments.add(channel.map(FileChannel.MapMode.READ_WRITE, position, (long) SEGMENT_PAGES * PAGE_SIZE));
+            }
+        } catch (IOException ex) {
+            throw new IllegalStateException("Could not map B+ tree pages: " + ex.getMessage(), ex);
+        }
+        return segments.get(index);
+    }
+}
@@ -1,23 +1,48 @@
 package com.visualizer.model;
 
 import lombok.Data;
+import lombok.ToString;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.EqualsAndHashCode;
+import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import java.util.*;
 
+/**
+ * The files of the array page, stored as a gap buffer: {@code buffer} holds
+ * the elements before {@code gapStart}, then the free slots up to
+ * {@code gapEnd}, then the rest. An element's index is its position among
+ * the elements, never stored, so nothing has to be renumbered.
+ * <p>
+ * In CONTIGUOUS mode the gap is always at the end, as in a plain array: an
+ * insert or delete shifts everything after it. In GAP_BUFFER mode the gap
+ * stays where the last change was (the cursor), so edits next to each
+ * other only move the elements between them. Either way an insert into a
+ * full array first doubles it, so appends are amortized O(1).
+ */
 @Data
 public class FileArray {
 
+    public enum Mode {
+        CONTIGUOUS, GAP_BUFFER;
+
+        /** Accepts the constant name in any case, or "gap" for GAP_BUFFER. */
+        public static Mode parse(String name) {
+            String key = name.trim().toUpperCase(Locale.ROOT).replace('-', '_');
+            return key.equals("GAP") ? GAP_BUFFER : valueOf(key);
+        }
+    }
+
     @Data
     @AllArgsConstructor
     public static class Element {
         private StoredFile file;
         private String elementId;
-        private int index;
 
-        public Element(StoredFile file, int index) {
+        public Element(StoredFile file) {
             this.file = file;
             this.elementId = UUID.randomUUID().toString();
-            this.index = index;
         }
     }
 
@@ -41,137 +66,317 @@ public class FileArray {
         private Map<String, Object> metadata;
     }
 
-    private List<Element> array;
-    private int capacity;
-    private List<VisualizationStep> steps;
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private Element[] buffer;
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private int gapStart;
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private int gapEnd;
+    private volatile Mode mode = Mode.CONTIGUOUS;
+
+    // Changes are exclusive; searches and snapshots run alongside each other
+    @Getter(AccessLevel.NONE)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private final StructureLock lock = new StructureLock();
 
     public FileArray(int capacity) {
-        this.array = new ArrayList<>();
-        this.capacity = capacity;
-        this.steps = new ArrayList<>();
+        this.buffer = new Element[capacity];
+        this.gapEnd = capacity;
     }
 
     // ===== INSERT =====
     public List<VisualizationStep> insert(StoredFile file, int index) {
-        steps.clear();
-        if (array.size() >= capacity) {
+        return insert(file, index, true);
+    }
+
+    /**
+     * With {@code explain} every stage is recorded with a snapshot of the
+     * array; without it the insert is applied directly and a single result
+     * step (the final step's operation and metadata) is returned.
+     */
+    public List<VisualizationStep> insert(StoredFile file, int index, boolean explain) {
+        return lock.write(() -> insertLocked(file, index, explain));
+    }
+
+    private List<VisualizationStep> insertLocked(StoredFile file, int index, boolean explain) {
+        if (index < 0) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+        }
+        int position = Math.min(index, size());
+        Element newElement = new Element(file);
+        List<VisualizationStep> steps = explain ? new ArrayList<>() : List.of();
+
+        // Step 1: Create Element
+        List<ElementSnapshot> before = explain ? convertSnapshots() : null;
+        if (explain) {
             steps.add(new VisualizationStep(
-                "OVERFLOW",
-                "⛔ Array Overflow! Capacity: " + capacity,
-                convertSnapshots(), null,
-                Map.of("isFull", true)
+                "CREATE_ELEMENT",
+                "📦 Creating new element for: " + file.getFilename(),
+                before, null,
+                layout(Map.of("targetIndex", index))
             ));
-            return steps;
         }
 
-        // Step 1: Create Element
-        Element newElement = new Element(file, Math.min(index, array.size()));
+        // Step 2: Make room, growing a full array
+        if (gapStart == gapEnd) {
+            int oldCapacity = buffer.length;
+            reallocate(Math.max(1, oldCapacity * 2));
+            if (explain) {
+                steps.add(new VisualizationStep(
+                    "RESIZE",
+                    "Array full: copying " + size() + " files into a new array of " + buffer.length + " slots",
+                    before, null,
+                    layout(Map.of("oldCapacity", oldCapacity, "capacity", buffer.length, "copied", size()))
+                ));
+            }
+        }
+
+        // Step 3: Insert or Append
+        int size = size();
+        if (mode == Mode.GAP_BUFFER) {
+            int moved = moveGap(position);
+            if (explain && moved > 0) {
+                steps.add(new VisualizationStep(
+                    "MOVE_GAP",
+                    "Moving the gap to index " + position + ": " + moved + " elements moved",
+                    before, null,
+                    layout(Map.of("moved", moved))
+                ));
+            }
+            buffer[gapStart++] = newElement;
+            if (explain) {
+                steps.add(new VisualizationStep(
+                    "FILL_GAP",
+                    "Placed in the gap at index " + position,
+                    convertSnapshots(), newElement.getElementId(),
+                    layout(Map.of("size", size + 1))
+                ));
+            }
+        } else {
+            System.arraycopy(buffer, position, buffer, position + 1, size - position);
+            buffer[position] = newElement;
+            gapStart++;
+            if (explain && position == size) {
+                steps.add(new VisualizationStep(
+                    "APPEND",
+                    "✨ Added to end at index " + position,
+                    convertSnapshots(), newElement.getElementId(),
+                    layout(Map.of("size", size + 1))
+                ));
+            } else if (explain) {
+                steps.add(new VisualizationStep(
+                    "SHIFT_RIGHT",
+                    "➡️ Shifting elements to make space",
+                    convertSnapshots(), newElement.getElementId(),
+                    layout(Map.of("size", size + 1, "shifted", size - position))
+                ));
+            }
+        }
+
+        if (!explain) {
+            return result("COMPLETE", "Insert complete", newElement.getElementId(), Map.of("count", size()));
+        }
         steps.add(new VisualizationStep(
-            "CREATE_ELEMENT",
-            "📦 Creating new element for: " + file.getFilename(),
-            convertSnapshots(), null,
-            Map.of("targetIndex", index)
+            "COMPLETE",
+            "✅ Insert complete! Size: " + size(),
+            steps.get(steps.size() - 1).getCurrentState(), newElement.getElementId(),
+            layout(Map.of("count", size()))
         ));
+        return steps;
+    }
 
-        // Step 2: Insert or Append
-        if (index >= array.size()) {
-            array.add(newElement);
-            newElement.setIndex(array.size() - 1);
-            steps.add(new VisualizationStep(
-                "APPEND",
-                "✨ Added to end at index " + (array.size() - 1),
-                convertSnapshots(), newElement.getElementId(),
-                Map.of("size", array.size())
-            ));
+    /**
+     * Inserts {@code files} one after another from {@code index} on. The
+     * array grows at most once and the elements after {@code index} move
+     * once, whatever the number of files. The result is a single BULK_INSERT
+     * step, with a snapshot of the array when {@code explain} is on;
+     * {@code trace} puts each insert's own steps before it.
+     */
+    public List<VisualizationStep> insertAll(List<StoredFile> files, int index, boolean explain, boolean trace) {
+        return lock.write(() -> insertAllLocked(files, index, explain, trace));
+    }
+
+    private List<VisualizationStep> insertAllLocked(List<StoredFile> files, int index, boolean explain, boolean trace) {
+        if (index < 0) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+        }
+        int position = Math.min(index, size());
+        int oldCapacity = buffer.length;
+        List<VisualizationStep> steps = new ArrayList<>();
+        if (explain && trace) {
+            for (int i = 0; i < files.size(); i++) {
+                steps.addAll(insertLocked(files.get(i), position + i, true));
+            }
         } else {
-            array.add(index, newElement);
-            reindex();
-            steps.add(new VisualizationStep(
-                "SHIFT_RIGHT",
-                "➡️ Shifting elements to make space",
-                convertSnapshots(), newElement.getElementId(),
-                Map.of("size", array.size())
-            ));
+            int capacity = buffer.length;
+            while (capacity - size() < files.size()) {
+                capacity = Math.max(1, capacity * 2);
+            }
+            if (capacity != buffer.length) {
+                reallocate(capacity);
+            }
+            if (mode == Mode.GAP_BUFFER) {
+                moveGap(position);
+                for (StoredFile file : files) {
+                    buffer[gapStart++] = new Element(file);
+                }
+            } else {
+                System.arraycopy(buffer, position, buffer, position + files.size(), size() - position);
+                for (int i = 0; i < files.size(); i++) {
+                    buffer[position + i] = new Element(files.get(i));
+                }
+                gapStart += files.size();
+            }
         }
 
+        Map<String, Object> metadata = layout(Map.of("count", files.size(), "size", size(),
+            "index", position, "oldCapacity", oldCapacity));
+        if (!explain) {
+            return result("BULK_INSERT", "Inserted " + files.size() + " files", null, metadata);
+        }
         steps.add(new VisualizationStep(
-            "COMPLETE",
-            "✅ Insert complete! Size: " + array.size(),
-            convertSnapshots(), newElement.getElementId(),
-            Map.of("count", array.size())
+            "BULK_INSERT",
+            "Inserted " + files.size() + " files from index " + position + ". Size: " + size(),
+            convertSnapshots(), null,
+            metadata
         ));
-        return new ArrayList<>(steps);
+        return steps;
     }
 
     // ===== DELETE =====
     public List<VisualizationStep> delete(int index) {
-        steps.clear();
-        if (array.isEmpty()) {
+        return delete(index, true);
+    }
+
+    public List<VisualizationStep> delete(int index, boolean explain) {
+        return lock.write(() -> deleteLocked(index, explain));
+    }
+
+    private List<VisualizationStep> deleteLocked(int index, boolean explain) {
+        int size = size();
+        if (!explain) {
+            if (size == 0) {
+                return result("EMPTY", "Array empty", null, Map.of());
+            }
+            if (index < 0 || index >= size) {
+                return result("INVALID_INDEX", "Invalid index", null, Map.of());
+            }
+            remove(index);
+            return result("COMPLETE", "Deletion complete", null, Map.of("count", size()));
+        }
+
+        List<VisualizationStep> steps = new ArrayList<>();
+        List<ElementSnapshot> before = convertSnapshots();
+        if (size == 0) {
             steps.add(new VisualizationStep(
                 "EMPTY",
                 "❌ Cannot delete, array empty",
-                convertSnapshots(), null,
-                Map.of()
+                before, null,
+                layout(Map.of())
             ));
             return steps;
         }
-        if (index < 0 || index >= array.size()) {
+        if (index < 0 || index >= size) {
             steps.add(new VisualizationStep(
                 "INVALID_INDEX",
                 "⚠️ Invalid index: " + index,
-                convertSnapshots(), null,
-                Map.of()
+                before, null,
+                layout(Map.of())
             ));
             return steps;
         }
 
-        Element target = array.get(index);
+        Element target = get(index);
         steps.add(new VisualizationStep(
             "SELECT",
             "🗑️ Selecting element at index " + index + ": " + target.getFile().getFilename(),
-            convertSnapshots(), target.getElementId(),
-            Map.of("index", index)
+            before, target.getElementId(),
+            layout(Map.of("index", index))
         ));
 
-        array.remove(index);
-        reindex();
-
-        steps.add(new VisualizationStep(
-            "SHIFT_LEFT",
-            "⬅️ Shifting elements left after removal",
-            convertSnapshots(), null,
-            Map.of("size", array.size())
-        ));
+        int moved = remove(index);
+        List<ElementSnapshot> after = convertSnapshots();
+        if (mode == Mode.GAP_BUFFER) {
+            if (moved > 0) {
+                steps.add(new VisualizationStep(
+                    "MOVE_GAP",
+                    "Moved the gap to index " + index + ": " + moved + " elements moved",
+                    before, target.getElementId(),
+                    layout(Map.of("moved", moved))
+                ));
+            }
+            steps.add(new VisualizationStep(
+                "WIDEN_GAP",
+                "Removed: its slot joins the gap",
+                after, null,
+                layout(Map.of("size", size()))
+            ));
+        } else {
+            steps.add(new VisualizationStep(
+                "SHIFT_LEFT",
+                "⬅️ Shifting elements left after removal",
+                after, null,
+                layout(Map.of("size", size(), "shifted", moved))
+            ));
+        }
         steps.add(new VisualizationStep(
             "COMPLETE",
-            "✅ Deletion complete! Size: " + array.size(),
-            convertSnapshots(), null,
-            Map.of("count", array.size())
+            "✅ Deletion complete! Size: " + size(),
+            after, null,
+            layout(Map.of("count", size()))
         ));
-        return new ArrayList<>(steps);
+        return steps;
     }
 
     // ===== SEARCH =====
     public List<VisualizationStep> search(String filename) {
-        steps.clear();
-        if (array.isEmpty()) {
+        return search(filename, true);
+    }
+
+    public List<VisualizationStep> search(String filename, boolean explain) {
+        return lock.read(() -> searchLocked(filename, explain));
+    }
+
+    private List<VisualizationStep> searchLocked(String filename, boolean explain) {
+        int size = size();
+        if (!explain) {
+            if (size == 0) {
+                return result("EMPTY", "Array empty", null, Map.of());
+            }
+            for (int i = 0; i < size; i++) {
+                Element e = get(i);
+                if (e.getFile().getFilename().equals(filename)) {
+                    return result("FOUND", "Found", e.getElementId(), Map.of("index", i));
+                }
+            }
+            return result("NOT_FOUND", "Not found", null, Map.of());
+        }
+
+        List<VisualizationStep> steps = new ArrayList<>();
+        if (size == 0) {
             steps.add(new VisualizationStep("EMPTY", "❌ Array empty", null, null, Map.of()));
             return steps;
         }
 
-        for (int i = 0; i < array.size(); i++) {
-            Element e = array.get(i);
+        // Nothing changes during a search, so every step shares one snapshot
+        List<ElementSnapshot> state = convertSnapshots();
+        for (int i = 0; i < size; i++) {
+            Element e = get(i);
             steps.add(new VisualizationStep(
                 "COMPARE",
                 "🔍 Comparing index " + i + " (" + e.getFile().getFilename() + ")",
-                convertSnapshots(), e.getElementId(), Map.of("index", i)
+                state, e.getElementId(), Map.of("index", i)
             ));
 
             if (e.getFile().getFilename().equals(filename)) {
                 steps.add(new VisualizationStep(
                     "FOUND",
                     "🎯 Found file at index " + i,
-                    convertSnapshots(), e.getElementId(),
+                    state, e.getElementId(),
                     Map.of("index", i)
                 ));
                 return steps;
@@ -180,15 +385,31 @@ public class FileArray {
         steps.add(new VisualizationStep(
             "NOT_FOUND",
             "❌ File not found: " + filename,
-            convertSnapshots(), null, Map.of()
+            state, null, Map.of()
         ));
         return steps;
     }
 
     // ===== ACCESS =====
     public List<VisualizationStep> access(int index) {
-        steps.clear();
-        if (index < 0 || index >= array.size()) {
+        return access(index, true);
+    }
+
+    public List<VisualizationStep> access(int index, boolean explain) {
+        return lock.read(() -> accessLocked(index, explain));
+    }
+
+    private List<VisualizationStep> accessLocked(int index, boolean explain) {
+        if (!explain) {
+            if (index < 0 || index >= size()) {
+                return result("INVALID_INDEX", "Invalid index", null, Map.of());
+            }
+            Element e = get(index);
+            return result("ACCESS", "Accessed", e.getElementId(), Map.of("file", e.getFile().getFilename()));
+        }
+
+        List<VisualizationStep> steps = new ArrayList<>();
+        if (index < 0 || index >= size()) {
             steps.add(new VisualizationStep(
                 "INVALID_INDEX",
                 "⚠️ Invalid access index: " + index,
@@ -197,7 +418,7 @@ public class FileArray {
             ));
             return steps;
         }
-        Element e = array.get(index);
+        Element e = get(index);
         steps.add(new VisualizationStep(
             "ACCESS",
             "⚡ Access element at index " + index + ": " + e.getFile().getFilename(),
@@ -207,48 +428,187 @@ public class FileArray {
         return steps;
     }
 
+    // ===== RESIZE =====
     public List<VisualizationStep> resize(int newCap) {
-        steps.clear();
-        capacity = newCap;
-        if (array.size() > newCap) array = new ArrayList<>(array.subList(0, newCap));
+        return resize(newCap, true);
+    }
+
+    /**
+     * Copies the elements into a new array of {@code newCap} slots, dropping
+     * any past its end. The gap ends up after the last element.
+     */
+    public List<VisualizationStep> resize(int newCap, boolean explain) {
+        if (newCap < 0) {
+            throw new IllegalArgumentException("Capacity must not be negative: " + newCap);
+        }
+        return lock.write(() -> resizeLocked(newCap, explain));
+    }
+
+    private List<VisualizationStep> resizeLocked(int newCap, boolean explain) {
+        int oldCapacity = buffer.length;
+        int size = size();
+        List<ElementSnapshot> before = explain ? convertSnapshots() : null;
+        moveGap(size);
+        reallocate(newCap);
+        int dropped = size - size();
+        if (!explain) {
+            return result("RESIZE", "Resized", null, Map.of("capacity", newCap));
+        }
+
+        List<VisualizationStep> steps = new ArrayList<>();
+        steps.add(new VisualizationStep(
+            "ALLOCATE",
+            "Allocating a new array of " + newCap + " slots (was " + oldCapacity + ")",
+            before, null,
+            Map.of("oldCapacity", oldCapacity, "capacity", newCap)
+        ));
         steps.add(new VisualizationStep(
             "RESIZE",
-            "⚙️ Resized array to " + newCap,
-            convertSnapshots(), null,
-            Map.of("capacity", newCap)
+            "⚙️ Resized array to " + newCap + ": " + size() + " files copied"
+                + (dropped > 0 ? ", " + dropped + " past the end dropped" : ""),
+            dropped > 0 ? convertSnapshots() : before, null,
+            layout(Map.of("oldCapacity", oldCapacity, "capacity", newCap, "copied", size(), "dropped", dropped))
         ));
         return steps;
     }
 
+    /**
+     * CONTIGUOUS closes the gap up at the end; GAP_BUFFER leaves it there
+     * until the next edit moves it.
+     */
+    public void setMode(Mode mode) {
+        lock.write(() -> {
+            if (mode == Mode.CONTIGUOUS) {
+                moveGap(size());
+            }
+            this.mode = mode;
+        });
+    }
+
+    // Outcome of a call with explain off: no snapshot, fixed description
+    private static List<VisualizationStep> result(String operation, String description,
+                                                  String highlightedElementId, Map<String, Object> metadata) {
+        return List.of(new VisualizationStep(operation, description, List.of(), highlightedElementId, metadata));
+    }
+
+    // ===== GAP BUFFER =====
+
+    private int size() {
+        return buffer.length - (gapEnd - gapStart);
+    }
+
+    private Element get(int index) {
+        return buffer[index < gapStart ? index : index + (gapEnd - gapStart)];
+    }
+
+    /** Moves the gap to start at {@code index}; returns how many elements moved. */
+    private int moveGap(int index) {
+        if (index < gapStart) {
+            int count = gapStart - index;
+            System.arraycopy(buffer, index, buffer, gapEnd - count, count);
+            gapStart = index;
+            gapEnd -= count;
+            Arrays.fill(buffer, index, Math.min(index + count, gapEnd), null);
+            return count;
+        }
+        if (index > gapStart) {
+            int count = index - gapStart;
+            System.arraycopy(buffer, gapEnd, buffer, gapStart, count);
+            int oldGapEnd = gapEnd;
+            gapStart += count;
+            gapEnd += count;
+            Arrays.fill(buffer, Math.max(oldGapEnd, gapStart), gapEnd, null);
+            return count;
+        }
+        return 0;
+    }
+
+    /** Removes the element at {@code index}; returns how many elements moved to close or reach it. */
+    private int remove(int index) {
+        int size = size();
+        if (mode == Mode.CONTIGUOUS) {
+            System.arraycopy(buffer, index + 1, buffer, index, size - index - 1);
+            buffer[--gapStart] = null;
+            return size - index - 1;
+        }
+        // Whichever side of the gap the element is on, it joins the gap from there
+        if (index < gapStart) {
+            int moved = moveGap(index + 1);
+            buffer[--gapStart] = null;
+            return moved;
+        }
+        int moved = moveGap(index);
+        buffer[gapEnd++] = null;
+        return moved;
+    }
+
+    // The elements before the gap keep their slots, those after it move to the new end
+    private void reallocate(int capacity) {
+        int size = size();
+        int kept = Math.min(size, capacity);
+        Element[] grown = new Element[capacity];
+        int head = Math.min(gapStart, kept);
+        System.arraycopy(buffer, 0, grown, 0, head);
+        int tail = kept - head;
+        System.arraycopy(buffer, gapEnd, grown, capacity - tail, tail);
+        buffer = grown;
+        gapStart = head;
+        gapEnd = capacity - tail;
+    }
+
+    // Capacity, plus where the gap is in GAP_BUFFER mode, for drawing it
+    private Map<String, Object> layout(Map<String, Object> metadata) {
+        Map<String, Object> withLayout = new HashMap<>(metadata);
+        withLayout.put("capacity", buffer.length);
+        if (mode == Mode.GAP_BUFFER) {
+            withLayout.put("gapStart", gapStart);
+            withLayout.put("gapSize", gapEnd - gapStart);
+        }
+        return withLayout;
+    }
+
     private List<ElementSnapshot> convertSnapshots() {
-        List<ElementSnapshot> snaps = new ArrayList<>();
-        for (Element e : array) {
+        int size = size();
+        List<ElementSnapshot> snaps = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            Element e = get(i);
             snaps.add(new ElementSnapshot(
                 e.getElementId(),
                 e.getFile().getFilename(),
                 e.getFile().getSizeFormatted(),
                 e.getFile().getContentType(),
-                e.getIndex()
+                i
             ));
         }
         return snaps;
     }
 
-    private void reindex() {
-        for (int i = 0; i < array.size(); i++) {
-            array.get(i).setIndex(i);
-        }
+    public void clear() {
+        lock.write(() -> {
+            Arrays.fill(buffer, null);
+            gapStart = 0;
+            gapEnd = buffer.length;
+        });
     }
 
-    public void clear() { array.clear(); }
+    public int getSize() { return lock.read(this::size); }
+    public int getCapacity() { return lock.read(() -> buffer.length); }
+    public boolean isEmpty() { return lock.read(() -> size() == 0); }
 
-    public int getSize() { return array.size(); }
-    public int getCapacity() { return capacity; }
-    public boolean isEmpty() { return array.isEmpty(); }
+    /** Where the gap starts: the cursor of GAP_BUFFER mode, the end in CONTIGUOUS mode. */
+    public int getGapStart() { return lock.read(() -> gapStart); }
+
+    /** The file at {@code index}, or {@code null} if there is none. */
+    public StoredFile fileAt(int index) {
+        return lock.read(() -> index >= 0 && index < size() ? get(index).getFile() : null);
+    }
 
     public List<StoredFile> getAllFiles() {
-        List<StoredFile> files = new ArrayList<>();
-        for (Element e : array) files.add(e.getFile());
-        return files;
+        return lock.read(() -> {
+            int size = size();
+            List<StoredFile> files = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) files.add(get(i).getFile());
+            return files;
+        });
     }
-}
\ No newline at end of file
+}
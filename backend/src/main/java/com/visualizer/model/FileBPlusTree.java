@@ -0,0 +1,662 @@
+package com.visualizer.model;
+
+import com.visualizer.model.BPlusPageFile.Page;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * Files indexed by name in a B+ tree of fixed-size pages on disk (see
+ * {@link BPlusPageFile}), for collections too large to keep as nodes on the
+ * heap. Leaves hold the file records and are chained in name order, so a
+ * range of names is one descent plus a walk along the leaves.
+ * <p>
+ * Names are unique: inserting a name that is already indexed replaces its
+ * record. Pages split when an entry no longer fits, and a page that drops
+ * below a quarter full borrows from a sibling or merges with it.
+ * <p>
+ * With {@code explain} each call records the pages it visits, splits and
+ * merges; the snapshot in each step shows those pages only, never the whole
+ * tree. Changes are exclusive, searches and scans run alongside each other.
+ */
+public class FileBPlusTree implements Closeable {
+
+    public static final int PAGE_SIZE = BPlusPageFile.PAGE_SIZE;
+    public static final int MAX_KEY_BYTES = 1024;
+    public static final int MAX_ENTRY_BYTES = PAGE_SIZE / 4;
+
+    private static final int MIN_FILL = PAGE_SIZE / 4;
+
+    @Data
+    @AllArgsConstructor
+    public static class VisualizationStep {
+        private String operation;
+        private String description;
+        private List<PageSnapshot> currentState;
+        private String highlightedPageId;
+        private Map<String, Object> metadata;
+    }
+
+    /** A page as shown in a step; {@code level} 0 is the leaves. */
+    @Data
+    @AllArgsConstructor
+    public static class PageSnapshot {
+        private String pageId;
+        private boolean leaf;
+        private int level;
+        private List<String> keys;
+        private List<String> childIds;   // internal pages only
+        private String nextId;           // leaves only, null at the last leaf
+        private int fill;                // percent of the page in use
+    }
+
+    private final BPlusPageFile pages;
+    private final StructureLock lock = new StructureLock();
+
+    /** Opens the tree stored in {@code file}, creating an empty one if there is none. */
+    public FileBPlusTree(Path file, int bufferPages) throws IOException {
+        this.pages = new BPlusPageFile(file, bufferPages);
+    }
+
+    public long getSize() {
+        return lock.read(() -> pages.size);
+    }
+
+    public int getHeight() {
+        return lock.read(() -> pages.height);
+    }
+
+    public int getPageCount() {
+        return pages.pageCount();
+    }
+
+    public int getCachedPages() {
+        return pages.cachedPages();
+    }
+
+    public long getCacheHits() {
+        return pages.hits();
+    }
+
+    public long getCacheMisses() {
+        return pages.misses();
+    }
+
+    // ===== INSERT =====
+
+    /**
+     * Adds the file under its name, or replaces the record already there.
+     * Without {@code explain} a single result step is returned, whose
+     * metadata says whether a record was replaced.
+     */
+    public List<VisualizationStep> insert(StoredFile file, boolean explain) {
+        String key = file.getFilename();
+        if (BPlusPageFile.utf8Length(key) > MAX_KEY_BYTES) {
+            throw new IllegalArgumentException("File name is longer than " + MAX_KEY_BYTES + " bytes");
+        }
+        byte[] record = BPlusPageFile.encodeRecord(file);
+        if (BPlusPageFile.leafEntryBytes(key, record) > MAX_ENTRY_BYTES) {
+            throw new IllegalArgumentException("File record does not fit in a quarter of a page");
+        }
+        return lock.write(() -> {
+            pages.beginWrite();
+            try {
+                return insertLocked(key, record, explain);
+            } finally {
+                pages.endWrite();
+            }
+        });
+    }
+
+    private List<VisualizationStep> insertLocked(String key, byte[] record, boolean explain) {
+        Trace trace = explain ? new Trace() : null;
+        if (explain) {
+            trace.step("START_INSERT", "Inserting: " + key, null, Map.of("action", "insert", "filename", key));
+        }
+
+        Deque<Page> path = new ArrayDeque<>();
+        Deque<Integer> slots = new ArrayDeque<>();
+        Page leaf = descend(key, path, slots, trace);
+        int pos = Collections.binarySearch(leaf.keys, key);
+        boolean replaced = pos >= 0;
+        int entryBytes = BPlusPageFile.leafEntryBytes(key, record);
+        if (replaced) {
+            leaf.bytes += entryBytes - BPlusPageFile.leafEntryBytes(key, leaf.records.get(pos));
+            leaf.records.set(pos, record);
+        } else {
+            pos = -pos - 1;
+            leaf.keys.add(pos, key);
+            leaf.records.add(pos, record);
+            leaf.bytes += entryBytes;
+            pages.size++;
+        }
+        pages.markDirty(leaf);
+        if (explain) {
+            trace.step(replaced ? "REPLACE_KEY" : "INSERT_KEY",
+                (replaced ? "Replaced the record of " : "Added ") + key + " in leaf page " + leaf.id,
+                leaf, Map.of("pageId", pageId(leaf), "position", pos));
+        }
+
+        // Names arriving in order all land at the end of the last leaf
+        boolean append = !replaced && leaf.next == BPlusPageFile.NO_PAGE && pos == leaf.keys.size() - 1;
+        splitUp(leaf, path, slots, append, trace);
+
+        Map<String, Object> metadata = Map.of("size", pages.size, "height", pages.height, "replaced", replaced);
+        if (!explain) {
+            return result("INSERT_COMPLETE", replaced ? "Replaced" : "Inserted", metadata);
+        }
+        trace.step("INSERT_COMPLETE", "Inserted! " + pages.size + " files in " + pages.height + " levels", null, metadata);
+        return trace.steps;
+    }
+
+    /**
+     * Splits the page while it is over full, adding each separator to the
+     * parent; a split root grows the tree. Pages are split in half, except
+     * when {@code append} (the new name went to the end of the last leaf):
+     * then the full pages stay full and only the last entry moves, so names
+     * inserted in order fill their pages instead of leaving them half empty.
+     */
+    private void splitUp(Page page, Deque<Page> path, Deque<Integer> slots, boolean append, Trace trace) {
+        int level = pages.height - 1 - path.size();
+        while (page.bytes > PAGE_SIZE) {
+            Page right = pages.allocate(page.leaf);
+            String separator = page.leaf ? splitLeaf(page, right, append) : splitInternal(page, right, append);
+            Page parent = path.isEmpty() ? null : path.pop();
+            if (parent != null) {
+                addSeparator(parent, slots.pop(), separator, right);
+            }
+            if (trace != null) {
+                trace.show(right, level);
+                trace.step(page.leaf ? "SPLIT_LEAF" : "SPLIT_INTERNAL",
+                    "Page " + page.id + " is full: its upper half moves to new page " + right.id
+                        + " and " + separator + " goes up",
+                    right, Map.of("pageId", pageId(page), "newPageId", pageId(right), "separator", separator));
+            }
+            if (parent == null) {
+                Page root = pages.allocate(false);
+                root.children.add(page.id);
+                addSeparator(root, 0, separator, right);
+                pages.root = root.id;
+                pages.height++;
+                if (trace != null) {
+                    trace.show(root, level + 1);
+                    trace.step("NEW_ROOT", "New root page " + root.id + ": the tree is " + pages.height + " levels high",
+                        root, Map.of("pageId", pageId(root), "height", pages.height));
+                }
+                return;
+            }
+            page = parent;
+            level++;
+        }
+    }
+
+    // Moves the upper half of a leaf (by bytes) to the new page and links it in; returns its first key
+    private String splitLeaf(Page page, Page right, boolean append) {
+        int half = append ? Integer.MAX_VALUE : (page.bytes - BPlusPageFile.HEADER_BYTES) / 2;
+        int kept = 0;
+        int split = 0;
+        while (split < page.keys.size() - 1 && kept < half) {
+            kept += BPlusPageFile.leafEntryBytes(page.keys.get(split), page.records.get(split));
+            split++;
+        }
+        right.keys.addAll(page.keys.subList(split, page.keys.size()));
+        right.records.addAll(page.records.subList(split, page.records.size()));
+        page.keys.subList(split, page.keys.size()).clear();
+        page.records.subList(split, page.records.size()).clear();
+        right.bytes = page.bytes - kept;
+        page.bytes = BPlusPageFile.HEADER_BYTES + kept;
+        right.next = page.next;
+        page.next = right.id;
+        pages.markDirty(page);
+        pages.markDirty(right);
+        return right.keys.get(0);
+    }
+
+    // Keeps the lower half of an internal page, moves the upper half to the new page; the key between goes up
+    private String splitInternal(Page page, Page right, boolean append) {
+        int half = append ? Integer.MAX_VALUE : (page.bytes - BPlusPageFile.HEADER_BYTES) / 2;
+        int kept = 0;
+        int split = 0;
+        while (split < page.keys.size() - 2 && kept < half) {
+            kept += BPlusPageFile.internalEntryBytes(page.keys.get(split));
+            split++;
+        }
+        String separator = page.keys.get(split);
+        right.keys.addAll(page.keys.subList(split + 1, page.keys.size()));
+        right.children.addAll(page.children.subList(split + 1, page.children.size()));
+        page.keys.subList(split, page.keys.size()).clear();
+        page.children.subList(split + 1, page.children.size()).clear();
+        right.bytes = page.bytes - kept - BPlusPageFile.internalEntryBytes(separator);
+        page.bytes = BPlusPageFile.HEADER_BYTES + kept;
+        pages.markDirty(page);
+        pages.markDirty(right);
+        return separator;
+    }
+
+    private void addSeparator(Page parent, int slot, String separator, Page right) {
+        parent.keys.add(slot, separator);
+        parent.children.add(slot + 1, right.id);
+        parent.bytes += BPlusPageFile.internalEntryBytes(separator);
+        pages.markDirty(parent);
+    }
+
+    // ===== DELETE =====
+
+    /**
+     * Removes the file with this name. A leaf left under a quarter full
+     * borrows entries from a sibling, or merges with it when both fit in one
+     * page, and the same is repeated for the parent when a merge leaves it
+     * under full; a root left with a single child is dropped.
+     */
+    public List<VisualizationStep> delete(String filename, boolean explain) {
+        return lock.write(() -> {
+            pages.beginWrite();
+            try {
+                return deleteLocked(filename, explain);
+            } finally {
+                pages.endWrite();
+            }
+        });
+    }
+
+    private List<VisualizationStep> deleteLocked(String key, boolean explain) {
+        Trace trace = explain ? new Trace() : null;
+        if (explain) {
+            trace.step("START_DELETE", "Deleting: " + key, null, Map.of("action", "delete", "filename", key));
+        }
+
+        Deque<Page> path = new ArrayDeque<>();
+        Deque<Integer> slots = new ArrayDeque<>();
+        Page leaf = descend(key, path, slots, trace);
+        int pos = Collections.binarySearch(leaf.keys, key);
+        if (pos < 0) {
+            if (!explain) {
+                return result("NOT_FOUND", "File not found", Map.of("found", false));
+            }
+            trace.step("NOT_FOUND", "File not found", leaf, Map.of("found", false));
+            return trace.steps;
+        }
+
+        leaf.bytes -= BPlusPageFile.leafEntryBytes(key, leaf.records.get(pos));
+        leaf.keys.remove(pos);
+        leaf.records.remove(pos);
+        pages.size--;
+        pages.markDirty(leaf);
+        if (explain) {
+            trace.step("DELETE_KEY", "Removed " + key + " from leaf page " + leaf.id,
+                leaf, Map.of("pageId", pageId(leaf), "position", pos));
+        }
+
+        rebalance(leaf, path, slots, trace);
+
+        Map<String, Object> metadata = Map.of("size", pages.size, "height", pages.height, "found", true);
+        if (!explain) {
+            return result("DELETE_COMPLETE", "Deleted", metadata);
+        }
+        trace.step("DELETE_COMPLETE", "Deleted! " + pages.size + " files in " + pages.height + " levels", null, metadata);
+        return trace.steps;
+    }
+
+    private void rebalance(Page node, Deque<Page> path, Deque<Integer> slots, Trace trace) {
+        while (true) {
+            // A longer separator from a borrow can over fill a parent
+            if (node.bytes > PAGE_SIZE) {
+                splitUp(node, path, slots, false, trace);
+                return;
+            }
+            if (path.isEmpty() || node.bytes >= MIN_FILL) {
+                break;
+            }
+            int level = pages.height - 1 - path.size();
+            Page parent = path.pop();
+            int slot = slots.pop();
+            boolean fromLeft = slot > 0;
+            Page sibling = pages.get(parent.children.get(fromLeft ? slot - 1 : slot + 1));
+            Page left = fromLeft ? sibling : node;
+            Page right = fromLeft ? node : sibling;
+            int separatorSlot = fromLeft ? slot - 1 : slot;
+            String separator = parent.keys.get(separatorSlot);
+            if (trace != null) {
+                trace.show(sibling, level);
+            }
+
+            int merged = left.bytes + right.bytes - BPlusPageFile.HEADER_BYTES
+                + (node.leaf ? 0 : BPlusPageFile.internalEntryBytes(separator));
+            if (merged <= PAGE_SIZE) {
+                merge(left, right, parent, separatorSlot);
+                if (trace != null) {
+                    trace.hide(right);
+                    trace.step("MERGE", "Page " + node.id + " is under a quarter full: page " + right.id
+                            + " merges into page " + left.id,
+                        left, Map.of("pageId", pageId(left), "freedPageId", pageId(right), "separator", separator));
+                }
+            } else {
+                int moved = fromLeft ? borrowLeft(left, node, parent, separatorSlot) : borrowRight(node, right, parent, separatorSlot);
+                if (trace != null) {
+                    trace.step(fromLeft ? "BORROW_LEFT" : "BORROW_RIGHT", "Page " + node.id + " is under a quarter full: "
+                            + moved + " keys move over from page " + sibling.id,
+                        node, Map.of("pageId", pageId(node), "siblingId", pageId(sibling), "moved", moved));
+                }
+            }
+            node = parent;
+        }
+
+        Page root = pages.get(pages.root);
+        if (!root.leaf && root.keys.isEmpty()) {
+            pages.root = root.children.get(0);
+            pages.height--;
+            pages.free(root);
+            if (trace != null) {
+                trace.hide(root);
+                trace.step("COLLAPSE_ROOT", "Root page " + root.id + " has a single child: page " + pages.root
+                    + " is the new root", null, Map.of("pageId", String.valueOf(pages.root), "height", pages.height));
+            }
+        }
+    }
+
+    // Moves everything in the right page (and, between internal pages, the separator) into the left one
+    private void merge(Page left, Page right, Page parent, int separatorSlot) {
+        String separator = parent.keys.get(separatorSlot);
+        if (left.leaf) {
+            left.records.addAll(right.records);
+            left.next = right.next;
+        } else {
+            left.keys.add(separator);
+            left.bytes += BPlusPageFile.internalEntryBytes(separator);
+            left.children.addAll(right.children);
+        }
+        left.keys.addAll(right.keys);
+        left.bytes += right.bytes - BPlusPageFile.HEADER_BYTES;
+        parent.keys.remove(separatorSlot);
+        parent.children.remove(separatorSlot + 1);
+        parent.bytes -= BPlusPageFile.internalEntryBytes(separator);
+        pages.markDirty(left);
+        pages.markDirty(parent);
+        pages.free(right);
+    }
+
+    // Entries move from the end of the left sibling; between internal pages they rotate through the separator
+    private int borrowLeft(Page left, Page node, Page parent, int separatorSlot) {
+        int moved = 0;
+        while (node.bytes < MIN_FILL && left.keys.size() > 1) {
+            int last = left.keys.size() - 1;
+            String key = left.keys.remove(last);
+            if (node.leaf) {
+                byte[] record = left.records.remove(last);
+                int bytes = BPlusPageFile.leafEntryBytes(key, record);
+                left.bytes -= bytes;
+                node.keys.add(0, key);
+                node.records.add(0, record);
+                node.bytes += bytes;
+                setSeparator(parent, separatorSlot, key);
+            } else {
+                String down = parent.keys.get(separatorSlot);
+                left.bytes -= BPlusPageFile.internalEntryBytes(key);
+                node.keys.add(0, down);
+                node.children.add(0, left.children.remove(last + 1));
+                node.bytes += BPlusPageFile.internalEntryBytes(down);
+                setSeparator(parent, separatorSlot, key);
+            }
+            moved++;
+        }
+        pages.markDirty(left);
+        pages.markDirty(node);
+        return moved;
+    }
+
+    private int borrowRight(Page node, Page right, Page parent, int separatorSlot) {
+        int moved = 0;
+        while (node.bytes < MIN_FILL && right.keys.size() > 1) {
+            String key = right.keys.remove(0);
+            if (node.leaf) {
+                byte[] record = right.records.remove(0);
+                int bytes = BPlusPageFile.leafEntryBytes(key, record);
+                right.bytes -= bytes;
+                node.keys.add(key);
+                node.records.add(record);
+                node.bytes += bytes;
+                setSeparator(parent, separatorSlot, right.keys.get(0));
+            } else {
+                String down = parent.keys.get(separatorSlot);
+                right.bytes -= BPlusPageFile.internalEntryBytes(key);
+                node.keys.add(down);
+                node.children.add(right.children.remove(0));
+                node.bytes += BPlusPageFile.internalEntryBytes(down);
+                setSeparator(parent, separatorSlot, key);
+            }
+            moved++;
+        }
+        pages.markDirty(right);
+        pages.markDirty(node);
+        return moved;
+    }
+
+    private void setSeparator(Page parent, int slot, String key) {
+        parent.bytes += BPlusPageFile.internalEntryBytes(key) - BPlusPageFile.internalEntryBytes(parent.keys.get(slot));
+        parent.keys.set(slot, key);
+        pages.markDirty(parent);
+    }
+
+    // ===== SEARCH =====
+
+    public List<VisualizationStep> search(String filename, boolean explain) {
+        return lock.read(() -> {
+            Trace trace = explain ? new Trace() : null;
+            if (explain) {
+                trace.step("START_SEARCH", "Searching for: " + filename, null, Map.of("action", "search", "filename", filename));
+            }
+            Page leaf = descend(filename, null, null, trace);
+            int pos = Collections.binarySearch(leaf.keys, filename);
+            if (pos < 0) {
+                if (!explain) {
+                    return result("NOT_FOUND", "File not found", Map.of("found", false));
+                }
+                trace.step("NOT_FOUND", "File not found", leaf, Map.of("found", false));
+                return trace.steps;
+            }
+            Map<String, Object> metadata = Map.of("found", true, "filename", filename, "pageId", pageId(leaf), "position", pos);
+            if (!explain) {
+                return result("FOUND", "Found " + filename, metadata);
+            }
+            trace.step("FOUND", "Found " + filename + " in leaf page " + leaf.id, leaf, metadata);
+            return trace.steps;
+        });
+    }
+
+    /** The record stored under this name, or null. Each call decodes a new copy. */
+    public StoredFile get(String filename) {
+        return lock.read(() -> {
+            Page leaf = descend(filename, null, null, null);
+            int pos = Collections.binarySearch(leaf.keys, filename);
+            return pos >= 0 ? BPlusPageFile.decodeRecord(filename, leaf.records.get(pos)) : null;
+        });
+    }
+
+    // ===== RANGE =====
+
+    /**
+     * Records with {@code from <= name < to}, in name order and at most
+     * {@code limit} of them; a null bound is open.
+     */
+    public List<StoredFile> scan(String from, String to, int limit) {
+        return lock.read(() -> {
+            List<StoredFile> files = new ArrayList<>();
+            scanLocked(from, to, limit, files, null);
+            return files;
+        });
+    }
+
+    /** {@link #scan} as steps: the descent to the first name, then one step per leaf read. */
+    public List<VisualizationStep> range(String from, String to, int limit, boolean explain) {
+        return lock.read(() -> {
+            Trace trace = explain ? new Trace() : null;
+            if (explain) {
+                trace.step("START_RANGE", "Scanning names from " + (from == null ? "the first" : from)
+                        + " to " + (to == null ? "the last" : "before " + to),
+                    null, Map.of("action", "range", "limit", limit));
+            }
+            List<StoredFile> files = new ArrayList<>();
+            int leaves = scanLocked(from, to, limit, files, trace);
+            Map<String, Object> metadata = Map.of("count", files.size(), "leaves", leaves);
+            if (!explain) {
+                return result("RANGE_COMPLETE", files.size() + " files", metadata);
+            }
+            trace.step("RANGE_COMPLETE", files.size() + " files in range, read from " + leaves + " leaf pages", null, metadata);
+            return trace.steps;
+        });
+    }
+
+    private int scanLocked(String from, String to, int limit, List<StoredFile> out, Trace trace) {
+        Page leaf = descend(from, null, null, trace);
+        int pos = from == null ? 0 : lowerBound(leaf.keys, from);
+        int leaves = 1;
+        while (true) {
+            int matched = 0;
+            boolean done = false;
+            for (; pos < leaf.keys.size(); pos++) {
+                if (out.size() >= limit || (to != null && leaf.keys.get(pos).compareTo(to) >= 0)) {
+                    done = true;
+                    break;
+                }
+                out.add(BPlusPageFile.decodeRecord(leaf.keys.get(pos), leaf.records.get(pos)));
+                matched++;
+            }
+            if (trace != null) {
+                trace.show(leaf, 0);
+                trace.step("SCAN_LEAF", "Leaf page " + leaf.id + ": " + matched + " names in range",
+                    leaf, Map.of("pageId", pageId(leaf), "matched", matched));
+            }
+            if (done || out.size() >= limit || leaf.next == BPlusPageFile.NO_PAGE) {
+                return leaves;
+            }
+            leaf = pages.get(leaf.next);
+            pos = 0;
+            leaves++;
+        }
+    }
+
+    /** Every record in name order. */
+    public void forEach(Consumer<StoredFile> action) {
+        lock.read(() -> {
+            Page leaf = descend(null, null, null, null);
+            while (true) {
+                for (int i = 0; i < leaf.keys.size(); i++) {
+                    action.accept(BPlusPageFile.decodeRecord(leaf.keys.get(i), leaf.records.get(i)));
+                }
+                if (leaf.next == BPlusPageFile.NO_PAGE) {
+                    return null;
+                }
+                leaf = pages.get(leaf.next);
+            }
+        });
+    }
+
+    public void clear() {
+        lock.write(pages::reset);
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            pages.close();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // ===== HELPERS =====
+
+    // Root to leaf; a null key takes the leftmost path. Internal pages are pushed on path with the child slot taken.
+    private Page descend(String key, Deque<Page> path, Deque<Integer> slots, Trace trace) {
+        Page page = pages.get(pages.root);
+        int level = pages.height - 1;
+        while (true) {
+            if (trace != null) {
+                trace.show(page, level);
+            }
+            if (page.leaf) {
+                if (trace != null) {
+                    trace.step("VISIT_PAGE", "Leaf page " + page.id + " holds " + page.keys.size() + " names",
+                        page, Map.of("pageId", pageId(page), "level", level));
+                }
+                return page;
+            }
+            int slot = key == null ? 0 : childSlot(page.keys, key);
+            if (trace != null) {
+                trace.step("VISIT_PAGE", "Page " + page.id + ": "
+                        + (key == null ? "leftmost" : key) + " is under child " + (slot + 1) + " of " + page.children.size(),
+                    page, Map.of("pageId", pageId(page), "level", level, "slot", slot));
+            }
+            if (path != null) {
+                path.push(page);
+                slots.push(slot);
+            }
+            page = pages.get(page.children.get(slot));
+            level--;
+        }
+    }
+
+    // Separators are the first key of their right subtree, so equal keys go right
+    private static int childSlot(List<String> keys, String key) {
+        int pos = Collections.binarySearch(keys, key);
+        return pos >= 0 ? pos + 1 : -pos - 1;
+    }
+
+    private static int lowerBound(List<String> keys, String key) {
+        int pos = Collections.binarySearch(keys, key);
+        return pos >= 0 ? pos : -pos - 1;
+    }
+
+    private static String pageId(Page page) {
+        return String.valueOf(page.id);
+    }
+
+    // Outcome of a call with explain off: no snapshot, fixed description
+    private static List<VisualizationStep> result(String operation, String description, Map<String, Object> metadata) {
+        return List.of(new VisualizationStep(operation, description, List.of(), null, metadata));
+    }
+
+    private record Shown(Page page, int level) {}
+
+    /** Steps of one explain call, and the pages it has shown so far. */
+    private static final class Trace {
+        private static final Comparator<PageSnapshot> ORDER = Comparator.comparingInt(PageSnapshot::getLevel).reversed()
+            .thenComparing(snapshot -> snapshot.getKeys().isEmpty() ? "" : snapshot.getKeys().get(0));
+
+        final List<VisualizationStep> steps = new ArrayList<>();
+        private final Map<Integer, Shown> shown = new LinkedHashMap<>();
+
+        void show(Page page, int level) {
+            shown.put(page.id, new Shown(page, level));
+        }
+
+        void hide(Page page) {
+            shown.remove(page.id);
+        }
+
+        // Shown pages top level first, left to right within a level
+        void step(String operation, String description, Page highlighted, Map<String, Object> metadata) {
+            List<PageSnapshot> state = new ArrayList<>(shown.size());
+            for (Shown entry : shown.values()) {
+                Page page = entry.page();
+                state.add(new PageSnapshot(
+                    pageId(page),
+                    page.leaf,
+                    entry.level(),
+                    List.copyOf(page.keys),
+                    page.leaf ? List.of() : page.children.stream().map(String::valueOf).toList(),
+                    page.leaf && page.next != BPlusPageFile.NO_PAGE ? String.valueOf(page.next) : null,
+                    page.bytes * 100 / PAGE_SIZE
+                ));
+            }
+            state.sort(ORDER);
+            steps.add(new VisualizationStep(operation, description, state, highlighted == null ? null : pageId(highlighted), metadata));
+        }
+    }
+}
@@ -1,12 +1,31 @@
 package com.visualizer.model;
 
 import lombok.Data;
+import lombok.ToString;
+import lombok.Getter;
+import lombok.EqualsAndHashCode;
+import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import java.util.*;
 
 @Data
 public class FileBinaryTree {
     
+    /**
+     * How the tree keeps its shape. Uploads often arrive in name order
+     * (timestamped names), which turns a plain BST into a list; AVL and
+     * red-black rotate on insert to keep the depth logarithmic.
+     */
+    public enum Mode {
+        BST, AVL, RED_BLACK;
+        
+        /** Accepts the constant name in any case, "rb" or "red-black". */
+        public static Mode parse(String name) {
+            String key = name.trim().toUpperCase(Locale.ROOT).replace('-', '_');
+            return key.equals("RB") ? RED_BLACK : valueOf(key);
+        }
+    }
+    
     @Data
     @AllArgsConstructor
     public static class TreeNode {
@@ -14,12 +33,14 @@ public class FileBinaryTree {
         private TreeNode left;
         private TreeNode right;
         private String nodeId;
-        private int level;
+        private int height;   // a leaf is 1; kept up to date in every mode
+        private boolean red;  // only meaningful in RED_BLACK mode
+        private int slot;     // index of this node's entry in the maintained snapshot
         
-        public TreeNode(StoredFile file, int level) {
+        public TreeNode(StoredFile file) {
             this.file = file;
             this.nodeId = UUID.randomUUID().toString();
-            this.level = level;
+            this.height = 1;
         }
     }
     
@@ -31,6 +52,44 @@ public class FileBinaryTree {
         private List<NodeSnapshot> currentState;
         private String highlightedNodeId;
         private Map<String, Object> metadata;
+        
+        /** Version of the tree state this step shows; steps of one version share the same state. */
+        public long getVersion() {
+            return currentState instanceof TreeSnapshot snapshot ? snapshot.getVersion() : 0;
+        }
+    }
+    
+    /**
+     * One version of the tree's maintained snapshot, as handed to steps. It
+     * never changes afterwards: the next change to the tree copies the entry
+     * array first, and the node snapshots that did not change are shared by
+     * both versions.
+     */
+    public static final class TreeSnapshot extends AbstractList<NodeSnapshot> implements RandomAccess {
+        private final NodeSnapshot[] entries;
+        private final int size;
+        private final long version;
+        
+        private TreeSnapshot(NodeSnapshot[] entries, int size, long version) {
+            this.entries = entries;
+            this.size = size;
+            this.version = version;
+        }
+        
+        @Override
+        public NodeSnapshot get(int index) {
+            Objects.checkIndex(index, size);
+            return entries[index];
+        }
+        
+        @Override
+        public int size() {
+            return size;
+        }
+        
+        public long getVersion() {
+            return version;
+        }
     }
     
     @Data
@@ -43,37 +102,77 @@ public class FileBinaryTree {
         private String leftChildId;
         private String rightChildId;
         private String parentId;
+        private int height;
+        private String color;  // "RED" or "BLACK" in RED_BLACK mode, otherwise null
     }
     
+    private static final int SHAPE_BITS = 3;
+    
     private TreeNode root;
     private int size;
-    private List<VisualizationStep> steps;
+    private Mode mode = Mode.BST;
+    
+    // Changes are exclusive; searches and snapshots run alongside each other
+    @Getter(AccessLevel.NONE)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private final StructureLock lock = new StructureLock();
+    
+    @Getter(AccessLevel.NONE)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private final Snapshots snapshots = new Snapshots();
     
     public FileBinaryTree() {
         this.root = null;
         this.size = 0;
-        this.steps = new ArrayList<>();
     }
     
     public List<VisualizationStep> insert(StoredFile file) {
-        steps.clear();
+        return insert(file, true);
+    }
+    
+    /**
+     * With {@code explain} every comparison, rotation and recolouring is
+     * recorded with a snapshot of the tree; without it the node is placed and
+     * rebalanced the same way and a single result step (the final step's
+     * operation and metadata) is returned. Both walks are iterative, so a
+     * deep BST-mode tree cannot overflow the stack.
+     */
+    public List<VisualizationStep> insert(StoredFile file, boolean explain) {
+        return lock.write(() -> insertLocked(file, explain));
+    }
+    
+    private List<VisualizationStep> insertLocked(StoredFile file, boolean explain) {
+        List<VisualizationStep> steps = explain ? new ArrayList<>() : null;
+        TreeNode newNode = new TreeNode(file);
+        newNode.setSlot(size);
+        if (!explain) {
+            snapshots.invalidate();
+        }
         
-        steps.add(new VisualizationStep(
-            "START_INSERT",
-            "ðŸŒ³ Inserting: " + file.getFilename(),
-            convertToSnapshots(),
-            null,
-            Map.of("action", "insert", "filename", file.getFilename())
-        ));
+        if (explain) {
+            steps.add(new VisualizationStep(
+                "START_INSERT",
+                "ðŸŒ³ Inserting: " + file.getFilename(),
+                snapshots.current(),
+                null,
+                Map.of("action", "insert", "filename", file.getFilename())
+            ));
+        }
         
         if (root == null) {
-            root = new TreeNode(file, 0);
+            root = newNode;
+            snapshots.place(root, null);
             size++;
+            if (!explain) {
+                return result("SET_ROOT", "Set as root", root.getNodeId(), Map.of("isRoot", true));
+            }
             
             steps.add(new VisualizationStep(
                 "SET_ROOT",
                 "âœ… Set as ROOT node",
-                convertToSnapshots(),
+                snapshots.current(),
                 root.getNodeId(),
                 Map.of("isRoot", true)
             ));
@@ -81,160 +180,621 @@ public class FileBinaryTree {
             return steps;
         }
         
-        insertRecursive(root, file, 1);
+        newNode.setRed(mode == Mode.RED_BLACK);
+        Deque<TreeNode> path = attach(newNode, steps);
         size++;
         
+        switch (mode) {
+            case BST -> updateHeights(path);
+            case AVL -> rebalanceAvl(path, steps);
+            case RED_BLACK -> rebalanceRedBlack(newNode, path, steps);
+        }
+        
+        if (!explain) {
+            return result("INSERT_COMPLETE", "Inserted", newNode.getNodeId(), Map.of("size", size));
+        }
+        
         steps.add(new VisualizationStep(
             "INSERT_COMPLETE",
             "âœ… Inserted! Tree size: " + size,
-            convertToSnapshots(),
+            snapshots.current(),
             null,
             Map.of("size", size)
         ));
         
-        return new ArrayList<>(steps);
+        return steps;
     }
     
-    private TreeNode insertRecursive(TreeNode current, StoredFile file, int level) {
-        if (current == null) {
-            TreeNode newNode = new TreeNode(file, level);
+    /**
+     * Inserts {@code files} in order under one write lock. Without
+     * {@code trace} the snapshot is left stale while they go in and built
+     * once at the end, for a single BULK_INSERT step (a snapshot only when
+     * {@code explain} is on); {@code trace} puts each insert's own steps
+     * before it.
+     */
+    public List<VisualizationStep> insertAll(List<StoredFile> files, boolean explain, boolean trace) {
+        return lock.write(() -> {
+            List<VisualizationStep> steps = new ArrayList<>();
+            for (StoredFile file : files) {
+                List<VisualizationStep> inserted = insertLocked(file, explain && trace);
+                if (explain && trace) {
+                    steps.addAll(inserted);
+                }
+            }
             
+            Map<String, Object> metadata = Map.of("count", files.size(), "size", size);
+            if (!explain) {
+                return result("BULK_INSERT", "Inserted " + files.size() + " files", null, metadata);
+            }
+            steps.add(new VisualizationStep(
+                "BULK_INSERT",
+                "Inserted " + files.size() + " files. Tree size: " + size,
+                snapshots.current(),
+                null,
+                metadata
+            ));
+            return steps;
+        });
+    }
+    
+    /**
+     * Walks down from the (non-empty) root and hangs {@code newNode} as a
+     * leaf. Returns the nodes passed on the way, nearest first.
+     */
+    private Deque<TreeNode> attach(TreeNode newNode, List<VisualizationStep> steps) {
+        StoredFile file = newNode.getFile();
+        Deque<TreeNode> path = new ArrayDeque<>();
+        TreeNode current = root;
+        boolean left = false;
+        
+        while (current != null) {
+            path.push(current);
+            left = file.getFilename().compareTo(current.getFile().getFilename()) < 0;
+            if (steps != null) {
+                steps.add(new VisualizationStep(
+                    "TRAVERSE",
+                    "ðŸ” Comparing with: " + current.getFile().getFilename(),
+                    snapshots.current(),
+                    current.getNodeId(),
+                    Map.of("comparing", true)
+                ));
+                steps.add(left
+                    ? new VisualizationStep(
+                        "GO_LEFT",
+                        "â¬…ï¸ Going LEFT (smaller)",
+                        snapshots.current(),
+                        current.getNodeId(),
+                        Map.of("direction", "left"))
+                    : new VisualizationStep(
+                        "GO_RIGHT",
+                        "âž¡ï¸ Going RIGHT (larger/equal)",
+                        snapshots.current(),
+                        current.getNodeId(),
+                        Map.of("direction", "right")));
+            }
+            current = left ? current.getLeft() : current.getRight();
+        }
+        
+        TreeNode parent = path.peek();
+        if (left) parent.setLeft(newNode); else parent.setRight(newNode);
+        snapshots.place(newNode, parent);
+        snapshots.touch(parent);
+        
+        if (steps != null) {
+            int level = path.size();
             steps.add(new VisualizationStep(
                 "INSERT_NODE",
                 "ðŸ“ Created node at level " + level,
-                convertToSnapshots(),
+                snapshots.current(),
                 newNode.getNodeId(),
                 Map.of("level", level)
             ));
+        }
+        return path;
+    }
+    
+    // Heights along the insert path, stopping where a subtree did not grow
+    private void updateHeights(Iterable<TreeNode> path) {
+        for (TreeNode node : path) {
+            int before = node.getHeight();
+            updateHeight(node);
+            if (node.getHeight() == before) break;
+            snapshots.touch(node);
+        }
+    }
+    
+    private void rebalanceAvl(Deque<TreeNode> path, List<VisualizationStep> steps) {
+        while (!path.isEmpty()) {
+            TreeNode node = path.pop();
+            TreeNode parent = path.peek();
+            int before = node.getHeight();
+            updateHeight(node);
+            snapshots.touch(node);
+            
+            int balance = height(node.getLeft()) - height(node.getRight());
+            if (balance > 1) {
+                String rotationCase = height(node.getLeft().getLeft()) >= height(node.getLeft().getRight()) ? "LL" : "LR";
+                if (rotationCase.equals("LR")) {
+                    rotateLeft(node.getLeft(), node, rotationCase, steps);
+                }
+                node = rotateRight(node, parent, rotationCase, steps);
+            } else if (balance < -1) {
+                String rotationCase = height(node.getRight().getRight()) >= height(node.getRight().getLeft()) ? "RR" : "RL";
+                if (rotationCase.equals("RL")) {
+                    rotateRight(node.getRight(), node, rotationCase, steps);
+                }
+                node = rotateLeft(node, parent, rotationCase, steps);
+            }
             
-            return newNode;
+            // Once a subtree is back to its old height nothing above it changes
+            if (node.getHeight() == before) break;
         }
+    }
+    
+    /**
+     * Bottom-up red-black fix-up. The path stands in for parent pointers:
+     * a red parent is never the root, so its grandparent is always on it.
+     */
+    private void rebalanceRedBlack(TreeNode node, Deque<TreeNode> path, List<VisualizationStep> steps) {
+        updateHeights(path);
         
-        steps.add(new VisualizationStep(
-            "TRAVERSE",
-            "ðŸ” Comparing with: " + current.getFile().getFilename(),
-            convertToSnapshots(),
-            current.getNodeId(),
-            Map.of("comparing", true)
-        ));
+        while (!path.isEmpty() && path.peek().isRed()) {
+            TreeNode parent = path.pop();
+            TreeNode grandparent = path.pop();
+            TreeNode uncle = grandparent.getLeft() == parent ? grandparent.getRight() : grandparent.getLeft();
+            
+            if (uncle != null && uncle.isRed()) {
+                parent.setRed(false);
+                uncle.setRed(false);
+                grandparent.setRed(true);
+                snapshots.touch(parent);
+                snapshots.touch(uncle);
+                snapshots.touch(grandparent);
+                recolorStep(steps, grandparent, "Red uncle: parent and uncle turn black, grandparent "
+                    + grandparent.getFile().getFilename() + " turns red", "red uncle");
+                node = grandparent;
+                continue;
+            }
+            
+            TreeNode greatGrandparent = path.peek();
+            if (grandparent.getLeft() == parent) {
+                String rotationCase = parent.getLeft() == node ? "LL" : "LR";
+                if (rotationCase.equals("LR")) {
+                    parent = rotateLeft(parent, grandparent, rotationCase, steps);
+                }
+                rotateRight(grandparent, greatGrandparent, rotationCase, steps);
+            } else {
+                String rotationCase = parent.getRight() == node ? "RR" : "RL";
+                if (rotationCase.equals("RL")) {
+                    parent = rotateRight(parent, grandparent, rotationCase, steps);
+                }
+                rotateLeft(grandparent, greatGrandparent, rotationCase, steps);
+            }
+            parent.setRed(false);
+            grandparent.setRed(true);
+            snapshots.touch(parent);
+            snapshots.touch(grandparent);
+            recolorStep(steps, parent, "New subtree root " + parent.getFile().getFilename()
+                + " turns black, " + grandparent.getFile().getFilename() + " turns red", "rotated");
+            updateHeights(path);
+            break;
+        }
         
-        // Simple BST: compare by filename
-        if (file.getFilename().compareTo(current.getFile().getFilename()) < 0) {
+        if (root.isRed()) {
+            root.setRed(false);
+            snapshots.touch(root);
+            recolorStep(steps, root, "Root turns black", "root");
+        }
+    }
+    
+    /**
+     * Rotates the subtree at {@code node} to the left and hangs the result
+     * back under {@code parent} (or as the root), so the step's snapshot
+     * shows the whole tree. Returns the subtree's new root.
+     */
+    private TreeNode rotateLeft(TreeNode node, TreeNode parent, String rotationCase, List<VisualizationStep> steps) {
+        TreeNode pivot = node.getRight();
+        node.setRight(pivot.getLeft());
+        pivot.setLeft(node);
+        return rotated(node, pivot, parent, "ROTATE_LEFT", "left", rotationCase, steps);
+    }
+    
+    private TreeNode rotateRight(TreeNode node, TreeNode parent, String rotationCase, List<VisualizationStep> steps) {
+        TreeNode pivot = node.getLeft();
+        node.setLeft(pivot.getRight());
+        pivot.setRight(node);
+        return rotated(node, pivot, parent, "ROTATE_RIGHT", "right", rotationCase, steps);
+    }
+    
+    private TreeNode rotated(TreeNode node, TreeNode pivot, TreeNode parent, String operation,
+                             String direction, String rotationCase, List<VisualizationStep> steps) {
+        if (parent == null) {
+            root = pivot;
+        } else if (parent.getLeft() == node) {
+            parent.setLeft(pivot);
+        } else {
+            parent.setRight(pivot);
+        }
+        updateHeight(node);
+        updateHeight(pivot);
+        // Every node under the pivot moved a level, so the whole subtree is redone
+        snapshots.place(pivot, parent);
+        if (parent != null) {
+            snapshots.touch(parent);
+        }
+        
+        if (steps != null) {
             steps.add(new VisualizationStep(
-                "GO_LEFT",
-                "â¬…ï¸ Going LEFT (smaller)",
-                convertToSnapshots(),
-                current.getNodeId(),
-                Map.of("direction", "left")
+                operation,
+                "Rotate " + direction + " at " + node.getFile().getFilename() + " (" + rotationCase + " case): "
+                    + pivot.getFile().getFilename() + " moves up",
+                snapshots.current(),
+                pivot.getNodeId(),
+                Map.of("pivot", pivot.getFile().getFilename(), "case", rotationCase)
             ));
-            current.setLeft(insertRecursive(current.getLeft(), file, level + 1));
-        } else {
+        }
+        return pivot;
+    }
+    
+    private void recolorStep(List<VisualizationStep> steps, TreeNode node, String description, String recolorCase) {
+        if (steps != null) {
             steps.add(new VisualizationStep(
-                "GO_RIGHT",
-                "âž¡ï¸ Going RIGHT (larger/equal)",
-                convertToSnapshots(),
-                current.getNodeId(),
-                Map.of("direction", "right")
+                "RECOLOR",
+                description,
+                snapshots.current(),
+                node.getNodeId(),
+                Map.of("case", recolorCase)
             ));
-            current.setRight(insertRecursive(current.getRight(), file, level + 1));
         }
-        
-        return current;
+    }
+    
+    private static int height(TreeNode node) {
+        return node == null ? 0 : node.getHeight();
+    }
+    
+    private static void updateHeight(TreeNode node) {
+        node.setHeight(1 + Math.max(height(node.getLeft()), height(node.getRight())));
     }
     
     public List<VisualizationStep> search(String filename) {
-        steps.clear();
+        return search(filename, true);
+    }
+    
+    public List<VisualizationStep> search(String filename, boolean explain) {
+        return lock.read(() -> searchLocked(filename, explain));
+    }
+    
+    private List<VisualizationStep> searchLocked(String filename, boolean explain) {
+        if (!explain) {
+            TreeNode current = root;
+            int level = 0;
+            while (current != null) {
+                int cmp = filename.compareTo(current.getFile().getFilename());
+                if (cmp == 0) {
+                    return result("FOUND", "Found", current.getNodeId(),
+                        Map.of("found", true, "level", level));
+                }
+                current = cmp < 0 ? current.getLeft() : current.getRight();
+                level++;
+            }
+            return result("NOT_FOUND", "Not found", null, Map.of("found", false));
+        }
+        
+        List<VisualizationStep> steps = new ArrayList<>();
         
         steps.add(new VisualizationStep(
             "START_SEARCH",
             "ðŸ”Ž Searching for: " + filename,
-            convertToSnapshots(),
+            snapshots.current(),
             null,
             Map.of("target", filename)
         ));
         
-        searchRecursive(root, filename);
-        
-        return new ArrayList<>(steps);
-    }
-    
-    private TreeNode searchRecursive(TreeNode current, String filename) {
-        if (current == null) {
+        TreeNode current = root;
+        int level = 0;
+        while (current != null) {
             steps.add(new VisualizationStep(
-                "NOT_FOUND",
-                "âŒ File not found",
-                convertToSnapshots(),
-                null,
-                Map.of("found", false)
+                "COMPARE",
+                "ðŸ” Checking: " + current.getFile().getFilename(),
+                snapshots.current(),
+                current.getNodeId(),
+                Map.of("comparing", current.getFile().getFilename())
             ));
-            return null;
+            
+            if (filename.equals(current.getFile().getFilename())) {
+                steps.add(new VisualizationStep(
+                    "FOUND",
+                    "âœ… FOUND at level " + level,
+                    snapshots.current(),
+                    current.getNodeId(),
+                    Map.of("found", true, "level", level)
+                ));
+                return steps;
+            }
+            
+            if (filename.compareTo(current.getFile().getFilename()) < 0) {
+                steps.add(new VisualizationStep(
+                    "GO_LEFT",
+                    "â¬…ï¸ Going LEFT...",
+                    snapshots.current(),
+                    current.getNodeId(),
+                    Map.of("direction", "left")
+                ));
+                current = current.getLeft();
+            } else {
+                steps.add(new VisualizationStep(
+                    "GO_RIGHT",
+                    "âž¡ï¸ Going RIGHT...",
+                    snapshots.current(),
+                    current.getNodeId(),
+                    Map.of("direction", "right")
+                ));
+                current = current.getRight();
+            }
+            level++;
         }
         
         steps.add(new VisualizationStep(
-            "COMPARE",
-            "ðŸ” Checking: " + current.getFile().getFilename(),
-            convertToSnapshots(),
-            current.getNodeId(),
-            Map.of("comparing", current.getFile().getFilename())
+            "NOT_FOUND",
+            "âŒ File not found",
+            snapshots.current(),
+            null,
+            Map.of("found", false)
         ));
         
-        if (filename.equals(current.getFile().getFilename())) {
-            steps.add(new VisualizationStep(
-                "FOUND",
-                "âœ… FOUND at level " + current.getLevel(),
-                convertToSnapshots(),
-                current.getNodeId(),
-                Map.of("found", true, "level", current.getLevel())
-            ));
-            return current;
+        return steps;
+    }
+    
+    // Outcome of a call with explain off: no snapshot, fixed description
+    private static List<VisualizationStep> result(String operation, String description,
+                                                  String highlightedNodeId, Map<String, Object> metadata) {
+        return List.of(new VisualizationStep(operation, description, List.of(), highlightedNodeId, metadata));
+    }
+    
+    private record Pending(TreeNode node, String parentId, int level) {}
+    
+    /**
+     * The tree's maintained snapshot, array-backed: {@code entries[slot]}
+     * describes the node in that slot, and slots follow insertion order.
+     * Explain calls keep it in step with each change, redoing only the
+     * entries of the nodes involved, and hand it to their steps as a
+     * {@link TreeSnapshot} version; steps with no change in between share one
+     * version. Calls without explain only mark it stale, and the next explain
+     * call rebuilds it in a single walk.
+     * <p>
+     * Changes run under the write lock. {@link #current()} may also run
+     * under the read lock (searches), so it is synchronized.
+     */
+    private final class Snapshots {
+        private NodeSnapshot[] entries;      // null while stale
+        private TreeSnapshot published;      // latest version handed out; shares entries
+        private int count;                   // slots in use, ahead of size while a node is being added
+        private long version;
+        private final List<TreeNode> touched = new ArrayList<>();
+        
+        synchronized TreeSnapshot current() {
+            if (entries == null) {
+                rebuild();
+            }
+            for (TreeNode node : touched) {
+                NodeSnapshot entry = entries[node.getSlot()];
+                put(node, entry.getParentId(), entry.getLevel());
+            }
+            touched.clear();
+            if (published == null) {
+                published = new TreeSnapshot(entries, count, ++version);
+            }
+            return published;
         }
         
-        if (filename.compareTo(current.getFile().getFilename()) < 0) {
-            steps.add(new VisualizationStep(
-                "GO_LEFT",
-                "â¬…ï¸ Going LEFT...",
-                convertToSnapshots(),
-                current.getNodeId(),
-                Map.of("direction", "left")
-            ));
-            return searchRecursive(current.getLeft(), filename);
+        void invalidate() {
+            entries = null;
+            count = 0;
+            published = null;
+            touched.clear();
         }
         
-        steps.add(new VisualizationStep(
-            "GO_RIGHT",
-            "âž¡ï¸ Going RIGHT...",
-            convertToSnapshots(),
-            current.getNodeId(),
-            Map.of("direction", "right")
-        ));
-        return searchRecursive(current.getRight(), filename);
+        /** {@code node}'s children, height or colour changed, but not its place. */
+        void touch(TreeNode node) {
+            if (entries != null) {
+                touched.add(node);
+            }
+        }
+        
+        /** {@code top} was hung under {@code parent} (null for the root): redoes its subtree. */
+        void place(TreeNode top, TreeNode parent) {
+            if (entries == null) return;
+            Deque<Pending> pending = new ArrayDeque<>();
+            pending.push(parent == null
+                ? new Pending(top, null, 0)
+                : new Pending(top, parent.getNodeId(), entries[parent.getSlot()].getLevel() + 1));
+            while (!pending.isEmpty()) {
+                Pending next = pending.pop();
+                TreeNode node = next.node();
+                put(node, next.parentId(), next.level());
+                if (node.getRight() != null) pending.push(new Pending(node.getRight(), node.getNodeId(), next.level() + 1));
+                if (node.getLeft() != null) pending.push(new Pending(node.getLeft(), node.getNodeId(), next.level() + 1));
+            }
+        }
+        
+        // Slots are handed out again in pre-order, so they stay dense whoever built the tree
+        private void rebuild() {
+            int slot = 0;
+            Deque<TreeNode> pending = new ArrayDeque<>();
+            if (root != null) {
+                pending.push(root);
+            }
+            while (!pending.isEmpty()) {
+                TreeNode node = pending.pop();
+                node.setSlot(slot++);
+                if (node.getRight() != null) pending.push(node.getRight());
+                if (node.getLeft() != null) pending.push(node.getLeft());
+            }
+            entries = new NodeSnapshot[Math.max(16, slot)];
+            count = slot;
+            published = null;
+            touched.clear();
+            if (root != null) {
+                place(root, null);
+            }
+        }
+        
+        private void put(TreeNode node, String parentId, int level) {
+            NodeSnapshot entry = new NodeSnapshot(
+                node.getNodeId(),
+                node.getFile().getFilename(),
+                node.getFile().getSizeFormatted(),
+                level,
+                node.getLeft() != null ? node.getLeft().getNodeId() : null,
+                node.getRight() != null ? node.getRight().getNodeId() : null,
+                parentId,
+                node.getHeight(),
+                mode == Mode.RED_BLACK ? (node.isRed() ? "RED" : "BLACK") : null
+            );
+            int slot = node.getSlot();
+            if (slot < entries.length && entry.equals(entries[slot])) {
+                return;
+            }
+            // Copy on write: a published version never sees a later change
+            if (published != null || slot >= entries.length) {
+                entries = Arrays.copyOf(entries, Math.max(entries.length, 2 * slot + 2));
+                published = null;
+            }
+            entries[slot] = entry;
+            count = Math.max(count, slot + 1);
+        }
     }
     
-    private List<NodeSnapshot> convertToSnapshots() {
-        List<NodeSnapshot> snapshots = new ArrayList<>();
+    public int getSize() { return lock.read(() -> size); }
+    public boolean isEmpty() { return lock.read(() -> root == null); }
+    public Mode getMode() { return lock.read(() -> mode); }
+    
+    /**
+     * Switches the balancing rule. The files already in the tree are
+     * reinserted in pre-order under the new one, so going back to BST keeps
+     * the current (balanced) shape.
+     */
+    public void setMode(Mode mode) {
+        lock.write(() -> {
+            if (mode == this.mode) return;
+            List<TreeNode> nodes = preOrderLocked();
+            this.mode = mode;
+            root = null;
+            size = 0;
+            snapshots.invalidate();
+            for (TreeNode node : nodes) {
+                insertLocked(node.getFile(), false);
+            }
+        });
+    }
+    
+    /**
+     * The files in pre-order, with three bits per file set in {@code shape}:
+     * red, has a left child, has a right child. Together they are enough for
+     * {@link #restore} to rebuild the exact tree; placing the files again by
+     * name would not be, since rotations can move an equal name to the left.
+     */
+    public List<StoredFile> preOrder(BitSet shape) {
+        return lock.read(() -> {
+            List<TreeNode> nodes = preOrderLocked();
+            List<StoredFile> files = new ArrayList<>(nodes.size());
+            for (int i = 0; i < nodes.size(); i++) {
+                TreeNode node = nodes.get(i);
+                files.add(node.getFile());
+                shape.set(SHAPE_BITS * i, node.isRed());
+                shape.set(SHAPE_BITS * i + 1, node.getLeft() != null);
+                shape.set(SHAPE_BITS * i + 2, node.getRight() != null);
+            }
+            return files;
+        });
+    }
+    
+    private List<TreeNode> preOrderLocked() {
+        List<TreeNode> nodes = new ArrayList<>(size);
+        Deque<TreeNode> pending = new ArrayDeque<>();
         if (root != null) {
-            traverseForSnapshots(root, snapshots, null);
+            pending.push(root);
+        }
+        while (!pending.isEmpty()) {
+            TreeNode node = pending.pop();
+            nodes.add(node);
+            if (node.getRight() != null) pending.push(node.getRight());
+            if (node.getLeft() != null) pending.push(node.getLeft());
         }
-        return snapshots;
+        return nodes;
     }
     
-    private void traverseForSnapshots(TreeNode node, List<NodeSnapshot> snapshots, String parentId) {
-        if (node == null) return;
-        
-        snapshots.add(new NodeSnapshot(
-            node.getNodeId(),
-            node.getFile().getFilename(),
-            node.getFile().getSizeFormatted(),
-            node.getLevel(),
-            node.getLeft() != null ? node.getLeft().getNodeId() : null,
-            node.getRight() != null ? node.getRight().getNodeId() : null,
-            parentId
-        ));
-        
-        traverseForSnapshots(node.getLeft(), snapshots, node.getNodeId());
-        traverseForSnapshots(node.getRight(), snapshots, node.getNodeId());
+    /** Rebuilds a tree saved with {@link #preOrder(BitSet)}. */
+    public void restore(Mode mode, List<StoredFile> preOrder, BitSet shape) {
+        lock.write(() -> {
+            TreeNode[] nodes = new TreeNode[preOrder.size()];
+            root = null;
+            // Nodes whose right child is still to come, nearest first
+            Deque<TreeNode> open = new ArrayDeque<>();
+            TreeNode leftParent = null;
+            for (int i = 0; i < nodes.length; i++) {
+                TreeNode node = new TreeNode(preOrder.get(i));
+                node.setRed(shape.get(SHAPE_BITS * i));
+                if (i == 0) {
+                    root = node;
+                } else if (leftParent != null) {
+                    leftParent.setLeft(node);
+                } else {
+                    open.pop().setRight(node);
+                }
+                if (shape.get(SHAPE_BITS * i + 2)) open.push(node);
+                leftParent = shape.get(SHAPE_BITS * i + 1) ? node : null;
+                nodes[i] = node;
+            }
+            // Children follow their parent in pre-order, so backwards is bottom-up
+            for (int i = nodes.length - 1; i >= 0; i--) {
+                updateHeight(nodes[i]);
+            }
+            this.mode = mode;
+            size = nodes.length;
+            snapshots.invalidate();
+        });
+    }
+    
+    public void clear() {
+        lock.write(() -> {
+            root = null;
+            size = 0;
+            snapshots.invalidate();
+        });
+    }
+    
+    // Nodes set from outside are not in the maintained snapshot yet
+    public void setRoot(TreeNode root) {
+        lock.write(() -> {
+            this.root = root;
+            snapshots.invalidate();
+        });
+    }
+    
+    public void setSize(int size) {
+        lock.write(() -> {
+            this.size = size;
+            snapshots.invalidate();
+        });
     }
     
-    public int getSize() { return size; }
-    public boolean isEmpty() { return root == null; }
+    // In order, iteratively: a degenerate tree can be as deep as it is large
+    public List<StoredFile> getAllFiles() {
+        return lock.read(() -> {
+            List<StoredFile> files = new ArrayList<>(size);
+            Deque<TreeNode> path = new ArrayDeque<>();
+            TreeNode current = root;
+            while (current != null || !path.isEmpty()) {
+                while (current != null) {
+                    path.push(current);
+                    current = current.getLeft();
+                }
+                current = path.pop();
+                files.add(current.getFile());
+                current = current.getRight();
+            }
+            return files;
+        });
+    }
 }
@@ -1,19 +1,24 @@
 package com.visualizer.model;
 
 import lombok.Data;
+import lombok.Getter;
+import lombok.Setter;
 import lombok.AllArgsConstructor;
 
 import java.util.*;
 
-@Data
 public class FileLinkedList {
     
-    @Data
+    // Identity equality: the index finds a node by reference, and a value
+    // comparison would walk the rest of the list through next
+    @Getter
+    @Setter
     @AllArgsConstructor
     public static class Node {
         private StoredFile file;
         private Node next;
         private String nodeId;
+        private Node prev;
         
         public Node(StoredFile file) {
             this.file = file;
@@ -69,21 +74,52 @@ public class FileLinkedList {
     }
     
     private Node head;
+    private Node tail;
     private int size;
-    private List<VisualizationStep> steps;
+    
+    // Changes are exclusive; searches and snapshots run alongside each other
+    private final StructureLock lock = new StructureLock();
+    
+    // filename -> nodes with that name, in list order (names can repeat)
+    private Map<String, ArrayDeque<Node>> index;
+    
+    // Nodes in list order, rebuilt on first use after a change
+    private volatile List<Node> nodeCache;
     
     public FileLinkedList() {
         this.head = null;
+        this.tail = null;
         this.size = 0;
-        this.steps = new ArrayList<>();
+        this.index = new HashMap<>();
     }
     
     // ===== INSERT OPERATION =====
     public List<VisualizationStep> insert(StoredFile file) {
-        steps.clear();
-        
+        return insert(file, true);
+    }
+    
+    /**
+     * Appends {@code file}. With {@code explain} every step of the walk to the
+     * tail is recorded with a snapshot of the list; without it the node is
+     * linked at the tail in O(1) and a single summary step is returned.
+     */
+    public List<VisualizationStep> insert(StoredFile file, boolean explain) {
+        return lock.write(() -> insertLocked(file, explain));
+    }
+    
+    private List<VisualizationStep> insertLocked(StoredFile file, boolean explain) {
         Node newNode = new Node(file);
         
+        if (!explain) {
+            append(newNode);
+            VisualizationStep summary = summary("COMPLETE", "File added", newNode);
+            summary.getMetadata().put("totalSize", size);
+            summary.getMetadata().put("newFileId", newNode.getNodeId());
+            return List.of(summary);
+        }
+        
+        List<VisualizationStep> steps = new ArrayList<>();
+        
         // Step 1: Create new node
         steps.add(new VisualizationStep(
             "CREATE_NODE",
@@ -94,7 +130,7 @@ public class FileLinkedList {
         
         if (head == null) {
             // Step 2: Empty list - set as head
-            head = newNode;
+            append(newNode);
             steps.add(new VisualizationStep(
                 "SET_HEAD",
                 "âœ¨ List was empty. Setting as HEAD node.",
@@ -130,8 +166,8 @@ public class FileLinkedList {
                 current
             ));
             
-            // Step 4: Link new node
-            current.next = newNode;
+            // Step 4: Link new node (current is the tail)
+            append(newNode);
             traversedNodes.add(newNode);
             
             steps.add(new VisualizationStep(
@@ -142,8 +178,6 @@ public class FileLinkedList {
             ));
         }
         
-        size++;
-        
         // Final step
         VisualizationStep finalStep = new VisualizationStep(
             "COMPLETE",
@@ -155,12 +189,59 @@ public class FileLinkedList {
         finalStep.getMetadata().put("newFileId", newNode.getNodeId());
         steps.add(finalStep);
         
-        return new ArrayList<>(steps);
+        return steps;
+    }
+    
+    /**
+     * Appends {@code files} in order under one write lock, each linked at
+     * the tail in O(1). The result is a single BULK_INSERT step, with a
+     * snapshot of the list when {@code explain} is on; {@code trace} puts
+     * each insert's own steps before it.
+     */
+    public List<VisualizationStep> insertAll(List<StoredFile> files, boolean explain, boolean trace) {
+        return lock.write(() -> {
+            List<VisualizationStep> steps = new ArrayList<>();
+            for (StoredFile file : files) {
+                if (explain && trace) {
+                    steps.addAll(insertLocked(file, true));
+                } else {
+                    append(new Node(file));
+                }
+            }
+            
+            VisualizationStep bulk = explain
+                ? new VisualizationStep("BULK_INSERT", String.format("Added %d files. Total files: %d", files.size(), size),
+                    getAllNodes(), null)
+                : summary("BULK_INSERT", "Added " + files.size() + " files", null);
+            bulk.getMetadata().put("count", files.size());
+            bulk.getMetadata().put("totalSize", size);
+            steps.add(bulk);
+            return steps;
+        });
     }
     
     // ===== SEARCH OPERATION =====
     public List<VisualizationStep> search(String filename) {
-        steps.clear();
+        return search(filename, true);
+    }
+    
+    /** Finds the first node named {@code filename}; without {@code explain} it is a hash lookup. */
+    public List<VisualizationStep> search(String filename, boolean explain) {
+        return lock.read(() -> searchLocked(filename, explain));
+    }
+    
+    private List<VisualizationStep> searchLocked(String filename, boolean explain) {
+        if (!explain) {
+            Node node = first(filename);
+            if (node == null) {
+                return List.of(summary("NOT_FOUND", "File not found", null));
+            }
+            VisualizationStep found = summary("FOUND", "File found", node);
+            found.getMetadata().put("foundNodeId", node.getNodeId());
+            return List.of(found);
+        }
+        
+        List<VisualizationStep> steps = new ArrayList<>();
         
         if (head == null) {
             steps.add(new VisualizationStep(
@@ -223,7 +304,28 @@ public class FileLinkedList {
     
     // ===== DELETE OPERATION =====
     public List<VisualizationStep> delete(String filename) {
-        steps.clear();
+        return delete(filename, true);
+    }
+    
+    /** Removes the first node named {@code filename}; without {@code explain} it is unlinked in O(1). */
+    public List<VisualizationStep> delete(String filename, boolean explain) {
+        return lock.write(() -> deleteLocked(filename, explain));
+    }
+    
+    private List<VisualizationStep> deleteLocked(String filename, boolean explain) {
+        if (!explain) {
+            Node node = first(filename);
+            if (node == null) {
+                return List.of(summary("NOT_FOUND", "File not found", null));
+            }
+            unlink(node);
+            VisualizationStep deleted = summary("COMPLETE", "File deleted", null);
+            deleted.getMetadata().put("deletedNodeId", node.getNodeId());
+            deleted.getMetadata().put("totalSize", size);
+            return List.of(deleted);
+        }
+        
+        List<VisualizationStep> steps = new ArrayList<>();
         
         if (head == null) {
             steps.add(new VisualizationStep(
@@ -246,8 +348,7 @@ public class FileLinkedList {
                 head
             ));
             
-            head = head.next;
-            size--;
+            unlink(head);
             
             steps.add(new VisualizationStep(
                 "COMPLETE",
@@ -289,12 +390,8 @@ public class FileLinkedList {
                     current
                 ));
                 
-                // Relink (previous should never be null here because head case handled above,
-                // but guard defensively to satisfy static analysis)
-                if (previous != null) {
-                    previous.next = current.next;
-                    size--;
-                }
+                // Relink: previous.next skips current
+                unlink(current);
                 
                 steps.add(new VisualizationStep(
                     "RELINK",
@@ -329,32 +426,92 @@ public class FileLinkedList {
         return steps;
     }
     
+    public void clear() {
+        lock.write(() -> {
+            head = null;
+            tail = null;
+            size = 0;
+            index.clear();
+            nodeCache = null;
+        });
+    }
+    
     // ===== HELPER METHODS =====
+    private void append(Node node) {
+        if (tail == null) {
+            head = node;
+        } else {
+            tail.next = node;
+            node.prev = tail;
+        }
+        tail = node;
+        index.computeIfAbsent(node.getFile().getFilename(), k -> new ArrayDeque<>(1)).addLast(node);
+        size++;
+        nodeCache = null;
+    }
+    
+    private void unlink(Node node) {
+        if (node.prev == null) head = node.next; else node.prev.next = node.next;
+        if (node.next == null) tail = node.prev; else node.next.prev = node.prev;
+        node.prev = null;
+        node.next = null;
+        
+        String filename = node.getFile().getFilename();
+        ArrayDeque<Node> named = index.get(filename);
+        named.removeFirstOccurrence(node);
+        if (named.isEmpty()) {
+            index.remove(filename);
+        }
+        size--;
+        nodeCache = null;
+    }
+    
+    private Node first(String filename) {
+        ArrayDeque<Node> named = index.get(filename);
+        return named != null ? named.peekFirst() : null;
+    }
+    
+    // Outcome of a call with explain off: no snapshot, fixed description
+    private VisualizationStep summary(String operation, String description, Node highlighted) {
+        return new VisualizationStep(operation, description, Collections.emptyList(), highlighted);
+    }
+    
     private List<Node> getAllNodes() {
-        List<Node> nodes = new ArrayList<>();
-        Node current = head;
-        while (current != null) {
-            nodes.add(current);
-            current = current.next;
+        if (nodeCache == null) {
+            List<Node> nodes = new ArrayList<>(size);
+            Node current = head;
+            while (current != null) {
+                nodes.add(current);
+                current = current.next;
+            }
+            nodeCache = Collections.unmodifiableList(nodes);
         }
-        return nodes;
+        return nodeCache;
     }
     
     public List<StoredFile> getAllFiles() {
-        List<StoredFile> files = new ArrayList<>();
-        Node current = head;
-        while (current != null) {
-            files.add(current.getFile());
-            current = current.next;
-        }
-        return files;
+        return lock.read(() -> {
+            List<StoredFile> files = new ArrayList<>(size);
+            for (Node node : getAllNodes()) {
+                files.add(node.getFile());
+            }
+            return files;
+        });
+    }
+    
+    /** The file {@link #delete(String)} would remove, or {@code null}. */
+    public StoredFile find(String filename) {
+        return lock.read(() -> {
+            Node node = first(filename);
+            return node != null ? node.getFile() : null;
+        });
     }
     
     public int getSize() {
-        return size;
+        return lock.read(() -> size);
     }
     
     public boolean isEmpty() {
-        return head == null;
+        return lock.read(() -> head == null);
     }
 }
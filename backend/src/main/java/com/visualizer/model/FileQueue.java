@@ -1,12 +1,32 @@
 package com.visualizer.model;
 
+import lombok.AccessLevel;
 import lombok.Data;
 import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.Setter;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 @Data
 public class FileQueue {
     
+    /**
+     * How the queue is stored. LINKED is the lock-free linked queue; RING is
+     * an array of {@code maxSize} slots whose front and rear indices wrap
+     * around, shown as a circular queue.
+     */
+    public enum Mode {
+        LINKED, RING;
+        
+        /** Accepts the constant name in any case, or "circular" for RING. */
+        public static Mode parse(String name) {
+            String key = name.trim().toUpperCase(Locale.ROOT);
+            return key.equals("CIRCULAR") ? RING : valueOf(key);
+        }
+    }
+    
     @Data
     @AllArgsConstructor
     public static class QueueNode {
@@ -41,93 +61,208 @@ public class FileQueue {
         private int position;
         private boolean isFront;
         private boolean isRear;
+        private int slot;  // index in the ring in RING mode, otherwise -1
     }
     
-    private Queue<QueueNode> queue;
-    private int maxSize;
-    private List<VisualizationStep> steps;
+    // Michael-Scott queue: head is a sentinel whose successor is the front
+    private static final class Link {
+        final QueueNode node;
+        final AtomicReference<Link> next = new AtomicReference<>();
+        
+        Link(QueueNode node) {
+            this.node = node;
+        }
+    }
+    
+    @Getter(AccessLevel.NONE)
+    private final AtomicReference<Link> head;
+    @Getter(AccessLevel.NONE)
+    private final AtomicReference<Link> tail;
+    // Slots are reserved here before linking, so maxSize holds under contention
+    @Getter(AccessLevel.NONE)
+    private final AtomicInteger count = new AtomicInteger();
+    private volatile int maxSize;
+    private volatile Mode mode = Mode.LINKED;
+    
+    // The ring while in RING mode, otherwise null
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private volatile Ring ring;
     
     public FileQueue(int maxSize) {
-        this.queue = new LinkedList<>();
+        Link sentinel = new Link(null);
+        this.head = new AtomicReference<>(sentinel);
+        this.tail = new AtomicReference<>(sentinel);
         this.maxSize = maxSize;
-        this.steps = new ArrayList<>();
     }
     
     public List<VisualizationStep> enqueue(StoredFile file) {
-        steps.clear();
-        
-        if (queue.size() >= maxSize) {
-            steps.add(new VisualizationStep(
+        return enqueue(file, true);
+    }
+    
+    /**
+     * With {@code explain} every stage is recorded with a snapshot of the
+     * queue; without it the enqueue is applied directly and a single result
+     * step (the final step's operation and metadata) is returned.
+     */
+    public List<VisualizationStep> enqueue(StoredFile file, boolean explain) {
+        Ring ring = this.ring;
+        if (ring != null) {
+            return ring.enqueue(file, explain);
+        }
+        int position = reserve();
+        if (position < 0) {
+            if (!explain) {
+                return result("QUEUE_FULL", "Queue full", null, Map.of("isFull", true));
+            }
+            return List.of(new VisualizationStep(
                 "QUEUE_FULL",
                 "âŒ Queue FULL! Max: " + maxSize,
                 convertToSnapshots(),
                 null,
                 Map.of("isFull", true)
             ));
-            return steps;
         }
         
-        steps.add(new VisualizationStep(
-            "PREPARE_ENQUEUE",
-            "ðŸ“¦ Preparing to ENQUEUE: " + file.getFilename(),
-            convertToSnapshots(),
-            null,
-            Map.of("action", "enqueue")
-        ));
+        List<VisualizationStep> steps = explain ? new ArrayList<>() : List.of();
+        if (explain) {
+            steps.add(new VisualizationStep(
+                "PREPARE_ENQUEUE",
+                "ðŸ“¦ Preparing to ENQUEUE: " + file.getFilename(),
+                convertToSnapshots(),
+                null,
+                Map.of("action", "enqueue")
+            ));
+        }
         
-        QueueNode newNode = new QueueNode(file, queue.size());
+        QueueNode newNode = new QueueNode(file, position);
         
-        steps.add(new VisualizationStep(
-            "CREATE_NODE",
-            "ðŸ“ Adding to REAR",
-            convertToSnapshots(),
-            null,
-            Map.of("position", queue.size())
-        ));
+        if (explain) {
+            steps.add(new VisualizationStep(
+                "CREATE_NODE",
+                "ðŸ“ Adding to REAR",
+                convertToSnapshots(),
+                null,
+                Map.of("position", position)
+            ));
+        }
+        
+        link(new Link(newNode));
+        int size = count.get();
         
-        queue.offer(newNode);
+        if (!explain) {
+            return result("ENQUEUE_COMPLETE", "Enqueued", newNode.getNodeId(),
+                Map.of("size", size, "rear", newNode.getNodeId()));
+        }
         
         steps.add(new VisualizationStep(
             "ENQUEUE_COMPLETE",
-            "âœ… ENQUEUED at REAR! Size: " + queue.size(),
+            "âœ… ENQUEUED at REAR! Size: " + size,
             convertToSnapshots(),
             newNode.getNodeId(),
-            Map.of("size", queue.size(), "rear", newNode.getNodeId())
+            Map.of("size", size, "rear", newNode.getNodeId())
         ));
         
-        return new ArrayList<>(steps);
+        return steps;
     }
     
-    public List<VisualizationStep> dequeue() {
-        steps.clear();
-        
-        if (queue.isEmpty()) {
-            steps.add(new VisualizationStep(
-                "QUEUE_EMPTY",
-                "âŒ Queue EMPTY!",
-                convertToSnapshots(),
-                null,
-                Map.of("isEmpty", true)
-            ));
-            return steps;
+    /**
+     * Enqueues {@code files} in order until the queue is full; the files left
+     * over are not added. The slots for all of them are reserved together.
+     * The result is a single BULK_ENQUEUE step, with a snapshot of the queue
+     * when {@code explain} is on; {@code trace} puts each enqueue's own
+     * steps before it.
+     */
+    public List<VisualizationStep> enqueueAll(List<StoredFile> files, boolean explain, boolean trace) {
+        Ring ring = this.ring;
+        List<VisualizationStep> steps = new ArrayList<>();
+        int added = 0;
+        if (explain && trace) {
+            for (StoredFile file : files) {
+                if (isFull()) {
+                    break;
+                }
+                steps.addAll(enqueue(file, true));
+                added++;
+            }
+        } else if (ring != null) {
+            added = ring.enqueueAll(files);
+        } else {
+            Reservation reserved = reserve(files.size());
+            for (; added < reserved.count(); added++) {
+                link(new Link(new QueueNode(files.get(added), reserved.position() + added)));
+            }
         }
         
-        QueueNode frontNode = queue.peek();
+        Map<String, Object> metadata = new HashMap<>(ringIndices());
+        metadata.put("count", added);
+        metadata.put("rejected", files.size() - added);
+        metadata.put("size", getSize());
+        String description = "Enqueued " + added + " files" + (added < files.size() ? ", queue full" : "");
+        if (!explain) {
+            return result("BULK_ENQUEUE", description, null, metadata);
+        }
+        steps.add(ring != null
+            ? ring.step("BULK_ENQUEUE", description + ". Size: " + getSize(), null, metadata)
+            : new VisualizationStep("BULK_ENQUEUE", description + ". Size: " + getSize(), convertToSnapshots(), null, metadata));
+        return steps;
+    }
+    
+    public List<VisualizationStep> dequeue() {
+        return dequeue(true);
+    }
+    
+    public List<VisualizationStep> dequeue(boolean explain) {
+        Ring ring = this.ring;
+        if (ring != null) {
+            return ring.dequeue(explain);
+        }
+        List<VisualizationStep> steps = explain ? new ArrayList<>() : List.of();
+        Link first;
+        while (true) {
+            Link sentinel = head.get();
+            first = sentinel.next.get();
+            if (first == null) {
+                if (!explain) {
+                    return result("QUEUE_EMPTY", "Queue empty", null, Map.of("isEmpty", true));
+                }
+                return List.of(new VisualizationStep(
+                    "QUEUE_EMPTY",
+                    "âŒ Queue EMPTY!",
+                    convertToSnapshots(sentinel),
+                    null,
+                    Map.of("isEmpty", true)
+                ));
+            }
+            
+            if (explain) {
+                steps.clear(); // a lost race starts the trace over
+                steps.add(new VisualizationStep(
+                    "SHOW_FRONT",
+                    "ðŸ‘€ FRONT: " + first.node.getFile().getFilename(),
+                    convertToSnapshots(sentinel),
+                    first.node.getNodeId(),
+                    Map.of("front", first.node.getFile().getFilename())
+                ));
+            }
+            
+            if (advanceHead(sentinel, first)) {
+                break;
+            }
+        }
         
-        steps.add(new VisualizationStep(
-            "SHOW_FRONT",
-            "ðŸ‘€ FRONT: " + frontNode.getFile().getFilename(),
-            convertToSnapshots(),
-            frontNode.getNodeId(),
-            Map.of("front", frontNode.getFile().getFilename())
-        ));
+        QueueNode dequeuedNode = first.node;
+        int size = count.decrementAndGet();
         
-        QueueNode dequeuedNode = queue.poll();
+        if (!explain) {
+            return result("DEQUEUE_COMPLETE", "Dequeued", null,
+                Map.of("dequeued", dequeuedNode.getFile().getFilename(), "size", size));
+        }
         
         steps.add(new VisualizationStep(
             "REMOVING",
             "ðŸ—‘ï¸ Removing from FRONT...",
-            convertToSnapshots(),
+            convertToSnapshots(first),
             null,
             Map.of("removed", dequeuedNode.getFile().getFilename())
         ));
@@ -135,47 +270,181 @@ public class FileQueue {
         steps.add(new VisualizationStep(
             "DEQUEUE_COMPLETE",
             "âœ… DEQUEUED: " + dequeuedNode.getFile().getFilename(),
-            convertToSnapshots(),
+            convertToSnapshots(first),
             null,
-            Map.of("dequeued", dequeuedNode.getFile().getFilename(), "size", queue.size())
+            Map.of("dequeued", dequeuedNode.getFile().getFilename(), "size", size)
         ));
         
-        return new ArrayList<>(steps);
+        return steps;
     }
 
     /**
      * Inspect the front of the queue and return visualization steps without removing the element.
      */
     public List<VisualizationStep> peek() {
-        steps.clear();
+        return peek(true);
+    }
 
-        if (queue.isEmpty()) {
-            steps.add(new VisualizationStep(
+    public List<VisualizationStep> peek(boolean explain) {
+        Ring ring = this.ring;
+        if (ring != null) {
+            return ring.peek(explain);
+        }
+        Link sentinel = head.get();
+        Link first = sentinel.next.get();
+        if (!explain) {
+            if (first == null) {
+                return result("QUEUE_EMPTY", "Queue empty", null, Map.of("isEmpty", true));
+            }
+            return result("SHOW_FRONT", "Front", first.node.getNodeId(), Map.of("front", first.node.getFile().getFilename()));
+        }
+
+        if (first == null) {
+            return List.of(new VisualizationStep(
                 "QUEUE_EMPTY",
                 "âŒ Queue EMPTY!",
-                convertToSnapshots(),
+                convertToSnapshots(sentinel),
                 null,
                 Map.of("isEmpty", true)
             ));
-            return steps;
         }
 
-        QueueNode frontNode = queue.peek();
-
-        steps.add(new VisualizationStep(
+        return List.of(new VisualizationStep(
             "SHOW_FRONT",
-            "ðŸ‘€ FRONT: " + frontNode.getFile().getFilename(),
-            convertToSnapshots(),
-            frontNode.getNodeId(),
-            Map.of("front", frontNode.getFile().getFilename())
+            "ðŸ‘€ FRONT: " + first.node.getFile().getFilename(),
+            convertToSnapshots(sentinel),
+            first.node.getNodeId(),
+            Map.of("front", first.node.getFile().getFilename())
         ));
-
-        return new ArrayList<>(steps);
+    }
+    
+    /** Empties the queue; {@code maxSize} and the mode are kept. */
+    public void clear() {
+        Ring ring = this.ring;
+        if (ring != null) {
+            ring.clear();
+            return;
+        }
+        clearLinked();
+    }
+    
+    /**
+     * Moves the files into the other representation, keeping their order and
+     * node ids. Like every change it must not overlap another one; the
+     * controller holds the queue's monitor around both.
+     */
+    public void setMode(Mode mode) {
+        if (mode == this.mode) {
+            return;
+        }
+        if (mode == Mode.RING) {
+            List<QueueNode> nodes = nodes(head.get());
+            Ring ring = new Ring(Math.max(maxSize, nodes.size()));
+            nodes.forEach(ring::append);
+            this.ring = ring;
+            clearLinked();
+        } else {
+            List<QueueNode> nodes = ring.nodes();
+            for (QueueNode node : nodes) {
+                link(new Link(node));
+            }
+            count.addAndGet(nodes.size());
+            this.ring = null;
+        }
+        this.mode = mode;
+    }
+    
+    /** In RING mode the ring is laid out again from slot 0 with the new number of slots. */
+    public void setMaxSize(int maxSize) {
+        this.maxSize = maxSize;
+        Ring ring = this.ring;
+        if (ring != null) {
+            ring.resize(maxSize);
+        }
+    }
+    
+    private void clearLinked() {
+        // Drained one link at a time so the count stays in step with the links
+        while (true) {
+            Link sentinel = head.get();
+            Link first = sentinel.next.get();
+            if (first == null) {
+                return;
+            }
+            if (advanceHead(sentinel, first)) {
+                count.decrementAndGet();
+            }
+        }
+    }
+    
+    // Reserves a slot and returns its position, or -1 when the queue is full
+    private int reserve() {
+        while (true) {
+            int size = count.get();
+            if (size >= maxSize) {
+                return -1;
+            }
+            if (count.compareAndSet(size, size + 1)) {
+                return size;
+            }
+        }
+    }
+    
+    private record Reservation(int position, int count) {}
+    
+    // Reserves up to n slots at once, as many as fit
+    private Reservation reserve(int n) {
+        while (true) {
+            int size = count.get();
+            int reserved = Math.max(0, Math.min(n, maxSize - size));
+            if (count.compareAndSet(size, size + reserved)) {
+                return new Reservation(size, reserved);
+            }
+        }
+    }
+    
+    private void link(Link link) {
+        while (true) {
+            Link last = tail.get();
+            Link next = last.next.get();
+            if (next != null) {
+                tail.compareAndSet(last, next); // help a lagging tail along
+            } else if (last.next.compareAndSet(null, link)) {
+                tail.compareAndSet(last, link);
+                return;
+            }
+        }
+    }
+    
+    // Makes first the new sentinel, if head is still the sentinel it follows
+    private boolean advanceHead(Link sentinel, Link first) {
+        if (tail.get() == sentinel) {
+            tail.compareAndSet(sentinel, first); // never leave tail behind head
+        }
+        return head.compareAndSet(sentinel, first);
+    }
+    
+    // Outcome of a call with explain off: no snapshot, fixed description
+    private static List<VisualizationStep> result(String operation, String description,
+                                                  String highlightedNodeId, Map<String, Object> metadata) {
+        return List.of(new VisualizationStep(operation, description, List.of(), highlightedNodeId, metadata));
     }
     
     private List<NodeSnapshot> convertToSnapshots() {
+        return convertToSnapshots(head.get());
+    }
+    
+    private static List<QueueNode> nodes(Link sentinel) {
+        List<QueueNode> nodes = new ArrayList<>();
+        for (Link at = sentinel.next.get(); at != null; at = at.next.get()) {
+            nodes.add(at.node);
+        }
+        return nodes;
+    }
+    
+    private static List<NodeSnapshot> convertToSnapshots(Link sentinel) {
         List<NodeSnapshot> snapshots = new ArrayList<>();
-        List<QueueNode> nodes = new ArrayList<>(queue);
+        List<QueueNode> nodes = nodes(sentinel);
         
         for (int i = 0; i < nodes.size(); i++) {
             QueueNode node = nodes.get(i);
@@ -186,17 +455,264 @@ public class FileQueue {
                 node.getFile().getContentType(),
                 i,
                 i == 0,
-                i == nodes.size() - 1
+                i == nodes.size() - 1,
+                -1
             ));
         }
         
         return snapshots;
     }
     
-    public int getSize() { return queue.size(); }
-    public boolean isEmpty() { return queue.isEmpty(); }
-    public boolean isFull() { return queue.size() >= maxSize; }
+    public int getSize() {
+        Ring ring = this.ring;
+        return ring != null ? ring.size() : count.get();
+    }
+    
+    public boolean isEmpty() {
+        return getSize() == 0;
+    }
+    
+    public boolean isFull() {
+        return getSize() >= maxSize;
+    }
+    
+    /** capacity, frontIndex and rearIndex of the ring; empty in LINKED mode. */
+    public Map<String, Object> ringIndices() {
+        Ring ring = this.ring;
+        return ring != null ? ring.indices() : Map.of();
+    }
+    
+    /** The file at the front, or {@code null} when empty. */
+    public StoredFile peekFile() {
+        Ring ring = this.ring;
+        if (ring != null) {
+            QueueNode front = ring.front();
+            return front == null ? null : front.getFile();
+        }
+        Link first = head.get().next.get();
+        return first == null ? null : first.node.getFile();
+    }
+    
     public List<StoredFile> getAllFiles() {
-        return queue.stream().map(QueueNode::getFile).toList();
+        Ring ring = this.ring;
+        List<QueueNode> nodes = ring != null ? ring.nodes() : nodes(head.get());
+        return nodes.stream().map(QueueNode::getFile).toList();
+    }
+    
+    /**
+     * The RING mode queue: {@code slots} holds the files from {@code head}
+     * on, wrapping past the end, so enqueue and dequeue only move an index
+     * and write one slot. Each step's snapshot is a {@link RingView} over the
+     * slots as they are, made without copying anything; the slots array is
+     * copied only by the first change after a view of it was handed out.
+     * Guarded by its own monitor.
+     */
+    private final class Ring {
+        private QueueNode[] slots;
+        private int head;
+        private int count;
+        private RingView published;   // latest view handed out
+        
+        Ring(int capacity) {
+            this.slots = new QueueNode[capacity];
+        }
+        
+        // Only while the ring is being filled, before anyone else can see it
+        void append(QueueNode node) {
+            slots[(head + count++) % slots.length] = node;
+        }
+        
+        synchronized List<VisualizationStep> enqueue(StoredFile file, boolean explain) {
+            if (count >= maxSize) {
+                if (!explain) {
+                    return result("QUEUE_FULL", "Queue full", null, indices(Map.of("isFull", true)));
+                }
+                return List.of(step("QUEUE_FULL", "Queue FULL! All " + slots.length + " slots are in use", null,
+                    Map.of("isFull", true)));
+            }
+            
+            int rear = (head + count) % slots.length;
+            List<VisualizationStep> steps = explain ? new ArrayList<>() : List.of();
+            if (explain) {
+                steps.add(step("PREPARE_ENQUEUE", "Preparing to ENQUEUE: " + file.getFilename(), null,
+                    Map.of("action", "enqueue")));
+                if (rear == 0 && count > 0) {
+                    steps.add(step("WRAP_AROUND", "REAR wraps around from slot " + (slots.length - 1) + " to slot 0", null,
+                        Map.of("slot", rear)));
+                }
+                steps.add(step("CREATE_NODE", "Writing to slot " + rear + " at the REAR", null,
+                    Map.of("position", count, "slot", rear)));
+            }
+            
+            QueueNode node = new QueueNode(file, count);
+            write(rear, node);
+            count++;
+            
+            if (!explain) {
+                return result("ENQUEUE_COMPLETE", "Enqueued", node.getNodeId(),
+                    indices(Map.of("size", count, "rear", node.getNodeId())));
+            }
+            steps.add(step("ENQUEUE_COMPLETE", "ENQUEUED in slot " + rear + "! Size: " + count, node.getNodeId(),
+                Map.of("size", count, "rear", node.getNodeId())));
+            return steps;
+        }
+        
+        // As many of files as fit, in one pass; returns how many were added
+        synchronized int enqueueAll(List<StoredFile> files) {
+            int added = Math.max(0, Math.min(files.size(), maxSize - count));
+            for (int i = 0; i < added; i++) {
+                write((head + count) % slots.length, new QueueNode(files.get(i), count));
+                count++;
+            }
+            return added;
+        }
+        
+        synchronized List<VisualizationStep> dequeue(boolean explain) {
+            if (count == 0) {
+                if (!explain) {
+                    return result("QUEUE_EMPTY", "Queue empty", null, indices(Map.of("isEmpty", true)));
+                }
+                return List.of(step("QUEUE_EMPTY", "Queue EMPTY!", null, Map.of("isEmpty", true)));
+            }
+            
+            QueueNode front = slots[head];
+            String filename = front.getFile().getFilename();
+            List<VisualizationStep> steps = explain ? new ArrayList<>() : List.of();
+            if (explain) {
+                steps.add(step("SHOW_FRONT", "FRONT: " + filename + " in slot " + head, front.getNodeId(),
+                    Map.of("front", filename)));
+            }
+            
+            int slot = head;
+            write(slot, null);
+            head = (head + 1) % slots.length;
+            count--;
+            
+            if (!explain) {
+                return result("DEQUEUE_COMPLETE", "Dequeued", null,
+                    indices(Map.of("dequeued", filename, "size", count)));
+            }
+            steps.add(step("REMOVING", "Removing from slot " + slot + " at the FRONT...", null,
+                Map.of("removed", filename)));
+            if (head == 0 && count > 0) {
+                steps.add(step("WRAP_AROUND", "FRONT wraps around from slot " + slot + " to slot 0", null,
+                    Map.of("slot", head)));
+            }
+            steps.add(step("DEQUEUE_COMPLETE", "DEQUEUED: " + filename, null,
+                Map.of("dequeued", filename, "size", count)));
+            return steps;
+        }
+        
+        synchronized List<VisualizationStep> peek(boolean explain) {
+            if (count == 0) {
+                if (!explain) {
+                    return result("QUEUE_EMPTY", "Queue empty", null, indices(Map.of("isEmpty", true)));
+                }
+                return List.of(step("QUEUE_EMPTY", "Queue EMPTY!", null, Map.of("isEmpty", true)));
+            }
+            QueueNode front = slots[head];
+            Map<String, Object> metadata = Map.of("front", front.getFile().getFilename());
+            if (!explain) {
+                return result("SHOW_FRONT", "Front", front.getNodeId(), indices(metadata));
+            }
+            return List.of(step("SHOW_FRONT", "FRONT: " + front.getFile().getFilename() + " in slot " + head,
+                front.getNodeId(), metadata));
+        }
+        
+        synchronized void clear() {
+            slots = new QueueNode[slots.length];
+            head = 0;
+            count = 0;
+            published = null;
+        }
+        
+        synchronized void resize(int capacity) {
+            List<QueueNode> nodes = nodes();
+            slots = new QueueNode[Math.max(capacity, nodes.size())];
+            head = 0;
+            count = 0;
+            published = null;
+            nodes.forEach(this::append);
+        }
+        
+        synchronized int size() {
+            return count;
+        }
+        
+        synchronized Map<String, Object> indices() {
+            return indices(Map.of());
+        }
+        
+        synchronized QueueNode front() {
+            return count == 0 ? null : slots[head];
+        }
+        
+        synchronized List<QueueNode> nodes() {
+            List<QueueNode> nodes = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                nodes.add(slots[(head + i) % slots.length]);
+            }
+            return nodes;
+        }
+        
+        // Views still in use keep the old array
+        private void write(int slot, QueueNode node) {
+            if (published != null && published.slots == slots) {
+                slots = slots.clone();
+            }
+            slots[slot] = node;
+        }
+        
+        synchronized VisualizationStep step(String operation, String description, String highlightedNodeId,
+                                            Map<String, Object> metadata) {
+            if (published == null || published.slots != slots || published.head != head || published.count != count) {
+                published = new RingView(slots, head, count);
+            }
+            return new VisualizationStep(operation, description, published, highlightedNodeId, indices(metadata));
+        }
+        
+        // Front and rear as slot indices (-1 when empty), for drawing the ring
+        private Map<String, Object> indices(Map<String, Object> metadata) {
+            Map<String, Object> withIndices = new HashMap<>(metadata);
+            withIndices.put("capacity", slots.length);
+            withIndices.put("frontIndex", count == 0 ? -1 : head);
+            withIndices.put("rearIndex", count == 0 ? -1 : (head + count - 1) % slots.length);
+            return withIndices;
+        }
+    }
+    
+    /** The ring at one moment, read through: nothing is copied when it is made. */
+    private static final class RingView extends AbstractList<NodeSnapshot> implements RandomAccess {
+        private final QueueNode[] slots;
+        private final int head;
+        private final int count;
+        
+        RingView(QueueNode[] slots, int head, int count) {
+            this.slots = slots;
+            this.head = head;
+            this.count = count;
+        }
+        
+        @Override
+        public NodeSnapshot get(int index) {
+            Objects.checkIndex(index, count);
+            int slot = (head + index) % slots.length;
+            QueueNode node = slots[slot];
+            return new NodeSnapshot(
+                node.getNodeId(),
+                node.getFile().getFilename(),
+                node.getFile().getSizeFormatted(),
+                node.getFile().getContentType(),
+                index,
+                index == 0,
+                index == count - 1,
+                slot
+            );
+        }
+        
+        @Override
+        public int size() {
+            return count;
+        }
     }
 }
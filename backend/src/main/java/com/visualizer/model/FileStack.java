@@ -1,12 +1,30 @@
 package com.visualizer.model;
 
+import lombok.AccessLevel;
 import lombok.Data;
 import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
 import java.util.*;
 
+/**
+ * A stack of files in an array that grows by {@code growthFactor} when a
+ * push finds it full, and shrinks by the same factor when a pop leaves it
+ * at most 1/growthFactor² full (never below {@code initialCapacity}), so
+ * push and pop are amortized O(1) and the stack has no size limit. With
+ * explain on, a resize is shown as a RESIZE step.
+ * <p>
+ * Changes and reads take the stack's own read-write lock, not its monitor:
+ * the monitor is what the controllers hold to journal changes in order.
+ */
 @Data
 public class FileStack {
     
+    public static final int DEFAULT_INITIAL_CAPACITY = 10;
+    public static final double DEFAULT_GROWTH_FACTOR = 2.0;
+    
     @Data
     @AllArgsConstructor
     public static class StackNode {
@@ -41,139 +59,293 @@ public class FileStack {
         private int position;
     }
     
-    private Stack<StackNode> stack;
-    private int maxSize;
-    private List<VisualizationStep> steps;
+    private final int initialCapacity;
+    private final double growthFactor;
+    
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private StackNode[] slots;
+    
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    private int size;
+    
+    @Getter(AccessLevel.NONE)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private final StructureLock lock = new StructureLock();
+    
+    public FileStack() {
+        this(DEFAULT_INITIAL_CAPACITY, DEFAULT_GROWTH_FACTOR);
+    }
+    
+    public FileStack(int initialCapacity) {
+        this(initialCapacity, DEFAULT_GROWTH_FACTOR);
+    }
     
-    public FileStack(int maxSize) {
-        this.stack = new Stack<>();
-        this.maxSize = maxSize;
-        this.steps = new ArrayList<>();
+    public FileStack(int initialCapacity, double growthFactor) {
+        if (initialCapacity < 1) {
+            throw new IllegalArgumentException("Initial capacity must be at least 1, got " + initialCapacity);
+        }
+        if (!(growthFactor > 1.0)) {
+            throw new IllegalArgumentException("Growth factor must be greater than 1, got " + growthFactor);
+        }
+        this.initialCapacity = initialCapacity;
+        this.growthFactor = growthFactor;
+        this.slots = new StackNode[initialCapacity];
     }
     
     public List<VisualizationStep> push(StoredFile file) {
-        steps.clear();
-        
-        if (stack.size() >= maxSize) {
+        return push(file, true);
+    }
+    
+    /**
+     * With {@code explain} every stage is recorded with a snapshot of the
+     * stack; without it the push is applied directly and a single result
+     * step (the final step's operation and metadata) is returned.
+     */
+    public List<VisualizationStep> push(StoredFile file, boolean explain) {
+        return lock.write(() -> pushLocked(file, explain));
+    }
+    
+    private List<VisualizationStep> pushLocked(StoredFile file, boolean explain) {
+        List<VisualizationStep> steps = explain ? new ArrayList<>() : List.of();
+        if (explain) {
             steps.add(new VisualizationStep(
-                "OVERFLOW",
-                "âŒ Stack Overflow! Cannot push. Max: " + maxSize,
+                "PREPARE_PUSH",
+                "ðŸ“¦ Preparing to PUSH: " + file.getFilename(),
                 convertToSnapshots(),
                 null,
-                Map.of("isFull", true, "size", stack.size())
+                Map.of("action", "push")
             ));
-            return steps;
         }
         
-        steps.add(new VisualizationStep(
-            "PREPARE_PUSH",
-            "ðŸ“¦ Preparing to PUSH: " + file.getFilename(),
-            convertToSnapshots(),
-            null,
-            Map.of("action", "push")
-        ));
+        if (size == slots.length) {
+            int oldCapacity = slots.length;
+            resize(Math.max(oldCapacity + 1, (int) Math.ceil(oldCapacity * growthFactor)));
+            if (explain) {
+                steps.add(resizeStep("Array full: copying " + size + " files into a new array of " + slots.length + " slots",
+                    oldCapacity));
+            }
+        }
         
-        StackNode newNode = new StackNode(file, stack.size());
+        StackNode newNode = new StackNode(file, size);
+        if (explain) {
+            steps.add(new VisualizationStep(
+                "CREATE_NODE",
+                "ðŸ“ Creating stack node at position " + size,
+                convertToSnapshots(),
+                newNode.getNodeId(),
+                Map.of("position", size)
+            ));
+        }
+        slots[size++] = newNode;
         
+        if (!explain) {
+            return result("PUSH_COMPLETE", "Pushed", newNode.getNodeId(),
+                Map.of("size", size, "capacity", slots.length, "top", newNode.getNodeId()));
+        }
         steps.add(new VisualizationStep(
-            "CREATE_NODE",
-            "ðŸ“ Creating stack node at position " + stack.size(),
+            "PUSH_COMPLETE",
+            "âœ… PUSHED! Stack size: " + size + "/" + slots.length,
             convertToSnapshots(),
             newNode.getNodeId(),
-            Map.of("position", stack.size())
+            Map.of("size", size, "capacity", slots.length, "top", newNode.getNodeId())
         ));
+        return steps;
+    }
+    
+    /**
+     * Pushes {@code files} in order, first to last, growing the array at most
+     * once: straight to the capacity the pushes one by one would have ended
+     * at. The result is a single BULK_PUSH step, with a snapshot of the stack
+     * when {@code explain} is on; {@code trace} puts each push's own steps
+     * before it.
+     */
+    public List<VisualizationStep> pushAll(List<StoredFile> files, boolean explain, boolean trace) {
+        return lock.write(() -> pushAllLocked(files, explain, trace));
+    }
+    
+    private List<VisualizationStep> pushAllLocked(List<StoredFile> files, boolean explain, boolean trace) {
+        List<VisualizationStep> steps = new ArrayList<>();
+        int oldCapacity = slots.length;
+        if (explain && trace) {
+            for (StoredFile file : files) {
+                steps.addAll(pushLocked(file, true));
+            }
+        } else {
+            int capacity = slots.length;
+            while (capacity < size + files.size()) {
+                capacity = Math.max(capacity + 1, (int) Math.ceil(capacity * growthFactor));
+            }
+            if (capacity != slots.length) {
+                resize(capacity);
+            }
+            for (StoredFile file : files) {
+                slots[size] = new StackNode(file, size);
+                size++;
+            }
+        }
         
-        stack.push(newNode);
-        
+        String top = size == 0 ? null : slots[size - 1].getNodeId();
+        Map<String, Object> metadata = Map.of("count", files.size(), "size", size,
+            "oldCapacity", oldCapacity, "capacity", slots.length);
+        if (!explain) {
+            return result("BULK_PUSH", "Pushed " + files.size() + " files", top, metadata);
+        }
         steps.add(new VisualizationStep(
-            "PUSH_COMPLETE",
-            "âœ… PUSHED! Stack size: " + stack.size() + "/" + maxSize,
+            "BULK_PUSH",
+            "Pushed " + files.size() + " files. Stack size: " + size + "/" + slots.length,
             convertToSnapshots(),
-            newNode.getNodeId(),
-            Map.of("size", stack.size(), "top", newNode.getNodeId())
+            top,
+            metadata
         ));
-        
-        return new ArrayList<>(steps);
+        return steps;
     }
     
     public List<VisualizationStep> pop() {
-        steps.clear();
-        
-        if (stack.isEmpty()) {
-            steps.add(new VisualizationStep(
+        return pop(true);
+    }
+    
+    public List<VisualizationStep> pop(boolean explain) {
+        return lock.write(() -> popLocked(explain));
+    }
+    
+    private List<VisualizationStep> popLocked(boolean explain) {
+        if (size == 0) {
+            if (!explain) {
+                return result("UNDERFLOW", "Stack underflow", null, Map.of("isEmpty", true));
+            }
+            return List.of(new VisualizationStep(
                 "UNDERFLOW",
                 "âŒ Stack Underflow! Empty stack",
                 convertToSnapshots(),
                 null,
                 Map.of("isEmpty", true)
             ));
-            return steps;
         }
         
-        StackNode topNode = stack.peek();
-        
-        steps.add(new VisualizationStep(
-            "SHOW_TOP",
-            "ðŸ‘€ TOP element: " + topNode.getFile().getFilename(),
-            convertToSnapshots(),
-            topNode.getNodeId(),
-            Map.of("top", topNode.getFile().getFilename())
-        ));
+        StackNode poppedNode = slots[size - 1];
+        String filename = poppedNode.getFile().getFilename();
+        List<VisualizationStep> steps = explain ? new ArrayList<>() : List.of();
+        if (explain) {
+            steps.add(new VisualizationStep(
+                "SHOW_TOP",
+                "ðŸ‘€ TOP element: " + filename,
+                convertToSnapshots(),
+                poppedNode.getNodeId(),
+                Map.of("top", filename)
+            ));
+        }
         
-        StackNode poppedNode = stack.pop();
+        slots[--size] = null;
+        if (explain) {
+            steps.add(new VisualizationStep(
+                "REMOVING",
+                "ðŸ—‘ï¸ Removing TOP...",
+                convertToSnapshots(),
+                poppedNode.getNodeId(),
+                Map.of("removed", filename)
+            ));
+        }
         
-        steps.add(new VisualizationStep(
-            "REMOVING",
-            "ðŸ—‘ï¸ Removing TOP...",
-            convertToSnapshots(),
-            poppedNode.getNodeId(),
-            Map.of("removed", poppedNode.getFile().getFilename())
-        ));
+        // Shrinking only once it is this empty keeps a push after a shrink from growing again
+        if (slots.length > initialCapacity && size <= slots.length / (growthFactor * growthFactor)) {
+            int oldCapacity = slots.length;
+            resize(Math.max(initialCapacity, (int) (oldCapacity / growthFactor)));
+            if (explain) {
+                steps.add(resizeStep("Only " + size + " of " + oldCapacity + " slots in use: copying into a new array of "
+                    + slots.length + " slots", oldCapacity));
+            }
+        }
         
+        if (!explain) {
+            return result("POP_COMPLETE", "Popped", null,
+                Map.of("popped", filename, "size", size, "capacity", slots.length));
+        }
         steps.add(new VisualizationStep(
             "POP_COMPLETE",
-            "âœ… POPPED: " + poppedNode.getFile().getFilename() + " | Size: " + stack.size(),
+            "âœ… POPPED: " + filename + " | Size: " + size,
             convertToSnapshots(),
             null,
-            Map.of("popped", poppedNode.getFile().getFilename(), "size", stack.size())
+            Map.of("popped", filename, "size", size, "capacity", slots.length)
         ));
-        
-        return new ArrayList<>(steps);
+        return steps;
     }
     
     public List<VisualizationStep> peek() {
-        steps.clear();
+        return peek(true);
+    }
+    
+    public List<VisualizationStep> peek(boolean explain) {
+        return lock.read(() -> peekLocked(explain));
+    }
+    
+    private List<VisualizationStep> peekLocked(boolean explain) {
+        StackNode current = size == 0 ? null : slots[size - 1];
+        if (!explain) {
+            if (current == null) {
+                return result("EMPTY_STACK", "Stack is empty", null, Map.of("isEmpty", true));
+            }
+            return result("PEEK", "Peeked", current.getNodeId(), Map.of("top", current.getFile().getFilename()));
+        }
         
-        if (stack.isEmpty()) {
-            steps.add(new VisualizationStep(
+        if (current == null) {
+            return List.of(new VisualizationStep(
                 "EMPTY_STACK",
                 "ðŸ“­ Stack is empty",
                 convertToSnapshots(),
                 null,
                 Map.of("isEmpty", true)
             ));
-            return steps;
         }
         
-        StackNode topNode = stack.peek();
-        
-        steps.add(new VisualizationStep(
+        return List.of(new VisualizationStep(
             "PEEK",
-            "ðŸ‘ï¸ PEEK - Top: " + topNode.getFile().getFilename(),
+            "ðŸ‘ï¸ PEEK - Top: " + current.getFile().getFilename(),
             convertToSnapshots(),
-            topNode.getNodeId(),
-            Map.of("top", topNode.getFile().getFilename())
+            current.getNodeId(),
+            Map.of("top", current.getFile().getFilename())
         ));
-        
-        return new ArrayList<>(steps);
     }
     
+    /** Empties the stack and returns it to its initial capacity. */
+    public void clear() {
+        lock.write(() -> {
+            slots = new StackNode[initialCapacity];
+            size = 0;
+        });
+    }
+    
+    // Copies the files into a new array: the O(n) step that doubling keeps rare
+    private void resize(int capacity) {
+        slots = Arrays.copyOf(slots, capacity);
+    }
+    
+    private VisualizationStep resizeStep(String description, int oldCapacity) {
+        return new VisualizationStep(
+            "RESIZE",
+            description,
+            convertToSnapshots(),
+            null,
+            Map.of("oldCapacity", oldCapacity, "capacity", slots.length, "copied", size)
+        );
+    }
+    
+    // Outcome of a call with explain off: no snapshot, fixed description
+    private static List<VisualizationStep> result(String operation, String description,
+                                                  String highlightedNodeId, Map<String, Object> metadata) {
+        return List.of(new VisualizationStep(operation, description, List.of(), highlightedNodeId, metadata));
+    }
+    
+    // Bottom to top, as the stack was displayed before
     private List<NodeSnapshot> convertToSnapshots() {
-        List<NodeSnapshot> snapshots = new ArrayList<>();
-        List<StackNode> nodes = new ArrayList<>(stack);
-        
-        for (int i = 0; i < nodes.size(); i++) {
-            StackNode node = nodes.get(i);
+        List<NodeSnapshot> snapshots = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            StackNode node = slots[i];
             snapshots.add(new NodeSnapshot(
                 node.getNodeId(),
                 node.getFile().getFilename(),
@@ -182,14 +354,37 @@ public class FileStack {
                 i
             ));
         }
-        
         return snapshots;
     }
     
-    public int getSize() { return stack.size(); }
-    public boolean isEmpty() { return stack.isEmpty(); }
-    public boolean isFull() { return stack.size() >= maxSize; }
+    public int getSize() { return lock.read(() -> size); }
+    public int getCapacity() { return lock.read(() -> slots.length); }
+    public boolean isEmpty() { return lock.read(() -> size == 0); }
+    
+    /** The file on top, or {@code null} when empty. */
+    public StoredFile peekFile() {
+        return lock.read(() -> size == 0 ? null : slots[size - 1].getFile());
+    }
+    
     public List<StoredFile> getAllFiles() {
-        return stack.stream().map(StackNode::getFile).toList();
+        return lock.read(this::files);
+    }
+    
+    /** size, capacity, isEmpty and files (bottom to top), all read at one moment. */
+    public Map<String, Object> state() {
+        return lock.read(() -> Map.of(
+            "size", size,
+            "capacity", slots.length,
+            "isEmpty", size == 0,
+            "files", files()
+        ));
+    }
+    
+    private List<StoredFile> files() {
+        List<StoredFile> files = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            files.add(slots[i].getFile());
+        }
+        return files;
     }
-}
+}
\ No newline at end of file
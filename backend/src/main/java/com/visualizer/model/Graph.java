@@ -1,10 +1,13 @@
 package com.visualizer.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import java.util.*;
 
 public class Graph {
     private Map<String, Node> nodes;
     private List<Edge> edges;
+    private volatile GraphIndex index;
+    private boolean frozen;
     
     public Graph() {
         this.nodes = new HashMap<>();
@@ -13,12 +16,45 @@ public class Graph {
     
     public void addNode(Node node) {
         nodes.put(node.getId(), node);
+        index = null;
     }
     
     public void addEdge(Edge edge) {
         edges.add(edge);
+        index = null;
     }
     
+    /**
+     * Adjacency index for the current nodes and edges. Built once on first use
+     * and rebuilt only after the graph is modified.
+     */
+    @JsonIgnore
+    public GraphIndex getIndex() {
+        GraphIndex current = index;
+        if (current == null) {
+            current = GraphIndex.build(nodes, edges);
+            index = current;
+        }
+        return current;
+    }
+    
+    /**
+     * Makes the graph read-only and builds its index eagerly, so one instance
+     * can be shared by concurrent requests. Further addNode/addEdge calls throw.
+     */
+    public Graph freeze() {
+        if (!frozen) {
+            nodes = Collections.unmodifiableMap(nodes);
+            edges = Collections.unmodifiableList(edges);
+            index = GraphIndex.build(nodes, edges);
+            frozen = true;
+        }
+        return this;
+    }
+    
+    @JsonIgnore
+    public boolean isFrozen() { return frozen; }
+    
     // Getters and setters
     public Map<String, Node> getNodes() { return nodes; }
     public List<Edge> getEdges() { return edges; }
@@ -0,0 +1,127 @@
+package com.visualizer.model;
+
+import java.util.*;
+
+/**
+ * Compressed sparse row (CSR) adjacency index over a {@link Graph}.
+ * Node ids are interned to dense ints; the neighbours of node {@code u}
+ * live in {@code targets[offsets[u] .. offsets[u + 1])}. Edges are treated
+ * as undirected, matching how the search algorithms read the edge list.
+ */
+public final class GraphIndex {
+    private final String[] ids;
+    private final Map<String, Integer> indexById;
+    private final int[] offsets;
+    private final int[] targets;
+    private final double[] weights;
+    private final double[] xs;
+    private final double[] ys;
+
+    private GraphIndex(String[] ids, Map<String, Integer> indexById,
+                       int[] offsets, int[] targets, double[] weights,
+                       double[] xs, double[] ys) {
+        this.ids = ids;
+        this.indexById = indexById;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+        this.xs = xs;
+        this.ys = ys;
+    }
+
+    public static GraphIndex build(Map<String, Node> nodes, List<Edge> edges) {
+        Map<String, Integer> indexById = new HashMap<>();
+        List<String> ids = new ArrayList<>(nodes.size());
+
+        // Declared nodes first, then any endpoint that only appears on an edge
+        for (String id : nodes.keySet()) {
+            indexById.put(id, ids.size());
+            ids.add(id);
+        }
+        int[] sources = new int[edges.size()];
+        int[] dests = new int[edges.size()];
+        for (int i = 0; i < edges.size(); i++) {
+            sources[i] = intern(edges.get(i).getSource(), indexById, ids);
+            dests[i] = intern(edges.get(i).getTarget(), indexById, ids);
+        }
+
+        // Count degrees, then prefix-sum into row offsets
+        int n = ids.size();
+        int[] offsets = new int[n + 1];
+        for (int i = 0; i < edges.size(); i++) {
+            offsets[sources[i] + 1]++;
+            if (sources[i] != dests[i]) offsets[dests[i] + 1]++;
+        }
+        for (int u = 0; u < n; u++) {
+            offsets[u + 1] += offsets[u];
+        }
+
+        // Fill rows in edge-list order so neighbour order matches a linear edge scan
+        int[] cursor = Arrays.copyOf(offsets, n);
+        int[] targets = new int[offsets[n]];
+        double[] weights = new double[offsets[n]];
+        for (int i = 0; i < edges.size(); i++) {
+            double weight = edges.get(i).getWeight();
+            int slot = cursor[sources[i]]++;
+            targets[slot] = dests[i];
+            weights[slot] = weight;
+            if (sources[i] != dests[i]) {
+                slot = cursor[dests[i]]++;
+                targets[slot] = sources[i];
+                weights[slot] = weight;
+            }
+        }
+
+        // Coordinates for heuristics; NaN for endpoints that have no Node
+        double[] xs = new double[n];
+        double[] ys = new double[n];
+        for (int u = 0; u < n; u++) {
+            Node node = nodes.get(ids.get(u));
+            xs[u] = node != null ? node.getX() : Double.NaN;
+            ys[u] = node != null ? node.getY() : Double.NaN;
+        }
+
+        return new GraphIndex(ids.toArray(new String[0]), indexById, offsets, targets, weights, xs, ys);
+    }
+
+    private static int intern(String id, Map<String, Integer> indexById, List<String> ids) {
+        Integer existing = indexById.get(id);
+        if (existing != null) return existing;
+        indexById.put(id, ids.size());
+        ids.add(id);
+        return ids.size() - 1;
+    }
+
+    /** Dense index of a node id, or -1 if the graph does not contain it. */
+    public int indexOf(String id) {
+        Integer index = id != null ? indexById.get(id) : null;
+        return index != null ? index : -1;
+    }
+
+    public String idOf(int index) { return ids[index]; }
+    public int size() { return ids.length; }
+    public int edgeSlots() { return targets.length; }
+
+    /** First adjacency slot of {@code u}; iterate while {@code slot < end(u)}. */
+    public int start(int u) { return offsets[u]; }
+    public int end(int u) { return offsets[u + 1]; }
+    public int degree(int u) { return offsets[u + 1] - offsets[u]; }
+    public int target(int slot) { return targets[slot]; }
+    public double weight(int slot) { return weights[slot]; }
+
+    /** Straight-line distance between two nodes, or 0 if either has no position. */
+    public double euclidean(int u, int v) {
+        double dx = xs[v] - xs[u];
+        double dy = ys[v] - ys[u];
+        double d = Math.sqrt(dx * dx + dy * dy);
+        return Double.isNaN(d) ? 0.0 : d;
+    }
+
+    /** Weight of the first edge joining {@code u} and {@code v}, or NaN if they are not adjacent. */
+    public double weightBetween(int u, int v) {
+        for (int slot = offsets[u]; slot < offsets[u + 1]; slot++) {
+            if (targets[slot] == v) return weights[slot];
+        }
+        return Double.NaN;
+    }
+}
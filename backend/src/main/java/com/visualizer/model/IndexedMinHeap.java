@@ -0,0 +1,109 @@
+package com.visualizer.model;
+
+import java.util.Arrays;
+
+/**
+ * Binary min-heap over dense int ids {@code [0, capacity)} with a double key
+ * per id and O(log n) decrease-key. Keys and positions live in flat arrays,
+ * so pushing, polling and re-prioritising allocate nothing.
+ */
+public final class IndexedMinHeap {
+    private int[] heap;        // heap slot -> id
+    private int[] position;    // id -> heap slot, or -1 when absent
+    private double[] keys;     // id -> current key
+    private int size;
+
+    public IndexedMinHeap(int capacity) {
+        this.heap = new int[capacity];
+        this.position = new int[capacity];
+        this.keys = new double[capacity];
+        Arrays.fill(position, -1);
+    }
+
+    /** Empties the heap and makes room for ids up to {@code capacity - 1}. */
+    public void reset(int capacity) {
+        if (capacity > position.length) {
+            heap = new int[capacity];
+            position = new int[capacity];
+            keys = new double[capacity];
+            Arrays.fill(position, -1);
+        } else {
+            for (int i = 0; i < size; i++) {
+                position[heap[i]] = -1;
+            }
+        }
+        size = 0;
+    }
+
+    public boolean isEmpty() { return size == 0; }
+    public int size() { return size; }
+    public boolean contains(int id) { return position[id] >= 0; }
+    public double key(int id) { return keys[id]; }
+
+    /** Inserts {@code id}, or lowers its key if it is already queued with a larger one. */
+    public void offer(int id, double key) {
+        int slot = position[id];
+        if (slot < 0) {
+            slot = size++;
+            heap[slot] = id;
+            position[id] = slot;
+            keys[id] = key;
+            siftUp(slot);
+        } else if (key < keys[id]) {
+            keys[id] = key;
+            siftUp(slot);
+        }
+    }
+
+    /** Id with the smallest key, without removing it. */
+    public int peek() { return heap[0]; }
+
+    /** Removes and returns the id with the smallest key. */
+    public int poll() {
+        int min = heap[0];
+        position[min] = -1;
+        size--;
+        if (size > 0) {
+            int last = heap[size];
+            heap[0] = last;
+            position[last] = 0;
+            siftDown(0);
+        }
+        return min;
+    }
+
+    private void siftUp(int slot) {
+        int id = heap[slot];
+        double key = keys[id];
+        while (slot > 0) {
+            int parent = (slot - 1) >>> 1;
+            int parentId = heap[parent];
+            if (keys[parentId] <= key) break;
+            heap[slot] = parentId;
+            position[parentId] = slot;
+            slot = parent;
+        }
+        heap[slot] = id;
+        position[id] = slot;
+    }
+
+    private void siftDown(int slot) {
+        int id = heap[slot];
+        double key = keys[id];
+        int half = size >>> 1;
+        while (slot < half) {
+            int child = 2 * slot + 1;
+            int right = child + 1;
+            if (right < size && keys[heap[right]] < keys[heap[child]]) {
+                child = right;
+            }
+            int childId = heap[child];
+            if (key <= keys[childId]) break;
+            heap[slot] = childId;
+            position[childId] = slot;
+            slot = child;
+        }
+        heap[slot] = id;
+        position[id] = slot;
+    }
+}
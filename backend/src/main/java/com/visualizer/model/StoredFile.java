@@ -18,6 +18,7 @@ public class StoredFile {
     private long size;
     private LocalDateTime uploadedAt;
     private String storagePath;
+    private String contentHash; // SHA-256 (hex) of the stored bytes, when known
     
     // For visualization purposes
     private String status; // "idle", "inserting", "searching", "deleting", "found"
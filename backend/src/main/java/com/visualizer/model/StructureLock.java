@@ -0,0 +1,41 @@
+package com.visualizer.model;
+
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+/**
+ * Read-write lock for the structures that are changed in place (list, array,
+ * tree): searches and snapshots share it, changes take it exclusively. Also
+ * the {@link Workspace}'s change gate.
+ */
+final class StructureLock extends ReentrantReadWriteLock {
+
+    private static final long serialVersionUID = 1L;
+
+    <T> T read(Supplier<T> action) {
+        readLock().lock();
+        try {
+            return action.get();
+        } finally {
+            readLock().unlock();
+        }
+    }
+
+    <T> T write(Supplier<T> action) {
+        writeLock().lock();
+        try {
+            return action.get();
+        } finally {
+            writeLock().unlock();
+        }
+    }
+
+    void write(Runnable action) {
+        writeLock().lock();
+        try {
+            action.run();
+        } finally {
+            writeLock().unlock();
+        }
+    }
+}
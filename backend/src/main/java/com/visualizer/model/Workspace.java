@@ -0,0 +1,120 @@
+package com.visualizer.model;
+
+import lombok.AccessLevel;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * The file structures the storage, stack, queue, array and tree pages work
+ * on. Kept together so they can be journaled and restored as one unit.
+ * <p>
+ * The structures are never replaced, only cleared, so each one can also
+ * serve as the lock that orders its changes. A change holds the workspace's
+ * gate shared from the moment it is applied until it is journaled, and a
+ * snapshot or eviction holds it exclusively (see
+ * {@code WorkspaceService.change}).
+ */
+@Data
+public class Workspace {
+
+    public static final int DEFAULT_CAPACITY = 10;
+
+    private final FileLinkedList fileList = new FileLinkedList();
+    private final FileStack fileStack;
+    private final FileQueue fileQueue = new FileQueue(DEFAULT_CAPACITY);
+    private final FileArray fileArray = new FileArray(DEFAULT_CAPACITY);
+    private final FileBinaryTree binaryTree = new FileBinaryTree();
+
+    @Getter(AccessLevel.NONE)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private final StructureLock gate = new StructureLock();
+
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private volatile boolean closed;
+
+    public Workspace() {
+        this(DEFAULT_CAPACITY, FileStack.DEFAULT_GROWTH_FACTOR);
+    }
+
+    /** The stack starts with {@code stackCapacity} slots and grows by {@code stackGrowthFactor}. */
+    public Workspace(int stackCapacity, double stackGrowthFactor) {
+        this.fileStack = new FileStack(stackCapacity, stackGrowthFactor);
+    }
+
+    /** Held by a change and its journal record; any number at once. */
+    public Lock changeGate() {
+        return gate.readLock();
+    }
+
+    /** Held by whatever must see no change half done, such as a snapshot. */
+    public Lock exclusiveGate() {
+        return gate.writeLock();
+    }
+
+    /** Every record held by any structure; a file in two structures appears twice. */
+    public List<StoredFile> getAllFiles() {
+        List<StoredFile> files = new ArrayList<>(fileList.getAllFiles());
+        files.addAll(fileStack.getAllFiles());
+        files.addAll(fileQueue.getAllFiles());
+        files.addAll(fileArray.getAllFiles());
+        files.addAll(binaryTree.getAllFiles());
+        return files;
+    }
+
+    /** Records held across all structures: how heavy the workspace is to keep around. */
+    public int fileCount() {
+        return fileList.getSize() + fileStack.getSize() + fileQueue.getSize()
+            + fileArray.getSize() + binaryTree.getSize();
+    }
+
+    /** True once {@link #close} was called: the workspace is no longer in use. */
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /** Marks the workspace as no longer in use and empties it, as {@link #clear}. */
+    public List<StoredFile> close() {
+        closed = true;
+        return clear();
+    }
+
+    /**
+     * Empties every structure, each under its change lock, and returns the
+     * records they held so their blobs can be released.
+     */
+    public List<StoredFile> clear() {
+        List<StoredFile> files = new ArrayList<>();
+        synchronized (fileList) {
+            files.addAll(fileList.getAllFiles());
+            fileList.clear();
+        }
+        synchronized (fileStack) {
+            files.addAll(fileStack.getAllFiles());
+            fileStack.clear();
+        }
+        synchronized (fileQueue) {
+            files.addAll(fileQueue.getAllFiles());
+            fileQueue.clear();
+        }
+        synchronized (fileArray) {
+            files.addAll(fileArray.getAllFiles());
+            fileArray.clear();
+        }
+        synchronized (binaryTree) {
+            files.addAll(binaryTree.getAllFiles());
+            binaryTree.clear();
+        }
+        return files;
+    }
+}
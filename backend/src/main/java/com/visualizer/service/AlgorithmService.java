@@ -3,10 +3,13 @@ package com.visualizer.service;
 import com.visualizer.model.*;
 import org.springframework.stereotype.Service;
 import java.util.*;
+import java.util.stream.Stream;
 
 @Service
 public class AlgorithmService {
     
+    private final PathfindingEngine pathfinding = new PathfindingEngine();
+    
     public static class AlgorithmStep {
         public String type;
         public Map<String, Object> data;
@@ -22,157 +25,47 @@ public class AlgorithmService {
     // Sorting Algorithms
     public List<Map<String, Object>> sort(String algorithm, List<Integer> array) {
         List<Map<String, Object>> steps = new ArrayList<>();
-        
-        switch (algorithm.toLowerCase()) {
-            case "bubble":
-                bubbleSort(array, steps);
-                break;
-            case "quick":
-                quickSort(array, 0, array.size() - 1, steps);
-                break;
-            case "insertion":
-                insertionSort(array, steps);
-                break;
-            case "selection":
-                selectionSort(array, steps);
-                break;
-        }
-        
+        SortSteps.iterator(algorithm, array).forEachRemaining(steps::add);
         return steps;
     }
     
-    private void bubbleSort(List<Integer> array, List<Map<String, Object>> steps) {
-        int n = array.size();
-        for (int i = 0; i < n - 1; i++) {
-            for (int j = 0; j < n - i - 1; j++) {
-                steps.add(Map.of(
-                    "type", "compare",
-                    "indices", List.of(j, j + 1)
-                ));
-                
-                if (array.get(j) > array.get(j + 1)) {
-                    Collections.swap(array, j, j + 1);
-                    steps.add(Map.of(
-                        "type", "swap",
-                        "indices", List.of(j, j + 1)
-                    ));
-                }
-            }
-        }
+    /**
+     * Streaming variant of {@link #sort}: steps are generated as the stream
+     * is consumed instead of being collected up front. The list is sorted in
+     * place once the stream has been fully consumed.
+     */
+    public Stream<Map<String, Object>> streamSort(String algorithm, List<Integer> array) {
+        return SortSteps.stream(algorithm, array);
     }
     
-    private void quickSort(List<Integer> array, int low, int high, List<Map<String, Object>> steps) {
-        if (low < high) {
-            int pi = partition(array, low, high, steps);
-            quickSort(array, low, pi - 1, steps);
-            quickSort(array, pi + 1, high, steps);
-        }
+    public Iterator<Map<String, Object>> sortSteps(String algorithm, List<Integer> array) {
+        return SortSteps.iterator(algorithm, array);
     }
     
-    private int partition(List<Integer> array, int low, int high, List<Map<String, Object>> steps) {
-        int pivot = array.get(high);
-        steps.add(Map.of(
-            "type", "pivot",
-            "index", high,
-            "value", pivot
-        ));
-        
-        int i = low - 1;
-        for (int j = low; j < high; j++) {
-            steps.add(Map.of(
-                "type", "compare",
-                "indices", List.of(j, high)
-            ));
-            
-            if (array.get(j) < pivot) {
-                i++;
-                if (i != j) {
-                    Collections.swap(array, i, j);
-                    steps.add(Map.of(
-                        "type", "swap",
-                        "indices", List.of(i, j)
-                    ));
-                }
-            }
-        }
-        
-        Collections.swap(array, i + 1, high);
-        steps.add(Map.of(
-            "type", "swap",
-            "indices", List.of(i + 1, high)
-        ));
-        
-        return i + 1;
-    }
-    
-    private void insertionSort(List<Integer> array, List<Map<String, Object>> steps) {
-        for (int i = 1; i < array.size(); i++) {
-            int key = array.get(i);
-            int j = i - 1;
-            
-            steps.add(Map.of(
-                "type", "select",
-                "index", i,
-                "value", key
-            ));
-            
-            while (j >= 0 && array.get(j) > key) {
-                array.set(j + 1, array.get(j));
-                steps.add(Map.of(
-                    "type", "shift",
-                    "from", j,
-                    "to", j + 1
-                ));
-                j--;
-            }
-            
-            array.set(j + 1, key);
-            steps.add(Map.of(
-                "type", "insert",
-                "index", j + 1,
-                "value", key
-            ));
-        }
-    }
-    
-    private void selectionSort(List<Integer> array, List<Map<String, Object>> steps) {
-        int n = array.size();
-        
-        for (int i = 0; i < n - 1; i++) {
-            int minIdx = i;
-            steps.add(Map.of(
-                "type", "select",
-                "index", i
-            ));
-            
-            for (int j = i + 1; j < n; j++) {
-                steps.add(Map.of(
-                    "type", "compare",
-                    "indices", List.of(j, minIdx)
-                ));
-                
-                if (array.get(j) < array.get(minIdx)) {
-                    minIdx = j;
-                    steps.add(Map.of(
-                        "type", "update_min",
-                        "index", minIdx
-                    ));
-                }
-            }
-            
-            if (minIdx != i) {
-                Collections.swap(array, i, minIdx);
-                steps.add(Map.of(
-                    "type", "swap",
-                    "indices", List.of(i, minIdx)
-                ));
-            }
-        }
+    /**
+     * Primitive variant of {@link #sort}: sorts {@code array} in place with
+     * no boxing and records the steps into a {@link PackedTrace}. The trace
+     * expands to the same steps as {@link #sort} via {@link PackedTrace#steps()}.
+     */
+    public PackedTrace sort(String algorithm, int[] array) {
+        return PrimitiveSort.sort(algorithm, array);
     }
     
     // Searching Algorithms
     public Map<String, Object> search(String algorithm, List<Integer> array, int target) {
         List<Map<String, Object>> steps = new ArrayList<>();
+        int result = search(algorithm, array, target, steps);
+        
+        return Map.of(
+            "found", result != -1,
+            "index", result,
+            "steps", steps,
+            "elementsChecked", steps.size()
+        );
+    }
+    
+    /** As {@link #search(String, List, int)}, adding the steps to {@code steps}; the index found, or -1. */
+    public int search(String algorithm, List<Integer> array, int target, List<Map<String, Object>> steps) {
         int result = -1;
         
         switch (algorithm.toLowerCase()) {
@@ -190,12 +83,7 @@ public class AlgorithmService {
                 break;
         }
         
-        return Map.of(
-            "found", result != -1,
-            "index", result,
-            "steps", steps,
-            "elementsChecked", steps.size()
-        );
+        return result;
     }
     
     private int linearSearch(List<Integer> array, int target, List<Map<String, Object>> steps) {
@@ -376,78 +264,42 @@ public class AlgorithmService {
     }
     
     // Pathfinding Algorithms
+    // String-id adapters over PathfindingEngine: ids are resolved through the
+    // graph's index once, and the engine's primitive trace is expanded into
+    // AlgorithmSteps only at the end.
     public List<AlgorithmStep> dijkstra(Graph graph, String start, String end) {
         List<AlgorithmStep> steps = new ArrayList<>();
-        Map<String, Double> distances = new HashMap<>();
-        Map<String, String> previous = new HashMap<>();
-        PriorityQueue<NodeDistance> pq = new PriorityQueue<>();
-        Set<String> visited = new HashSet<>();
-        
-        // Initialize
-        for (String nodeId : graph.getNodes().keySet()) {
-            distances.put(nodeId, Double.POSITIVE_INFINITY);
-            previous.put(nodeId, null);
-        }
-        distances.put(start, 0.0);
-        pq.offer(new NodeDistance(start, 0.0));
-        
         steps.add(new AlgorithmStep("init", Map.of(
             "start", start,
             "end", end
         )));
         
-        while (!pq.isEmpty()) {
-            NodeDistance current = pq.poll();
-            String currentId = current.nodeId;
-            
-            if (visited.contains(currentId)) continue;
-            visited.add(currentId);
-            
-            steps.add(new AlgorithmStep("visit_node", Map.of(
-                "nodeId", currentId,
-                "distance", distances.get(currentId)
-            )));
-            
-            if (currentId.equals(end)) {
-                // Found target, reconstruct path
-                List<String> path = reconstructPath(previous, start, end);
-                steps.add(new AlgorithmStep("path_found", Map.of(
-                    "path", path,
-                    "distance", distances.get(end)
+        GraphIndex index = graph.getIndex();
+        int source = index.indexOf(start);
+        if (source < 0) {
+            return unknownStart(steps, start, end, Map.of("nodeId", start, "distance", 0.0));
+        }
+        
+        PathfindingEngine.Trace trace = new PathfindingEngine.Trace();
+        PathfindingEngine.SearchResult result = pathfinding.dijkstra(index, source, index.indexOf(end), trace);
+        
+        for (int i = 0; i < trace.size(); i++) {
+            String nodeId = index.idOf(trace.node(i));
+            switch (trace.kind(i)) {
+                case PathfindingEngine.Trace.VISIT -> steps.add(new AlgorithmStep("visit_node", Map.of(
+                    "nodeId", nodeId,
+                    "distance", trace.a(i)
                 )));
-                break;
-            }
-            
-            // Check neighbors
-            Node node = graph.getNodes().get(currentId);
-            if (node instanceof MapNode) {
-                MapNode mapNode = (MapNode) node;
-                for (Edge edge : graph.getEdges()) {
-                    String neighbor = null;
-                    double edgeWeight = edge.getWeight();
-                    
-                    if (edge.getSource().equals(currentId)) {
-                        neighbor = edge.getTarget();
-                    } else if (edge.getTarget().equals(currentId)) {
-                        neighbor = edge.getSource();
-                    }
-                    
-                    if (neighbor != null && !visited.contains(neighbor)) {
-                        double newDist = distances.get(currentId) + edgeWeight;
-                        
-                        if (newDist < distances.get(neighbor)) {
-                            distances.put(neighbor, newDist);
-                            previous.put(neighbor, currentId);
-                            pq.offer(new NodeDistance(neighbor, newDist));
-                            
-                            steps.add(new AlgorithmStep("update_distance", Map.of(
-                                "nodeId", neighbor,
-                                "distance", newDist,
-                                "via", currentId
-                            )));
-                        }
-                    }
-                }
+                case PathfindingEngine.Trace.UPDATE -> steps.add(new AlgorithmStep("update_distance", Map.of(
+                    "nodeId", nodeId,
+                    "distance", trace.a(i),
+                    "via", index.idOf(trace.other(i))
+                )));
+                case PathfindingEngine.Trace.PATH_FOUND -> steps.add(new AlgorithmStep("path_found", Map.of(
+                    "path", toIds(index, result.path),
+                    "distance", result.distance
+                )));
+                default -> { }
             }
         }
         
@@ -456,131 +308,74 @@ public class AlgorithmService {
     
     public List<AlgorithmStep> aStar(Graph graph, String start, String end) {
         List<AlgorithmStep> steps = new ArrayList<>();
-        Map<String, Double> gScore = new HashMap<>();
-        Map<String, Double> fScore = new HashMap<>();
-        Map<String, String> cameFrom = new HashMap<>();
-        PriorityQueue<NodeDistance> openSet = new PriorityQueue<>(
-            (a, b) -> Double.compare(fScore.get(a.nodeId), fScore.get(b.nodeId))
-        );
-        Set<String> openSetIds = new HashSet<>();
-        
-        // Initialize
-        for (String nodeId : graph.getNodes().keySet()) {
-            gScore.put(nodeId, Double.POSITIVE_INFINITY);
-            fScore.put(nodeId, Double.POSITIVE_INFINITY);
-        }
-        
-        gScore.put(start, 0.0);
-        fScore.put(start, heuristic(graph, start, end));
-        openSet.offer(new NodeDistance(start, fScore.get(start)));
-        openSetIds.add(start);
-        
         steps.add(new AlgorithmStep("init", Map.of(
             "start", start,
             "end", end,
             "algorithm", "A*"
         )));
         
-        while (!openSet.isEmpty()) {
-            NodeDistance current = openSet.poll();
-            String currentId = current.nodeId;
-            openSetIds.remove(currentId);
-            
-            steps.add(new AlgorithmStep("visit_node", Map.of(
-                "nodeId", currentId,
-                "gScore", gScore.get(currentId),
-                "fScore", fScore.get(currentId)
-            )));
-            
-            if (currentId.equals(end)) {
-                // Reconstruct path
-                List<String> path = reconstructPath(cameFrom, start, end);
-                steps.add(new AlgorithmStep("path_found", Map.of(
-                    "path", path,
-                    "distance", gScore.get(end)
+        GraphIndex index = graph.getIndex();
+        int source = index.indexOf(start);
+        if (source < 0) {
+            unknownStart(steps, start, end, Map.of("nodeId", start, "gScore", 0.0, "fScore", 0.0));
+            if (!start.equals(end)) steps.add(new AlgorithmStep("no_path", Map.of()));
+            return steps;
+        }
+        
+        PathfindingEngine.Trace trace = new PathfindingEngine.Trace();
+        PathfindingEngine.SearchResult result = pathfinding.aStar(index, source, index.indexOf(end), trace);
+        
+        for (int i = 0; i < trace.size(); i++) {
+            switch (trace.kind(i)) {
+                case PathfindingEngine.Trace.VISIT -> steps.add(new AlgorithmStep("visit_node", Map.of(
+                    "nodeId", index.idOf(trace.node(i)),
+                    "gScore", trace.a(i),
+                    "fScore", trace.b(i)
                 )));
-                return steps;
-            }
-            
-            // Check neighbors
-            for (Edge edge : graph.getEdges()) {
-                String neighbor = null;
-                double edgeWeight = edge.getWeight();
-                
-                if (edge.getSource().equals(currentId)) {
-                    neighbor = edge.getTarget();
-                } else if (edge.getTarget().equals(currentId)) {
-                    neighbor = edge.getSource();
-                }
-                
-                if (neighbor != null) {
-                    double tentativeGScore = gScore.get(currentId) + edgeWeight;
-                    
-                    if (tentativeGScore < gScore.get(neighbor)) {
-                        cameFrom.put(neighbor, currentId);
-                        gScore.put(neighbor, tentativeGScore);
-                        fScore.put(neighbor, tentativeGScore + heuristic(graph, neighbor, end));
-                        
-                        if (!openSetIds.contains(neighbor)) {
-                            openSet.offer(new NodeDistance(neighbor, fScore.get(neighbor)));
-                            openSetIds.add(neighbor);
-                        }
-                        
-                        steps.add(new AlgorithmStep("update_scores", Map.of(
-                            "nodeId", neighbor,
-                            "gScore", tentativeGScore,
-                            "fScore", fScore.get(neighbor),
-                            "via", currentId
-                        )));
-                    }
-                }
+                case PathfindingEngine.Trace.UPDATE -> steps.add(new AlgorithmStep("update_scores", Map.of(
+                    "nodeId", index.idOf(trace.node(i)),
+                    "gScore", trace.a(i),
+                    "fScore", trace.b(i),
+                    "via", index.idOf(trace.other(i))
+                )));
+                case PathfindingEngine.Trace.PATH_FOUND -> steps.add(new AlgorithmStep("path_found", Map.of(
+                    "path", toIds(index, result.path),
+                    "distance", result.distance
+                )));
+                case PathfindingEngine.Trace.NO_PATH -> steps.add(new AlgorithmStep("no_path", Map.of()));
+                default -> { }
             }
         }
         
-        steps.add(new AlgorithmStep("no_path", Map.of()));
         return steps;
     }
     
     public List<AlgorithmStep> bfs(Graph graph, String start) {
         List<AlgorithmStep> steps = new ArrayList<>();
-        Queue<String> queue = new LinkedList<>();
-        Set<String> visited = new HashSet<>();
-        Map<String, String> parent = new HashMap<>();
+        steps.add(new AlgorithmStep("init", Map.of("start", start)));
         
-        queue.offer(start);
-        visited.add(start);
-        parent.put(start, null);
+        GraphIndex index = graph.getIndex();
+        int source = index.indexOf(start);
+        if (source < 0) {
+            steps.add(new AlgorithmStep("visit_node", Map.of("nodeId", start, "queueSize", 0)));
+            return steps;
+        }
         
-        steps.add(new AlgorithmStep("init", Map.of("start", start)));
+        PathfindingEngine.Trace trace = new PathfindingEngine.Trace();
+        pathfinding.bfs(index, source, trace);
         
-        while (!queue.isEmpty()) {
-            String current = queue.poll();
-            
-            steps.add(new AlgorithmStep("visit_node", Map.of(
-                "nodeId", current,
-                "queueSize", queue.size()
-            )));
-            
-            // Find neighbors
-            for (Edge edge : graph.getEdges()) {
-                String neighbor = null;
-                
-                if (edge.getSource().equals(current)) {
-                    neighbor = edge.getTarget();
-                } else if (edge.getTarget().equals(current)) {
-                    neighbor = edge.getSource();
-                }
-                
-                if (neighbor != null && !visited.contains(neighbor)) {
-                    visited.add(neighbor);
-                    queue.offer(neighbor);
-                    parent.put(neighbor, current);
-                    
-                    steps.add(new AlgorithmStep("enqueue", Map.of(
-                        "nodeId", neighbor,
-                        "parent", current
-                    )));
-                }
+        for (int i = 0; i < trace.size(); i++) {
+            String nodeId = index.idOf(trace.node(i));
+            if (trace.kind(i) == PathfindingEngine.Trace.VISIT) {
+                steps.add(new AlgorithmStep("visit_node", Map.of(
+                    "nodeId", nodeId,
+                    "queueSize", (int) trace.a(i)
+                )));
+            } else {
+                steps.add(new AlgorithmStep("enqueue", Map.of(
+                    "nodeId", nodeId,
+                    "parent", index.idOf(trace.other(i))
+                )));
             }
         }
         
@@ -588,36 +383,25 @@ public class AlgorithmService {
     }
     
     // Helper methods
-    private double heuristic(Graph graph, String from, String to) {
-        Node fromNode = graph.getNodes().get(from);
-        Node toNode = graph.getNodes().get(to);
-        
-        if (fromNode == null || toNode == null) {
-            return 0.0;
+    private List<AlgorithmStep> unknownStart(List<AlgorithmStep> steps, String start, String end,
+                                             Map<String, Object> visit) {
+        // A start id that is not in the graph is still "visited", it just has no neighbours
+        steps.add(new AlgorithmStep("visit_node", visit));
+        if (start.equals(end)) {
+            steps.add(new AlgorithmStep("path_found", Map.of(
+                "path", List.of(start),
+                "distance", 0.0
+            )));
         }
-        
-        // Euclidean distance heuristic
-        double dx = toNode.getX() - fromNode.getX();
-        double dy = toNode.getY() - fromNode.getY();
-        
-        return Math.sqrt(dx * dx + dy * dy);
+        return steps;
     }
     
-    private List<String> reconstructPath(Map<String, String> cameFrom, String start, String end) {
-        List<String> path = new ArrayList<>();
-        String current = end;
-        
-        while (current != null) {
-            path.add(0, current); // Add to beginning
-            current = cameFrom.get(current);
-        }
-        
-        // Verify path starts from start node
-        if (!path.isEmpty() && !path.get(0).equals(start)) {
-            return new ArrayList<>(); // Invalid path
+    private List<String> toIds(GraphIndex index, int[] path) {
+        List<String> ids = new ArrayList<>(path.length);
+        for (int node : path) {
+            ids.add(index.idOf(node));
         }
-        
-        return path;
+        return ids;
     }
     
     private TreeNode buildTree(Map<String, Object> data) {
@@ -683,6 +467,7 @@ public class AlgorithmService {
     
     // Graph traversal methods
     private void bfsGraph(Graph graph, String start, List<String> order) {
+        GraphIndex index = graph.getIndex();
         Queue<String> queue = new LinkedList<>();
         Set<String> visited = new HashSet<>();
         
@@ -694,15 +479,12 @@ public class AlgorithmService {
             order.add(current);
             
             // Get neighbors
-            for (Edge edge : graph.getEdges()) {
-                String neighbor = null;
-                if (edge.getSource().equals(current)) {
-                    neighbor = edge.getTarget();
-                } else if (edge.getTarget().equals(current)) {
-                    neighbor = edge.getSource();
-                }
-                
-                if (neighbor != null && !visited.contains(neighbor)) {
+            int u = index.indexOf(current);
+            if (u < 0) continue;
+            
+            for (int slot = index.start(u); slot < index.end(u); slot++) {
+                String neighbor = index.idOf(index.target(slot));
+                if (!visited.contains(neighbor)) {
                     visited.add(neighbor);
                     queue.offer(neighbor);
                 }
@@ -720,15 +502,13 @@ public class AlgorithmService {
         order.add(current);
         
         // Get neighbors
-        for (Edge edge : graph.getEdges()) {
-            String neighbor = null;
-            if (edge.getSource().equals(current)) {
-                neighbor = edge.getTarget();
-            } else if (edge.getTarget().equals(current)) {
-                neighbor = edge.getSource();
-            }
-            
-            if (neighbor != null && !visited.contains(neighbor)) {
+        GraphIndex index = graph.getIndex();
+        int u = index.indexOf(current);
+        if (u < 0) return;
+        
+        for (int slot = index.start(u); slot < index.end(u); slot++) {
+            String neighbor = index.idOf(index.target(slot));
+            if (!visited.contains(neighbor)) {
                 dfsGraphHelper(graph, neighbor, visited, order);
             }
         }
@@ -744,19 +524,4 @@ public class AlgorithmService {
             this.value = value;
         }
     }
-    
-    private static class NodeDistance implements Comparable<NodeDistance> {
-        String nodeId;
-        double distance;
-        
-        NodeDistance(String nodeId, double distance) {
-            this.nodeId = nodeId;
-            this.distance = distance;
-        }
-        
-        @Override
-        public int compareTo(NodeDistance other) {
-            return Double.compare(this.distance, other.distance);
-        }
-    }
 }
\ No newline at end of file
@@ -0,0 +1,54 @@
+package com.visualizer.service;
+
+import com.visualizer.model.FileBPlusTree;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+/**
+ * Owns the disk-backed {@link FileBPlusTree} index ({@code uploads/bptree}).
+ * Unlike the workspaces it is a single index shared by every session, and it
+ * is durable by itself: each change is in its pages when the call returns,
+ * so there is nothing to journal. {@code bptree.buffer-pages} bounds how many
+ * pages are kept decoded in memory.
+ */
+@Service
+public class BPlusTreeService {
+
+    @Value("${file.upload-dir:uploads}")
+    private String uploadDir;
+
+    @Value("${bptree.buffer-pages:2048}")
+    private int bufferPages;
+
+    private FileBPlusTree tree;
+
+    @PostConstruct
+    public void init() {
+        long start = System.nanoTime();
+        try {
+            tree = new FileBPlusTree(Paths.get(uploadDir).toAbsolutePath().normalize().resolve("bptree").resolve("index.db"), bufferPages);
+        } catch (IOException ex) {
+            throw new RuntimeException("Could not open B+ tree index: " + ex.getMessage(), ex);
+        }
+        System.out.printf("✅ B+ tree opened: %d files, %d levels, %d pages in %.1f ms%n",
+            tree.getSize(), tree.getHeight(), tree.getPageCount(), (System.nanoTime() - start) / 1e6);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        try {
+            tree.close();
+        } catch (IOException ex) {
+            System.err.println("Failed to close B+ tree index: " + ex.getMessage());
+        }
+    }
+
+    public FileBPlusTree getTree() {
+        return tree;
+    }
+}
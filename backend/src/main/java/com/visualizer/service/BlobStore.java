@@ -0,0 +1,141 @@
+package com.visualizer.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Content-addressed, reference-counted file store. Each distinct content is
+ * kept once, at {@code <root>/<first two hex digits>/<sha-256>}; every
+ * {@link #put} adds a reference and every {@link #release} drops one, and the
+ * file is deleted when the last reference goes.
+ * <p>
+ * Uploads are hashed while they are written to a temp file under
+ * {@code <root>/tmp}, then moved into place, or dropped if that content is
+ * already stored. Counts live in memory only: blobs left over from an earlier
+ * run start at zero references and are picked up again by the next matching
+ * {@code put}.
+ */
+public class BlobStore {
+
+    private static final long TRANSFER_CHUNK = 1 << 20;
+
+    /** The stored content for one {@link #put}. */
+    public record Blob(String hash, long size, Path path) {}
+
+    /** An upload went over the limit passed to {@link #put}. */
+    public static class TooLargeException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        public TooLargeException(long limit) {
+            super("Upload exceeds " + limit + " bytes");
+        }
+    }
+
+    private final Path root;
+    private final Path tmp;
+    private final Map<String, Integer> refs = new HashMap<>();
+
+    public BlobStore(Path root) throws IOException {
+        this.root = root;
+        this.tmp = root.resolve("tmp");
+        Files.createDirectories(tmp);
+    }
+
+    /**
+     * Copies {@code body} into the store and takes a reference on it. The
+     * copy goes through {@link FileChannel#transferFrom} in 1 MB chunks, so
+     * memory use does not depend on the upload size.
+     *
+     * @throws TooLargeException when more than {@code limit} bytes arrive;
+     *         nothing is stored in that case
+     */
+    public Blob put(InputStream body, long limit) throws IOException {
+        MessageDigest sha256 = newSha256();
+        Path temp = tmp.resolve(UUID.randomUUID().toString());
+        long size = 0;
+
+        try {
+            try (ReadableByteChannel source = Channels.newChannel(new DigestInputStream(body, sha256));
+                 FileChannel target = FileChannel.open(temp, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+                long transferred;
+                // Ask for one byte past the limit so an oversized body is detected
+                while (size <= limit
+                        && (transferred = target.transferFrom(source, size, Math.min(TRANSFER_CHUNK, limit - size) + 1)) > 0) {
+                    size += transferred;
+                }
+            }
+            if (size > limit) {
+                throw new TooLargeException(limit);
+            }
+
+            String hash = HexFormat.of().formatHex(sha256.digest());
+            Path path = pathOf(hash);
+            synchronized (this) {
+                if (Files.exists(path)) {
+                    Files.delete(temp);
+                } else {
+                    Files.createDirectories(path.getParent());
+                    Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE);
+                }
+                refs.merge(hash, 1, Integer::sum);
+            }
+            return new Blob(hash, size, path);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /** Takes a reference for a record that already points at {@code hash}, e.g. one restored at startup. */
+    public synchronized void retain(String hash) {
+        refs.merge(hash, 1, Integer::sum);
+    }
+
+    /** Drops one reference to {@code hash}, deleting the blob when none are left. */
+    public synchronized void release(String hash) throws IOException {
+        Integer count = refs.get(hash);
+        if (count == null) {
+            return;
+        }
+        if (count > 1) {
+            refs.put(hash, count - 1);
+            return;
+        }
+        refs.remove(hash);
+        Files.deleteIfExists(pathOf(hash));
+    }
+
+    public synchronized int references(String hash) {
+        return refs.getOrDefault(hash, 0);
+    }
+
+    /** Number of distinct blobs currently referenced. */
+    public synchronized int blobCount() {
+        return refs.size();
+    }
+
+    public Path pathOf(String hash) {
+        return root.resolve(hash.substring(0, 2)).resolve(hash);
+    }
+
+    private static MessageDigest newSha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 not available", ex);
+        }
+    }
+}
@@ -2,17 +2,24 @@ package com.visualizer.service;
 
 import com.visualizer.model.FileLinkedList;
 import com.visualizer.model.StoredFile;
+import com.visualizer.model.Workspace;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import jakarta.annotation.PostConstruct;
+import org.springframework.util.unit.DataSize;
+
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.net.URLConnection;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
 import java.util.*;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
 
 @Service
 public class FileStorageService {
@@ -20,8 +27,37 @@ public class FileStorageService {
     @Value("${file.upload-dir:uploads}")
     private String uploadDir;
     
+    // Cap for streamed uploads, which bypass the multipart size limits
+    @Value("${file.stream-max-size:10GB}")
+    private DataSize streamMaxSize;
+    
+    /** A streamed upload went over {@code file.stream-max-size}. */
+    public static class UploadTooLargeException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        public UploadTooLargeException(String message) {
+            super(message);
+        }
+    }
+    
+    /** A bulk upload carried more files than the caller allowed. */
+    public static class TooManyFilesException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        public TooManyFilesException(String message) {
+            super(message);
+        }
+    }
+    
+    private final WorkspaceService workspaceService;
+    private final BPlusTreeService bPlusTreeService;
     private Path fileStorageLocation;
-    private FileLinkedList fileList;
+    private BlobStore blobStore;
+    
+    public FileStorageService(WorkspaceService workspaceService, BPlusTreeService bPlusTreeService) {
+        this.workspaceService = workspaceService;
+        this.bPlusTreeService = bPlusTreeService;
+    }
     
     @PostConstruct
     public void init() {
@@ -29,91 +65,250 @@ public class FileStorageService {
         
         try {
             Files.createDirectories(this.fileStorageLocation);
+            this.blobStore = new BlobStore(this.fileStorageLocation.resolve("blobs"));
             System.out.println("✅ Upload directory created: " + this.fileStorageLocation);
         } catch (Exception ex) {
             throw new RuntimeException("Could not create upload directory!", ex);
         }
         
-        this.fileList = new FileLinkedList();
+        // Records restored from the journal hold their references again
+        for (StoredFile file : workspaceService.current().getAllFiles()) {
+            if (file.getContentHash() != null) {
+                blobStore.retain(file.getContentHash());
+            }
+        }
+        // So do the records in the B+ tree index
+        bPlusTreeService.getTree().forEach(file -> {
+            if (file.getContentHash() != null) {
+                blobStore.retain(file.getContentHash());
+            }
+        });
+        // Dropped session workspaces give their references back
+        workspaceService.onEvict(this::release);
+    }
+    
+    private FileLinkedList fileList(String sessionId) {
+        return workspaceService.current(sessionId).getFileList();
     }
     
     // Existing methods for Linked List...
-    public List<FileLinkedList.VisualizationStep> storeFile(MultipartFile file) {
-        try {
-            String filename = file.getOriginalFilename();
-            if (filename == null || filename.contains("..")) {
-                throw new RuntimeException("Invalid filename: " + filename);
-            }
-            
-            String uniqueFilename = System.currentTimeMillis() + "_" + filename;
-            Path targetLocation = this.fileStorageLocation.resolve(uniqueFilename);
-            
-            Files.copy(file.getInputStream(), targetLocation, StandardCopyOption.REPLACE_EXISTING);
-            
-            StoredFile storedFile = new StoredFile(
-                filename,
-                file.getContentType(),
-                file.getSize(),
-                targetLocation.toString()
-            );
-            
-            return fileList.insert(storedFile);
-            
+    public List<FileLinkedList.VisualizationStep> storeFile(String sessionId, MultipartFile file, boolean explain) {
+        return addFile(sessionId, storeFileOnly(file), explain);
+    }
+    
+    // NEW METHOD for other data structures (Stack, Queue, Tree)
+    // Every record holds one reference on its blob; see release()
+    public StoredFile storeFileOnly(MultipartFile file) {
+        String filename = file.getOriginalFilename();
+        if (filename == null || filename.contains("..")) {
+            throw new RuntimeException("Invalid filename: " + filename);
+        }
+        
+        try (InputStream body = file.getInputStream()) {
+            return toStoredFile(filename, file.getContentType(), blobStore.put(body, Long.MAX_VALUE));
         } catch (IOException ex) {
             throw new RuntimeException("Failed to store file: " + ex.getMessage(), ex);
         }
     }
     
-    // NEW METHOD for other data structures (Stack, Queue, Tree)
-    public StoredFile storeFileOnly(MultipartFile file) {
+    /** Adds an already stored file (see {@link #storeStream}) to the list. */
+    public List<FileLinkedList.VisualizationStep> addFile(String sessionId, StoredFile storedFile, boolean explain) {
+        Workspace workspace;
         try {
-            String filename = file.getOriginalFilename();
-            if (filename == null || filename.contains("..")) {
-                throw new RuntimeException("Invalid filename: " + filename);
+            workspace = workspaceService.current(sessionId);
+        } catch (WorkspaceService.InvalidSessionException ex) {
+            release(storedFile);
+            throw ex;
+        }
+        FileLinkedList fileList = workspace.getFileList();
+        return workspaceService.change(workspace, fileList, () -> {
+            List<FileLinkedList.VisualizationStep> steps = fileList.insert(storedFile, explain);
+            workspaceService.record(workspace, StructureJournal.Op.LIST_ADD, storedFile);
+            return steps;
+        });
+    }
+    
+    /** Adds already stored files to the list in one pass (see {@link FileLinkedList#insertAll}). */
+    public List<FileLinkedList.VisualizationStep> addFiles(String sessionId, List<StoredFile> storedFiles,
+                                                           boolean explain, boolean trace) {
+        Workspace workspace;
+        try {
+            workspace = workspaceService.current(sessionId);
+        } catch (WorkspaceService.InvalidSessionException ex) {
+            storedFiles.forEach(this::release);
+            throw ex;
+        }
+        FileLinkedList fileList = workspace.getFileList();
+        return workspaceService.change(workspace, fileList, () -> {
+            List<FileLinkedList.VisualizationStep> steps = fileList.insertAll(storedFiles, explain, trace);
+            workspaceService.recordAll(workspace, StructureJournal.Op.LIST_ADD, storedFiles);
+            return steps;
+        });
+    }
+    
+    /**
+     * Stores every file of a bulk upload: each part as it is, except that a
+     * ZIP archive (by name or content type) is unpacked and each of its
+     * files stored instead. The files unpacked from all archives together
+     * may come to at most {@code file.stream-max-size}. If one fails, the
+     * ones already stored are given back before the exception is rethrown.
+     *
+     * @throws TooManyFilesException when there are more than
+     *         {@code maxFiles} files, before the one over is stored
+     * @throws UploadTooLargeException when the archives unpack to more than
+     *         the limit
+     */
+    public List<StoredFile> storeAll(List<MultipartFile> parts, int maxFiles) {
+        List<StoredFile> stored = new ArrayList<>();
+        try {
+            long unpacked = 0;
+            for (MultipartFile part : parts) {
+                if (isZip(part.getOriginalFilename(), part.getContentType())) {
+                    try (InputStream body = part.getInputStream()) {
+                        unpacked += unzip(body, stored, maxFiles, streamMaxSize.toBytes() - unpacked);
+                    }
+                } else {
+                    checkCount(stored, maxFiles);
+                    stored.add(storeFileOnly(part));
+                }
             }
-            
-            String uniqueFilename = System.currentTimeMillis() + "_" + filename;
-            Path targetLocation = this.fileStorageLocation.resolve(uniqueFilename);
-            
-            Files.copy(file.getInputStream(), targetLocation, StandardCopyOption.REPLACE_EXISTING);
-            
-            return new StoredFile(
-                filename,
-                file.getContentType(),
-                file.getSize(),
-                targetLocation.toString()
-            );
-            
+            return stored;
         } catch (IOException ex) {
-            throw new RuntimeException("Failed to store file: " + ex.getMessage(), ex);
+            stored.forEach(this::release);
+            throw new RuntimeException("Failed to read archive: " + ex.getMessage(), ex);
+        } catch (RuntimeException ex) {
+            stored.forEach(this::release);
+            throw ex;
         }
     }
     
-    public List<FileLinkedList.VisualizationStep> searchFile(String filename) {
-        return fileList.search(filename);
+    /** As {@link #storeAll} for a ZIP archive streamed as the request body. */
+    public List<StoredFile> storeZip(InputStream body, int maxFiles) {
+        List<StoredFile> stored = new ArrayList<>();
+        try {
+            unzip(body, stored, maxFiles, streamMaxSize.toBytes());
+            return stored;
+        } catch (IOException ex) {
+            stored.forEach(this::release);
+            throw new RuntimeException("Failed to read archive: " + ex.getMessage(), ex);
+        } catch (RuntimeException ex) {
+            stored.forEach(this::release);
+            throw ex;
+        }
     }
     
-    public List<FileLinkedList.VisualizationStep> deleteFile(String filename) {
-        List<FileLinkedList.VisualizationStep> steps = fileList.delete(filename);
+    private static boolean isZip(String filename, String contentType) {
+        return (filename != null && filename.toLowerCase(Locale.ROOT).endsWith(".zip"))
+            || "application/zip".equals(contentType) || "application/x-zip-compressed".equals(contentType);
+    }
+    
+    // Entries are read straight off the archive stream; folders are flattened, macOS metadata skipped.
+    // Returns the bytes unpacked, which together may not exceed maxBytes.
+    private long unzip(InputStream body, List<StoredFile> stored, int maxFiles, long maxBytes) throws IOException {
+        ZipInputStream zip = new ZipInputStream(body);
+        InputStream entryBody = new FilterInputStream(zip) {
+            @Override
+            public void close() {
+                // the archive stays open for the next entry
+            }
+        };
+        long unpacked = 0;
+        for (ZipEntry entry = zip.getNextEntry(); entry != null; entry = zip.getNextEntry()) {
+            String name = entry.getName();
+            if (entry.isDirectory() || name.startsWith("__MACOSX/")) {
+                continue;
+            }
+            checkCount(stored, maxFiles);
+            String filename = name.substring(Math.max(name.lastIndexOf('/'), name.lastIndexOf('\\')) + 1);
+            StoredFile file = storeStream(filename, null, entryBody, maxBytes - unpacked);
+            stored.add(file);
+            unpacked += file.getSize();
+        }
+        return unpacked;
+    }
+    
+    private static void checkCount(List<StoredFile> stored, int maxFiles) {
+        if (stored.size() >= maxFiles) {
+            throw new TooManyFilesException("More than " + maxFiles + " files");
+        }
+    }
+    
+    /**
+     * Streams {@code body} into the blob store. The bytes go straight from
+     * the request to disk through {@link BlobStore#put}; size and SHA-256 are
+     * computed on the way through, so there is no multipart temp file and no
+     * second copy.
+     */
+    public StoredFile storeStream(String filename, String contentType, InputStream body) {
+        return storeStream(filename, contentType, body, streamMaxSize.toBytes());
+    }
+    
+    private StoredFile storeStream(String filename, String contentType, InputStream body, long limit) {
+        if (filename == null || filename.isBlank() || filename.contains("..")
+                || filename.contains("/") || filename.contains("\\")) {
+            throw new RuntimeException("Invalid filename: " + filename);
+        }
+        if (contentType == null || contentType.isBlank()) {
+            contentType = URLConnection.guessContentTypeFromName(filename);
+        }
         
         try {
-            StoredFile fileToDelete = fileList.getAllFiles().stream()
-                .filter(f -> f.getFilename().equals(filename))
-                .findFirst()
-                .orElse(null);
-            
-            if (fileToDelete != null) {
-                Path filePath = Paths.get(fileToDelete.getStoragePath());
-                Files.deleteIfExists(filePath);
-            }
+            return toStoredFile(filename, contentType, blobStore.put(body, limit));
+        } catch (BlobStore.TooLargeException ex) {
+            throw new UploadTooLargeException("Upload exceeds the " + streamMaxSize.toMegabytes() + " MB limit");
+        } catch (IOException ex) {
+            throw new RuntimeException("Failed to store file: " + ex.getMessage(), ex);
+        }
+    }
+    
+    /**
+     * Gives up a record's reference on its blob once the record has left its
+     * structure. The bytes are deleted only when no other record, in any
+     * structure, still points at the same content.
+     */
+    public void release(StoredFile file) {
+        if (file == null || file.getContentHash() == null) {
+            return;
+        }
+        try {
+            blobStore.release(file.getContentHash());
         } catch (IOException ex) {
             System.err.println("Failed to delete physical file: " + ex.getMessage());
         }
-        
-        return steps;
     }
     
-    public Map<String, Object> getCurrentVisualizationState() {
+    public long getStreamMaxSize() {
+        return streamMaxSize.toBytes();
+    }
+    
+    private static StoredFile toStoredFile(String filename, String contentType, BlobStore.Blob blob) {
+        StoredFile storedFile = new StoredFile(filename, contentType, blob.size(), blob.path().toString());
+        storedFile.setContentHash(blob.hash());
+        return storedFile;
+    }
+    
+    public List<FileLinkedList.VisualizationStep> searchFile(String sessionId, String filename, boolean explain) {
+        return fileList(sessionId).search(filename, explain);
+    }
+    
+    public List<FileLinkedList.VisualizationStep> deleteFile(String sessionId, String filename, boolean explain) {
+        Workspace workspace = workspaceService.current(sessionId);
+        FileLinkedList fileList = workspace.getFileList();
+        return workspaceService.change(workspace, fileList, () -> {
+            // Looked up first: once unlinked, the record can no longer be found
+            StoredFile fileToDelete = fileList.find(filename);
+            List<FileLinkedList.VisualizationStep> steps = fileList.delete(filename, explain);
+            if (fileToDelete != null) {
+                workspaceService.record(workspace, StructureJournal.Op.LIST_REMOVE, filename);
+                release(fileToDelete);
+            }
+            
+            return steps;
+        });
+    }
+    
+    public Map<String, Object> getCurrentVisualizationState(String sessionId) {
+        FileLinkedList fileList = fileList(sessionId);
         List<StoredFile> allFiles = fileList.getAllFiles();
         
         Map<String, Object> state = new HashMap<>();
@@ -125,11 +320,13 @@ public class FileStorageService {
             .mapToLong(StoredFile::getSize)
             .sum();
         state.put("totalStorageUsed", totalSize);
+        state.put("storedBlobs", blobStore.blobCount());
+        state.put("activeSessions", workspaceService.sessionCount());
         
         return state;
     }
     
-    public List<StoredFile> getAllFiles() {
-        return fileList.getAllFiles();
+    public List<StoredFile> getAllFiles(String sessionId) {
+        return fileList(sessionId).getAllFiles();
     }
 }
@@ -1,28 +1,199 @@
 package com.visualizer.service;
 
 import com.visualizer.model.*;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import java.io.IOException;
 import java.io.InputStream;
+import java.net.URL;
+import java.net.URLConnection;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Service
 public class MapService {
+    private static final Map<String, String> MAP_RESOURCES = Map.of(
+        "kzn", "/maps/kzn-map.json",
+        "gauteng", "/maps/gauteng-map.json"
+    );
+    
     private final ObjectMapper objectMapper = new ObjectMapper();
     
+    // One frozen graph per province; replaced wholesale on reload so readers
+    // always see either the old or the new map, never a half-built one
+    private final Map<String, LoadedMap> maps = new ConcurrentHashMap<>();
+    
+    private record LoadedMap(Graph graph, long lastModified) {}
+    
     public Graph loadKZNMap() throws IOException {
-        return loadMapFromResource("/maps/kzn-map.json");
+        return getMap("kzn");
     }
     
     public Graph loadGautengMap() throws IOException {
-        return loadMapFromResource("/maps/gauteng-map.json");
+        return getMap("gauteng");
+    }
+    
+    public boolean isKnownProvince(String province) {
+        return province != null && MAP_RESOURCES.containsKey(province.toLowerCase());
+    }
+    
+    /**
+     * Cached, read-only graph for a province. The first call parses the map
+     * resource; later calls return the same instance until it is reloaded.
+     */
+    public Graph getMap(String province) throws IOException {
+        String key = requireProvince(province);
+        LoadedMap loaded = maps.get(key);
+        if (loaded == null) {
+            synchronized (maps) {
+                loaded = maps.get(key);
+                if (loaded == null) {
+                    loaded = load(key);
+                    maps.put(key, loaded);
+                }
+            }
+        }
+        return loaded.graph();
+    }
+    
+    /** Re-parses a province's map and swaps it in. On failure the previous graph stays active. */
+    public Graph reload(String province) throws IOException {
+        String key = requireProvince(province);
+        LoadedMap loaded = load(key);
+        maps.put(key, loaded);
+        System.out.println("🗺️ Reloaded map: " + key + " (" + loaded.graph().getNodes().size() + " nodes)");
+        return loaded.graph();
+    }
+    
+    /** Reload hook: picks up edited map files without a restart. */
+    @Scheduled(fixedDelayString = "${map.reload-check-ms:5000}")
+    public void reloadChangedMaps() {
+        for (Map.Entry<String, LoadedMap> entry : maps.entrySet()) {
+            try {
+                long modified = lastModified(MAP_RESOURCES.get(entry.getKey()));
+                if (modified > entry.getValue().lastModified()) {
+                    reload(entry.getKey());
+                }
+            } catch (IOException ex) {
+                System.err.println("Failed to reload map " + entry.getKey() + ": " + ex.getMessage());
+            }
+        }
+    }
+    
+    private String requireProvince(String province) {
+        if (!isKnownProvince(province)) {
+            throw new IllegalArgumentException("Invalid province: " + province);
+        }
+        return province.toLowerCase();
+    }
+    
+    private LoadedMap load(String province) throws IOException {
+        String resourcePath = MAP_RESOURCES.get(province);
+        long modified = lastModified(resourcePath);
+        return new LoadedMap(loadMapFromResource(resourcePath).freeze(), modified);
+    }
+    
+    private long lastModified(String resourcePath) throws IOException {
+        URL url = getClass().getResource(resourcePath);
+        if (url == null) {
+            throw new IOException("Map resource not found: " + resourcePath);
+        }
+        URLConnection connection = url.openConnection();
+        connection.setUseCaches(false);
+        long modified = connection.getLastModified();
+        connection.getInputStream().close();
+        return modified;
     }
     
     private Graph loadMapFromResource(String resourcePath) throws IOException {
         InputStream inputStream = getClass().getResourceAsStream(resourcePath);
-        // Parse JSON and create Graph
-        // This is a placeholder
-        return new Graph();
+        if (inputStream == null) {
+            throw new IOException("Map resource not found: " + resourcePath);
+        }
+        
+        // Stream tokens straight into the graph instead of binding a tree first
+        Graph graph = new Graph();
+        try (JsonParser parser = objectMapper.getFactory().createParser(inputStream)) {
+            expect(parser.nextToken(), JsonToken.START_OBJECT, resourcePath);
+            
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String section = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                
+                if (value == JsonToken.START_ARRAY && section.equals("nodes")) {
+                    while (parser.nextToken() == JsonToken.START_OBJECT) {
+                        graph.addNode(readNode(parser));
+                    }
+                } else if (value == JsonToken.START_ARRAY && section.equals("edges")) {
+                    while (parser.nextToken() == JsonToken.START_OBJECT) {
+                        graph.addEdge(readEdge(parser));
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+        
+        return graph;
+    }
+    
+    private MapNode readNode(JsonParser parser) throws IOException {
+        String id = null, label = null, cityName = null;
+        double x = 0, y = 0, lat = 0, lon = 0;
+        
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            parser.nextToken();
+            switch (field) {
+                case "id" -> id = parser.getValueAsString();
+                case "label" -> label = parser.getValueAsString();
+                case "cityName" -> cityName = parser.getValueAsString();
+                case "x" -> x = parser.getValueAsDouble();
+                case "y" -> y = parser.getValueAsDouble();
+                case "lat" -> lat = parser.getValueAsDouble();
+                case "lon" -> lon = parser.getValueAsDouble();
+                default -> parser.skipChildren();
+            }
+        }
+        
+        if (id == null) {
+            throw new IOException("Map node without id at " + parser.getCurrentLocation());
+        }
+        return new MapNode(id, label != null ? label : id, x, y, lat, lon, cityName != null ? cityName : label);
+    }
+    
+    private MapEdge readEdge(JsonParser parser) throws IOException {
+        String id = null, source = null, target = null, roadName = null;
+        double weight = 0, distance = Double.NaN;
+        int travelTime = 0;
+        
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            parser.nextToken();
+            switch (field) {
+                case "id" -> id = parser.getValueAsString();
+                case "source" -> source = parser.getValueAsString();
+                case "target" -> target = parser.getValueAsString();
+                case "roadName" -> roadName = parser.getValueAsString();
+                case "weight" -> weight = parser.getValueAsDouble();
+                case "distance" -> distance = parser.getValueAsDouble();
+                case "travelTime" -> travelTime = parser.getValueAsInt();
+                default -> parser.skipChildren();
+            }
+        }
+        
+        if (source == null || target == null) {
+            throw new IOException("Map edge without source/target at " + parser.getCurrentLocation());
+        }
+        return new MapEdge(id, source, target, weight, Double.isNaN(distance) ? weight : distance, travelTime, roadName);
+    }
+    
+    private void expect(JsonToken actual, JsonToken expected, String resourcePath) throws IOException {
+        if (actual != expected) {
+            throw new IOException("Malformed map " + resourcePath + ": expected " + expected + " but found " + actual);
+        }
     }
 }
@@ -0,0 +1,202 @@
+package com.visualizer.service;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.*;
+
+/**
+ * Compact log of sort/search steps: each step is an opcode followed by its
+ * int operands in one growable {@code int[]}, instead of a
+ * {@code Map<String,Object>} per step.
+ * <p>
+ * Wire format (little-endian), decoded by {@code frontend/js/algorithms/packed-trace.js}:
+ * <pre>
+ *   int32 magic 'PTR1'   int32 stepCount
+ *   per step: uint8 opcode, then int32 operands (count fixed per opcode)
+ * </pre>
+ * A compare step is 9 bytes, against ~37 for {@code {"type":"compare","indices":[j,k]}}.
+ */
+public final class PackedTrace {
+
+    public static final int MAGIC = 0x31525450; // "PTR1" read as little-endian bytes
+
+    // Sorting
+    public static final byte COMPARE = 0;       // a, b
+    public static final byte SWAP = 1;          // a, b
+    public static final byte PIVOT = 2;         // index, value
+    public static final byte SELECT = 3;        // index
+    public static final byte SELECT_VALUE = 4;  // index, value
+    public static final byte SHIFT = 5;         // from, to
+    public static final byte INSERT = 6;        // index, value
+    public static final byte UPDATE_MIN = 7;    // index
+    // Searching
+    public static final byte CHECK = 8;         // index, value
+    public static final byte FOUND = 9;         // index
+    public static final byte RANGE = 10;        // left, right, mid
+    public static final byte JUMP = 11;         // from, to
+    public static final byte INTERPOLATE = 12;  // position, low, high
+
+    private static final int[] OPERANDS = {2, 2, 2, 1, 2, 2, 2, 1, 2, 1, 3, 2, 3};
+
+    private int[] words = new int[256];
+    private int length;
+    private int steps;
+
+    public static int operandCount(byte opcode) {
+        return OPERANDS[opcode];
+    }
+
+    public void add(byte opcode, int a) {
+        ensure(2);
+        words[length++] = opcode;
+        words[length++] = a;
+        steps++;
+    }
+
+    public void add(byte opcode, int a, int b) {
+        ensure(3);
+        words[length++] = opcode;
+        words[length++] = a;
+        words[length++] = b;
+        steps++;
+    }
+
+    public void add(byte opcode, int a, int b, int c) {
+        ensure(4);
+        words[length++] = opcode;
+        words[length++] = a;
+        words[length++] = b;
+        words[length++] = c;
+        steps++;
+    }
+
+    /** Appends a step in the {@code Map} form produced by {@link AlgorithmService}. */
+    public void append(Map<String, Object> step) {
+        String type = (String) step.get("type");
+        switch (type) {
+            case "compare" -> add(COMPARE, index(step, "indices", 0), index(step, "indices", 1));
+            case "swap" -> add(SWAP, index(step, "indices", 0), index(step, "indices", 1));
+            case "pivot" -> add(PIVOT, intValue(step, "index"), intValue(step, "value"));
+            case "select" -> {
+                if (step.containsKey("value")) add(SELECT_VALUE, intValue(step, "index"), intValue(step, "value"));
+                else add(SELECT, intValue(step, "index"));
+            }
+            case "shift" -> add(SHIFT, intValue(step, "from"), intValue(step, "to"));
+            case "insert" -> add(INSERT, intValue(step, "index"), intValue(step, "value"));
+            case "update_min" -> add(UPDATE_MIN, intValue(step, "index"));
+            case "check" -> add(CHECK, intValue(step, "index"), intValue(step, "value"));
+            case "found" -> add(FOUND, intValue(step, "index"));
+            case "range" -> add(RANGE, intValue(step, "left"), intValue(step, "right"), intValue(step, "mid"));
+            case "jump" -> add(JUMP, intValue(step, "from"), intValue(step, "to"));
+            case "interpolate" -> add(INTERPOLATE, intValue(step, "position"), intValue(step, "low"), intValue(step, "high"));
+            default -> throw new IllegalArgumentException("No opcode for step type: " + type);
+        }
+    }
+
+    public static PackedTrace of(Iterator<Map<String, Object>> steps) {
+        PackedTrace trace = new PackedTrace();
+        steps.forEachRemaining(trace::append);
+        return trace;
+    }
+
+    public static PackedTrace of(List<Map<String, Object>> steps) {
+        return of(steps.iterator());
+    }
+
+    public void clear() {
+        length = 0;
+        steps = 0;
+    }
+
+    /** Number of steps recorded. */
+    public int size() { return steps; }
+
+    /** Number of int words (opcodes plus operands) in the log. */
+    public int wordCount() { return length; }
+
+    /** Size of {@link #toBytes()} without building it. */
+    public int byteSize() {
+        // Every step is one opcode word that shrinks to a byte on the wire
+        return 8 + steps + (length - steps) * 4;
+    }
+
+    public byte[] toBytes() {
+        ByteBuffer buffer = ByteBuffer.allocate(byteSize()).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC).putInt(steps);
+        int i = 0;
+        while (i < length) {
+            byte opcode = (byte) words[i++];
+            buffer.put(opcode);
+            for (int k = OPERANDS[opcode]; k > 0; k--) {
+                buffer.putInt(words[i++]);
+            }
+        }
+        return buffer.array();
+    }
+
+    public String toBase64() {
+        return Base64.getEncoder().encodeToString(toBytes());
+    }
+
+    /**
+     * The recorded steps in their {@code Map} form, built one at a time as the
+     * iterable is walked (Jackson writes it as a JSON array).
+     */
+    public Iterable<Map<String, Object>> steps() {
+        return () -> new Iterator<>() {
+            private int i;
+
+            @Override
+            public boolean hasNext() {
+                return i < length;
+            }
+
+            @Override
+            public Map<String, Object> next() {
+                if (i >= length) {
+                    throw new NoSuchElementException();
+                }
+                byte opcode = (byte) words[i];
+                Map<String, Object> step = toMap(opcode, i + 1);
+                i += 1 + OPERANDS[opcode];
+                return step;
+            }
+        };
+    }
+
+    private Map<String, Object> toMap(byte opcode, int at) {
+        int a = words[at];
+        int b = OPERANDS[opcode] > 1 ? words[at + 1] : 0;
+        int c = OPERANDS[opcode] > 2 ? words[at + 2] : 0;
+        return switch (opcode) {
+            case COMPARE -> Map.of("type", "compare", "indices", List.of(a, b));
+            case SWAP -> Map.of("type", "swap", "indices", List.of(a, b));
+            case PIVOT -> Map.of("type", "pivot", "index", a, "value", b);
+            case SELECT -> Map.of("type", "select", "index", a);
+            case SELECT_VALUE -> Map.of("type", "select", "index", a, "value", b);
+            case SHIFT -> Map.of("type", "shift", "from", a, "to", b);
+            case INSERT -> Map.of("type", "insert", "index", a, "value", b);
+            case UPDATE_MIN -> Map.of("type", "update_min", "index", a);
+            case CHECK -> Map.of("type", "check", "index", a, "value", b);
+            case FOUND -> Map.of("type", "found", "index", a);
+            case RANGE -> Map.of("type", "range", "left", a, "right", b, "mid", c);
+            case JUMP -> Map.of("type", "jump", "from", a, "to", b);
+            case INTERPOLATE -> Map.of("type", "interpolate", "position", a, "low", b, "high", c);
+            default -> throw new IllegalStateException("Unknown opcode " + opcode);
+        };
+    }
+
+    private void ensure(int extra) {
+        if (length + extra > words.length) {
+            words = Arrays.copyOf(words, Math.max(words.length * 2, length + extra));
+        }
+    }
+
+    private static int intValue(Map<String, Object> step, String key) {
+        return ((Number) step.get(key)).intValue();
+    }
+
+    private static int index(Map<String, Object> step, String key, int position) {
+        return ((Number) ((List<?>) step.get(key)).get(position)).intValue();
+    }
+}
@@ -0,0 +1,223 @@
+package com.visualizer.service;
+
+import com.visualizer.model.GraphIndex;
+import com.visualizer.model.IndexedMinHeap;
+
+import java.util.Arrays;
+
+/**
+ * Allocation-light shortest-path core that works purely on the dense int ids
+ * of a {@link GraphIndex}. Distances, predecessors and the open set are kept
+ * in primitive arrays that are reused per thread, and the priority queue is
+ * an {@link IndexedMinHeap} with decrease-key instead of boxed entries.
+ * <p>
+ * Visualization events are written to an optional {@link Trace}; passing
+ * {@code null} runs the search without recording anything.
+ */
+public final class PathfindingEngine {
+
+    public static final int NO_NODE = -1;
+
+    /** Outcome of a point-to-point search. {@code path} is empty when the target is unreachable. */
+    public static final class SearchResult {
+        public final int[] path;
+        public final double distance;
+
+        SearchResult(int[] path, double distance) {
+            this.path = path;
+            this.distance = distance;
+        }
+
+        public boolean found() { return path.length > 0; }
+    }
+
+    /**
+     * Column-oriented event log. Each event is a kind plus a node, an optional
+     * related node and up to two values; arrays grow by doubling.
+     */
+    public static final class Trace {
+        public static final byte VISIT = 0;       // node, a = distance/gScore, b = fScore
+        public static final byte UPDATE = 1;      // node, other = via, a = distance/gScore, b = fScore
+        public static final byte ENQUEUE = 2;     // node, other = parent, a = queue size
+        public static final byte PATH_FOUND = 3;  // node = target, a = distance
+        public static final byte NO_PATH = 4;
+
+        private byte[] kinds = new byte[64];
+        private int[] nodes = new int[64];
+        private int[] others = new int[64];
+        private double[] as = new double[64];
+        private double[] bs = new double[64];
+        private int size;
+
+        void add(byte kind, int node, int other, double a, double b) {
+            if (size == kinds.length) {
+                int capacity = size * 2;
+                kinds = Arrays.copyOf(kinds, capacity);
+                nodes = Arrays.copyOf(nodes, capacity);
+                others = Arrays.copyOf(others, capacity);
+                as = Arrays.copyOf(as, capacity);
+                bs = Arrays.copyOf(bs, capacity);
+            }
+            kinds[size] = kind;
+            nodes[size] = node;
+            others[size] = other;
+            as[size] = a;
+            bs[size] = b;
+            size++;
+        }
+
+        public void clear() { size = 0; }
+        public int size() { return size; }
+        public byte kind(int i) { return kinds[i]; }
+        public int node(int i) { return nodes[i]; }
+        public int other(int i) { return others[i]; }
+        public double a(int i) { return as[i]; }
+        public double b(int i) { return bs[i]; }
+    }
+
+    /** Per-thread scratch arrays, grown to the largest graph seen and reused across searches. */
+    private static final class Workspace {
+        double[] dist = new double[0];
+        int[] pred = new int[0];
+        boolean[] settled = new boolean[0];
+        int[] queue = new int[0];
+        final IndexedMinHeap heap = new IndexedMinHeap(0);
+
+        void prepare(int n) {
+            if (dist.length < n) {
+                dist = new double[n];
+                pred = new int[n];
+                settled = new boolean[n];
+                queue = new int[n];
+            }
+            Arrays.fill(dist, 0, n, Double.POSITIVE_INFINITY);
+            Arrays.fill(pred, 0, n, NO_NODE);
+            Arrays.fill(settled, 0, n, false);
+            heap.reset(n);
+        }
+    }
+
+    private final ThreadLocal<Workspace> workspaces = ThreadLocal.withInitial(Workspace::new);
+
+    public SearchResult dijkstra(GraphIndex graph, int source, int target, Trace trace) {
+        Workspace ws = workspaces.get();
+        ws.prepare(graph.size());
+        double[] dist = ws.dist;
+        int[] pred = ws.pred;
+        boolean[] settled = ws.settled;
+        IndexedMinHeap heap = ws.heap;
+
+        dist[source] = 0.0;
+        heap.offer(source, 0.0);
+
+        while (!heap.isEmpty()) {
+            int u = heap.poll();
+            settled[u] = true;
+            if (trace != null) trace.add(Trace.VISIT, u, NO_NODE, dist[u], 0.0);
+
+            if (u == target) {
+                if (trace != null) trace.add(Trace.PATH_FOUND, u, NO_NODE, dist[u], 0.0);
+                return new SearchResult(buildPath(pred, source, target), dist[target]);
+            }
+
+            for (int slot = graph.start(u); slot < graph.end(u); slot++) {
+                int v = graph.target(slot);
+                if (settled[v]) continue;
+
+                double candidate = dist[u] + graph.weight(slot);
+                if (candidate < dist[v]) {
+                    dist[v] = candidate;
+                    pred[v] = u;
+                    heap.offer(v, candidate);
+                    if (trace != null) trace.add(Trace.UPDATE, v, u, candidate, 0.0);
+                }
+            }
+        }
+
+        return new SearchResult(new int[0], Double.POSITIVE_INFINITY);
+    }
+
+    public SearchResult aStar(GraphIndex graph, int source, int target, Trace trace) {
+        Workspace ws = workspaces.get();
+        ws.prepare(graph.size());
+        double[] g = ws.dist;
+        int[] pred = ws.pred;
+        IndexedMinHeap open = ws.heap;
+
+        g[source] = 0.0;
+        open.offer(source, heuristic(graph, source, target));
+
+        while (!open.isEmpty()) {
+            double f = open.key(open.peek());
+            int u = open.poll();
+            if (trace != null) trace.add(Trace.VISIT, u, NO_NODE, g[u], f);
+
+            if (u == target) {
+                if (trace != null) trace.add(Trace.PATH_FOUND, u, NO_NODE, g[u], 0.0);
+                return new SearchResult(buildPath(pred, source, target), g[target]);
+            }
+
+            for (int slot = graph.start(u); slot < graph.end(u); slot++) {
+                int v = graph.target(slot);
+                double tentative = g[u] + graph.weight(slot);
+
+                if (tentative < g[v]) {
+                    pred[v] = u;
+                    g[v] = tentative;
+                    double fv = tentative + heuristic(graph, v, target);
+                    open.offer(v, fv);
+                    if (trace != null) trace.add(Trace.UPDATE, v, u, tentative, fv);
+                }
+            }
+        }
+
+        if (trace != null) trace.add(Trace.NO_PATH, NO_NODE, NO_NODE, 0.0, 0.0);
+        return new SearchResult(new int[0], Double.POSITIVE_INFINITY);
+    }
+
+    /** Breadth-first traversal from {@code source}; returns the number of nodes reached. */
+    public int bfs(GraphIndex graph, int source, Trace trace) {
+        Workspace ws = workspaces.get();
+        ws.prepare(graph.size());
+        boolean[] seen = ws.settled;
+        int[] queue = ws.queue;
+        int head = 0;
+        int tail = 0;
+
+        queue[tail++] = source;
+        seen[source] = true;
+
+        while (head < tail) {
+            int u = queue[head++];
+            if (trace != null) trace.add(Trace.VISIT, u, NO_NODE, tail - head, 0.0);
+
+            for (int slot = graph.start(u); slot < graph.end(u); slot++) {
+                int v = graph.target(slot);
+                if (!seen[v]) {
+                    seen[v] = true;
+                    queue[tail++] = v;
+                    if (trace != null) trace.add(Trace.ENQUEUE, v, u, 0.0, 0.0);
+                }
+            }
+        }
+
+        return tail;
+    }
+
+    private static double heuristic(GraphIndex graph, int from, int target) {
+        return target == NO_NODE ? 0.0 : graph.euclidean(from, target);
+    }
+
+    private static int[] buildPath(int[] pred, int source, int target) {
+        int length = 0;
+        for (int v = target; v != NO_NODE; v = pred[v]) {
+            length++;
+        }
+        int[] path = new int[length];
+        for (int v = target, i = length - 1; v != NO_NODE; v = pred[v], i--) {
+            path[i] = v;
+        }
+        // Only a chain that leads back to the source is a valid path
+        return path[0] == source ? path : new int[0];
+    }
+}
@@ -0,0 +1,119 @@
+package com.visualizer.service;
+
+import java.util.Arrays;
+
+/**
+ * The sorts of {@link SortSteps} on a plain {@code int[]}, recording straight
+ * into a {@link PackedTrace}. There is no boxing on comparisons and no map per
+ * step; the trace expands to the same step maps, in the same order, through
+ * {@link PackedTrace#steps()}.
+ */
+public final class PrimitiveSort {
+
+    private PrimitiveSort() {}
+
+    /** Sorts {@code a} in place; an unknown algorithm leaves it untouched and records nothing. */
+    public static PackedTrace sort(String algorithm, int[] a) {
+        PackedTrace trace = new PackedTrace();
+        switch (algorithm.toLowerCase()) {
+            case "bubble" -> bubbleSort(a, trace);
+            case "quick" -> quickSort(a, trace);
+            case "insertion" -> insertionSort(a, trace);
+            case "selection" -> selectionSort(a, trace);
+            default -> { }
+        }
+        return trace;
+    }
+
+    static void bubbleSort(int[] a, PackedTrace trace) {
+        int n = a.length;
+        for (int i = 0; i < n - 1; i++) {
+            for (int j = 0; j < n - i - 1; j++) {
+                trace.add(PackedTrace.COMPARE, j, j + 1);
+                if (a[j] > a[j + 1]) {
+                    swap(a, j, j + 1);
+                    trace.add(PackedTrace.SWAP, j, j + 1);
+                }
+            }
+        }
+    }
+
+    /** Lomuto quick sort over an explicit stack of (low, high) ranges, left range first. */
+    static void quickSort(int[] a, PackedTrace trace) {
+        int[] ranges = new int[64];
+        int top = 0;
+        ranges[top++] = 0;
+        ranges[top++] = a.length - 1;
+
+        while (top > 0) {
+            int high = ranges[--top];
+            int low = ranges[--top];
+            if (low >= high) continue;
+
+            int pivot = a[high];
+            trace.add(PackedTrace.PIVOT, high, pivot);
+            int i = low - 1;
+            for (int j = low; j < high; j++) {
+                trace.add(PackedTrace.COMPARE, j, high);
+                if (a[j] < pivot) {
+                    i++;
+                    if (i != j) {
+                        swap(a, i, j);
+                        trace.add(PackedTrace.SWAP, i, j);
+                    }
+                }
+            }
+            int pi = i + 1;
+            swap(a, pi, high);
+            trace.add(PackedTrace.SWAP, pi, high);
+
+            if (top + 4 > ranges.length) {
+                ranges = Arrays.copyOf(ranges, ranges.length * 2);
+            }
+            ranges[top++] = pi + 1;
+            ranges[top++] = high;
+            ranges[top++] = low;
+            ranges[top++] = pi - 1;
+        }
+    }
+
+    static void insertionSort(int[] a, PackedTrace trace) {
+        for (int i = 1; i < a.length; i++) {
+            int key = a[i];
+            trace.add(PackedTrace.SELECT_VALUE, i, key);
+            int j = i - 1;
+            while (j >= 0 && a[j] > key) {
+                a[j + 1] = a[j];
+                trace.add(PackedTrace.SHIFT, j, j + 1);
+                j--;
+            }
+            a[j + 1] = key;
+            trace.add(PackedTrace.INSERT, j + 1, key);
+        }
+    }
+
+    static void selectionSort(int[] a, PackedTrace trace) {
+        int n = a.length;
+        for (int i = 0; i < n - 1; i++) {
+            trace.add(PackedTrace.SELECT, i);
+            int minIdx = i;
+            for (int j = i + 1; j < n; j++) {
+                trace.add(PackedTrace.COMPARE, j, minIdx);
+                if (a[j] < a[minIdx]) {
+                    minIdx = j;
+                    trace.add(PackedTrace.UPDATE_MIN, minIdx);
+                }
+            }
+            if (minIdx != i) {
+                swap(a, i, minIdx);
+                trace.add(PackedTrace.SWAP, i, minIdx);
+            }
+        }
+    }
+
+    private static void swap(int[] a, int i, int j) {
+        int t = a[i];
+        a[i] = a[j];
+        a[j] = t;
+    }
+}
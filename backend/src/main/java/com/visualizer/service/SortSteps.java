@@ -0,0 +1,266 @@
+package com.visualizer.service;
+
+import java.util.*;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Sorting algorithms written as step iterators. Each call to {@code next()}
+ * runs the sort just far enough to produce its next compare/swap/... step, so
+ * a consumer that writes steps out as it goes keeps memory flat no matter how
+ * many steps the sort produces. The list is sorted in place as steps are
+ * pulled; it is fully sorted once the iterator is exhausted.
+ * <p>
+ * Step maps and their order are the same as {@link AlgorithmService#sort}.
+ */
+public final class SortSteps {
+
+    private SortSteps() {}
+
+    /** Lazy steps for {@code algorithm}; an unknown algorithm yields no steps. */
+    public static Iterator<Map<String, Object>> iterator(String algorithm, List<Integer> array) {
+        return switch (algorithm.toLowerCase()) {
+            case "bubble" -> new BubbleSort(array);
+            case "quick" -> new QuickSort(array);
+            case "insertion" -> new InsertionSort(array);
+            case "selection" -> new SelectionSort(array);
+            default -> Collections.emptyIterator();
+        };
+    }
+
+    /** The same steps as a sequential {@link Stream}. */
+    public static Stream<Map<String, Object>> stream(String algorithm, List<Integer> array) {
+        Spliterator<Map<String, Object>> spliterator = Spliterators.spliteratorUnknownSize(
+            iterator(algorithm, array), Spliterator.ORDERED | Spliterator.NONNULL);
+        return StreamSupport.stream(spliterator, false);
+    }
+
+    public static boolean isSupported(String algorithm) {
+        return algorithm != null && switch (algorithm.toLowerCase()) {
+            case "bubble", "quick", "insertion", "selection" -> true;
+            default -> false;
+        };
+    }
+
+    /** Computes one step ahead so {@code hasNext()} can answer without consuming it. */
+    private abstract static class StepIterator implements Iterator<Map<String, Object>> {
+        protected final List<Integer> array;
+        private Map<String, Object> pending;
+
+        StepIterator(List<Integer> array) {
+            this.array = array;
+        }
+
+        /** Advances the sort to its next step, or returns {@code null} when it is finished. */
+        protected abstract Map<String, Object> advance();
+
+        @Override
+        public boolean hasNext() {
+            if (pending == null) {
+                pending = advance();
+            }
+            return pending != null;
+        }
+
+        @Override
+        public Map<String, Object> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Map<String, Object> step = pending;
+            pending = null;
+            return step;
+        }
+
+        protected Map<String, Object> swap(int a, int b) {
+            Collections.swap(array, a, b);
+            return Map.of("type", "swap", "indices", List.of(a, b));
+        }
+
+        protected static Map<String, Object> compare(int a, int b) {
+            return Map.of("type", "compare", "indices", List.of(a, b));
+        }
+    }
+
+    private static final class BubbleSort extends StepIterator {
+        private final int n;
+        private int i;
+        private int j;
+        private boolean swapNext;
+
+        BubbleSort(List<Integer> array) {
+            super(array);
+            this.n = array.size();
+        }
+
+        @Override
+        protected Map<String, Object> advance() {
+            if (swapNext) {
+                swapNext = false;
+                Map<String, Object> step = swap(j, j + 1);
+                j++;
+                return step;
+            }
+            while (i < n - 1) {
+                if (j < n - i - 1) {
+                    Map<String, Object> step = compare(j, j + 1);
+                    if (array.get(j) > array.get(j + 1)) {
+                        swapNext = true;
+                    } else {
+                        j++;
+                    }
+                    return step;
+                }
+                i++;
+                j = 0;
+            }
+            return null;
+        }
+    }
+
+    /** Lomuto quick sort; the recursion is an explicit stack of (low, high) ranges. */
+    private static final class QuickSort extends StepIterator {
+        private final Deque<int[]> ranges = new ArrayDeque<>();
+        private boolean partitioning;
+        private boolean swapNext;
+        private int low;
+        private int high;
+        private int pivot;
+        private int i;
+        private int j;
+
+        QuickSort(List<Integer> array) {
+            super(array);
+            ranges.push(new int[] {0, array.size() - 1});
+        }
+
+        @Override
+        protected Map<String, Object> advance() {
+            while (!partitioning) {
+                if (ranges.isEmpty()) return null;
+                int[] range = ranges.pop();
+                if (range[0] < range[1]) {
+                    low = range[0];
+                    high = range[1];
+                    pivot = array.get(high);
+                    i = low - 1;
+                    j = low;
+                    partitioning = true;
+                    return Map.of("type", "pivot", "index", high, "value", pivot);
+                }
+            }
+
+            if (swapNext) {
+                swapNext = false;
+                Map<String, Object> step = swap(i, j);
+                j++;
+                return step;
+            }
+
+            if (j < high) {
+                Map<String, Object> step = compare(j, high);
+                if (array.get(j) < pivot) {
+                    i++;
+                    if (i != j) {
+                        swapNext = true;
+                        return step;
+                    }
+                }
+                j++;
+                return step;
+            }
+
+            // Pivot into place; the left range is pushed last so it is sorted first
+            int pi = i + 1;
+            Map<String, Object> step = swap(pi, high);
+            ranges.push(new int[] {pi + 1, high});
+            ranges.push(new int[] {low, pi - 1});
+            partitioning = false;
+            return step;
+        }
+    }
+
+    private static final class InsertionSort extends StepIterator {
+        private int i = 1;
+        private int j;
+        private int key;
+        private boolean shifting;
+
+        InsertionSort(List<Integer> array) {
+            super(array);
+        }
+
+        @Override
+        protected Map<String, Object> advance() {
+            if (!shifting) {
+                if (i >= array.size()) return null;
+                key = array.get(i);
+                j = i - 1;
+                shifting = true;
+                return Map.of("type", "select", "index", i, "value", key);
+            }
+
+            if (j >= 0 && array.get(j) > key) {
+                array.set(j + 1, array.get(j));
+                Map<String, Object> step = Map.of("type", "shift", "from", j, "to", j + 1);
+                j--;
+                return step;
+            }
+
+            array.set(j + 1, key);
+            shifting = false;
+            i++;
+            return Map.of("type", "insert", "index", j + 1, "value", key);
+        }
+    }
+
+    private static final class SelectionSort extends StepIterator {
+        private final int n;
+        private int i;
+        private int j;
+        private int minIdx;
+        private boolean scanning;
+        private boolean updateNext;
+
+        SelectionSort(List<Integer> array) {
+            super(array);
+            this.n = array.size();
+        }
+
+        @Override
+        protected Map<String, Object> advance() {
+            while (true) {
+                if (!scanning) {
+                    if (i >= n - 1) return null;
+                    minIdx = i;
+                    j = i + 1;
+                    scanning = true;
+                    return Map.of("type", "select", "index", i);
+                }
+
+                if (updateNext) {
+                    updateNext = false;
+                    j++;
+                    return Map.of("type", "update_min", "index", minIdx);
+                }
+
+                if (j < n) {
+                    Map<String, Object> step = compare(j, minIdx);
+                    if (array.get(j) < array.get(minIdx)) {
+                        minIdx = j;
+                        updateNext = true;
+                    } else {
+                        j++;
+                    }
+                    return step;
+                }
+
+                scanning = false;
+                int placed = i++;
+                if (minIdx != placed) {
+                    return swap(placed, minIdx);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.visualizer.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Service;
+import org.springframework.util.MimeType;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+import org.springframework.web.socket.messaging.SessionUnsubscribeEvent;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sends playback frames to STOMP topics. A frame is the steps due in one
+ * animation tick: a single step goes out as the step itself, several as a
+ * JSON array of steps ({@code frontend/js/core/step-decoder.js} unpacks
+ * both). Each frame is serialized here, once per format, so the bytes sent
+ * are counted exactly.
+ * <p>
+ * JSON goes to the topic itself. A client that reads CBOR or Smile
+ * subscribes to the topic with a {@code .cbor} or {@code .smile} suffix
+ * instead, over the plain WebSocket endpoint: SockJS only carries text, so
+ * binary frames reach SockJS sessions corrupted. A format is only encoded
+ * while someone is subscribed to it.
+ */
+@Service
+public class StepBroadcaster {
+
+    public enum Format {
+        JSON("", MimeTypeUtils.APPLICATION_JSON),
+        CBOR(".cbor", MimeTypeUtils.APPLICATION_OCTET_STREAM),
+        SMILE(".smile", MimeTypeUtils.APPLICATION_OCTET_STREAM);
+
+        private final String suffix;
+        // Binary frames need octet-stream: STOMP over WebSocket sends those as binary messages
+        private final MimeType contentType;
+
+        Format(String suffix, MimeType contentType) {
+            this.suffix = suffix;
+            this.contentType = contentType;
+        }
+
+        public String destination(String topic) {
+            return topic + suffix;
+        }
+    }
+
+    private static final List<Format> BINARY = List.of(Format.CBOR, Format.SMILE);
+
+    private final SimpMessagingTemplate messagingTemplate;
+    private final Map<Format, ObjectMapper> mappers = new EnumMap<>(Format.class);
+
+    // Binary-format destinations -> subscriptions to them; "<session>|<subscription>" -> destination
+    private final Map<String, Integer> binarySubscribers = new ConcurrentHashMap<>();
+    private final Map<String, String> subscriptions = new ConcurrentHashMap<>();
+
+    private final AtomicLong frames = new AtomicLong();
+    private final AtomicLong steps = new AtomicLong();
+    private final Map<Format, AtomicLong> bytes = new EnumMap<>(Format.class);
+
+    /** {@code objectMapper} is the application's, so JSON frames read as they did when Spring converted them. */
+    public StepBroadcaster(SimpMessagingTemplate messagingTemplate, ObjectMapper objectMapper) {
+        this.messagingTemplate = messagingTemplate;
+        mappers.put(Format.JSON, objectMapper);
+        mappers.put(Format.CBOR, new CBORMapper().findAndRegisterModules());
+        mappers.put(Format.SMILE, new SmileMapper().findAndRegisterModules());
+        for (Format format : Format.values()) {
+            bytes.put(format, new AtomicLong());
+        }
+    }
+
+    /** Sends {@code frameSteps} (at least one) to {@code topic} as one frame. */
+    public void send(String topic, List<?> frameSteps) {
+        Object frame = frameSteps.size() == 1 ? frameSteps.get(0) : frameSteps;
+        send(Format.JSON, topic, frame);
+        for (Format format : BINARY) {
+            if (binarySubscribers.containsKey(format.destination(topic))) {
+                send(format, topic, frame);
+            }
+        }
+        frames.incrementAndGet();
+        steps.addAndGet(frameSteps.size());
+    }
+
+    private void send(Format format, String topic, Object frame) {
+        byte[] payload;
+        try {
+            payload = mappers.get(format).writeValueAsBytes(frame);
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException("Could not encode step frame as " + format + ": " + ex.getMessage(), ex);
+        }
+        SimpMessageHeaderAccessor headers = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        headers.setContentType(format.contentType);
+        headers.setNativeHeader("format", format.name().toLowerCase(Locale.ROOT));
+        headers.setLeaveMutable(true);
+        Message<byte[]> message = MessageBuilder.createMessage(payload, headers.getMessageHeaders());
+        messagingTemplate.send(format.destination(topic), message);
+        bytes.get(format).addAndGet(payload.length);
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("framesSent", frames.get());
+        metrics.put("stepsPerFrame", frames.get() == 0 ? 0.0 : (double) steps.get() / frames.get());
+        for (Format format : Format.values()) {
+            metrics.put(format.name().toLowerCase(Locale.ROOT) + "BytesSent", bytes.get(format).get());
+        }
+        metrics.put("binarySubscriptions", subscriptions.size());
+        return metrics;
+    }
+
+    // ===== SUBSCRIPTIONS TO BINARY FORMATS =====
+
+    @EventListener
+    public void onSubscribe(SessionSubscribeEvent event) {
+        StompHeaderAccessor headers = StompHeaderAccessor.wrap(event.getMessage());
+        String destination = headers.getDestination();
+        if (destination == null || BINARY.stream().noneMatch(format -> destination.endsWith(format.suffix))) {
+            return;
+        }
+        if (subscriptions.put(headers.getSessionId() + "|" + headers.getSubscriptionId(), destination) == null) {
+            binarySubscribers.merge(destination, 1, Integer::sum);
+        }
+    }
+
+    @EventListener
+    public void onUnsubscribe(SessionUnsubscribeEvent event) {
+        StompHeaderAccessor headers = StompHeaderAccessor.wrap(event.getMessage());
+        unsubscribe(headers.getSessionId() + "|" + headers.getSubscriptionId());
+    }
+
+    @EventListener
+    public void onDisconnect(SessionDisconnectEvent event) {
+        String prefix = event.getSessionId() + "|";
+        for (String key : subscriptions.keySet()) {
+            if (key.startsWith(prefix)) {
+                unsubscribe(key);
+            }
+        }
+    }
+
+    private void unsubscribe(String key) {
+        String destination = subscriptions.remove(key);
+        if (destination != null) {
+            binarySubscribers.computeIfPresent(destination, (d, count) -> count > 1 ? count - 1 : null);
+        }
+    }
+}
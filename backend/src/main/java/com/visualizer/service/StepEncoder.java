@@ -0,0 +1,186 @@
+package com.visualizer.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Encodes the structure state carried by visualization steps for the wire.
+ * <p>
+ * In {@code full} mode every step carries the whole snapshot list, as it
+ * always has. In {@code delta} mode a playback starts with a keyframe (the
+ * full list) and later steps only carry what changed since the previous
+ * step that was actually sent: snapshots added or modified (changed fields
+ * only), ids removed, and the new id order when it changed. Every
+ * {@code visualization.keyframe-interval} frames a keyframe is sent again so a
+ * client that joins or drops a message mid-playback recovers.
+ * <p>
+ * Frames are numbered; a delta names the frame it applies to in {@code base}
+ * so the client can tell when it is missing its base and wait for the next
+ * keyframe. {@code frontend/js/core/step-decoder.js} rebuilds full steps.
+ */
+@Service
+public class StepEncoder {
+    
+    public static final String FULL = "full";
+    public static final String DELTA = "delta";
+    
+    private static final TypeReference<Map<String, Object>> SNAPSHOT = new TypeReference<>() {};
+    
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final String defaultEncoding;
+    private final int keyframeInterval;
+    
+    public StepEncoder(@Value("${visualization.step-encoding:delta}") String defaultEncoding,
+                       @Value("${visualization.keyframe-interval:50}") int keyframeInterval) {
+        this.defaultEncoding = requireEncoding(defaultEncoding);
+        this.keyframeInterval = Math.max(1, keyframeInterval);
+    }
+    
+    public String getDefaultEncoding() {
+        return defaultEncoding;
+    }
+    
+    /**
+     * Starts a stream for one playback. {@code stateKey} is the message field
+     * that holds the snapshot list ("nodes", "elements"), {@code idField} the
+     * snapshot property that identifies an entry across steps and {@code idOf}
+     * its getter. A {@code null} encoding uses the configured default.
+     */
+    public <T> Stream<T> stream(String encoding, String stateKey, String idField, Function<T, String> idOf) {
+        String mode = encoding != null ? requireEncoding(encoding) : defaultEncoding;
+        return new Stream<>(mode.equals(DELTA), stateKey, idField, idOf);
+    }
+    
+    private static String requireEncoding(String encoding) {
+        String mode = encoding.trim().toLowerCase();
+        if (!mode.equals(FULL) && !mode.equals(DELTA)) {
+            throw new IllegalArgumentException("Unknown step encoding: " + encoding + " (expected full or delta)");
+        }
+        return mode;
+    }
+    
+    /**
+     * Per-playback encoder state. Not thread-safe; a playback encodes its steps
+     * one at a time, in the order they are sent. Snapshots are compared with
+     * {@code equals}, and only the ones that changed are broken into fields.
+     * A step whose state is the very list the previous step carried (steps
+     * share an unchanged, immutable snapshot) is sent as an empty delta
+     * without looking at the list.
+     */
+    public final class Stream<T> {
+        private final boolean delta;
+        private final String stateKey;
+        private final String idField;
+        private final Function<T, String> idOf;
+        private LinkedHashMap<String, T> previous;
+        private List<? extends T> previousState;
+        private int frame;
+        
+        private Stream(boolean delta, String stateKey, String idField, Function<T, String> idOf) {
+            this.delta = delta;
+            this.stateKey = stateKey;
+            this.idField = idField;
+            this.idOf = idOf;
+        }
+        
+        /** Adds {@code state} to {@code message} in this stream's encoding and returns the message. */
+        public Map<String, Object> encode(Map<String, Object> message, List<? extends T> state) {
+            if (!delta) {
+                message.put(stateKey, state);
+                return message;
+            }
+            
+            message.put("stateKey", stateKey);
+            message.put("frame", frame);
+            boolean keyframe = previous == null || frame % keyframeInterval == 0;
+            
+            if (!keyframe && state == previousState) {
+                message.put("encoding", DELTA);
+                message.put("base", frame - 1);
+                message.put("delta", Map.of());
+                frame++;
+                return message;
+            }
+            
+            LinkedHashMap<String, T> current = index(state);
+            if (keyframe) {
+                message.put("encoding", "keyframe");
+                message.put("idField", idField);
+                message.put(stateKey, state);
+            } else {
+                message.put("encoding", DELTA);
+                message.put("base", frame - 1);
+                message.put("delta", diff(previous, current));
+            }
+            
+            previous = current;
+            previousState = state;
+            frame++;
+            return message;
+        }
+        
+        private LinkedHashMap<String, T> index(List<? extends T> state) {
+            LinkedHashMap<String, T> byId = new LinkedHashMap<>();
+            for (T snapshot : state) {
+                byId.put(idOf.apply(snapshot), snapshot);
+            }
+            return byId;
+        }
+        
+        private Map<String, Object> diff(LinkedHashMap<String, T> before, LinkedHashMap<String, T> after) {
+            List<T> added = new ArrayList<>();
+            Map<String, Map<String, Object>> changed = new LinkedHashMap<>();
+            List<String> removed = new ArrayList<>();
+            
+            for (Map.Entry<String, T> entry : after.entrySet()) {
+                T old = before.get(entry.getKey());
+                if (old == null) {
+                    added.add(entry.getValue());
+                } else if (!old.equals(entry.getValue())) {
+                    changed.put(entry.getKey(), changedFields(old, entry.getValue()));
+                }
+            }
+            for (String id : before.keySet()) {
+                if (!after.containsKey(id)) removed.add(id);
+            }
+            
+            Map<String, Object> delta = new LinkedHashMap<>();
+            if (!added.isEmpty()) delta.put("added", added);
+            if (!changed.isEmpty()) delta.put("changed", changed);
+            if (!removed.isEmpty()) delta.put("removed", removed);
+            
+            // Appends keep their order implicitly; anything else ships the new id order
+            if (!isAppendOnly(before, after)) {
+                delta.put("order", new ArrayList<>(after.keySet()));
+            }
+            return delta;
+        }
+        
+        private Map<String, Object> changedFields(T before, T after) {
+            Map<String, Object> old = objectMapper.convertValue(before, SNAPSHOT);
+            Map<String, Object> fields = new LinkedHashMap<>();
+            objectMapper.convertValue(after, SNAPSHOT).forEach((field, value) -> {
+                if (!Objects.equals(old.get(field), value)) fields.put(field, value);
+            });
+            return fields;
+        }
+        
+        private boolean isAppendOnly(LinkedHashMap<String, T> before, LinkedHashMap<String, T> after) {
+            Iterator<String> kept = after.keySet().iterator();
+            for (String id : before.keySet()) {
+                if (!after.containsKey(id)) continue;
+                if (!kept.hasNext() || !kept.next().equals(id)) return false;
+            }
+            // Whatever is left in after must be new entries at the end
+            while (kept.hasNext()) {
+                if (before.containsKey(kept.next())) return false;
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,505 @@
+package com.visualizer.service;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntFunction;
+import java.util.function.IntToLongFunction;
+
+/**
+ * Plays visualization steps out to a WebSocket topic at animation speed
+ * without holding a request thread. Each playback sends one step and then
+ * re-schedules itself on a small shared scheduler, so a long trace costs a
+ * queued task rather than a sleeping thread, and can be cancelled at any time.
+ * <p>
+ * Playbacks are grouped into channels, one per session and topic. A channel
+ * plays one playback at a time and queues the rest up to
+ * {@code playback.max-queued-per-channel}; beyond that, or beyond
+ * {@code playback.max-active} overall, new playbacks are rejected with
+ * {@link PlaybackRejectedException} so callers can push back on the client.
+ * <p>
+ * Speed is controlled per session ({@link #setSessionRate}) or per playback
+ * ({@link #setSpeed}); {@link #skip} jumps ahead within a playback.
+ * <p>
+ * Steps due within one {@code playback.tick-ms} of each other (a fast
+ * speed or session rate) are coalesced into a single frame, sent through
+ * {@link StepBroadcaster}, so a fast playback costs one STOMP message per
+ * tick rather than per step.
+ */
+@Service
+public class StepPlaybackService {
+    
+    public static final String SHARED_SESSION = "shared";
+    
+    /** Thrown when a channel's queue or the global playback limit is full. */
+    public static class PlaybackRejectedException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        public PlaybackRejectedException(String message) {
+            super(message);
+        }
+    }
+    
+    private static final int MAX_FRAME_STEPS = 256;
+    
+    private final StepBroadcaster broadcaster;
+    private final ScheduledThreadPoolExecutor scheduler;
+    private final long tickMs;
+    private final int maxActive;
+    private final int maxQueuedPerChannel;
+    
+    private final Map<String, Channel> channels = new ConcurrentHashMap<>();
+    private final Map<String, Playback> playbacks = new ConcurrentHashMap<>();
+    private final Map<String, Long> sessionDelays = new ConcurrentHashMap<>();
+    private final AtomicInteger active = new AtomicInteger();
+    
+    // Counters for the metrics endpoint
+    private final AtomicLong started = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong cancelled = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong stepsSent = new AtomicLong();
+    
+    public StepPlaybackService(StepBroadcaster broadcaster,
+                               @Value("${playback.scheduler-threads:2}") int schedulerThreads,
+                               @Value("${playback.max-active:1000}") int maxActive,
+                               @Value("${playback.max-queued-per-channel:16}") int maxQueuedPerChannel,
+                               @Value("${playback.tick-ms:16}") long tickMs) {
+        this.broadcaster = broadcaster;
+        this.tickMs = tickMs;
+        this.maxActive = maxActive;
+        this.maxQueuedPerChannel = maxQueuedPerChannel;
+        
+        AtomicInteger threadCount = new AtomicInteger();
+        this.scheduler = new ScheduledThreadPoolExecutor(schedulerThreads, runnable -> {
+            Thread thread = new Thread(runnable, "step-playback-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.scheduler.setRemoveOnCancelPolicy(true);
+    }
+    
+    /**
+     * Queues {@code messages} for {@code topic} with a fixed delay between
+     * steps. With {@code replace}, anything already playing or queued for the
+     * same session and topic is cancelled first.
+     *
+     * @return id for {@link #cancel}, {@link #skip} and {@link #setSpeed}
+     */
+    public String start(String sessionId, String topic, List<?> messages, long delayMs, boolean replace) {
+        return start(sessionId, topic, messages.size(), messages::get, i -> delayMs, replace);
+    }
+    
+    /**
+     * Queues {@code stepCount} steps for {@code topic}. Each message is built
+     * by {@code message} only when its step is sent, and {@code delayAfter}
+     * gives the pause that follows step {@code i}.
+     */
+    public String start(String sessionId, String topic, int stepCount,
+                        IntFunction<?> message, IntToLongFunction delayAfter, boolean replace) {
+        return start(sessionId, topic, new IndexedSteps(stepCount, message, delayAfter), replace);
+    }
+    
+    /**
+     * Queues steps pulled one at a time from {@code steps}, for sources that
+     * generate their steps lazily and do not know how many there will be.
+     * Nothing is buffered: each step is produced right before it is sent.
+     */
+    public String start(String sessionId, String topic, Iterator<?> steps, long delayMs, boolean replace) {
+        return start(sessionId, topic, new IteratorSteps(steps, delayMs), replace);
+    }
+    
+    private String start(String sessionId, String topic, StepSource source, boolean replace) {
+        String session = sessionOrShared(sessionId);
+        while (true) {
+            Channel channel = channels.computeIfAbsent(session + "|" + topic, key -> new Channel(key, session, topic));
+            Playback playback = new Playback(UUID.randomUUID().toString(), channel, source);
+            if (enqueue(channel, playback, replace)) {
+                return playback.id;
+            }
+            // The channel went idle and was retired in between; take a fresh one
+        }
+    }
+    
+    private boolean enqueue(Channel channel, Playback playback, boolean replace) {
+        synchronized (channel) {
+            if (channel.retired) {
+                return false;
+            }
+            if (replace) {
+                channel.cancelAll();
+            }
+            if (channel.pending.size() >= maxQueuedPerChannel) {
+                rejected.incrementAndGet();
+                throw new PlaybackRejectedException("Too many queued animations on " + channel.topic + ", try again shortly");
+            }
+            if (active.incrementAndGet() > maxActive) {
+                active.decrementAndGet();
+                rejected.incrementAndGet();
+                throw new PlaybackRejectedException("Animation server busy, try again shortly");
+            }
+            
+            playbacks.put(playback.id, playback);
+            started.incrementAndGet();
+            if (channel.current == null) {
+                channel.current = playback;
+                playback.schedule(0);
+            } else {
+                channel.pending.add(playback);
+            }
+        }
+        return true;
+    }
+    
+    /** Session-scoped form of {@code topic}, e.g. {@code /topic/stack-visualization/<sessionId>}. */
+    public static String topicFor(String topic, String sessionId) {
+        return sessionId != null && !sessionId.isBlank() ? topic + "/" + sessionId : topic;
+    }
+    
+    /**
+     * Throws {@link PlaybackRejectedException} if a playback on this session
+     * and topic would be rejected right now. Controllers call this before
+     * mutating a structure so a busy server does not apply changes it cannot
+     * animate.
+     */
+    public void checkCapacity(String sessionId, String topic) {
+        Channel channel = channels.get(sessionOrShared(sessionId) + "|" + topic);
+        boolean channelFull = channel != null && channel.pendingCount() >= maxQueuedPerChannel;
+        if (channelFull || active.get() >= maxActive) {
+            rejected.incrementAndGet();
+            throw new PlaybackRejectedException(channelFull
+                ? "Too many queued animations on " + topic + ", try again shortly"
+                : "Animation server busy, try again shortly");
+        }
+    }
+    
+    public boolean cancel(String playbackId) {
+        Playback playback = playbacks.get(playbackId);
+        if (playback == null) return false;
+        playback.cancel();
+        return true;
+    }
+    
+    public int cancelSession(String sessionId) {
+        int count = 0;
+        for (Playback playback : playbacks.values()) {
+            if (playback.channel.sessionId.equals(sessionId)) {
+                playback.cancel();
+                count++;
+            }
+        }
+        return count;
+    }
+    
+    /**
+     * Jumps {@code count} steps ahead and sends the next step right away;
+     * {@code count <= 0} jumps straight to the final step.
+     */
+    public boolean skip(String playbackId, int count) {
+        Playback playback = playbacks.get(playbackId);
+        if (playback == null) return false;
+        playback.skip(count);
+        return true;
+    }
+    
+    /** Scales one playback's delays: 2.0 plays twice as fast, 0.5 at half speed. */
+    public boolean setSpeed(String playbackId, double speed) {
+        if (speed <= 0) {
+            throw new IllegalArgumentException("speed must be positive");
+        }
+        Playback playback = playbacks.get(playbackId);
+        if (playback == null) return false;
+        playback.speed = speed;
+        return true;
+    }
+    
+    /** Sets the playback speed for a session; takes effect from the next step. */
+    public void setSessionRate(String sessionId, double stepsPerSecond) {
+        if (stepsPerSecond <= 0) {
+            throw new IllegalArgumentException("stepsPerSecond must be positive");
+        }
+        sessionDelays.put(sessionId, Math.round(1000.0 / stepsPerSecond));
+    }
+    
+    public Optional<Map<String, Object>> describe(String playbackId) {
+        Playback playback = playbacks.get(playbackId);
+        if (playback == null) return Optional.empty();
+        
+        Map<String, Object> info = new LinkedHashMap<>();
+        info.put("playbackId", playback.id);
+        info.put("sessionId", playback.channel.sessionId);
+        info.put("topic", playback.channel.topic);
+        info.put("step", playback.next);
+        info.put("totalSteps", playback.source.size());
+        info.put("speed", playback.speed);
+        info.put("playing", playback.channel.current == playback);
+        return Optional.of(info);
+    }
+    
+    public int getActivePlaybacks() {
+        return active.get();
+    }
+    
+    public Map<String, Object> getMetrics() {
+        int playing = 0;
+        int queued = 0;
+        for (Channel channel : channels.values()) {
+            synchronized (channel) {
+                if (channel.current != null) playing++;
+                queued += channel.pending.size();
+            }
+        }
+        
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("activePlaybacks", active.get());
+        metrics.put("playing", playing);
+        metrics.put("queued", queued);
+        metrics.put("channels", channels.size());
+        metrics.put("started", started.get());
+        metrics.put("completed", completed.get());
+        metrics.put("cancelled", cancelled.get());
+        metrics.put("rejected", rejected.get());
+        metrics.put("stepsSent", stepsSent.get());
+        metrics.put("schedulerThreads", scheduler.getPoolSize());
+        metrics.put("scheduledTasks", scheduler.getQueue().size());
+        metrics.put("maxActive", maxActive);
+        metrics.put("maxQueuedPerChannel", maxQueuedPerChannel);
+        metrics.put("tickMs", tickMs);
+        metrics.put("broadcast", broadcaster.getMetrics());
+        return metrics;
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+    
+    private String sessionOrShared(String sessionId) {
+        return sessionId != null && !sessionId.isBlank() ? sessionId : SHARED_SESSION;
+    }
+    
+    /**
+     * Playbacks for one session and topic, played strictly one after another.
+     * A channel with nothing left to play is retired, so per-session topics
+     * do not pile up channels.
+     */
+    private final class Channel {
+        final String key;
+        final String sessionId;
+        final String topic;
+        final Deque<Playback> pending = new ArrayDeque<>();
+        Playback current;
+        boolean retired;
+        
+        Channel(String key, String sessionId, String topic) {
+            this.key = key;
+            this.sessionId = sessionId;
+            this.topic = topic;
+        }
+        
+        synchronized int pendingCount() {
+            return pending.size();
+        }
+        
+        // Caller holds the channel lock
+        void cancelAll() {
+            for (Playback queued : pending) {
+                queued.release(true);
+            }
+            pending.clear();
+            if (current != null) {
+                current.release(true);
+                current = null;
+            }
+        }
+        
+        // Caller holds the channel lock
+        void finished(Playback playback) {
+            if (current != playback) {
+                pending.remove(playback);
+                return;
+            }
+            current = pending.poll();
+            if (current != null) {
+                current.schedule(0);
+            } else {
+                retired = true;
+                channels.remove(key, this);
+            }
+        }
+    }
+    
+    /** Where a playback's messages come from. Steps are requested in increasing order. */
+    private interface StepSource {
+        boolean has(int step);
+        Object get(int step);
+        long delayAfter(int step);
+        /** Total number of steps, or -1 when the source does not know. */
+        int size();
+    }
+    
+    private record IndexedSteps(int size, IntFunction<?> message, IntToLongFunction delays) implements StepSource {
+        public boolean has(int step) { return step < size; }
+        public Object get(int step) { return message.apply(step); }
+        public long delayAfter(int step) { return delays.applyAsLong(step); }
+    }
+    
+    /**
+     * One-pass source over an iterator. Skipped steps are pulled and dropped;
+     * if the iterator runs out while skipping, the last step pulled is still
+     * sent so the client ends on the final state.
+     */
+    private static final class IteratorSteps implements StepSource {
+        private final Iterator<?> steps;
+        private final long delayMs;
+        private int position;       // index of the step steps.next() returns next
+        private Object lastSkipped;
+        private boolean hasSkipped;
+        
+        IteratorSteps(Iterator<?> steps, long delayMs) {
+            this.steps = steps;
+            this.delayMs = delayMs;
+        }
+        
+        public boolean has(int step) {
+            while (position < step && steps.hasNext()) {
+                lastSkipped = steps.next();
+                hasSkipped = true;
+                position++;
+            }
+            return (position == step && steps.hasNext()) || hasSkipped;
+        }
+        
+        public Object get(int step) {
+            if (position == step && steps.hasNext()) {
+                hasSkipped = false;
+                lastSkipped = null;
+                position++;
+                return steps.next();
+            }
+            Object last = lastSkipped;
+            hasSkipped = false;
+            lastSkipped = null;
+            return last;
+        }
+        
+        public long delayAfter(int step) { return delayMs; }
+        public int size() { return -1; }
+    }
+    
+    private final class Playback implements Runnable {
+        final String id;
+        final Channel channel;
+        final StepSource source;
+        volatile int next;
+        volatile double speed = 1.0;
+        volatile boolean done;
+        volatile ScheduledFuture<?> future;
+        
+        Playback(String id, Channel channel, StepSource source) {
+            this.id = id;
+            this.channel = channel;
+            this.source = source;
+        }
+        
+        @Override
+        public void run() {
+            long delay = 0;
+            synchronized (this) {
+                if (done) return;
+                if (!source.has(next)) {
+                    finish(false);
+                    return;
+                }
+                
+                // The step due now and those due within the same tick after it
+                List<Object> frame = new ArrayList<>(1);
+                boolean last = false;
+                try {
+                    while (true) {
+                        int step = next++;
+                        frame.add(source.get(step));
+                        if (!source.has(next)) {
+                            last = true;
+                            break;
+                        }
+                        Long sessionDelay = sessionDelays.get(channel.sessionId);
+                        delay += Math.round((sessionDelay != null ? sessionDelay : source.delayAfter(step)) / speed);
+                        if (delay >= tickMs || frame.size() >= MAX_FRAME_STEPS) {
+                            break;
+                        }
+                    }
+                    broadcaster.send(channel.topic, frame);
+                    stepsSent.addAndGet(frame.size());
+                } catch (RuntimeException ex) {
+                    System.err.println("Playback " + id + " stopped: " + ex.getMessage());
+                    finish(true);
+                    return;
+                }
+                
+                if (last) {
+                    finish(false);
+                    return;
+                }
+            }
+            schedule(delay);
+        }
+        
+        void schedule(long delayMs) {
+            if (!done) {
+                future = scheduler.schedule(this, delayMs, TimeUnit.MILLISECONDS);
+            }
+        }
+        
+        void skip(int count) {
+            synchronized (this) {
+                if (done) return;
+                int size = source.size();
+                if (size < 0) {
+                    // Unknown length: has() drains the iterator up to the target
+                    next = count <= 0 ? Integer.MAX_VALUE : (int) Math.min((long) next + count, Integer.MAX_VALUE);
+                } else if (size > 0) {
+                    int last = size - 1;
+                    next = count <= 0 ? Math.max(next, last) : Math.min(next + count, last);
+                }
+            }
+            // Re-time only a playback that is waiting on air; queued ones start later anyway
+            ScheduledFuture<?> waiting = future;
+            if (waiting != null && waiting.cancel(false)) {
+                schedule(0);
+            }
+        }
+        
+        void cancel() {
+            synchronized (this) {
+                if (done) return;
+                finish(true);
+            }
+        }
+        
+        // Marks the playback done and lets its channel start the next one
+        private void finish(boolean wasCancelled) {
+            synchronized (channel) {
+                if (!release(wasCancelled)) return;
+                channel.finished(this);
+            }
+        }
+        
+        // Channel.cancelAll calls this directly and advances the channel itself
+        boolean release(boolean wasCancelled) {
+            if (done) return false;
+            done = true;
+            (wasCancelled ? cancelled : completed).incrementAndGet();
+            ScheduledFuture<?> waiting = future;
+            if (waiting != null) waiting.cancel(false);
+            playbacks.remove(id);
+            active.decrementAndGet();
+            return true;
+        }
+    }
+}
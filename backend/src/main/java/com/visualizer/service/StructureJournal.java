@@ -0,0 +1,465 @@
+package com.visualizer.service;
+
+import com.visualizer.model.FileArray;
+import com.visualizer.model.FileBinaryTree;
+import com.visualizer.model.FileQueue;
+import com.visualizer.model.StoredFile;
+import com.visualizer.model.Workspace;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Crash-safe record of a {@link Workspace}: a compacted snapshot plus an
+ * append-only journal of the operations applied since.
+ * <p>
+ * The journal is a memory-mapped file. Each entry is framed as
+ * {@code [length][crc32][payload]} and carries the record of the file it
+ * adds, so replay never has to look at the upload directory. A torn or
+ * corrupt entry ends replay; everything after it is zeroed before new
+ * entries are appended.
+ * <p>
+ * Every {@code snapshotEvery} entries the whole workspace is written to a
+ * new snapshot (temp file, fsync, atomic rename) and the journal is emptied.
+ * Snapshot and journal both carry a generation number, and a journal only
+ * replays on top of the snapshot of its own generation, so a crash between
+ * the two steps cannot apply the same entries twice.
+ */
+public class StructureJournal implements Closeable {
+
+    /** Journaled operations; the ordinal is the on-disk code, so only append. */
+    public enum Op {
+        LIST_ADD, LIST_REMOVE,
+        PUSH, POP, CLEAR_STACK,
+        ENQUEUE, DEQUEUE, CLEAR_QUEUE,
+        ARRAY_INSERT, ARRAY_DELETE, ARRAY_RESIZE, CLEAR_ARRAY,
+        TREE_INSERT, CLEAR_TREE,
+        TREE_MODE,
+        QUEUE_MODE,
+        ARRAY_MODE
+    }
+
+    private static final int JOURNAL_MAGIC = 0x534A4E4C;  // "SJNL"
+    private static final int SNAPSHOT_MAGIC = 0x53534E50; // "SSNP"
+    private static final int VERSION = 1;
+    private static final int SNAPSHOT_VERSION = 5;        // 2 adds the tree's mode and colours, 3 the queue's mode,
+                                                          // 4 drops the stack's size limit, 5 adds the array's mode
+    private static final int HEADER_SIZE = 16;            // magic, version, generation
+    private static final int FRAME_SIZE = 8;              // length, crc32
+    private static final int INITIAL_SIZE = 1 << 20;
+    private static final int NO_INDEX = -1;
+
+    private final Path journalPath;
+    private final Path snapshotPath;
+    private final int snapshotEvery;
+    private final boolean sync;
+
+    private FileChannel channel;
+    private MappedByteBuffer map;
+    private long generation;
+    private int position = HEADER_SIZE;
+    private int entries;
+
+    /**
+     * @param snapshotEvery journal entries between snapshots
+     * @param sync          force every entry to disk; without it entries
+     *                      survive a process crash but not a power loss
+     */
+    public StructureJournal(Path dir, int snapshotEvery, boolean sync) throws IOException {
+        Files.createDirectories(dir);
+        this.journalPath = dir.resolve("journal.log");
+        this.snapshotPath = dir.resolve("snapshot.bin");
+        this.snapshotEvery = snapshotEvery;
+        this.sync = sync;
+    }
+
+    /**
+     * Loads the snapshot and replays the journal on top of it. Must be
+     * called once, before anything is appended.
+     */
+    public Workspace restore() throws IOException {
+        return restore(new Workspace());
+    }
+
+    /** As {@link #restore()}, into {@code workspace}, which must be empty. */
+    public Workspace restore(Workspace workspace) throws IOException {
+        long snapshotGeneration = 0;
+        if (Files.exists(snapshotPath)) {
+            snapshotGeneration = readSnapshot(workspace);
+        }
+
+        boolean existed = Files.exists(journalPath);
+        channel = FileChannel.open(journalPath, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        map = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(channel.size(), INITIAL_SIZE));
+
+        if (existed && map.getInt(0) == JOURNAL_MAGIC && map.getLong(8) == snapshotGeneration) {
+            generation = snapshotGeneration;
+            replay(workspace);
+        } else {
+            if (existed && map.getInt(0) == JOURNAL_MAGIC) {
+                // Older than the snapshot: its entries are already in it
+                System.out.println("Journal generation " + map.getLong(8) + " superseded by snapshot " + snapshotGeneration);
+            }
+            generation = snapshotGeneration;
+            position = HEADER_SIZE;
+            writeHeader();
+        }
+        zero(position, map.capacity());
+        return workspace;
+    }
+
+    public void append(Op op) throws IOException {
+        append(op, null, null, NO_INDEX);
+    }
+
+    public void append(Op op, StoredFile file) throws IOException {
+        append(op, file, null, NO_INDEX);
+    }
+
+    public void append(Op op, StoredFile file, int index) throws IOException {
+        append(op, file, null, index);
+    }
+
+    public void append(Op op, int index) throws IOException {
+        append(op, null, null, index);
+    }
+
+    public void append(Op op, String filename) throws IOException {
+        append(op, null, filename, NO_INDEX);
+    }
+
+    /** One {@code op} entry per file, forced to disk once at the end rather than after each. */
+    public void appendAll(Op op, List<StoredFile> files) throws IOException {
+        appendAll(op, files, NO_INDEX);
+    }
+
+    /** As {@link #appendAll(Op, List)}, the files getting consecutive indices from {@code firstIndex}. */
+    public synchronized void appendAll(Op op, List<StoredFile> files, int firstIndex) throws IOException {
+        for (int i = 0; i < files.size(); i++) {
+            write(op, files.get(i), null, firstIndex == NO_INDEX ? NO_INDEX : firstIndex + i);
+        }
+        if (sync) {
+            map.force();
+        }
+    }
+
+    private synchronized void append(Op op, StoredFile file, String filename, int index) throws IOException {
+        write(op, file, filename, index);
+        if (sync) {
+            map.force();
+        }
+    }
+
+    private void write(Op op, StoredFile file, String filename, int index) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(op.ordinal());
+        out.writeInt(index);
+        writeString(out, filename);
+        out.writeBoolean(file != null);
+        if (file != null) {
+            writeFile(out, file);
+        }
+        byte[] payload = bytes.toByteArray();
+
+        // Keep a zero length word after the entry as the end marker
+        int needed = position + FRAME_SIZE + payload.length + Integer.BYTES;
+        if (needed > map.capacity()) {
+            grow(needed);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        map.put(position + FRAME_SIZE, payload);
+        map.putInt(position + 4, (int) crc.getValue());
+        // Length last: a non-zero length only follows a complete entry
+        map.putInt(position, payload.length);
+        position += FRAME_SIZE + payload.length;
+        entries++;
+    }
+
+    /** True once enough entries have built up to be worth a snapshot. */
+    public synchronized boolean snapshotDue() {
+        return entries >= snapshotEvery;
+    }
+
+    /** Number of entries appended since the last snapshot. */
+    public synchronized int entries() {
+        return entries;
+    }
+
+    /**
+     * Writes {@code workspace} as the new snapshot, then empties the journal.
+     * The caller must keep the workspace from changing meanwhile.
+     */
+    public synchronized void snapshot(Workspace workspace) throws IOException {
+        long next = generation + 1;
+        Path temp = snapshotPath.resolveSibling("snapshot.tmp");
+        try (FileOutputStream file = new FileOutputStream(temp.toFile())) {
+            CheckedOutputStream checked = new CheckedOutputStream(new BufferedOutputStream(file), new CRC32());
+            DataOutputStream out = new DataOutputStream(checked);
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeInt(SNAPSHOT_VERSION);
+            out.writeLong(next);
+            writeFiles(out, workspace.getFileList().getAllFiles());
+            writeFiles(out, workspace.getFileStack().getAllFiles());
+            out.writeInt(workspace.getFileQueue().getMaxSize());
+            writeFiles(out, workspace.getFileQueue().getAllFiles());
+            out.writeInt(workspace.getFileArray().getCapacity());
+            writeFiles(out, workspace.getFileArray().getAllFiles());
+            writeTree(out, workspace.getBinaryTree());
+            out.writeByte(workspace.getFileQueue().getMode().ordinal());
+            out.writeByte(workspace.getFileArray().getMode().ordinal());
+            out.flush();
+            out.writeLong(checked.getChecksum().getValue());
+            out.flush();
+            file.getFD().sync();
+        }
+        Files.move(temp, snapshotPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        // Clear the entries before moving the generation on: until the header
+        // changes, this journal is ignored as older than the snapshot
+        zero(HEADER_SIZE, position);
+        map.force();
+        generation = next;
+        writeHeader();
+        position = HEADER_SIZE;
+        entries = 0;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (channel != null) {
+            map.force();
+            channel.close();
+            channel = null;
+        }
+    }
+
+    // ===== REPLAY =====
+
+    private void replay(Workspace workspace) throws IOException {
+        position = HEADER_SIZE;
+        entries = 0;
+        while (position + FRAME_SIZE <= map.capacity()) {
+            int length = map.getInt(position);
+            if (length <= 0 || length > map.capacity() - position - FRAME_SIZE) {
+                if (length != 0) {
+                    System.err.println("Journal entry at " + position + " is torn; dropping the tail");
+                }
+                break;
+            }
+            byte[] payload = new byte[length];
+            map.get(position + FRAME_SIZE, payload);
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            if ((int) crc.getValue() != map.getInt(position + 4)) {
+                System.err.println("Journal entry at " + position + " fails its checksum; dropping the tail");
+                break;
+            }
+            apply(workspace, new DataInputStream(new ByteArrayInputStream(payload)));
+            position += FRAME_SIZE + length;
+            entries++;
+        }
+    }
+
+    private static void apply(Workspace workspace, DataInputStream in) throws IOException {
+        Op op = Op.values()[in.readUnsignedByte()];
+        int index = in.readInt();
+        String filename = readString(in);
+        StoredFile file = in.readBoolean() ? readFile(in) : null;
+
+        switch (op) {
+            case LIST_ADD -> workspace.getFileList().insert(file, false);
+            case LIST_REMOVE -> workspace.getFileList().delete(filename, false);
+            case PUSH -> workspace.getFileStack().push(file, false);
+            case POP -> workspace.getFileStack().pop(false);
+            case CLEAR_STACK -> workspace.getFileStack().clear();
+            case ENQUEUE -> workspace.getFileQueue().enqueue(file, false);
+            case DEQUEUE -> workspace.getFileQueue().dequeue(false);
+            case CLEAR_QUEUE -> workspace.getFileQueue().clear();
+            case ARRAY_INSERT -> workspace.getFileArray().insert(file, index, false);
+            case ARRAY_DELETE -> workspace.getFileArray().delete(index, false);
+            case ARRAY_RESIZE -> workspace.getFileArray().resize(index, false);
+            case CLEAR_ARRAY -> workspace.getFileArray().clear();
+            case TREE_INSERT -> workspace.getBinaryTree().insert(file, false);
+            case CLEAR_TREE -> workspace.getBinaryTree().clear();
+            case TREE_MODE -> workspace.getBinaryTree().setMode(FileBinaryTree.Mode.values()[index]);
+            case QUEUE_MODE -> workspace.getFileQueue().setMode(FileQueue.Mode.values()[index]);
+            case ARRAY_MODE -> workspace.getFileArray().setMode(FileArray.Mode.values()[index]);
+        }
+    }
+
+    private long readSnapshot(Workspace workspace) throws IOException {
+        byte[] bytes = Files.readAllBytes(snapshotPath);
+        int body = bytes.length - Long.BYTES;
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 0, Math.max(body, 0));
+        if (body < HEADER_SIZE || crc.getValue() != ByteBuffer.wrap(bytes, body, Long.BYTES).getLong()) {
+            throw new IOException("Snapshot " + snapshotPath + " is corrupt");
+        }
+
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes, 0, body));
+        if (in.readInt() != SNAPSHOT_MAGIC) {
+            throw new IOException("Snapshot " + snapshotPath + " has an unknown format");
+        }
+        int version = in.readInt();
+        if (version < 1 || version > SNAPSHOT_VERSION) {
+            throw new IOException("Snapshot " + snapshotPath + " has an unknown format");
+        }
+        long snapshotGeneration = in.readLong();
+
+        for (StoredFile file : readFiles(in)) {
+            workspace.getFileList().insert(file, false);
+        }
+        if (version < 4) {
+            in.readInt();
+        }
+        for (StoredFile file : readFiles(in)) {
+            workspace.getFileStack().push(file, false);
+        }
+        workspace.getFileQueue().setMaxSize(in.readInt());
+        for (StoredFile file : readFiles(in)) {
+            workspace.getFileQueue().enqueue(file, false);
+        }
+        workspace.getFileArray().resize(in.readInt(), false);
+        List<StoredFile> elements = readFiles(in);
+        for (int i = 0; i < elements.size(); i++) {
+            workspace.getFileArray().insert(elements.get(i), i, false);
+        }
+        if (version == 1) {
+            // Plain BSTs only: pre-order insertion rebuilds exactly the same shape
+            for (StoredFile file : readFiles(in)) {
+                workspace.getBinaryTree().insert(file, false);
+            }
+        } else {
+            FileBinaryTree.Mode mode = FileBinaryTree.Mode.values()[in.readUnsignedByte()];
+            List<StoredFile> preOrder = readFiles(in);
+            byte[] shape = new byte[in.readInt()];
+            in.readFully(shape);
+            workspace.getBinaryTree().restore(mode, preOrder, BitSet.valueOf(shape));
+        }
+        if (version >= 3) {
+            // Laid out again from slot 0 in RING mode
+            workspace.getFileQueue().setMode(FileQueue.Mode.values()[in.readUnsignedByte()]);
+        }
+        if (version >= 5) {
+            // The gap is restored at the end, where appending the elements left it
+            workspace.getFileArray().setMode(FileArray.Mode.values()[in.readUnsignedByte()]);
+        }
+        return snapshotGeneration;
+    }
+
+    private static void writeTree(DataOutputStream out, FileBinaryTree tree) throws IOException {
+        BitSet shape = new BitSet();
+        List<StoredFile> preOrder = tree.preOrder(shape);
+        byte[] bits = shape.toByteArray();
+        out.writeByte(tree.getMode().ordinal());
+        writeFiles(out, preOrder);
+        out.writeInt(bits.length);
+        out.write(bits);
+    }
+
+    // ===== MAPPED FILE =====
+
+    private void grow(int needed) throws IOException {
+        long capacity = map.capacity();
+        while (capacity < needed) {
+            capacity *= 2;
+        }
+        if (capacity > Integer.MAX_VALUE) {
+            throw new IOException("Journal is full; a snapshot is overdue");
+        }
+        map.force();
+        map = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+    }
+
+    private void writeHeader() {
+        map.putInt(0, JOURNAL_MAGIC);
+        map.putInt(4, VERSION);
+        map.putLong(8, generation);
+        map.force();
+    }
+
+    private void zero(int from, int to) {
+        byte[] zeros = new byte[8192];
+        for (int at = from; at < to; at += zeros.length) {
+            map.put(at, zeros, 0, Math.min(zeros.length, to - at));
+        }
+    }
+
+    // ===== RECORD ENCODING =====
+
+    private static void writeFiles(DataOutputStream out, List<StoredFile> files) throws IOException {
+        out.writeInt(files.size());
+        for (StoredFile file : files) {
+            writeFile(out, file);
+        }
+    }
+
+    private static List<StoredFile> readFiles(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        List<StoredFile> files = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            files.add(readFile(in));
+        }
+        return files;
+    }
+
+    private static void writeFile(DataOutputStream out, StoredFile file) throws IOException {
+        writeString(out, file.getId());
+        writeString(out, file.getFilename());
+        writeString(out, file.getOriginalFilename());
+        writeString(out, file.getContentType());
+        out.writeLong(file.getSize());
+        // As epoch seconds and nanos: parsing the ISO text would dominate replay
+        LocalDateTime uploadedAt = file.getUploadedAt();
+        out.writeBoolean(uploadedAt != null);
+        if (uploadedAt != null) {
+            out.writeLong(uploadedAt.toEpochSecond(ZoneOffset.UTC));
+            out.writeInt(uploadedAt.getNano());
+        }
+        writeString(out, file.getStoragePath());
+        writeString(out, file.getContentHash());
+    }
+
+    private static StoredFile readFile(DataInputStream in) throws IOException {
+        StoredFile file = new StoredFile();
+        file.setId(readString(in));
+        file.setFilename(readString(in));
+        file.setOriginalFilename(readString(in));
+        file.setContentType(readString(in));
+        file.setSize(in.readLong());
+        if (in.readBoolean()) {
+            long seconds = in.readLong();
+            file.setUploadedAt(LocalDateTime.ofEpochSecond(seconds, in.readInt(), ZoneOffset.UTC));
+        }
+        file.setStoragePath(readString(in));
+        file.setContentHash(readString(in));
+        file.setStatus("idle");
+        return file;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+}
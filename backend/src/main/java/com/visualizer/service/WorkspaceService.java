@@ -0,0 +1,367 @@
+package com.visualizer.service;
+
+import com.visualizer.model.StoredFile;
+import com.visualizer.model.Workspace;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+/**
+ * Owns the {@link Workspace}s. Requests without a session id share one
+ * durable workspace: it is restored from the {@link StructureJournal} at
+ * startup, and controllers make every change through {@link #change} and
+ * report it there through {@link #record} so it can be journaled.
+ * <p>
+ * A request with a session id gets that session's own workspace instead,
+ * created on first use and kept in memory only. Session workspaces are
+ * bounded: one idle for {@code workspace.idle-timeout} is dropped, and the
+ * least recently used are dropped when there are more than
+ * {@code workspace.max-sessions} or they hold more than
+ * {@code workspace.max-files} records together. The limits are checked on
+ * every lookup and change, and the idle timeout by a periodic sweep. A
+ * dropped workspace is closed and emptied and its records handed to the
+ * {@link #onEvict} listener, which releases their blobs. A request that
+ * fetched the workspace just before still completes against it, and
+ * whatever it added is handed over the same way once it is done.
+ */
+@Service
+public class WorkspaceService {
+
+    /** A session id that cannot be used in a topic name. */
+    public static class InvalidSessionException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        public InvalidSessionException(String message) {
+            super(message);
+        }
+    }
+
+    // Session ids end up in topic names, so they are kept to a safe alphabet
+    private static final Pattern SESSION_ID = Pattern.compile("[A-Za-z0-9_-]{1,64}");
+
+    // Fields other than workspace are guarded by sessions
+    private static final class Session {
+        final Workspace workspace;
+        long lastUsed = System.nanoTime();
+        int held;  // records counted into sessionFiles
+
+        Session(Workspace workspace) {
+            this.workspace = workspace;
+        }
+    }
+
+    @Value("${file.upload-dir:uploads}")
+    private String uploadDir;
+
+    @Value("${file.journal.snapshot-every:1000}")
+    private int snapshotEvery;
+
+    @Value("${file.journal.sync:false}")
+    private boolean sync;
+
+    @Value("${workspace.max-sessions:10000}")
+    private int maxSessions;
+
+    @Value("${workspace.max-files:100000}")
+    private long maxFiles;
+
+    @Value("${workspace.idle-timeout:30m}")
+    private Duration idleTimeout;
+
+    @Value("${stack.initial-capacity:10}")
+    private int stackInitialCapacity;
+
+    @Value("${stack.growth-factor:2.0}")
+    private double stackGrowthFactor;
+
+    private StructureJournal journal;
+    private Workspace workspace;
+
+    // Access order: the first session is the least recently used
+    private final LinkedHashMap<String, Session> sessions = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<Workspace, Session> owners = new IdentityHashMap<>();
+    private long sessionFiles;
+    private volatile Consumer<StoredFile> evictionListener = file -> { };
+
+    @PostConstruct
+    public void init() {
+        long start = System.nanoTime();
+        try {
+            journal = new StructureJournal(Paths.get(uploadDir).toAbsolutePath().normalize().resolve("journal"), snapshotEvery, sync);
+            workspace = journal.restore(newWorkspace());
+        } catch (IOException ex) {
+            throw new RuntimeException("Could not restore workspace: " + ex.getMessage(), ex);
+        }
+        System.out.printf("✅ Workspace restored: %d files, %d journal entries replayed in %.1f ms%n",
+            workspace.getAllFiles().size(), journal.entries(), (System.nanoTime() - start) / 1e6);
+    }
+
+    /** Compacts on the way down so the next startup only reads the snapshot. */
+    @PreDestroy
+    public void shutdown() {
+        Lock gate = workspace.exclusiveGate();
+        gate.lock();
+        try {
+            if (journal.entries() > 0) {
+                journal.snapshot(workspace);
+            }
+            journal.close();
+        } catch (IOException ex) {
+            System.err.println("Failed to compact journal: " + ex.getMessage());
+        } finally {
+            gate.unlock();
+        }
+    }
+
+    /** The shared, journaled workspace. */
+    public Workspace current() {
+        return workspace;
+    }
+
+    /** The workspace of {@code sessionId}, or the shared one when it is {@code null} or blank. */
+    public Workspace current(String sessionId) {
+        if (sessionId == null || sessionId.isBlank()) {
+            return workspace;
+        }
+        checkSessionId(sessionId);
+        Session session;
+        List<Session> evicted;
+        synchronized (sessions) {
+            session = sessions.get(sessionId);
+            if (session == null) {
+                session = new Session(newWorkspace());
+                sessions.put(sessionId, session);
+                owners.put(session.workspace, session);
+            }
+            session.lastUsed = System.nanoTime();
+            evicted = evictOverBudget();
+        }
+        evicted.forEach(this::close);
+        return session.workspace;
+    }
+
+    private Workspace newWorkspace() {
+        return new Workspace(stackInitialCapacity, stackGrowthFactor);
+    }
+
+    /** Throws {@link InvalidSessionException} unless {@code sessionId} is absent or usable in a topic name. */
+    public void checkSessionId(String sessionId) {
+        if (sessionId != null && !sessionId.isBlank() && !SESSION_ID.matcher(sessionId).matches()) {
+            throw new InvalidSessionException("Invalid session id");
+        }
+    }
+
+    /** Called with every record a dropped session workspace still held. */
+    public void onEvict(Consumer<StoredFile> listener) {
+        this.evictionListener = listener;
+    }
+
+    public int sessionCount() {
+        synchronized (sessions) {
+            return sessions.size();
+        }
+    }
+
+    /** Drops idle session workspaces, then the least recently used while over {@code workspace.max-files}. */
+    @Scheduled(fixedDelayString = "${workspace.sweep-ms:30000}")
+    public void evictIdle() {
+        long idleBefore = System.nanoTime() - idleTimeout.toNanos();
+        List<Session> evicted = new ArrayList<>();
+        synchronized (sessions) {
+            Iterator<Session> eldest = sessions.values().iterator();
+            while (eldest.hasNext()) {
+                Session session = eldest.next();
+                if (session.lastUsed - idleBefore >= 0) {
+                    break;
+                }
+                eldest.remove();
+                forget(session);
+                evicted.add(session);
+            }
+            evicted.addAll(evictOverBudget());
+        }
+        evicted.forEach(this::close);
+    }
+
+    // Least recently used first, while over either limit; the caller closes what is returned
+    private List<Session> evictOverBudget() {
+        List<Session> evicted = new ArrayList<>();
+        Iterator<Session> eldest = sessions.values().iterator();
+        while (eldest.hasNext() && (sessions.size() > maxSessions || sessionFiles > maxFiles)) {
+            Session session = eldest.next();
+            eldest.remove();
+            forget(session);
+            evicted.add(session);
+        }
+        return evicted;
+    }
+
+    private void forget(Session session) {
+        owners.remove(session.workspace);
+        sessionFiles -= session.held;
+    }
+
+    // Waits for changes in progress, which the emptying then includes
+    private void close(Session session) {
+        Workspace closed = session.workspace;
+        Lock gate = closed.exclusiveGate();
+        gate.lock();
+        try {
+            closed.close().forEach(evictionListener);
+        } finally {
+            gate.unlock();
+        }
+    }
+
+    // After a change to a session workspace: counts its records and enforces max-files
+    private void account(Workspace target) {
+        int held = target.fileCount();
+        List<Session> evicted;
+        synchronized (sessions) {
+            Session session = owners.get(target);
+            if (session == null) {
+                return;
+            }
+            sessionFiles += held - session.held;
+            session.held = held;
+            evicted = evictOverBudget();
+        }
+        evicted.forEach(this::close);
+    }
+
+    // A change that got its workspace before it was closed; what it added goes the same way
+    private void releaseLate(Workspace closed) {
+        Lock gate = closed.exclusiveGate();
+        gate.lock();
+        try {
+            closed.clear().forEach(evictionListener);
+        } finally {
+            gate.unlock();
+        }
+    }
+
+    /**
+     * Applies a change to {@code structure}, one of {@code target}'s
+     * structures, and journals it: {@code change} makes the change and calls
+     * {@link #record} for it. It runs holding the structure's monitor, so the
+     * structure's entries reach the journal in the order its changes took
+     * effect, and the workspace's change gate, so a snapshot never falls
+     * between a change and its entry.
+     */
+    public <T> T change(Workspace target, Object structure, Supplier<T> change) {
+        Lock gate = target.changeGate();
+        gate.lock();
+        try {
+            synchronized (structure) {
+                return change.get();
+            }
+        } finally {
+            gate.unlock();
+            if (target == workspace) {
+                snapshotIfDue();
+            } else if (target.isClosed()) {
+                releaseLate(target);
+            } else {
+                account(target);
+            }
+        }
+    }
+
+    public void change(Workspace target, Object structure, Runnable change) {
+        change(target, structure, () -> {
+            change.run();
+            return null;
+        });
+    }
+
+    // Only the shared workspace is journaled; session workspaces live in memory
+    public void record(Workspace target, StructureJournal.Op op) {
+        if (target == workspace) {
+            write(() -> journal.append(op));
+        }
+    }
+
+    public void record(Workspace target, StructureJournal.Op op, StoredFile file) {
+        if (target == workspace) {
+            write(() -> journal.append(op, file));
+        }
+    }
+
+    public void record(Workspace target, StructureJournal.Op op, StoredFile file, int index) {
+        if (target == workspace) {
+            write(() -> journal.append(op, file, index));
+        }
+    }
+
+    public void record(Workspace target, StructureJournal.Op op, int index) {
+        if (target == workspace) {
+            write(() -> journal.append(op, index));
+        }
+    }
+
+    public void record(Workspace target, StructureJournal.Op op, String filename) {
+        if (target == workspace) {
+            write(() -> journal.append(op, filename));
+        }
+    }
+
+    /** One entry per file, in a single journal write. */
+    public void recordAll(Workspace target, StructureJournal.Op op, List<StoredFile> files) {
+        if (target == workspace && !files.isEmpty()) {
+            write(() -> journal.appendAll(op, files));
+        }
+    }
+
+    public void recordAll(Workspace target, StructureJournal.Op op, List<StoredFile> files, int firstIndex) {
+        if (target == workspace && !files.isEmpty()) {
+            write(() -> journal.appendAll(op, files, firstIndex));
+        }
+    }
+
+    private interface JournalWrite {
+        void run() throws IOException;
+    }
+
+    // The structures are already changed; a failed write costs durability, not the request
+    private void write(JournalWrite entry) {
+        try {
+            entry.run();
+        } catch (IOException ex) {
+            System.err.println("Failed to journal workspace change: " + ex.getMessage());
+        }
+    }
+
+    // After the change has let go of the gate: the snapshot needs it exclusively
+    private void snapshotIfDue() {
+        if (!journal.snapshotDue()) {
+            return;
+        }
+        Lock gate = workspace.exclusiveGate();
+        gate.lock();
+        try {
+            if (journal.snapshotDue()) {
+                journal.snapshot(workspace);
+            }
+        } catch (IOException ex) {
+            System.err.println("Failed to snapshot workspace: " + ex.getMessage());
+        } finally {
+            gate.unlock();
+        }
+    }
+}
@@ -0,0 +1,317 @@
+package com.visualizer.service;
+
+import com.visualizer.model.FileArray;
+import com.visualizer.model.FileBinaryTree;
+import com.visualizer.model.FileLinkedList;
+import com.visualizer.model.FileQueue;
+import com.visualizer.model.FileStack;
+import com.visualizer.model.StoredFile;
+import com.visualizer.model.Workspace;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Writers on every structure of the shared workspace, plus readers, with a
+ * snapshot every few journal entries. Every change goes through
+ * {@link WorkspaceService#change} the way the controllers make it, and
+ * afterwards the journal must restore exactly the live state. Also covers
+ * session workspaces dropped while a request is still using them.
+ */
+class WorkspaceConcurrencyTest {
+
+    private static final int ROUNDS = 10;
+    private static final int OPERATIONS = 400;
+    private static final int SNAPSHOT_EVERY = 5;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void restoredStateMatchesLiveStateUnderConcurrentWriters() throws Exception {
+        for (int round = 0; round < ROUNDS; round++) {
+            Path uploads = dir.resolve("round-" + round);
+            WorkspaceService service = newService(uploads);
+            Workspace live = service.current();
+
+            runConcurrently(service, live, round);
+            assertInvariants(live);
+            assertSizesMatchContents(live);
+
+            StructureJournal journal = new StructureJournal(uploads.resolve("journal"), SNAPSHOT_EVERY, false);
+            Workspace restored = journal.restore(new Workspace());
+            journal.close();
+            assertSameState(live, restored, round);
+
+            service.shutdown();
+        }
+    }
+
+    @Test
+    void changesToAnEvictedSessionAreReleased() {
+        WorkspaceService service = newService(dir.resolve("late"));
+        ReflectionTestUtils.setField(service, "maxSessions", 1);
+        List<StoredFile> released = new CopyOnWriteArrayList<>();
+        service.onEvict(released::add);
+
+        Workspace first = service.current("first");
+        FileStack stack = first.getFileStack();
+        StoredFile before = file("before");
+        service.change(first, stack, () -> stack.push(before, false));
+
+        // Evicts the first session while its workspace is still in use
+        service.current("second");
+        assertTrue(first.isClosed());
+        assertEquals(List.of(before), released);
+
+        StoredFile late = file("late");
+        service.change(first, stack, () -> stack.push(late, false));
+        assertEquals(List.of(before, late), released);
+        assertEquals(0, first.fileCount());
+        service.shutdown();
+    }
+
+    @Test
+    void maxFilesIsEnforcedOnEveryChange() {
+        WorkspaceService service = newService(dir.resolve("budget"));
+        ReflectionTestUtils.setField(service, "maxFiles", 3L);
+        List<StoredFile> released = new CopyOnWriteArrayList<>();
+        service.onEvict(released::add);
+
+        Workspace older = service.current("older");
+        FileStack olderStack = older.getFileStack();
+        for (int i = 0; i < 2; i++) {
+            service.change(older, olderStack, () -> olderStack.push(file("older"), false));
+        }
+        Workspace newer = service.current("newer");
+        FileStack newerStack = newer.getFileStack();
+        service.change(newer, newerStack, () -> newerStack.push(file("newer"), false));
+        assertEquals(2, service.sessionCount());
+        assertTrue(released.isEmpty());
+
+        // The fourth record goes over the budget: the least recently used session goes, without a sweep
+        service.change(newer, newerStack, () -> newerStack.push(file("newer"), false));
+        assertTrue(older.isClosed());
+        assertEquals(2, released.size());
+        assertEquals(1, service.sessionCount());
+        service.shutdown();
+    }
+
+    static WorkspaceService newService(Path uploads) {
+        WorkspaceService service = new WorkspaceService();
+        ReflectionTestUtils.setField(service, "uploadDir", uploads.toString());
+        ReflectionTestUtils.setField(service, "snapshotEvery", SNAPSHOT_EVERY);
+        ReflectionTestUtils.setField(service, "sync", false);
+        ReflectionTestUtils.setField(service, "maxSessions", 10_000);
+        ReflectionTestUtils.setField(service, "maxFiles", 100_000L);
+        ReflectionTestUtils.setField(service, "idleTimeout", Duration.ofMinutes(30));
+        ReflectionTestUtils.setField(service, "stackInitialCapacity", Workspace.DEFAULT_CAPACITY);
+        ReflectionTestUtils.setField(service, "stackGrowthFactor", FileStack.DEFAULT_GROWTH_FACTOR);
+        service.init();
+        return service;
+    }
+
+    private static void runConcurrently(WorkspaceService service, Workspace live, int round) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(9);
+        AtomicBoolean writing = new AtomicBoolean(true);
+        try {
+            List<Future<?>> writers = new ArrayList<>();
+            for (int i = 0; i < 2; i++) {
+                long seed = round * 100L + i;
+                writers.add(pool.submit(() -> stackWriter(service, live, new Random(seed))));
+                writers.add(pool.submit(() -> queueWriter(service, live, new Random(seed + 10))));
+            }
+            writers.add(pool.submit(() -> listWriter(service, live, new Random(round + 20L))));
+            writers.add(pool.submit(() -> arrayWriter(service, live, new Random(round + 30L))));
+            writers.add(pool.submit(() -> treeWriter(service, live, new Random(round + 40L))));
+            Future<?> reader = pool.submit(() -> {
+                while (writing.get()) {
+                    assertInvariants(live);
+                }
+            });
+            Future<?> sessions = pool.submit(() -> {
+                // Session workspaces are not journaled, but their changes run alongside
+                Workspace session = service.current("session-" + round);
+                FileStack stack = session.getFileStack();
+                while (writing.get()) {
+                    service.change(session, stack, () -> stack.push(file("session"), false));
+                    service.change(session, stack, () -> stack.pop(false));
+                }
+            });
+
+            for (Future<?> writer : writers) {
+                // A deadlock shows up as a timeout here
+                writer.get(60, TimeUnit.SECONDS);
+            }
+            writing.set(false);
+            reader.get(10, TimeUnit.SECONDS);
+            sessions.get(10, TimeUnit.SECONDS);
+        } finally {
+            writing.set(false);
+            pool.shutdownNow();
+        }
+    }
+
+    private static void stackWriter(WorkspaceService service, Workspace workspace, Random random) {
+        FileStack stack = workspace.getFileStack();
+        for (int i = 0; i < OPERATIONS; i++) {
+            if (random.nextInt(3) < 2) {
+                StoredFile pushed = file("stack");
+                service.change(workspace, stack, () -> {
+                    stack.push(pushed, false);
+                    service.record(workspace, StructureJournal.Op.PUSH, pushed);
+                });
+            } else {
+                service.change(workspace, stack, () -> {
+                    StoredFile top = stack.peekFile();
+                    stack.pop(false);
+                    if (top != null) {
+                        service.record(workspace, StructureJournal.Op.POP);
+                    }
+                });
+            }
+        }
+    }
+
+    private static void queueWriter(WorkspaceService service, Workspace workspace, Random random) {
+        FileQueue queue = workspace.getFileQueue();
+        for (int i = 0; i < OPERATIONS; i++) {
+            if (random.nextBoolean()) {
+                StoredFile enqueued = file("queue");
+                service.change(workspace, queue, () -> {
+                    int before = queue.getSize();
+                    queue.enqueue(enqueued, false);
+                    if (queue.getSize() != before) {
+                        service.record(workspace, StructureJournal.Op.ENQUEUE, enqueued);
+                    }
+                });
+            } else {
+                service.change(workspace, queue, () -> {
+                    StoredFile front = queue.peekFile();
+                    queue.dequeue(false);
+                    if (front != null) {
+                        service.record(workspace, StructureJournal.Op.DEQUEUE);
+                    }
+                });
+            }
+        }
+    }
+
+    private static void listWriter(WorkspaceService service, Workspace workspace, Random random) {
+        FileLinkedList list = workspace.getFileList();
+        for (int i = 0; i < OPERATIONS; i++) {
+            String name = "list-" + random.nextInt(8);
+            if (random.nextBoolean()) {
+                StoredFile added = file(name);
+                service.change(workspace, list, () -> {
+                    list.insert(added, false);
+                    service.record(workspace, StructureJournal.Op.LIST_ADD, added);
+                });
+            } else {
+                service.change(workspace, list, () -> {
+                    if (list.find(name) != null) {
+                        list.delete(name, false);
+                        service.record(workspace, StructureJournal.Op.LIST_REMOVE, name);
+                    }
+                });
+            }
+        }
+    }
+
+    private static void arrayWriter(WorkspaceService service, Workspace workspace, Random random) {
+        FileArray array = workspace.getFileArray();
+        for (int i = 0; i < OPERATIONS; i++) {
+            if (random.nextBoolean()) {
+                StoredFile inserted = file("array");
+                service.change(workspace, array, () -> {
+                    int index = array.getSize();
+                    array.insert(inserted, index, false);
+                    if (array.getSize() != index) {
+                        service.record(workspace, StructureJournal.Op.ARRAY_INSERT, inserted, index);
+                    }
+                });
+            } else {
+                service.change(workspace, array, () -> {
+                    if (array.fileAt(0) != null) {
+                        array.delete(0, false);
+                        service.record(workspace, StructureJournal.Op.ARRAY_DELETE, 0);
+                    }
+                });
+            }
+        }
+    }
+
+    private static void treeWriter(WorkspaceService service, Workspace workspace, Random random) {
+        FileBinaryTree tree = workspace.getBinaryTree();
+        for (int i = 0; i < OPERATIONS / 4; i++) {
+            StoredFile inserted = file("tree-" + random.nextInt(1_000_000));
+            service.change(workspace, tree, () -> {
+                tree.insert(inserted, false);
+                service.record(workspace, StructureJournal.Op.TREE_INSERT, inserted);
+            });
+        }
+    }
+
+    private static void assertInvariants(Workspace workspace) {
+        FileStack stack = workspace.getFileStack();
+        int stackCapacity = stack.getCapacity();
+        assertTrue(stackCapacity >= Workspace.DEFAULT_CAPACITY, "stack capacity " + stackCapacity);
+
+        // The queue's links are walked without a lock, so only its count is checked here
+        FileQueue queue = workspace.getFileQueue();
+        int queued = queue.getSize();
+        assertTrue(queued <= queue.getMaxSize(), "queue holds " + queued + " of " + queue.getMaxSize());
+
+        FileArray array = workspace.getFileArray();
+        List<StoredFile> elements = array.getAllFiles();
+        assertTrue(elements.size() <= array.getCapacity(), "array holds " + elements.size());
+        elements.forEach(element -> assertTrue(element != null, "hole in the array"));
+
+        List<StoredFile> inOrder = workspace.getBinaryTree().getAllFiles();
+        for (int i = 1; i < inOrder.size(); i++) {
+            assertTrue(inOrder.get(i - 1).getFilename().compareTo(inOrder.get(i).getFilename()) <= 0,
+                "tree out of order at " + i);
+        }
+    }
+
+    private static void assertSizesMatchContents(Workspace workspace) {
+        assertEquals(workspace.getFileList().getSize(), workspace.getFileList().getAllFiles().size(), "list size");
+        assertEquals(workspace.getFileStack().getSize(), workspace.getFileStack().getAllFiles().size(), "stack size");
+        assertEquals(workspace.getFileQueue().getSize(), workspace.getFileQueue().getAllFiles().size(), "queue size");
+        assertEquals(workspace.getFileArray().getSize(), workspace.getFileArray().getAllFiles().size(), "array size");
+        assertEquals(workspace.getBinaryTree().getSize(), workspace.getBinaryTree().getAllFiles().size(), "tree size");
+    }
+
+    private static void assertSameState(Workspace live, Workspace restored, int round) {
+        String where = "round " + round + ": ";
+        assertEquals(ids(live.getFileList().getAllFiles()), ids(restored.getFileList().getAllFiles()), where + "list");
+        assertEquals(ids(live.getFileStack().getAllFiles()), ids(restored.getFileStack().getAllFiles()), where + "stack");
+        assertEquals(ids(live.getFileQueue().getAllFiles()), ids(restored.getFileQueue().getAllFiles()), where + "queue");
+        assertEquals(ids(live.getFileArray().getAllFiles()), ids(restored.getFileArray().getAllFiles()), where + "array");
+        assertEquals(ids(live.getBinaryTree().getAllFiles()), ids(restored.getBinaryTree().getAllFiles()), where + "tree");
+        assertEquals(live.fileCount(), restored.fileCount(), where + "records");
+    }
+
+    private static List<String> ids(List<StoredFile> files) {
+        return files.stream().map(StoredFile::getId).toList();
+    }
+
+    private static StoredFile file(String name) {
+        return new StoredFile(name, "text/plain", 1, null);
+    }
+}
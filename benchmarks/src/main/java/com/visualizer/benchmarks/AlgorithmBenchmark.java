@@ -0,0 +1,111 @@
+package com.visualizer.benchmarks;
+
+import com.visualizer.model.Graph;
+import com.visualizer.service.AlgorithmService;
+import com.visualizer.service.PackedTrace;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Regression suite for the {@link AlgorithmService} entry points the
+ * controllers call, steps included: sort, the four searches, and BFS,
+ * Dijkstra and A* on a road grid of {@code size} nodes. Searches look for
+ * the last element so linear and jump search do their full walk.
+ * <pre>
+ *   java -jar target/benchmarks.jar AlgorithmBenchmark
+ * </pre>
+ * {@link SortPathBenchmark} and {@link PathfindingBenchmark} compare
+ * alternative implementations of the sort and pathfinding cores.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AlgorithmBenchmark {
+
+    @Param({"1000", "10000"})
+    public int size;
+
+    private final AlgorithmService service = new AlgorithmService();
+
+    private int[] unsorted;
+    private List<Integer> sorted;
+    private int target;
+
+    private Graph graph;
+    private String start;
+    private String end;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        unsorted = new int[size];
+        sorted = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            unsorted[i] = random.nextInt(size * 10);
+            sorted.add(i * 3);
+        }
+        target = sorted.get(size - 1);
+
+        graph = RoadGraphs.grid(size, 42L);
+        start = RoadGraphs.id(0);
+        end = RoadGraphs.id(size - 1);
+    }
+
+    @Benchmark
+    public List<Map<String, Object>> quickSort() {
+        List<Integer> array = new ArrayList<>(size);
+        for (int value : unsorted) {
+            array.add(value);
+        }
+        return service.sort("quick", array);
+    }
+
+    @Benchmark
+    public PackedTrace quickSortPrimitive() {
+        return service.sort("quick", Arrays.copyOf(unsorted, size));
+    }
+
+    @Benchmark
+    public Map<String, Object> linearSearch() {
+        return service.search("linear", sorted, target);
+    }
+
+    @Benchmark
+    public Map<String, Object> binarySearch() {
+        return service.search("binary", sorted, target);
+    }
+
+    @Benchmark
+    public Map<String, Object> jumpSearch() {
+        return service.search("jump", sorted, target);
+    }
+
+    @Benchmark
+    public Map<String, Object> interpolationSearch() {
+        return service.search("interpolation", sorted, target);
+    }
+
+    @Benchmark
+    public List<AlgorithmService.AlgorithmStep> bfs() {
+        return service.bfs(graph, start);
+    }
+
+    @Benchmark
+    public List<AlgorithmService.AlgorithmStep> dijkstra() {
+        return service.dijkstra(graph, start, end);
+    }
+
+    @Benchmark
+    public List<AlgorithmService.AlgorithmStep> aStar() {
+        return service.aStar(graph, start, end);
+    }
+}
@@ -0,0 +1,64 @@
+package com.visualizer.benchmarks;
+
+import com.visualizer.model.FileArray;
+import com.visualizer.model.StoredFile;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Edits at a cursor in the middle of a {@code size}-file array, in each
+ * mode: an insert at the cursor then a delete of what was inserted, as
+ * typing and backspacing would. CONTIGUOUS shifts half the array both
+ * times; GAP_BUFFER finds the gap already there. Also a million appends
+ * onto an array of ten slots, which doubles as it fills:
+ * <pre>
+ *   java -jar target/benchmarks.jar ArrayModeBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ArrayModeBenchmark {
+
+    private static final int APPENDS = 1_000_000;
+
+    @Param({"CONTIGUOUS", "GAP_BUFFER"})
+    public FileArray.Mode mode;
+
+    @Param({"1000", "100000"})
+    public int size;
+
+    private FileArray array;
+    private StoredFile file;
+    private int cursor;
+
+    @Setup
+    public void setUp() {
+        array = Structures.array(size, size + 1);
+        array.setMode(mode);
+        file = Structures.file(size);
+        cursor = size / 2;
+    }
+
+    @Benchmark
+    public List<FileArray.VisualizationStep> insertDeleteAtCursor() {
+        array.insert(file, cursor, false);
+        return array.delete(cursor, false);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(APPENDS)
+    public FileArray appendGrowing() {
+        FileArray growing = new FileArray(10);
+        growing.setMode(mode);
+        for (int i = 0; i < APPENDS; i++) {
+            growing.insert(file, i, false);
+        }
+        return growing;
+    }
+}
@@ -0,0 +1,75 @@
+package com.visualizer.benchmarks;
+
+import com.visualizer.model.FileBPlusTree;
+import com.visualizer.model.StoredFile;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The disk-backed {@link FileBPlusTree} holding {@code size} files (a million
+ * by default) in a temporary page file: looking up a random name, inserting
+ * a name and deleting it again, and scanning 100 names from a random one.
+ * {@code bufferPages} is the LRU pool in front of the mapped pages; the small
+ * pool holds a fraction of the leaves, the large one all of them:
+ * <pre>
+ *   java -jar target/benchmarks.jar BPlusTreeBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BPlusTreeBenchmark {
+
+    @Param({"1000000"})
+    public int size;
+
+    @Param({"512", "16384"})
+    public int bufferPages;
+
+    private Path directory;
+    private FileBPlusTree tree;
+    private StoredFile extra;
+
+    @Setup
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("bptree-bench");
+        tree = new FileBPlusTree(directory.resolve("index.db"), bufferPages);
+        for (int i = 0; i < size; i++) {
+            tree.insert(Structures.file(i), false);
+        }
+        extra = Structures.file(size / 2);
+        extra.setFilename(extra.getFilename() + ".new");
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        tree.close();
+        Files.deleteIfExists(directory.resolve("index.db"));
+        Files.deleteIfExists(directory);
+    }
+
+    @Benchmark
+    public List<FileBPlusTree.VisualizationStep> search() {
+        return tree.search(Structures.filename(ThreadLocalRandom.current().nextInt(size)), false);
+    }
+
+    @Benchmark
+    public List<FileBPlusTree.VisualizationStep> insertDelete() {
+        tree.insert(extra, false);
+        return tree.delete(extra.getFilename(), false);
+    }
+
+    @Benchmark
+    public List<StoredFile> range100() {
+        return tree.scan(Structures.filename(ThreadLocalRandom.current().nextInt(size)), null, 100);
+    }
+}
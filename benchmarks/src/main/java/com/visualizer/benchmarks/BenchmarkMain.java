@@ -0,0 +1,36 @@
+package com.visualizer.benchmarks;
+
+import java.io.File;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Entry point of {@code benchmarks.jar}: JMH's own {@code Main}, except that
+ * results are also written as JSON to {@code results/jmh-<timestamp>.json}
+ * so two runs can be diffed or loaded side by side. Passing {@code -rf} or
+ * {@code -rff} yourself turns the default off.
+ */
+public final class BenchmarkMain {
+
+    private static final Set<String> LIST_OPTIONS = Set.of("-h", "-l", "-lp", "-lprof", "-lrf");
+
+    private BenchmarkMain() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        List<String> options = new ArrayList<>(List.of(args));
+        boolean listing = options.stream().anyMatch(LIST_OPTIONS::contains);
+        if (!listing && !options.contains("-rf") && !options.contains("-rff")) {
+            File dir = new File("results");
+            dir.mkdirs();
+            String stamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"));
+            String file = new File(dir, "jmh-" + stamp + ".json").getPath();
+            options.addAll(0, List.of("-rf", "json", "-rff", file));
+            System.out.println("# JSON results: " + file);
+        }
+        org.openjdk.jmh.Main.main(options.toArray(new String[0]));
+    }
+}
@@ -0,0 +1,156 @@
+package com.visualizer.benchmarks;
+
+import com.visualizer.model.FileBinaryTree;
+import com.visualizer.model.FileLinkedList;
+import com.visualizer.model.FileQueue;
+import com.visualizer.model.FileStack;
+import com.visualizer.model.StoredFile;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stress test and throughput of the shared file structures under concurrent
+ * requests: two pushers against two poppers on the array stack, two
+ * enqueuers against two dequeuers on the Michael-Scott queue, and three
+ * readers recording search traces against one writer on the read-write
+ * locked list and tree.
+ * <p>
+ * Readers fail the run if their trace is not their own (another call's steps
+ * mixed in or cleared away), and every iteration ends by checking the
+ * structure's invariants:
+ * <pre>
+ *   java -jar target/benchmarks.jar ConcurrencyBenchmark
+ * </pre>
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConcurrencyBenchmark {
+
+    @Param({"32"})
+    public int size;
+
+    private FileStack stack;
+    private FileQueue queue;
+    private FileLinkedList list;
+    private FileBinaryTree tree;
+
+    private StoredFile extra;
+    private String lastName;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        stack = new FileStack(1024);
+        queue = new FileQueue(1024);
+        list = Structures.linkedList(size);
+        tree = Structures.balancedTree(size);
+
+        extra = Structures.file(size);
+        lastName = Structures.filename(size - 1);
+    }
+
+    @TearDown(Level.Iteration)
+    public void checkInvariants() {
+        check(stack.getAllFiles().size() == stack.getSize() && stack.getSize() <= stack.getCapacity(),
+            "stack holds " + stack.getAllFiles().size() + " links but reports " + stack.getSize());
+        check(queue.getAllFiles().size() == queue.getSize() && queue.getSize() <= queue.getMaxSize(),
+            "queue holds " + queue.getAllFiles().size() + " links but counts " + queue.getSize());
+        check(list.getAllFiles().size() == list.getSize(),
+            "list holds " + list.getAllFiles().size() + " nodes but reports " + list.getSize());
+        check(list.find(lastName) != null, "list lost " + lastName);
+
+        List<StoredFile> inOrder = tree.getAllFiles();
+        check(inOrder.size() == tree.getSize(), "tree holds " + inOrder.size() + " nodes but reports " + tree.getSize());
+        for (int i = 1; i < inOrder.size(); i++) {
+            check(inOrder.get(i - 1).getFilename().compareTo(inOrder.get(i).getFilename()) <= 0,
+                "tree out of order at " + inOrder.get(i).getFilename());
+        }
+    }
+
+    @Benchmark
+    @Group("stack")
+    @GroupThreads(2)
+    public List<FileStack.VisualizationStep> push() {
+        return stack.push(extra, false);
+    }
+
+    @Benchmark
+    @Group("stack")
+    @GroupThreads(2)
+    public List<FileStack.VisualizationStep> pop() {
+        return stack.pop(false);
+    }
+
+    @Benchmark
+    @Group("queue")
+    @GroupThreads(2)
+    public List<FileQueue.VisualizationStep> enqueue() {
+        return queue.enqueue(extra, false);
+    }
+
+    @Benchmark
+    @Group("queue")
+    @GroupThreads(2)
+    public List<FileQueue.VisualizationStep> dequeue() {
+        return queue.dequeue(false);
+    }
+
+    @Benchmark
+    @Group("list")
+    @GroupThreads(3)
+    public List<FileLinkedList.VisualizationStep> listSearch() {
+        List<FileLinkedList.VisualizationStep> steps = list.search(lastName, true);
+        // START_SEARCH, one COMPARE per node up to the last original one, FOUND
+        check(steps.size() == size + 2
+                && steps.get(0).getOperation().equals("START_SEARCH")
+                && steps.get(steps.size() - 1).getOperation().equals("FOUND"),
+            "list search trace of " + steps.size() + " steps is not its own");
+        return steps;
+    }
+
+    @Benchmark
+    @Group("list")
+    @GroupThreads(1)
+    public List<FileLinkedList.VisualizationStep> listInsertDelete() {
+        list.insert(extra, false);
+        return list.delete(extra.getFilename(), false);
+    }
+
+    @Benchmark
+    @Group("tree")
+    @GroupThreads(3)
+    public List<FileBinaryTree.VisualizationStep> treeSearch() {
+        String target = Structures.filename(ThreadLocalRandom.current().nextInt(size));
+        List<FileBinaryTree.VisualizationStep> steps = tree.search(target, true);
+        String last = steps.get(steps.size() - 1).getOperation();
+        check(steps.get(0).getOperation().equals("START_SEARCH")
+                && (last.equals("FOUND") || last.equals("NOT_FOUND"))
+                && steps.stream().filter(s -> s.getOperation().equals("START_SEARCH")).count() == 1,
+            "tree search trace of " + steps.size() + " steps is not its own");
+        return steps;
+    }
+
+    @Benchmark
+    @Group("tree")
+    @GroupThreads(1)
+    public List<FileBinaryTree.VisualizationStep> treeInsert() {
+        // The tree cannot delete, so it is emptied now and then to stay small
+        if (tree.getSize() >= 4 * size) {
+            tree.clear();
+        }
+        String name = Structures.filename(ThreadLocalRandom.current().nextInt(size)) + ".new";
+        return tree.insert(new StoredFile(name, "text/plain", 2048L, "uploads/" + name), false);
+    }
+
+    private static void check(boolean ok, String message) {
+        if (!ok) {
+            throw new IllegalStateException(message);
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.visualizer.benchmarks;
+
+import com.visualizer.model.FileArray;
+import com.visualizer.model.FileBinaryTree;
+import com.visualizer.model.FileLinkedList;
+import com.visualizer.model.StoredFile;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One insert or search, steps included, on a file structure already holding
+ * {@code size} entries; {@code *NoExplain} runs the operation without step
+ * recording. Inserts are undone directly after each call so every invocation
+ * sees the same structure:
+ * <pre>
+ *   java -jar target/benchmarks.jar DataStructureBenchmark -prof gc
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DataStructureBenchmark {
+
+    @Param({"100", "1000"})
+    public int size;
+
+    private FileLinkedList list;
+    private FileArray array;
+    private FileBinaryTree tree;
+
+    private StoredFile extra;
+    private StoredFile treeExtra;
+    private String lastName;
+
+    @Setup
+    public void setUp() {
+        list = Structures.linkedList(size);
+        array = Structures.array(size, size + 1);
+        tree = Structures.balancedTree(size);
+
+        extra = Structures.file(size);
+        // Sorts just after an existing key, so it lands on a leaf mid-tree
+        String name = Structures.filename(size / 3) + ".new";
+        treeExtra = new StoredFile(name, "text/plain", 2048L, "uploads/" + name);
+        lastName = Structures.filename(size - 1);
+    }
+
+    @Benchmark
+    public List<FileLinkedList.VisualizationStep> linkedListInsert() {
+        List<FileLinkedList.VisualizationStep> steps = list.insert(extra);
+        list.delete(extra.getFilename(), false);
+        return steps;
+    }
+
+    @Benchmark
+    public List<FileLinkedList.VisualizationStep> linkedListSearch() {
+        return list.search(lastName);
+    }
+
+    @Benchmark
+    public List<FileLinkedList.VisualizationStep> linkedListInsertNoExplain() {
+        List<FileLinkedList.VisualizationStep> steps = list.insert(extra, false);
+        list.delete(extra.getFilename(), false);
+        return steps;
+    }
+
+    @Benchmark
+    public List<FileLinkedList.VisualizationStep> linkedListSearchNoExplain() {
+        return list.search(lastName, false);
+    }
+
+    @Benchmark
+    public List<FileArray.VisualizationStep> arrayAppend() {
+        List<FileArray.VisualizationStep> steps = array.insert(extra, size);
+        array.delete(size, false);
+        return steps;
+    }
+
+    @Benchmark
+    public List<FileArray.VisualizationStep> arrayInsertAtFront() {
+        List<FileArray.VisualizationStep> steps = array.insert(extra, 0);
+        array.delete(0, false);
+        return steps;
+    }
+
+    @Benchmark
+    public List<FileArray.VisualizationStep> arraySearch() {
+        return array.search(lastName);
+    }
+
+    @Benchmark
+    public List<FileArray.VisualizationStep> arrayInsertAtFrontNoExplain() {
+        List<FileArray.VisualizationStep> steps = array.insert(extra, 0, false);
+        array.delete(0, false);
+        return steps;
+    }
+
+    @Benchmark
+    public List<FileArray.VisualizationStep> arraySearchNoExplain() {
+        return array.search(lastName, false);
+    }
+
+    @Benchmark
+    public List<FileBinaryTree.VisualizationStep> treeInsert() {
+        List<FileBinaryTree.VisualizationStep> steps = tree.insert(treeExtra);
+        detachLeaf(tree, treeExtra.getFilename());
+        return steps;
+    }
+
+    @Benchmark
+    public List<FileBinaryTree.VisualizationStep> treeSearch() {
+        return tree.search(lastName);
+    }
+
+    @Benchmark
+    public List<FileBinaryTree.VisualizationStep> treeInsertNoExplain() {
+        List<FileBinaryTree.VisualizationStep> steps = tree.insert(treeExtra, false);
+        detachLeaf(tree, treeExtra.getFilename());
+        return steps;
+    }
+
+    @Benchmark
+    public List<FileBinaryTree.VisualizationStep> treeSearchNoExplain() {
+        return tree.search(lastName, false);
+    }
+
+    private static void detachLeaf(FileBinaryTree tree, String filename) {
+        FileBinaryTree.TreeNode parent = null;
+        FileBinaryTree.TreeNode node = tree.getRoot();
+        while (!node.getFile().getFilename().equals(filename)) {
+            parent = node;
+            node = filename.compareTo(node.getFile().getFilename()) < 0 ? node.getLeft() : node.getRight();
+        }
+        if (parent.getLeft() == node) parent.setLeft(null); else parent.setRight(null);
+        tree.setSize(tree.getSize() - 1);
+    }
+}
@@ -0,0 +1,111 @@
+package com.visualizer.benchmarks;
+
+import com.visualizer.model.StoredFile;
+import com.visualizer.model.Workspace;
+import com.visualizer.service.StructureJournal;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Startup cost of the structure journal: rebuilding a workspace of
+ * {@code entries} files from the journal alone ({@code replayJournal}) and
+ * from a compacted snapshot ({@code loadSnapshot}), plus the cost of
+ * journaling one change ({@code append}, unsynced, snapshotting an empty
+ * workspace every 1000 entries as the app does by default):
+ * <pre>
+ *   java -jar target/benchmarks.jar JournalBenchmark -prof gc
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JournalBenchmark {
+
+    @Param({"1000", "10000"})
+    public int entries;
+
+    private Path root;
+    private Path journalOnly;
+    private Path snapshotted;
+
+    private StructureJournal live;
+    private final Workspace empty = new Workspace();
+    private final StoredFile file = Structures.file(42);
+
+    @Setup
+    public void setUp() throws IOException {
+        root = Files.createTempDirectory("journal-bench");
+        journalOnly = root.resolve("journal-only");
+        snapshotted = root.resolve("snapshotted");
+
+        // Half the entries add to the list, half to the tree (in random order, so it stays shallow)
+        List<Integer> treeOrder = new ArrayList<>();
+        for (int i = 0; i < entries; i += 2) {
+            treeOrder.add(i);
+        }
+        Collections.shuffle(treeOrder, new Random(42));
+        for (Path dir : List.of(journalOnly, snapshotted)) {
+            try (StructureJournal journal = new StructureJournal(dir, Integer.MAX_VALUE, false)) {
+                journal.restore();
+                for (int i = 0; i < entries - treeOrder.size(); i++) {
+                    journal.append(StructureJournal.Op.LIST_ADD, Structures.file(i));
+                }
+                for (int i : treeOrder) {
+                    journal.append(StructureJournal.Op.TREE_INSERT, Structures.file(i));
+                }
+            }
+        }
+        try (StructureJournal journal = new StructureJournal(snapshotted, Integer.MAX_VALUE, false)) {
+            journal.snapshot(journal.restore());
+        }
+
+        live = new StructureJournal(root.resolve("live"), 1000, false);
+        live.restore();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        live.close();
+        try (Stream<Path> paths = Files.walk(root)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    @Benchmark
+    public Workspace replayJournal() throws IOException {
+        try (StructureJournal journal = new StructureJournal(journalOnly, Integer.MAX_VALUE, false)) {
+            return journal.restore();
+        }
+    }
+
+    @Benchmark
+    public Workspace loadSnapshot() throws IOException {
+        try (StructureJournal journal = new StructureJournal(snapshotted, Integer.MAX_VALUE, false)) {
+            return journal.restore();
+        }
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void append() throws IOException {
+        live.append(StructureJournal.Op.LIST_ADD, file);
+        if (live.snapshotDue()) {
+            live.snapshot(empty);
+        }
+    }
+}
@@ -0,0 +1,259 @@
+package com.visualizer.benchmarks;
+
+import com.visualizer.model.*;
+import com.visualizer.service.AlgorithmService;
+import java.util.*;
+
+/**
+ * Frozen copy of the HashMap/PriorityQueue based searches that AlgorithmService
+ * used before PathfindingEngine. Kept only as the "before" side of
+ * {@link PathfindingBenchmark}.
+ */
+public class LegacyPathfinding {
+    
+    public List<AlgorithmService.AlgorithmStep> dijkstra(Graph graph, String start, String end) {
+        List<AlgorithmService.AlgorithmStep> steps = new ArrayList<>();
+        GraphIndex index = graph.getIndex();
+        Map<String, Double> distances = new HashMap<>();
+        Map<String, String> previous = new HashMap<>();
+        PriorityQueue<NodeDistance> pq = new PriorityQueue<>();
+        Set<String> visited = new HashSet<>();
+        
+        // Initialize
+        for (int i = 0; i < index.size(); i++) {
+            distances.put(index.idOf(i), Double.POSITIVE_INFINITY);
+            previous.put(index.idOf(i), null);
+        }
+        distances.put(start, 0.0);
+        pq.offer(new NodeDistance(start, 0.0));
+        
+        steps.add(new AlgorithmService.AlgorithmStep("init", Map.of(
+            "start", start,
+            "end", end
+        )));
+        
+        while (!pq.isEmpty()) {
+            NodeDistance current = pq.poll();
+            String currentId = current.nodeId;
+            
+            if (visited.contains(currentId)) continue;
+            visited.add(currentId);
+            
+            steps.add(new AlgorithmService.AlgorithmStep("visit_node", Map.of(
+                "nodeId", currentId,
+                "distance", distances.get(currentId)
+            )));
+            
+            if (currentId.equals(end)) {
+                // Found target, reconstruct path
+                List<String> path = reconstructPath(previous, start, end);
+                steps.add(new AlgorithmService.AlgorithmStep("path_found", Map.of(
+                    "path", path,
+                    "distance", distances.get(end)
+                )));
+                break;
+            }
+            
+            // Check neighbors
+            Node node = graph.getNodes().get(currentId);
+            int u = index.indexOf(currentId);
+            if (node instanceof MapNode && u >= 0) {
+                for (int slot = index.start(u); slot < index.end(u); slot++) {
+                    String neighbor = index.idOf(index.target(slot));
+                    double edgeWeight = index.weight(slot);
+                    
+                    if (!visited.contains(neighbor)) {
+                        double newDist = distances.get(currentId) + edgeWeight;
+                        
+                        if (newDist < distances.get(neighbor)) {
+                            distances.put(neighbor, newDist);
+                            previous.put(neighbor, currentId);
+                            pq.offer(new NodeDistance(neighbor, newDist));
+                            
+                            steps.add(new AlgorithmService.AlgorithmStep("update_distance", Map.of(
+                                "nodeId", neighbor,
+                                "distance", newDist,
+                                "via", currentId
+                            )));
+                        }
+                    }
+                }
+            }
+        }
+        
+        return steps;
+    }
+    
+    public List<AlgorithmService.AlgorithmStep> aStar(Graph graph, String start, String end) {
+        List<AlgorithmService.AlgorithmStep> steps = new ArrayList<>();
+        Map<String, Double> gScore = new HashMap<>();
+        Map<String, Double> fScore = new HashMap<>();
+        Map<String, String> cameFrom = new HashMap<>();
+        PriorityQueue<NodeDistance> openSet = new PriorityQueue<>(
+            (a, b) -> Double.compare(fScore.get(a.nodeId), fScore.get(b.nodeId))
+        );
+        Set<String> openSetIds = new HashSet<>();
+        GraphIndex index = graph.getIndex();
+        
+        // Initialize
+        for (int i = 0; i < index.size(); i++) {
+            gScore.put(index.idOf(i), Double.POSITIVE_INFINITY);
+            fScore.put(index.idOf(i), Double.POSITIVE_INFINITY);
+        }
+        
+        gScore.put(start, 0.0);
+        fScore.put(start, heuristic(graph, start, end));
+        openSet.offer(new NodeDistance(start, fScore.get(start)));
+        openSetIds.add(start);
+        
+        steps.add(new AlgorithmService.AlgorithmStep("init", Map.of(
+            "start", start,
+            "end", end,
+            "algorithm", "A*"
+        )));
+        
+        while (!openSet.isEmpty()) {
+            NodeDistance current = openSet.poll();
+            String currentId = current.nodeId;
+            openSetIds.remove(currentId);
+            
+            steps.add(new AlgorithmService.AlgorithmStep("visit_node", Map.of(
+                "nodeId", currentId,
+                "gScore", gScore.get(currentId),
+                "fScore", fScore.get(currentId)
+            )));
+            
+            if (currentId.equals(end)) {
+                // Reconstruct path
+                List<String> path = reconstructPath(cameFrom, start, end);
+                steps.add(new AlgorithmService.AlgorithmStep("path_found", Map.of(
+                    "path", path,
+                    "distance", gScore.get(end)
+                )));
+                return steps;
+            }
+            
+            // Check neighbors
+            int u = index.indexOf(currentId);
+            if (u < 0) continue;
+            
+            for (int slot = index.start(u); slot < index.end(u); slot++) {
+                String neighbor = index.idOf(index.target(slot));
+                double tentativeGScore = gScore.get(currentId) + index.weight(slot);
+                
+                if (tentativeGScore < gScore.get(neighbor)) {
+                    cameFrom.put(neighbor, currentId);
+                    gScore.put(neighbor, tentativeGScore);
+                    fScore.put(neighbor, tentativeGScore + heuristic(graph, neighbor, end));
+                    
+                    if (!openSetIds.contains(neighbor)) {
+                        openSet.offer(new NodeDistance(neighbor, fScore.get(neighbor)));
+                        openSetIds.add(neighbor);
+                    }
+                    
+                    steps.add(new AlgorithmService.AlgorithmStep("update_scores", Map.of(
+                        "nodeId", neighbor,
+                        "gScore", tentativeGScore,
+                        "fScore", fScore.get(neighbor),
+                        "via", currentId
+                    )));
+                }
+            }
+        }
+        
+        steps.add(new AlgorithmService.AlgorithmStep("no_path", Map.of()));
+        return steps;
+    }
+    
+    public List<AlgorithmService.AlgorithmStep> bfs(Graph graph, String start) {
+        List<AlgorithmService.AlgorithmStep> steps = new ArrayList<>();
+        GraphIndex index = graph.getIndex();
+        Queue<String> queue = new LinkedList<>();
+        Set<String> visited = new HashSet<>();
+        Map<String, String> parent = new HashMap<>();
+        
+        queue.offer(start);
+        visited.add(start);
+        parent.put(start, null);
+        
+        steps.add(new AlgorithmService.AlgorithmStep("init", Map.of("start", start)));
+        
+        while (!queue.isEmpty()) {
+            String current = queue.poll();
+            
+            steps.add(new AlgorithmService.AlgorithmStep("visit_node", Map.of(
+                "nodeId", current,
+                "queueSize", queue.size()
+            )));
+            
+            // Find neighbors
+            int u = index.indexOf(current);
+            if (u < 0) continue;
+            
+            for (int slot = index.start(u); slot < index.end(u); slot++) {
+                String neighbor = index.idOf(index.target(slot));
+                
+                if (!visited.contains(neighbor)) {
+                    visited.add(neighbor);
+                    queue.offer(neighbor);
+                    parent.put(neighbor, current);
+                    
+                    steps.add(new AlgorithmService.AlgorithmStep("enqueue", Map.of(
+                        "nodeId", neighbor,
+                        "parent", current
+                    )));
+                }
+            }
+        }
+        
+        return steps;
+    }
+    
+    // Helper methods
+    private double heuristic(Graph graph, String from, String to) {
+        Node fromNode = graph.getNodes().get(from);
+        Node toNode = graph.getNodes().get(to);
+        
+        if (fromNode == null || toNode == null) {
+            return 0.0;
+        }
+        
+        // Euclidean distance heuristic
+        double dx = toNode.getX() - fromNode.getX();
+        double dy = toNode.getY() - fromNode.getY();
+        
+        return Math.sqrt(dx * dx + dy * dy);
+    }
+    
+    private List<String> reconstructPath(Map<String, String> cameFrom, String start, String end) {
+        List<String> path = new ArrayList<>();
+        String current = end;
+        
+        while (current != null) {
+            path.add(0, current); // Add to beginning
+            current = cameFrom.get(current);
+        }
+        
+        // Verify path starts from start node
+        if (!path.isEmpty() && !path.get(0).equals(start)) {
+            return new ArrayList<>(); // Invalid path
+        }
+        
+        return path;
+    }
+    
+    private static class NodeDistance implements Comparable<NodeDistance> {
+        String nodeId;
+        double distance;
+        
+        NodeDistance(String nodeId, double distance) {
+            this.nodeId = nodeId;
+            this.distance = distance;
+        }
+        
+        @Override
+        public int compareTo(NodeDistance other) {
+            return Double.compare(this.distance, other.distance);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.visualizer.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.visualizer.service.PackedTrace;
+import com.visualizer.service.SortSteps;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of shipping a sort trace as a JSON array of step maps versus the packed
+ * opcode encoding ({@code ?format=packed|binary}). Each benchmark serializes
+ * the trace of sorting {@code size} random integers; setup prints the sizes:
+ * <pre>
+ *   java -jar target/benchmarks.jar PackedTraceBenchmark -prof gc
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PackedTraceBenchmark {
+
+    @Param({"1000"})
+    public int size;
+
+    @Param({"bubble", "quick"})
+    public String algorithm;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private List<Map<String, Object>> steps;
+
+    @Setup
+    public void setUp() throws Exception {
+        Random random = new Random(42);
+        List<Integer> array = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            array.add(random.nextInt(size * 10));
+        }
+        steps = new ArrayList<>();
+        SortSteps.iterator(algorithm, array).forEachRemaining(steps::add);
+
+        PackedTrace trace = PackedTrace.of(steps);
+        System.out.printf("%n[%s, %d elements] %,d steps: json %,d bytes, binary %,d bytes, base64 %,d bytes%n",
+            algorithm, size, steps.size(),
+            objectMapper.writeValueAsBytes(steps).length,
+            trace.byteSize(),
+            trace.toBase64().length());
+    }
+
+    @Benchmark
+    public byte[] json() throws Exception {
+        return objectMapper.writeValueAsBytes(steps);
+    }
+
+    @Benchmark
+    public byte[] packedBinary() {
+        return PackedTrace.of(steps).toBytes();
+    }
+
+    @Benchmark
+    public String packedBase64() {
+        return PackedTrace.of(steps).toBase64();
+    }
+}
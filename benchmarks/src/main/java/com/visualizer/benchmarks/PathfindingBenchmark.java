@@ -0,0 +1,84 @@
+package com.visualizer.benchmarks;
+
+import com.visualizer.model.Graph;
+import com.visualizer.model.GraphIndex;
+import com.visualizer.service.AlgorithmService;
+import com.visualizer.service.PathfindingEngine;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Before/after comparison for the pathfinding core. Run with the GC profiler
+ * to see allocation per search:
+ * <pre>
+ *   java -jar target/benchmarks.jar PathfindingBenchmark -prof gc
+ * </pre>
+ * {@code gc.alloc.rate.norm} is bytes allocated per search. The {@code legacy*}
+ * methods run the old HashMap/boxed-PriorityQueue implementation, the
+ * {@code service*} methods the String-id adapter, and {@code engine*} the
+ * primitive core without step recording.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PathfindingBenchmark {
+
+    @Param({"1000", "10000"})
+    public int nodes;
+
+    private Graph graph;
+    private GraphIndex index;
+    private String start;
+    private String end;
+    private int source;
+    private int target;
+
+    private final LegacyPathfinding legacy = new LegacyPathfinding();
+    private final AlgorithmService service = new AlgorithmService();
+    private final PathfindingEngine engine = new PathfindingEngine();
+
+    @Setup
+    public void setUp() {
+        graph = RoadGraphs.grid(nodes, 42L);
+        index = graph.getIndex();
+        start = RoadGraphs.id(0);
+        end = RoadGraphs.id(nodes - 1);
+        source = index.indexOf(start);
+        target = index.indexOf(end);
+    }
+
+    @Benchmark
+    public List<AlgorithmService.AlgorithmStep> legacyDijkstra() {
+        return legacy.dijkstra(graph, start, end);
+    }
+
+    @Benchmark
+    public List<AlgorithmService.AlgorithmStep> serviceDijkstra() {
+        return service.dijkstra(graph, start, end);
+    }
+
+    @Benchmark
+    public PathfindingEngine.SearchResult engineDijkstra() {
+        return engine.dijkstra(index, source, target, null);
+    }
+
+    @Benchmark
+    public List<AlgorithmService.AlgorithmStep> legacyAStar() {
+        return legacy.aStar(graph, start, end);
+    }
+
+    @Benchmark
+    public List<AlgorithmService.AlgorithmStep> serviceAStar() {
+        return service.aStar(graph, start, end);
+    }
+
+    @Benchmark
+    public PathfindingEngine.SearchResult engineAStar() {
+        return engine.aStar(index, source, target, null);
+    }
+}
@@ -0,0 +1,50 @@
+package com.visualizer.benchmarks;
+
+import com.visualizer.model.FileQueue;
+import com.visualizer.model.StoredFile;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One explained enqueue and dequeue on a queue holding {@code size} files,
+ * in each storage mode. Every step carries a snapshot of the queue: LINKED
+ * copies the nodes into it, RING hands out a view of the slots:
+ * <pre>
+ *   java -jar target/benchmarks.jar QueueModeBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QueueModeBenchmark {
+
+    @Param({"LINKED", "RING"})
+    public FileQueue.Mode mode;
+
+    @Param({"10", "1000"})
+    public int size;
+
+    private FileQueue queue;
+    private StoredFile file;
+
+    @Setup
+    public void setUp() {
+        queue = new FileQueue(size + 1);
+        queue.setMode(mode);
+        for (int i = 0; i < size; i++) {
+            queue.enqueue(Structures.file(i), false);
+        }
+        file = Structures.file(size);
+    }
+
+    @Benchmark
+    public void enqueueDequeue(Blackhole blackhole) {
+        blackhole.consume(queue.enqueue(file, true));
+        blackhole.consume(queue.dequeue(true));
+    }
+}
@@ -0,0 +1,55 @@
+package com.visualizer.benchmarks;
+
+import com.visualizer.model.Graph;
+import com.visualizer.model.MapEdge;
+import com.visualizer.model.MapNode;
+
+import java.util.Random;
+
+/**
+ * Synthetic road networks for the pathfinding benchmarks: a square grid of
+ * {@link MapNode}s with jittered weights plus a few random shortcuts, so
+ * searches behave like they do on the province maps, just larger.
+ */
+public final class RoadGraphs {
+
+    private RoadGraphs() {
+    }
+
+    public static Graph grid(int nodeCount, long seed) {
+        Random rand = new Random(seed);
+        int side = (int) Math.ceil(Math.sqrt(nodeCount));
+        Graph graph = new Graph();
+
+        for (int i = 0; i < nodeCount; i++) {
+            double x = (i % side) * 10.0;
+            double y = (i / side) * 10.0;
+            graph.addNode(new MapNode(id(i), "Town " + i, x, y, -29.0 + y / 1000, 30.0 + x / 1000, "Town " + i));
+        }
+
+        int edgeId = 0;
+        for (int i = 0; i < nodeCount; i++) {
+            int right = i + 1;
+            int down = i + side;
+            if (right % side != 0 && right < nodeCount) {
+                graph.addEdge(road(edgeId++, i, right, rand));
+            }
+            if (down < nodeCount) {
+                graph.addEdge(road(edgeId++, i, down, rand));
+            }
+        }
+        for (int i = 0; i < nodeCount / 20; i++) {
+            graph.addEdge(road(edgeId++, rand.nextInt(nodeCount), rand.nextInt(nodeCount), rand));
+        }
+        return graph;
+    }
+
+    public static String id(int i) {
+        return "n" + i;
+    }
+
+    private static MapEdge road(int id, int from, int to, Random rand) {
+        double km = 10.0 + rand.nextDouble() * 5.0;
+        return new MapEdge("e" + id, id(from), id(to), km, km, (int) km, "R" + id);
+    }
+}
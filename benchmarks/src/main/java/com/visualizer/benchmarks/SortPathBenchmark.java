@@ -0,0 +1,66 @@
+package com.visualizer.benchmarks;
+
+import com.visualizer.service.AlgorithmService;
+import com.visualizer.service.PackedTrace;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sorting with step recording on the boxed {@code List<Integer>} path
+ * (one {@code Map} per step) versus the primitive {@code int[]} path
+ * (steps packed into an {@code int[]} log).
+ * <p>
+ * Quick sort is the default because it is the only one that records a
+ * tractable number of steps at 100k; the quadratic sorts can be run at
+ * smaller sizes:
+ * <pre>
+ *   java -jar target/benchmarks.jar SortPathBenchmark -prof gc
+ *   java -jar target/benchmarks.jar SortPathBenchmark -p algorithm=insertion,selection,bubble -p size=1000
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SortPathBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int size;
+
+    @Param({"quick"})
+    public String algorithm;
+
+    private final AlgorithmService algorithmService = new AlgorithmService();
+    private int[] input;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        input = new int[size];
+        for (int i = 0; i < size; i++) {
+            input[i] = random.nextInt(size * 10);
+        }
+    }
+
+    @Benchmark
+    public List<Map<String, Object>> boxedList() {
+        List<Integer> array = new ArrayList<>(size);
+        for (int value : input) {
+            array.add(value);
+        }
+        return algorithmService.sort(algorithm, array);
+    }
+
+    @Benchmark
+    public PackedTrace primitive() {
+        return algorithmService.sort(algorithm, Arrays.copyOf(input, size));
+    }
+}
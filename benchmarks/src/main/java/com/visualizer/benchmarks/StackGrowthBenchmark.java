@@ -0,0 +1,49 @@
+package com.visualizer.benchmarks;
+
+import com.visualizer.model.FileStack;
+import com.visualizer.model.StoredFile;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A million pushes onto a stack that starts with ten slots, then a million
+ * pops, for each growth factor. The array is copied about log(n) times each
+ * way, so the cost per operation stays flat as the stack grows:
+ * <pre>
+ *   java -jar target/benchmarks.jar StackGrowthBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StackGrowthBenchmark {
+
+    private static final int OPERATIONS = 1_000_000;
+
+    @Param({"1.5", "2.0"})
+    public double growthFactor;
+
+    private StoredFile file;
+
+    @Setup
+    public void setUp() {
+        file = Structures.file(0);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(2 * OPERATIONS)
+    public void pushThenPop(Blackhole blackhole) {
+        FileStack stack = new FileStack(FileStack.DEFAULT_INITIAL_CAPACITY, growthFactor);
+        for (int i = 0; i < OPERATIONS; i++) {
+            blackhole.consume(stack.push(file, false));
+        }
+        for (int i = 0; i < OPERATIONS; i++) {
+            blackhole.consume(stack.pop(false));
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.visualizer.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.visualizer.model.FileArray;
+import com.visualizer.model.FileBinaryTree;
+import com.visualizer.model.FileLinkedList;
+import com.visualizer.service.StepEncoder;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Serialization cost of one playback in {@code full} versus {@code delta}
+ * step encoding. Each benchmark encodes and serializes every message of an
+ * operation on a structure with {@code size} entries, the way the controllers
+ * do, and returns the payload bytes. Setup prints the per-playback totals:
+ * <pre>
+ *   java -jar target/benchmarks.jar StepEncodingBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StepEncodingBenchmark {
+
+    @Param({"100", "1000"})
+    public int size;
+
+    @Param({"full", "delta"})
+    public String encoding;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private StepEncoder encoder;
+
+    private List<FileLinkedList.VisualizationStep> listInsert;
+    private List<FileLinkedList.VisualizationStep> listSearch;
+    private List<FileArray.VisualizationStep> arrayInsert;
+    private List<FileBinaryTree.VisualizationStep> treeInsert;
+
+    @Setup
+    public void setUp() throws Exception {
+        encoder = new StepEncoder(encoding, 50);
+
+        FileLinkedList list = Structures.linkedList(size);
+        FileArray array = Structures.array(size, size + 1);
+        FileBinaryTree tree = Structures.balancedTree(size);
+        // search() hands back the list's shared step buffer, which insert() reuses
+        listSearch = new ArrayList<>(list.search(Structures.filename(size - 1)));
+        listInsert = list.insert(Structures.file(size));
+        arrayInsert = array.insert(Structures.file(size), 0);
+        treeInsert = tree.insert(Structures.file(size));
+
+        System.out.printf("%n[%s, %d entries] list insert: %d steps, %,d bytes; list search: %d steps, %,d bytes; array insert at 0: %d steps, %,d bytes; tree insert: %d steps, %,d bytes%n",
+            encoding, size,
+            listInsert.size(), encodeList(listInsert),
+            listSearch.size(), encodeList(listSearch),
+            arrayInsert.size(), encodeArray(arrayInsert),
+            treeInsert.size(), encodeTree(treeInsert));
+    }
+
+    @Benchmark
+    public long linkedListInsert() throws Exception {
+        return encodeList(listInsert);
+    }
+
+    @Benchmark
+    public long linkedListSearch() throws Exception {
+        return encodeList(listSearch);
+    }
+
+    @Benchmark
+    public long arrayInsertAtFront() throws Exception {
+        return encodeArray(arrayInsert);
+    }
+
+    @Benchmark
+    public long treeInsert() throws Exception {
+        return encodeTree(treeInsert);
+    }
+
+    private long encodeList(List<FileLinkedList.VisualizationStep> steps) throws Exception {
+        StepEncoder.Stream<FileLinkedList.NodeSnapshot> stream = encoder.stream(null, "nodes", "nodeId", FileLinkedList.NodeSnapshot::getNodeId);
+        return encode(steps, step -> {
+            Map<String, Object> message = new HashMap<>();
+            message.put("operation", step.getOperation());
+            message.put("description", step.getDescription());
+            message.put("highlightedNodeId", step.getHighlightedNodeId());
+            message.put("metadata", step.getMetadata());
+            return stream.encode(message, step.getCurrentState());
+        });
+    }
+
+    private long encodeArray(List<FileArray.VisualizationStep> steps) throws Exception {
+        StepEncoder.Stream<FileArray.ElementSnapshot> stream = encoder.stream(null, "elements", "elementId", FileArray.ElementSnapshot::getElementId);
+        return encode(steps, step -> {
+            Map<String, Object> message = new HashMap<>();
+            message.put("operation", step.getOperation());
+            message.put("description", step.getDescription());
+            message.put("highlightedElementId", step.getHighlightedElementId());
+            message.put("metadata", step.getMetadata());
+            return stream.encode(message, step.getCurrentState());
+        });
+    }
+
+    private long encodeTree(List<FileBinaryTree.VisualizationStep> steps) throws Exception {
+        StepEncoder.Stream<FileBinaryTree.NodeSnapshot> stream = encoder.stream(null, "nodes", "nodeId", FileBinaryTree.NodeSnapshot::getNodeId);
+        return encode(steps, step -> {
+            Map<String, Object> message = new HashMap<>();
+            message.put("operation", step.getOperation());
+            message.put("description", step.getDescription());
+            message.put("highlightedNodeId", step.getHighlightedNodeId());
+            message.put("metadata", step.getMetadata());
+            return stream.encode(message, step.getCurrentState());
+        });
+    }
+
+    private <S> long encode(List<S> steps, Function<S, Map<String, Object>> toMessage) throws Exception {
+        long bytes = 0;
+        for (int i = 0; i < steps.size(); i++) {
+            Map<String, Object> message = toMessage.apply(steps.get(i));
+            message.put("stepNumber", i + 1);
+            message.put("totalSteps", steps.size());
+            bytes += objectMapper.writeValueAsBytes(message).length;
+        }
+        return bytes;
+    }
+}
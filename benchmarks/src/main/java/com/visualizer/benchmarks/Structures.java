@@ -0,0 +1,62 @@
+package com.visualizer.benchmarks;
+
+import com.visualizer.model.FileArray;
+import com.visualizer.model.FileBinaryTree;
+import com.visualizer.model.FileLinkedList;
+import com.visualizer.model.StoredFile;
+
+/**
+ * Pre-filled file structures for the data-structure benchmarks. They are
+ * built without step recording: {@code insert()} snapshots the whole
+ * structure per step, which makes building large fixtures quadratic or worse.
+ */
+public final class Structures {
+
+    private Structures() {
+    }
+
+    /** {@code file-0000042.txt}: zero-padded so filename order matches {@code i}. */
+    public static String filename(int i) {
+        return String.format("file-%07d.txt", i);
+    }
+
+    public static StoredFile file(int i) {
+        String name = filename(i);
+        return new StoredFile(name, "text/plain", 1024L + i, "uploads/" + name);
+    }
+
+    public static FileLinkedList linkedList(int size) {
+        FileLinkedList list = new FileLinkedList();
+        for (int i = 0; i < size; i++) {
+            list.insert(file(i), false);
+        }
+        return list;
+    }
+
+    public static FileArray array(int size, int capacity) {
+        FileArray array = new FileArray(capacity);
+        for (int i = 0; i < size; i++) {
+            array.insert(file(i), i, false);
+        }
+        return array;
+    }
+
+    /** A balanced BST over {@code file(0) .. file(size - 1)}. */
+    public static FileBinaryTree balancedTree(int size) {
+        FileBinaryTree tree = new FileBinaryTree();
+        tree.setRoot(subtree(0, size - 1));
+        tree.setSize(size);
+        return tree;
+    }
+
+    private static FileBinaryTree.TreeNode subtree(int low, int high) {
+        if (low > high) return null;
+        int mid = (low + high) >>> 1;
+        FileBinaryTree.TreeNode node = new FileBinaryTree.TreeNode(file(mid));
+        node.setLeft(subtree(low, mid - 1));
+        node.setRight(subtree(mid + 1, high));
+        node.setHeight(1 + Math.max(node.getLeft() != null ? node.getLeft().getHeight() : 0,
+            node.getRight() != null ? node.getRight().getHeight() : 0));
+        return node;
+    }
+}
@@ -0,0 +1,66 @@
+package com.visualizer.benchmarks;
+
+import com.visualizer.model.FileBinaryTree;
+import com.visualizer.model.StoredFile;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Uploads arriving in name order, as timestamped names do, under each tree
+ * mode: building the tree from {@code size} sorted inserts, and searching the
+ * last name in the result. A plain BST degrades into a list here; AVL and
+ * red-black stay logarithmic:
+ * <pre>
+ *   java -jar target/benchmarks.jar TreeModeBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TreeModeBenchmark {
+
+    @Param({"BST", "AVL", "RED_BLACK"})
+    public FileBinaryTree.Mode mode;
+
+    @Param({"1000", "10000"})
+    public int size;
+
+    private List<StoredFile> sorted;
+    private FileBinaryTree built;
+    private String lastName;
+
+    @Setup
+    public void setUp() {
+        sorted = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            sorted.add(Structures.file(i));
+        }
+        built = sortedInserts();
+        lastName = Structures.filename(size - 1);
+    }
+
+    @Benchmark
+    public FileBinaryTree sortedInsert() {
+        return sortedInserts();
+    }
+
+    @Benchmark
+    public List<FileBinaryTree.VisualizationStep> searchLast() {
+        return built.search(lastName, false);
+    }
+
+    private FileBinaryTree sortedInserts() {
+        FileBinaryTree tree = new FileBinaryTree();
+        tree.setMode(mode);
+        for (StoredFile file : sorted) {
+            tree.insert(file, false);
+        }
+        return tree;
+    }
+}
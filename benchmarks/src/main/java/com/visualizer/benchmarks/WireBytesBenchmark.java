@@ -0,0 +1,137 @@
+package com.visualizer.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import com.visualizer.model.FileBinaryTree;
+import com.visualizer.model.FileLinkedList;
+import com.visualizer.service.StepEncoder;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Deflater;
+
+/**
+ * Bytes on the wire for one explained operation on the linked-list and tree
+ * pages, the way {@code StepBroadcaster} sends it: delta-encoded steps,
+ * {@code stepsPerFrame} to a frame (1 is one message per step, as before
+ * coalescing), serialized as {@code format}, and with {@code deflate} run
+ * through one raw deflater with {@link Deflater#SYNC_FLUSH} per frame, as
+ * permessage-deflate does with context takeover. Each benchmark returns the
+ * bytes sent; setup prints them per operation:
+ * <pre>
+ *   java -jar target/benchmarks.jar WireBytesBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WireBytesBenchmark {
+
+    @Param({"1000"})
+    public int size;
+
+    @Param({"json", "cbor", "smile"})
+    public String format;
+
+    @Param({"1", "8"})
+    public int stepsPerFrame;
+
+    @Param({"false", "true"})
+    public boolean deflate;
+
+    private ObjectMapper mapper;
+
+    private List<Map<String, Object>> listInsert;
+    private List<Map<String, Object>> treeInsert;
+
+    @Setup
+    public void setUp() throws Exception {
+        mapper = switch (format) {
+            case "cbor" -> new CBORMapper();
+            case "smile" -> new SmileMapper();
+            default -> new ObjectMapper();
+        };
+        StepEncoder encoder = new StepEncoder("delta", 50);
+
+        StepEncoder.Stream<FileLinkedList.NodeSnapshot> listStream = encoder.stream(null, "nodes", "nodeId", FileLinkedList.NodeSnapshot::getNodeId);
+        List<FileLinkedList.VisualizationStep> listSteps = Structures.linkedList(size).insert(Structures.file(size));
+        listInsert = new ArrayList<>();
+        for (FileLinkedList.VisualizationStep step : listSteps) {
+            Map<String, Object> message = new HashMap<>();
+            message.put("stepNumber", listInsert.size() + 1);
+            message.put("totalSteps", listSteps.size());
+            message.put("operation", step.getOperation());
+            message.put("description", step.getDescription());
+            message.put("highlightedNodeId", step.getHighlightedNodeId());
+            message.put("metadata", step.getMetadata());
+            listInsert.add(listStream.encode(message, step.getCurrentState()));
+        }
+
+        StepEncoder.Stream<FileBinaryTree.NodeSnapshot> treeStream = encoder.stream(null, "nodes", "nodeId", FileBinaryTree.NodeSnapshot::getNodeId);
+        List<FileBinaryTree.VisualizationStep> treeSteps = Structures.balancedTree(size).insert(Structures.file(size));
+        treeInsert = new ArrayList<>();
+        for (FileBinaryTree.VisualizationStep step : treeSteps) {
+            Map<String, Object> message = new HashMap<>();
+            message.put("stepNumber", treeInsert.size() + 1);
+            message.put("totalSteps", treeSteps.size());
+            message.put("operation", step.getOperation());
+            message.put("description", step.getDescription());
+            message.put("highlightedNodeId", step.getHighlightedNodeId() != null ? step.getHighlightedNodeId() : "");
+            message.put("metadata", step.getMetadata());
+            message.put("version", step.getVersion());
+            treeInsert.add(treeStream.encode(message, step.getCurrentState()));
+        }
+
+        System.out.printf("%n[%s, %d per frame, deflate %s] list insert: %d steps, %,d bytes; tree insert: %d steps, %,d bytes%n",
+            format, stepsPerFrame, deflate,
+            listInsert.size(), send(listInsert),
+            treeInsert.size(), send(treeInsert));
+    }
+
+    @Benchmark
+    public long linkedListInsert() throws Exception {
+        return send(listInsert);
+    }
+
+    @Benchmark
+    public long treeInsert() throws Exception {
+        return send(treeInsert);
+    }
+
+    private long send(List<Map<String, Object>> steps) throws Exception {
+        Deflater deflater = deflate ? new Deflater(Deflater.DEFAULT_COMPRESSION, true) : null;
+        byte[] out = new byte[8192];
+        long bytes = 0;
+        try {
+            for (int from = 0; from < steps.size(); from += stepsPerFrame) {
+                List<Map<String, Object>> frameSteps = steps.subList(from, Math.min(from + stepsPerFrame, steps.size()));
+                byte[] payload = mapper.writeValueAsBytes(frameSteps.size() == 1 ? frameSteps.get(0) : frameSteps);
+                if (deflater == null) {
+                    bytes += payload.length;
+                    continue;
+                }
+                deflater.setInput(payload);
+                int n;
+                do {
+                    n = deflater.deflate(out, 0, out.length, Deflater.SYNC_FLUSH);
+                    bytes += n;
+                } while (n == out.length);
+                // permessage-deflate drops the 00 00 ff ff that ends each flushed block
+                bytes -= 4;
+            }
+        } finally {
+            if (deflater != null) {
+                deflater.end();
+            }
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,82 @@
+// Packed Trace Decoder - reads the compact sort/search step format
+//
+// The backend returns it for /api/algorithm/sort and /search with
+// ?format=packed (base64 in the JSON "trace" field) or ?format=binary (raw
+// bytes). Layout, little-endian: int32 magic "PTR1", int32 stepCount, then per
+// step a uint8 opcode followed by its int32 operands.
+// Decoded steps have the same shape as the JSON steps, e.g.
+// { type: 'compare', indices: [3, 4] }.
+class PackedTrace {
+    static MAGIC = 0x31525450;
+
+    // opcode -> [operand count, step builder]
+    static OPCODES = [
+        [2, (a, b) => ({ type: 'compare', indices: [a, b] })],
+        [2, (a, b) => ({ type: 'swap', indices: [a, b] })],
+        [2, (index, value) => ({ type: 'pivot', index, value })],
+        [1, (index) => ({ type: 'select', index })],
+        [2, (index, value) => ({ type: 'select', index, value })],
+        [2, (from, to) => ({ type: 'shift', from, to })],
+        [2, (index, value) => ({ type: 'insert', index, value })],
+        [1, (index) => ({ type: 'update_min', index })],
+        [2, (index, value) => ({ type: 'check', index, value })],
+        [1, (index) => ({ type: 'found', index })],
+        [3, (left, right, mid) => ({ type: 'range', left, right, mid })],
+        [2, (from, to) => ({ type: 'jump', from, to })],
+        [3, (position, low, high) => ({ type: 'interpolate', position, low, high })]
+    ];
+
+    // Accepts a base64 string, an ArrayBuffer or a typed array view
+    constructor(data) {
+        const bytes = typeof data === 'string' ? PackedTrace.fromBase64(data) : data;
+        this.view = ArrayBuffer.isView(bytes)
+            ? new DataView(bytes.buffer, bytes.byteOffset, bytes.byteLength)
+            : new DataView(bytes);
+
+        if (this.view.byteLength < 8 || this.view.getInt32(0, true) !== PackedTrace.MAGIC) {
+            throw new Error('Not a packed trace');
+        }
+        this.length = this.view.getInt32(4, true);
+    }
+
+    static fromBase64(text) {
+        const binary = atob(text);
+        const bytes = new Uint8Array(binary.length);
+        for (let i = 0; i < binary.length; i++) {
+            bytes[i] = binary.charCodeAt(i);
+        }
+        return bytes;
+    }
+
+    // Lazily yields steps so long traces can be animated without expanding them all
+    *steps() {
+        const view = this.view;
+        let offset = 8;
+        for (let n = 0; n < this.length; n++) {
+            const opcode = view.getUint8(offset++);
+            const entry = PackedTrace.OPCODES[opcode];
+            if (!entry) {
+                throw new Error(`Unknown opcode ${opcode} at byte ${offset - 1}`);
+            }
+            const [count, build] = entry;
+            const operands = new Array(count);
+            for (let k = 0; k < count; k++) {
+                operands[k] = view.getInt32(offset, true);
+                offset += 4;
+            }
+            yield build(...operands);
+        }
+    }
+
+    toArray() {
+        return Array.from(this.steps());
+    }
+
+    // Convenience: decode a ?format=packed response body in place
+    static decodeResponse(response) {
+        if (response && response.format === 'packed') {
+            response.steps = new PackedTrace(response.trace).toArray();
+        }
+        return response;
+    }
+}
@@ -69,6 +69,7 @@ class ArrayManager {
         document.getElementById('resize-btn')?.addEventListener('click', () => this.resizeArray());
         document.getElementById('clear-btn')?.addEventListener('click', () => this.clearArray());
         document.getElementById('refresh-btn')?.addEventListener('click', () => this.loadCurrentState());
+        document.getElementById('mode-select')?.addEventListener('change', (e) => this.setMode(e.target.value));
     }
 
     // ====== UPLOAD ZONE UI ======
@@ -103,7 +104,7 @@ class ArrayManager {
 
         this.showToast('📤 Inserting file...', 'info');
         try {
-            const res = await fetch(`${this.apiBaseUrl}/insert?index=${index}`, {
+            const res = await fetch(WorkspaceSession.url(`${this.apiBaseUrl}/insert?index=${index}`), {
                 method: 'POST',
                 body: formData
             });
@@ -126,7 +127,7 @@ class ArrayManager {
         if (!name) return this.showToast('⚠️ Enter a filename', 'warning');
         this.showToast(`🔍 Searching for '${name}'`, 'info');
 
-        const res = await fetch(`${this.apiBaseUrl}/search?filename=${encodeURIComponent(name)}`);
+        const res = await fetch(WorkspaceSession.url(`${this.apiBaseUrl}/search?filename=${encodeURIComponent(name)}`));
         const data = await res.json();
         if (data.success)
             this.showToast('🎉 Search visualization started', 'success');
@@ -136,7 +137,7 @@ class ArrayManager {
     async accessFile() {
         const index = document.getElementById('access-index').value || 0;
         this.showToast(`⚡ Accessing index ${index}`, 'info');
-        const res = await fetch(`${this.apiBaseUrl}/access?index=${index}`);
+        const res = await fetch(WorkspaceSession.url(`${this.apiBaseUrl}/access?index=${index}`));
         const data = await res.json();
         if (data.success) this.showToast('✅ Access started', 'success');
         else this.showToast(data.message, 'error');
@@ -145,7 +146,7 @@ class ArrayManager {
     async deleteFile() {
         const index = document.getElementById('delete-index').value || 0;
         this.showToast(`🗑️ Deleting at index ${index}`, 'info');
-        const res = await fetch(`${this.apiBaseUrl}/delete?index=${index}`, {
+        const res = await fetch(WorkspaceSession.url(`${this.apiBaseUrl}/delete?index=${index}`), {
             method: 'DELETE'
         });
         const data = await res.json();
@@ -156,21 +157,33 @@ class ArrayManager {
 
     async resizeArray() {
         const capacity = document.getElementById('capacity-input').value || 10;
-        await fetch(`${this.apiBaseUrl}/resize?capacity=${capacity}`, { method: 'POST' });
-        this.showToast(`♻️ Array resized to ${capacity}`, 'success');
+        const res = await fetch(WorkspaceSession.url(`${this.apiBaseUrl}/resize?capacity=${capacity}`), { method: 'POST' });
+        const data = await res.json();
+        if (data.success)
+            this.showToast(`♻️ Array resized to ${capacity}`, 'success');
+        else this.showToast(data.message, 'error');
+        setTimeout(() => this.loadCurrentState(), 2000);
+    }
+
+    async setMode(mode) {
+        const res = await fetch(
+            WorkspaceSession.url(`${this.apiBaseUrl}/mode?mode=${encodeURIComponent(mode)}`),
+            { method: 'POST' });
+        const data = await res.json();
+        this.showToast(data.message, data.success ? 'success' : 'error');
         this.loadCurrentState();
     }
 
     async clearArray() {
         if (!confirm('Clear all files from array?')) return;
-        await fetch(`${this.apiBaseUrl}/clear`, { method: 'DELETE' });
+        await fetch(WorkspaceSession.url(`${this.apiBaseUrl}/clear`), { method: 'DELETE' });
         this.showToast('🧹 Array cleared', 'success');
         this.loadCurrentState();
     }
 
     async loadCurrentState() {
         try {
-            const res = await fetch(`${this.apiBaseUrl}/state`);
+            const res = await fetch(WorkspaceSession.url(`${this.apiBaseUrl}/state`));
             const data = await res.json();
 
             document.getElementById('file-count').textContent = data.size ?? 0;
@@ -178,6 +191,11 @@ class ArrayManager {
             document.getElementById('free-slots').textContent =
                 (data.capacity ?? 10) - (data.size ?? 0);
 
+            const modeSelect = document.getElementById('mode-select');
+            if (modeSelect && data.mode) modeSelect.value = data.mode;
+            this.visualizer.gap = data.mode === 'GAP_BUFFER'
+                ? { start: data.gapStart, size: data.capacity - data.size } : null;
+
             if (data.isEmpty)
                 document.getElementById('empty-state')?.classList.remove('hidden');
             else
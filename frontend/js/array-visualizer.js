@@ -2,7 +2,9 @@ class ArrayVisualizer {
     constructor() {
         this.container = document.getElementById('array-elements');
         this.elements = [];
+        this.gap = null;   // { start, size } of the free slots in gap buffer mode
         this.animationQueue = [];
+        this.stepDecoder = new StepDecoder();
         this.isAnimating = false;
 
         this.initWebSocket();
@@ -15,9 +17,10 @@ class ArrayVisualizer {
 
         this.stompClient.connect({}, () => {
             console.log('✅ Connected to Array WebSocket');
-            this.stompClient.subscribe('/topic/array-visualization', (msg) => {
-                const step = JSON.parse(msg.body);
-                this.animationQueue.push(step);
+            this.stompClient.subscribe(WorkspaceSession.topic('/topic/array-visualization'), (msg) => {
+                const steps = this.stepDecoder.decodeFrame(JSON.parse(msg.body));
+                if (steps.length === 0) return;
+                this.animationQueue.push(...steps);
                 if (!this.isAnimating) this.processQueue();
             });
         }, (err) => {
@@ -40,6 +43,12 @@ class ArrayVisualizer {
     async animateStep(step) {
         this.updateOperationPanel(step);
         this.elements = step.elements || [];
+        const meta = step.metadata || {};
+        if (meta.capacity !== undefined) {
+            this.gap = meta.gapSize !== undefined ? { start: meta.gapStart, size: meta.gapSize } : null;
+            document.getElementById('array-capacity').textContent = meta.capacity;
+            document.getElementById('free-slots').textContent = meta.capacity - this.elements.length;
+        }
         this.render(step.highlightedElementId);
 
         const progress = document.getElementById('operation-progress');
@@ -76,6 +85,18 @@ class ArrayVisualizer {
 
     container.appendChild(card);
   });
+
+  // The free slots sit between the elements before and after the cursor
+  if (this.gap) {
+    const gap = document.createElement('div');
+    gap.className = 'array-card array-gap';
+    gap.innerHTML = `
+      <div class="array-pointer">CURSOR</div>
+      <div class="filename">GAP</div>
+      <div class="filesize">${this.gap.size} free slot${this.gap.size === 1 ? '' : 's'}</div>
+    `;
+    container.insertBefore(gap, container.children[this.gap.start] || null);
+  }
 }
 
     updateOperationPanel(step) {
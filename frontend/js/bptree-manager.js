@@ -0,0 +1,223 @@
+class BPlusTreeManager {
+    constructor(visualizer) {
+        this.visualizer = visualizer;
+        this.apiBaseUrl = 'http://localhost:8080/api/bptree';
+        this.selectedFile = null;
+        this.init();
+    }
+
+    init() {
+        this.setupEventListeners();
+        this.loadCurrentState();
+        this.setupCodeTabs();
+    }
+
+    // ====== EVENT LISTENERS ======
+    setupEventListeners() {
+        const uploadZone = document.getElementById('upload-zone');
+        const fileInput = document.getElementById('file-input');
+
+        if (!uploadZone || !fileInput) {
+            console.error('Upload elements missing!');
+            return;
+        }
+
+        // --- Click opens file dialog ---
+        uploadZone.addEventListener('click', () => fileInput.click());
+
+        // --- Drag over zone ---
+        uploadZone.addEventListener('dragover', (e) => {
+            e.preventDefault();
+            e.stopPropagation();
+            uploadZone.classList.add('drag-over');
+        });
+
+        // --- Drag leave zone ---
+        uploadZone.addEventListener('dragleave', (e) => {
+            e.preventDefault();
+            uploadZone.classList.remove('drag-over');
+        });
+
+        // --- Drop file into zone ---
+        uploadZone.addEventListener('drop', (e) => {
+            e.preventDefault();
+            e.stopPropagation();
+            uploadZone.classList.remove('drag-over');
+
+            const files = e.dataTransfer.files;
+            if (files && files.length > 0) {
+                this.selectedFile = files[0];
+                fileInput.files = files; // sync with hidden input
+                this.updateUploadZone(this.selectedFile.name);
+            }
+        });
+
+        // --- Manual input change ---
+        fileInput.addEventListener('change', (e) => {
+            const files = e.target.files;
+            if (files && files.length > 0) {
+                this.selectedFile = files[0];
+                this.updateUploadZone(this.selectedFile.name);
+            }
+        });
+
+        // --- Buttons ---
+        document.getElementById('insert-btn')?.addEventListener('click', () => this.insertFile());
+        document.getElementById('search-btn')?.addEventListener('click', () => this.searchFile());
+        document.getElementById('range-btn')?.addEventListener('click', () => this.rangeScan());
+        document.getElementById('delete-btn')?.addEventListener('click', () => this.deleteFile());
+        document.getElementById('clear-btn')?.addEventListener('click', () => this.clearIndex());
+        document.getElementById('refresh-btn')?.addEventListener('click', () => this.loadCurrentState());
+    }
+
+    // ====== UPLOAD ZONE UI ======
+    updateUploadZone(filename) {
+        const zone = document.getElementById('upload-zone');
+        zone.querySelector('.upload-content').innerHTML = `
+            <span class="upload-icon">✅</span>
+            <p><strong>${filename}</strong></p>
+            <small>Click to change file</small>
+        `;
+    }
+
+    resetUploadZone() {
+        const zone = document.getElementById('upload-zone');
+        zone.querySelector('.upload-content').innerHTML = `
+            <span class="upload-icon">📁</span>
+            <p>Click or drag file here</p>
+            <small>Max 10MB</small>
+        `;
+    }
+
+    // ====== INDEX OPERATIONS ======
+    async insertFile() {
+        if (!this.selectedFile) {
+            this.showToast('⚠️ Please select a file first', 'warning');
+            return;
+        }
+
+        const formData = new FormData();
+        formData.append('file', this.selectedFile);
+
+        this.showToast('📤 Inserting file...', 'info');
+        try {
+            const res = await fetch(WorkspaceSession.url(`${this.apiBaseUrl}/insert`), {
+                method: 'POST',
+                body: formData
+            });
+            const data = await res.json();
+            if (data.success) {
+                this.showToast('✅ Insert started', 'success');
+                this.selectedFile = null;
+                this.resetUploadZone();
+                setTimeout(() => this.loadCurrentState(), 2000);
+            } else {
+                this.showToast(data.message, 'error');
+            }
+        } catch (err) {
+            this.showToast('❌ Insert failed: ' + err.message, 'error');
+        }
+    }
+
+    async searchFile() {
+        const name = document.getElementById('search-input').value.trim();
+        if (!name) return this.showToast('⚠️ Enter a filename', 'warning');
+        this.showToast(`🔍 Searching for '${name}'`, 'info');
+
+        const res = await fetch(WorkspaceSession.url(`${this.apiBaseUrl}/search?filename=${encodeURIComponent(name)}`));
+        const data = await res.json();
+        if (data.success)
+            this.showToast('🎉 Search visualization started', 'success');
+        else this.showToast(data.message, 'error');
+    }
+
+    // Lists the names found and animates the leaf walk
+    async rangeScan() {
+        const from = document.getElementById('range-from').value.trim();
+        const to = document.getElementById('range-to').value.trim();
+        const query = `from=${encodeURIComponent(from)}&to=${encodeURIComponent(to)}&limit=50&explain=true`;
+
+        const res = await fetch(WorkspaceSession.url(`${this.apiBaseUrl}/range?${query}`));
+        const data = await res.json();
+        if (!data.success) return this.showToast(data.message, 'error');
+
+        const list = document.getElementById('range-results');
+        list.innerHTML = '';
+        data.files.forEach(file => {
+            const item = document.createElement('li');
+            item.textContent = file.filename;
+            list.appendChild(item);
+        });
+        this.showToast(`📚 ${data.count} files in range`, 'success');
+    }
+
+    async deleteFile() {
+        const name = document.getElementById('delete-input').value.trim();
+        if (!name) return this.showToast('⚠️ Enter a filename', 'warning');
+        this.showToast(`🗑️ Deleting '${name}'`, 'info');
+        const res = await fetch(WorkspaceSession.url(`${this.apiBaseUrl}/delete?filename=${encodeURIComponent(name)}`), {
+            method: 'DELETE'
+        });
+        const data = await res.json();
+        if (data.success) {
+            this.showToast('🧹 Delete visualization started', 'success');
+            setTimeout(() => this.loadCurrentState(), 2000);
+        } else this.showToast(data.message, 'error');
+    }
+
+    async clearIndex() {
+        if (!confirm('Clear all files from the B+ tree index?')) return;
+        await fetch(`${this.apiBaseUrl}/clear`, { method: 'DELETE' });
+        this.showToast('🧹 Index cleared', 'success');
+        this.loadCurrentState();
+    }
+
+    async loadCurrentState() {
+        try {
+            const res = await fetch(`${this.apiBaseUrl}/state`);
+            const data = await res.json();
+
+            document.getElementById('file-count').textContent = data.size ?? 0;
+            document.getElementById('tree-height').textContent = data.height ?? 1;
+            document.getElementById('page-count').textContent = data.pages ?? 0;
+            document.getElementById('cached-pages').textContent = data.cachedPages ?? 0;
+        } catch (err) {
+            console.error(err);
+            this.showToast('❌ Could not load state', 'error');
+        }
+    }
+
+    // ====== CODE PANEL ======
+    setupCodeTabs() {
+        const tabs = document.querySelectorAll('.code-tab');
+        const display = document.getElementById('code-display');
+        const snippets = {
+            insert: `// INSERT Operation\nleaf = descend(name);\nleaf.add(name, file);\nwhile (page.isFull())\n  parent.add(split(page));`,
+            search: `// SEARCH Operation\npage = root;\nwhile (!page.isLeaf())\n  page = page.child(name);\nreturn page.get(name);`,
+            range: `// RANGE Operation\nleaf = descend(from);\nwhile (leaf != null && key < to)\n  out.add(leaf.next());\n  leaf = leaf.nextLeaf;`,
+            delete: `// DELETE Operation\nleaf.remove(name);\nif (leaf.fill() < 25%)\n  canMerge ? merge(leaf, sibling)\n           : borrow(sibling);`
+        };
+
+        tabs.forEach(tab => {
+            tab.addEventListener('click', () => {
+                tabs.forEach(t => t.classList.remove('active'));
+                tab.classList.add('active');
+                const code = tab.getAttribute('data-code');
+                display.textContent = snippets[code] || '// Code not available';
+            });
+        });
+    }
+
+    // ====== TOAST NOTIFICATIONS ======
+    showToast(message, type = 'info') {
+        const toast = document.getElementById('toast');
+        const icon = document.getElementById('toast-icon');
+        const msg = document.getElementById('toast-message');
+        const icons = { info: 'ℹ️', success: '✅', warning: '⚠️', error: '❌' };
+        icon.textContent = icons[type] || 'ℹ️';
+        msg.textContent = message;
+
+        toast.classList.add('show');
+        setTimeout(() => toast.classList.remove('show'), 3000);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,131 @@
+class BPlusTreeVisualizer {
+    constructor() {
+        this.container = document.getElementById('bptree-levels');
+        this.pages = [];
+        this.animationQueue = [];
+        this.stepDecoder = new StepDecoder();
+        this.isAnimating = false;
+
+        this.initWebSocket();
+    }
+
+    // ====== WEBSOCKET ======
+    initWebSocket() {
+        const socket = new SockJS('http://localhost:8080/ws-visualization');
+        this.stompClient = Stomp.over(socket);
+
+        this.stompClient.connect({}, () => {
+            console.log('✅ Connected to B+ Tree WebSocket');
+            this.setConnection('connected', 'Connected');
+            this.stompClient.subscribe(WorkspaceSession.topic('/topic/bptree-visualization'), (msg) => {
+                const steps = this.stepDecoder.decodeFrame(JSON.parse(msg.body));
+                if (steps.length === 0) return;
+                this.animationQueue.push(...steps);
+                if (!this.isAnimating) this.processQueue();
+            });
+        }, (err) => {
+            console.error('❌ WebSocket connection failed:', err);
+            this.setConnection('disconnected', 'Reconnecting...');
+            setTimeout(() => this.initWebSocket(), 5000);
+        });
+    }
+
+    setConnection(state, text) {
+        const dot = document.getElementById('connection-indicator');
+        const label = document.getElementById('connection-text');
+        if (dot) dot.className = `status-dot ${state}`;
+        if (label) label.textContent = text;
+    }
+
+    // ====== STEP PROCESSING ======
+    async processQueue() {
+        this.isAnimating = true;
+        while (this.animationQueue.length > 0) {
+            const step = this.animationQueue.shift();
+            await this.animateStep(step);
+        }
+        this.isAnimating = false;
+    }
+
+    // ====== ANIMATION ======
+    async animateStep(step) {
+        this.updateOperationPanel(step);
+        this.pages = step.pages || [];
+        this.render(step.highlightedPageId);
+
+        const progress = document.getElementById('operation-progress');
+        if (progress && step.stepNumber)
+            progress.textContent = `Step ${step.stepNumber}/${step.totalSteps}`;
+
+        await this.sleep(800);
+    }
+
+    // One row per level, root on top; the server sends pages top level first, left to right
+    render(highlightId = null) {
+        this.container.innerHTML = '';
+        const empty = document.getElementById('empty-state');
+
+        if (!this.pages || this.pages.length === 0) {
+            empty.style.display = 'flex';
+            return;
+        }
+        empty.style.display = 'none';
+
+        let row = null;
+        let level = null;
+        this.pages.forEach(page => {
+            if (page.level !== level) {
+                level = page.level;
+                row = document.createElement('div');
+                row.className = 'bptree-level';
+                row.innerHTML = `<div class="bptree-level-label">${level === 0 ? 'Leaves' : 'Level ' + level}</div>`;
+                this.container.appendChild(row);
+            }
+            row.appendChild(this.pageCard(page, page.pageId === highlightId));
+        });
+    }
+
+    pageCard(page, highlighted) {
+        const card = document.createElement('div');
+        card.className = `bptree-page fade-in ${page.leaf ? 'leaf' : 'internal'}${highlighted ? ' highlighted' : ''}`;
+
+        // Long pages show their first and last keys only
+        const keys = page.keys.length > 8
+            ? [...page.keys.slice(0, 4), `… ${page.keys.length - 7} more …`, ...page.keys.slice(-3)]
+            : page.keys;
+        const links = page.leaf
+            ? (page.nextId ? `next → page ${page.nextId}` : 'last leaf')
+            : `${page.childIds.length} children`;
+
+        card.innerHTML = `
+            <div class="bptree-page-header">
+                <span>Page ${page.pageId}</span>
+                <span>${page.fill}% full</span>
+            </div>
+            <div class="bptree-fill"><div style="width: ${Math.min(100, page.fill)}%"></div></div>
+            <ul class="bptree-keys">${keys.map(k => `<li>${this.escape(k)}</li>`).join('') || '<li class="muted">(empty)</li>'}</ul>
+            <div class="bptree-links">${links}</div>
+        `;
+        return card;
+    }
+
+    escape(text) {
+        const div = document.createElement('div');
+        div.textContent = text;
+        return div.innerHTML;
+    }
+
+    updateOperationPanel(step) {
+        const desc = document.getElementById('operation-description');
+        if (!desc) return;
+
+        desc.innerHTML = `
+            <div class="operation-badge">${step.operation}</div>
+            <p>${this.escape(step.description)}</p>
+        `;
+    }
+
+    sleep(ms) {
+        return new Promise(resolve => setTimeout(resolve, ms));
+    }
+}
@@ -0,0 +1,85 @@
+// Step Decoder - rebuilds full visualization steps from delta-encoded messages
+//
+// Steps due within one animation tick arrive together as a JSON array; use
+// decodeFrame() on each message.
+//
+// With visualization.step-encoding=delta the server sends one keyframe with the
+// whole snapshot list, then only what changed: added/changed/removed entries
+// keyed by id, plus the new id order when it is not a plain append. Steps sent
+// in full mode (no "encoding" field) pass straight through.
+class StepDecoder {
+    constructor() {
+        this.entries = new Map();   // id -> snapshot
+        this.order = [];            // ids in structure order
+        this.frame = null;
+        this.idField = null;
+    }
+
+    // A message is one step, or an array of the steps the server coalesced
+    // into one animation tick; returns the decoded steps in order
+    decodeFrame(message) {
+        const steps = Array.isArray(message) ? message : [message];
+        return steps.map(step => this.decode(step)).filter(step => step !== null);
+    }
+
+    // Returns the step with its snapshot list filled in, or null when a delta
+    // arrives without the frame it builds on (we wait for the next keyframe)
+    decode(step) {
+        if (!step.encoding) {
+            return step;
+        }
+
+        const key = step.stateKey || 'nodes';
+
+        if (step.encoding === 'keyframe') {
+            this.loadKeyframe(step[key], step.idField);
+        } else if (step.encoding === 'delta') {
+            if (this.frame === null || step.base !== this.frame) {
+                console.warn(`Skipping delta frame ${step.frame}: missing base ${step.base}`);
+                this.frame = null;
+                return null;
+            }
+            this.applyDelta(step.delta || {});
+        } else {
+            console.warn('Unknown step encoding:', step.encoding);
+            return null;
+        }
+
+        this.frame = step.frame;
+        step[key] = this.order.map(id => ({ ...this.entries.get(id) }));
+        return step;
+    }
+
+    loadKeyframe(snapshots, idField) {
+        this.entries.clear();
+        this.order = [];
+        this.idField = idField;
+
+        snapshots.forEach(snapshot => {
+            const id = String(snapshot[this.idField]);
+            this.entries.set(id, { ...snapshot });
+            this.order.push(id);
+        });
+    }
+
+    applyDelta(delta) {
+        (delta.removed || []).forEach(id => this.entries.delete(id));
+
+        Object.entries(delta.changed || {}).forEach(([id, fields]) => {
+            this.entries.set(id, { ...this.entries.get(id), ...fields });
+        });
+
+        const added = delta.added || [];
+        added.forEach(snapshot => {
+            this.entries.set(String(snapshot[this.idField]), { ...snapshot });
+        });
+
+        if (delta.order) {
+            this.order = delta.order.slice();
+        } else {
+            // Plain append: surviving ids keep their place, new ones go last
+            this.order = this.order.filter(id => this.entries.has(id));
+            added.forEach(snapshot => this.order.push(String(snapshot[this.idField])));
+        }
+    }
+}
@@ -80,7 +80,8 @@ class WebSocketHandler {
         const subscription = this.stompClient.subscribe(topic, (message) => {
             try {
                 const data = JSON.parse(message.body);
-                callback(data);
+                // Steps coalesced into one frame arrive as an array
+                (Array.isArray(data) ? data : [data]).forEach(callback);
             } catch (error) {
                 console.error('Error parsing message:', error);
             }
@@ -0,0 +1,28 @@
+// Workspace Session - gives each browser tab its own server-side workspace
+//
+// The id is made up here and kept in sessionStorage, so a reload keeps the
+// tab's stack/queue/array/tree/list while other tabs and users get their own.
+// Every REST call carries it as ?sessionId=..., and animation steps arrive on
+// the matching per-session topic. The server drops a workspace after it has
+// been idle for a while (workspace.idle-timeout).
+const WorkspaceSession = {
+    id: (() => {
+        let id = sessionStorage.getItem('workspaceSessionId');
+        if (!id) {
+            id = crypto.randomUUID ? crypto.randomUUID()
+                : Date.now().toString(36) + Math.random().toString(36).slice(2);
+            sessionStorage.setItem('workspaceSessionId', id);
+        }
+        return id;
+    })(),
+
+    // Adds the session to an API URL, keeping any query it already has
+    url(url) {
+        return url + (url.includes('?') ? '&' : '?') + 'sessionId=' + encodeURIComponent(this.id);
+    },
+
+    // '/topic/stack-visualization' -> '/topic/stack-visualization/<id>'
+    topic(topic) {
+        return `${topic}/${this.id}`;
+    }
+};
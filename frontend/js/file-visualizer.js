@@ -4,6 +4,7 @@
         this.ctx = this.canvas.getContext('2d');
         this.nodes = [];
         this.animationQueue = [];
+        this.stepDecoder = new StepDecoder();
         this.isAnimating = false;
         
         // Visual settings
@@ -64,9 +65,10 @@
                 this.updateConnectionStatus(true);
                 
                 // Subscribe to visualization topic
-                this.stompClient.subscribe('/topic/visualization', (message) => {
-                    const step = JSON.parse(message.body);
-                    this.animationQueue.push(step);
+                this.stompClient.subscribe(WorkspaceSession.topic('/topic/visualization'), (message) => {
+                    const steps = this.stepDecoder.decodeFrame(JSON.parse(message.body));
+                    if (steps.length === 0) return;
+                    this.animationQueue.push(...steps);
                     
                     if (!this.isAnimating) {
                         this.processAnimationQueue();
@@ -56,6 +56,9 @@ class QueueManager {
         // Peek button
         document.getElementById('peek-btn')?.addEventListener('click', () => this.peekFile());
         
+        // Storage mode
+        document.getElementById('mode-select')?.addEventListener('change', (e) => this.setMode(e.target.value));
+        
         // Quick actions
         document.getElementById('refresh-btn')?.addEventListener('click', () => this.loadCurrentState());
         document.getElementById('clear-btn')?.addEventListener('click', () => this.clearQueue());
@@ -82,7 +85,7 @@ class QueueManager {
         try {
             this.showToast('Enqueuing to queue...', 'info');
             
-            const response = await fetch(`${this.apiBaseUrl}/enqueue`, {
+            const response = await fetch(WorkspaceSession.url(`${this.apiBaseUrl}/enqueue`), {
                 method: 'POST',
                 body: formData
             });
@@ -107,7 +110,7 @@ class QueueManager {
         try {
             this.showToast('Dequeuing from queue...', 'info');
             
-            const response = await fetch(`${this.apiBaseUrl}/dequeue`, {
+            const response = await fetch(WorkspaceSession.url(`${this.apiBaseUrl}/dequeue`), {
                 method: 'DELETE'
             });
             
@@ -126,7 +129,7 @@ class QueueManager {
     
     async peekFile() {
         try {
-            const response = await fetch(`${this.apiBaseUrl}/peek`);
+            const response = await fetch(WorkspaceSession.url(`${this.apiBaseUrl}/peek`));
             const data = await response.json();
             
             if (data.success) {
@@ -139,7 +142,7 @@ class QueueManager {
     
     async loadCurrentState() {
         try {
-            const response = await fetch(`${this.apiBaseUrl}/state`);
+            const response = await fetch(WorkspaceSession.url(`${this.apiBaseUrl}/state`));
             const data = await response.json();
             
             document.getElementById('queue-size').textContent = data.size || 0;
@@ -148,20 +151,47 @@ class QueueManager {
                           data.isFull ? 'Full' : 'Active';
             document.getElementById('queue-status').textContent = status;
             
+            const modeSelect = document.getElementById('mode-select');
+            if (modeSelect && data.mode) {
+                modeSelect.value = data.mode;
+            }
+            
             if (data.isEmpty) {
                 document.getElementById('empty-state')?.classList.remove('hidden');
             }
             
+            this.visualizer.showState(data);
+            
         } catch (error) {
             console.error('Failed to load state:', error);
         }
     }
     
+    async setMode(mode) {
+        try {
+            const response = await fetch(
+                WorkspaceSession.url(`${this.apiBaseUrl}/mode?mode=${encodeURIComponent(mode)}`),
+                { method: 'POST' }
+            );
+            
+            const data = await response.json();
+            
+            if (data.success) {
+                this.showToast(data.message, 'success');
+            } else {
+                this.showToast(data.message, 'error');
+            }
+            this.loadCurrentState();
+        } catch (error) {
+            this.showToast('Mode change failed: ' + error.message, 'error');
+        }
+    }
+    
     async clearQueue() {
         if (!confirm('Clear all files from queue?')) return;
         
         try {
-            const response = await fetch(`${this.apiBaseUrl}/clear`, {
+            const response = await fetch(WorkspaceSession.url(`${this.apiBaseUrl}/clear`), {
                 method: 'DELETE'
             });
             
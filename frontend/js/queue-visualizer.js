@@ -3,7 +3,9 @@ class QueueVisualizer {
         this.canvas = document.getElementById(canvasId);
         this.ctx = this.canvas.getContext('2d');
         this.nodes = [];
+        this.ring = null;   // { capacity, frontIndex, rearIndex } in circular mode
         this.animationQueue = [];
+        this.stepDecoder = new StepDecoder();
         this.isAnimating = false;
         
         // Visual settings
@@ -33,9 +35,10 @@ class QueueVisualizer {
             console.log('✅ Queue WebSocket Connected');
             this.updateConnectionStatus(true);
             
-            this.stompClient.subscribe('/topic/queue-visualization', (message) => {
-                const step = JSON.parse(message.body);
-                this.animationQueue.push(step);
+            this.stompClient.subscribe(WorkspaceSession.topic('/topic/queue-visualization'), (message) => {
+                const steps = this.stepDecoder.decodeFrame(JSON.parse(message.body));
+                if (steps.length === 0) return;
+                this.animationQueue.push(...steps);
                 
                 if (!this.isAnimating) {
                     this.processAnimationQueue();
@@ -84,12 +87,19 @@ class QueueVisualizer {
         }
         
         this.nodes = step.nodes || [];
+        this.ring = step.metadata && step.metadata.capacity !== undefined ? step.metadata : null;
         
         if (step.stepNumber && step.totalSteps) {
             document.getElementById('operation-progress').textContent = 
                 `Step ${step.stepNumber}/${step.totalSteps}`;
         }
         
+        if (this.ring) {
+            await this.animateRingStep(step);
+            this.updateStats();
+            return;
+        }
+        
         switch(step.operation) {
             case 'PREPARE_ENQUEUE':
             case 'CREATE_NODE':
@@ -181,6 +191,52 @@ class QueueVisualizer {
         this.draw();
     }
     
+    // Circular mode: the files stay in their slots, so a step lights up the slot it touches
+    async animateRingStep(step) {
+        switch(step.operation) {
+            case 'SHOW_FRONT':
+                await this.pulseSlot(this.ring.frontIndex);
+                break;
+            case 'CREATE_NODE':
+            case 'WRAP_AROUND':
+                await this.pulseSlot(step.metadata.slot);
+                break;
+            case 'QUEUE_FULL':
+            case 'QUEUE_EMPTY':
+                await this.animateError(step);
+                break;
+            default:
+                this.draw();
+                await this.sleep(500);
+        }
+    }
+    
+    async pulseSlot(slot) {
+        for (let i = 0; i < 3; i++) {
+            for (let glow = 0; glow <= 30; glow += 5) {
+                this.ctx.clearRect(0, 0, this.canvas.width, this.canvas.height);
+                this.drawRing(slot, glow);
+                await this.sleep(20);
+            }
+        }
+        this.draw();
+    }
+    
+    // Shows the state loaded over REST, unless an animation is drawing
+    showState(state) {
+        if (this.isAnimating) return;
+        this.ring = state.capacity !== undefined ? state : null;
+        const capacity = this.ring ? this.ring.capacity : 0;
+        this.nodes = (state.files || []).map((file, i) => ({
+            nodeId: file.id,
+            filename: file.filename,
+            size: file.sizeFormatted,
+            position: i,
+            slot: capacity ? (this.ring.frontIndex + i) % capacity : -1
+        }));
+        this.draw();
+    }
+    
     async animateError(step) {
         // Screen shake
         for (let i = 0; i < 5; i++) {
@@ -196,6 +252,11 @@ class QueueVisualizer {
     draw() {
         this.ctx.clearRect(0, 0, this.canvas.width, this.canvas.height);
         
+        if (this.ring) {
+            this.drawRing();
+            return;
+        }
+        
         if (this.nodes.length === 0) return;
         
         // Draw indicators
@@ -292,6 +353,79 @@ class QueueVisualizer {
         ctx.restore();
     }
     
+    // capacity slots round a circle, slot 0 at the top; each file sits in its
+    // slot, so once rear passes the last slot it carries on from slot 0
+    drawRing(highlightSlot = -1, glow = 0) {
+        const ctx = this.ctx;
+        const capacity = this.ring.capacity;
+        if (capacity === 0) return;
+        
+        const cx = this.canvas.width / 2;
+        const cy = this.canvas.height / 2;
+        const radius = Math.max(80, Math.min(cx, cy) - 70);
+        const slotRadius = Math.max(12, Math.min(42, Math.PI * radius / capacity - 6));
+        const bySlot = new Map(this.nodes.map(node => [node.slot, node]));
+        
+        for (let slot = 0; slot < capacity; slot++) {
+            const angle = -Math.PI / 2 + slot * 2 * Math.PI / capacity;
+            const x = cx + radius * Math.cos(angle);
+            const y = cy + radius * Math.sin(angle);
+            const node = bySlot.get(slot);
+            const isFront = node && slot === this.ring.frontIndex;
+            const isRear = node && slot === this.ring.rearIndex;
+            
+            ctx.save();
+            if (slot === highlightSlot && glow > 0) {
+                ctx.shadowBlur = glow;
+                ctx.shadowColor = '#00ff88';
+            }
+            
+            ctx.beginPath();
+            ctx.arc(x, y, slotRadius, 0, 2 * Math.PI);
+            ctx.fillStyle = isFront ? 'rgba(0, 255, 136, 0.2)'
+                : isRear ? 'rgba(0, 217, 255, 0.2)'
+                : node ? 'rgba(44, 62, 80, 0.9)' : 'rgba(44, 62, 80, 0.3)';
+            ctx.strokeStyle = isFront ? '#00ff88' : (isRear ? '#00d9ff' : '#34495e');
+            ctx.lineWidth = (isFront || isRear) ? 3 : 2;
+            ctx.fill();
+            ctx.stroke();
+            ctx.shadowBlur = 0;
+            
+            ctx.textAlign = 'center';
+            ctx.textBaseline = 'middle';
+            
+            // Slot index outside the circle
+            ctx.fillStyle = '#95a5a6';
+            ctx.font = '11px Arial';
+            ctx.fillText(`[${slot}]`,
+                cx + (radius + slotRadius + 14) * Math.cos(angle),
+                cy + (radius + slotRadius + 14) * Math.sin(angle));
+            
+            if (node) {
+                ctx.fillStyle = '#ecf0f1';
+                ctx.font = 'bold 10px Arial';
+                ctx.fillText(this.truncateText(node.filename, Math.max(4, Math.floor(slotRadius / 4))), x, y);
+            }
+            
+            // FRONT / REAR inside the circle, towards the centre
+            const labels = [isFront && 'FRONT', isRear && 'REAR'].filter(Boolean);
+            labels.forEach((label, i) => {
+                const r = radius - slotRadius - 14 - i * 14;
+                ctx.fillStyle = label === 'FRONT' ? '#00ff88' : '#00d9ff';
+                ctx.font = 'bold 11px Arial';
+                ctx.fillText(label, cx + r * Math.cos(angle), cy + r * Math.sin(angle));
+            });
+            ctx.restore();
+        }
+        
+        ctx.save();
+        ctx.fillStyle = '#95a5a6';
+        ctx.font = 'bold 14px Arial';
+        ctx.textAlign = 'center';
+        ctx.fillText(`${this.nodes.length} / ${capacity} slots`, cx, cy);
+        ctx.restore();
+    }
+    
     drawFrontIndicator() {
         if (this.nodes.length === 0) return;
         
@@ -392,6 +526,7 @@ class QueueVisualizer {
             'CREATE_NODE': 'queue[rear] = element;',
             'SHOW_FRONT': 'return queue[front];',
             'REMOVING': 'T element = queue[front++];',
+            'WRAP_AROUND': 'index = (index + 1) % capacity;',
             'QUEUE_FULL': 'throw new QueueFullException();',
             'QUEUE_EMPTY': 'throw new QueueEmptyException();'
         };
@@ -404,7 +539,7 @@ class QueueVisualizer {
         document.getElementById('queue-size').textContent = this.nodes.length;
         
         const status = this.nodes.length === 0 ? 'Empty' : 
-                      this.nodes.length >= 10 ? 'Full' : 'Active';
+                      this.nodes.length >= (this.ring ? this.ring.capacity : 10) ? 'Full' : 'Active';
         document.getElementById('queue-status').textContent = status;
     }
     
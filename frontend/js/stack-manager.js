@@ -81,7 +81,7 @@ class StackManager {
         try {
             this.showToast('Pushing to stack...', 'info');
             
-            const response = await fetch(`${this.apiBaseUrl}/push`, {
+            const response = await fetch(WorkspaceSession.url(`${this.apiBaseUrl}/push`), {
                 method: 'POST',
                 body: formData
             });
@@ -106,7 +106,7 @@ class StackManager {
         try {
             this.showToast('Popping from stack...', 'info');
             
-            const response = await fetch(`${this.apiBaseUrl}/pop`, {
+            const response = await fetch(WorkspaceSession.url(`${this.apiBaseUrl}/pop`), {
                 method: 'DELETE'
             });
             
@@ -125,7 +125,7 @@ class StackManager {
     
     async peekFile() {
         try {
-            const response = await fetch(`${this.apiBaseUrl}/peek`);
+            const response = await fetch(WorkspaceSession.url(`${this.apiBaseUrl}/peek`));
             const data = await response.json();
             
             if (data.success) {
@@ -138,13 +138,13 @@ class StackManager {
     
     async loadCurrentState() {
         try {
-            const response = await fetch(`${this.apiBaseUrl}/state`);
+            const response = await fetch(WorkspaceSession.url(`${this.apiBaseUrl}/state`));
             const data = await response.json();
             
             document.getElementById('stack-size').textContent = data.size || 0;
+            document.getElementById('stack-capacity').textContent = data.capacity;
             
-            const status = data.isEmpty ? 'Empty' : 
-                          data.isFull ? 'Full' : 'Active';
+            const status = data.isEmpty ? 'Empty' : 'Active';
             document.getElementById('stack-status').textContent = status;
             
             if (data.isEmpty) {
@@ -160,7 +160,7 @@ class StackManager {
         if (!confirm('Clear all files from stack?')) return;
         
         try {
-            const response = await fetch(`${this.apiBaseUrl}/clear`, {
+            const response = await fetch(WorkspaceSession.url(`${this.apiBaseUrl}/clear`), {
                 method: 'DELETE'
             });
             
@@ -191,12 +191,12 @@ class StackManager {
         const codeSnippets = {
             push: `// PUSH Operation
 public void push(T element) {
-    if (isFull()) {
-        throw new StackOverflowError();
+    if (size == stack.length) {
+        // Full: copy into an array twice the size
+        stack = Arrays.copyOf(stack, stack.length * 2);
     }
     
-    stack[++top] = element;
-    size++;
+    stack[size++] = element;
 }`,
             pop: `// POP Operation
 public T pop() {
@@ -204,9 +204,13 @@ public T pop() {
         throw new StackUnderflowError();
     }
     
-    T element = stack[top];
-    stack[top--] = null;
-    size--;
+    T element = stack[--size];
+    stack[size] = null;
+    
+    if (size <= stack.length / 4) {
+        // A quarter full: copy into an array half the size
+        stack = Arrays.copyOf(stack, stack.length / 2);
+    }
     
     return element;
 }`,
@@ -216,7 +220,7 @@ public T peek() {
         throw new StackUnderflowError();
     }
     
-    return stack[top];
+    return stack[size - 1];
 }`
         };
         
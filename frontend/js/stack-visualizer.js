@@ -4,6 +4,7 @@ class StackVisualizer {
         this.ctx = this.canvas.getContext('2d');
         this.nodes = [];
         this.animationQueue = [];
+        this.stepDecoder = new StepDecoder();
         this.isAnimating = false;
         
         // Visual settings
@@ -33,9 +34,10 @@ class StackVisualizer {
             console.log('✅ Stack WebSocket Connected');
             this.updateConnectionStatus(true);
             
-            this.stompClient.subscribe('/topic/stack-visualization', (message) => {
-                const step = JSON.parse(message.body);
-                this.animationQueue.push(step);
+            this.stompClient.subscribe(WorkspaceSession.topic('/topic/stack-visualization'), (message) => {
+                const steps = this.stepDecoder.decodeFrame(JSON.parse(message.body));
+                if (steps.length === 0) return;
+                this.animationQueue.push(...steps);
                 
                 if (!this.isAnimating) {
                     this.processAnimationQueue();
@@ -101,6 +103,9 @@ class StackVisualizer {
             case 'REMOVING':
                 await this.animatePop(step);
                 break;
+            case 'RESIZE':
+                await this.animateResize(step);
+                break;
             case 'OVERFLOW':
             case 'UNDERFLOW':
                 await this.animateError(step);
@@ -110,7 +115,32 @@ class StackVisualizer {
                 await this.sleep(500);
         }
         
-        this.updateStats();
+        this.updateStats(step);
+    }
+    
+    // The copy into the new array, one file at a time from the bottom
+    async animateResize(step) {
+        const delay = Math.max(5, Math.min(80, 800 / Math.max(this.nodes.length, 1)));
+        for (let copied = 0; copied <= this.nodes.length; copied++) {
+            this.ctx.clearRect(0, 0, this.canvas.width, this.canvas.height);
+            for (let i = 0; i < this.nodes.length; i++) {
+                this.drawNode(this.nodes[i], this.startX, this.calculateNodeY(i), i < copied ? 1 : 0.3,
+                    1, i === copied - 1 ? 15 : 0, i === this.nodes.length - 1);
+            }
+            this.drawCapacityLabel(`${step.metadata.oldCapacity} → ${step.metadata.capacity} slots`);
+            await this.sleep(delay);
+        }
+        await this.sleep(300);
+        this.draw();
+    }
+    
+    drawCapacityLabel(text) {
+        const ctx = this.ctx;
+        ctx.save();
+        ctx.fillStyle = '#f39c12';
+        ctx.font = 'bold 16px Arial';
+        ctx.fillText(text, this.startX + this.nodeWidth + 30, this.startY + this.nodeHeight / 2);
+        ctx.restore();
     }
     
     async animatePush(step) {
@@ -350,10 +380,11 @@ class StackVisualizer {
     
     highlightCode(operation) {
         const codeMap = {
-            'PREPARE_PUSH': 'if (!isFull()) {',
-            'CREATE_NODE': 'stack[++top] = element;',
-            'SHOW_TOP': 'return stack[top];',
-            'REMOVING': 'T element = stack[top--];',
+            'PREPARE_PUSH': 'if (size == stack.length) {',
+            'CREATE_NODE': 'stack[size++] = element;',
+            'SHOW_TOP': 'return stack[size - 1];',
+            'REMOVING': 'T element = stack[--size];',
+            'RESIZE': 'stack = Arrays.copyOf(stack, newCapacity);',
             'OVERFLOW': 'throw new StackOverflowError();',
             'UNDERFLOW': 'throw new StackUnderflowError();'
         };
@@ -362,11 +393,13 @@ class StackVisualizer {
         document.getElementById('current-line').textContent = codeLine;
     }
     
-    updateStats() {
+    updateStats(step) {
         document.getElementById('stack-size').textContent = this.nodes.length;
+        if (step && step.metadata && step.metadata.capacity !== undefined) {
+            document.getElementById('stack-capacity').textContent = step.metadata.capacity;
+        }
         
-        const status = this.nodes.length === 0 ? 'Empty' : 
-                      this.nodes.length >= 10 ? 'Full' : 'Active';
+        const status = this.nodes.length === 0 ? 'Empty' : 'Active';
         document.getElementById('stack-status').textContent = status;
     }
     
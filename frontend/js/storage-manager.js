@@ -86,15 +86,17 @@
             return;
         }
         
-        const formData = new FormData();
-        formData.append('file', this.selectedFile);
+        const file = this.selectedFile;
+        const query = `filename=${encodeURIComponent(file.name)}&contentType=${encodeURIComponent(file.type)}`;
         
         try {
             this.showToast('Uploading file...', 'info');
             
-            const response = await fetch(`${this.apiBaseUrl}/upload`, {
+            // Raw body: streamed to disk server-side, no multipart size cap
+            const response = await fetch(WorkspaceSession.url(`${this.apiBaseUrl}/upload/stream?${query}`), {
                 method: 'POST',
-                body: formData
+                headers: { 'Content-Type': 'application/octet-stream' },
+                body: file
             });
             
             const data = await response.json();
@@ -119,7 +121,7 @@
         uploadZone.querySelector('.upload-content').innerHTML = `
             <span class="upload-icon">📁</span>
             <p>Click or drag file here</p>
-            <small>Max 10MB</small>
+            <small>Max 10GB</small>
         `;
     }
     
@@ -136,7 +138,7 @@
             this.showToast('Searching for: ' + filename, 'info');
             
             const response = await fetch(
-                `${this.apiBaseUrl}/search?filename=${encodeURIComponent(filename)}`
+                WorkspaceSession.url(`${this.apiBaseUrl}/search?filename=${encodeURIComponent(filename)}`)
             );
             
             const data = await response.json();
@@ -167,7 +169,7 @@
             this.showToast('Deleting file...', 'info');
             
             const response = await fetch(
-                `${this.apiBaseUrl}/delete?filename=${encodeURIComponent(filename)}`,
+                WorkspaceSession.url(`${this.apiBaseUrl}/delete?filename=${encodeURIComponent(filename)}`),
                 { method: 'DELETE' }
             );
             
@@ -186,7 +188,7 @@
     
     async loadCurrentState() {
         try {
-            const response = await fetch(`${this.apiBaseUrl}/state`);
+            const response = await fetch(WorkspaceSession.url(`${this.apiBaseUrl}/state`));
             const data = await response.json();
             
             // Update stats
@@ -226,12 +228,12 @@
         }
         
         try {
-            const response = await fetch(`${this.apiBaseUrl}/list`);
+            const response = await fetch(WorkspaceSession.url(`${this.apiBaseUrl}/list`));
             const data = await response.json();
             
             for (const file of data.files || []) {
                 await fetch(
-                    `${this.apiBaseUrl}/delete?filename=${encodeURIComponent(file.filename)}`,
+                    WorkspaceSession.url(`${this.apiBaseUrl}/delete?filename=${encodeURIComponent(file.filename)}`),
                     { method: 'DELETE' }
                 );
             }
@@ -65,6 +65,9 @@ class TreeManager {
         // Quick actions
         document.getElementById('refresh-btn')?.addEventListener('click', () => this.loadCurrentState());
         document.getElementById('clear-btn')?.addEventListener('click', () => this.clearTree());
+        
+        // Balancing mode
+        document.getElementById('mode-select')?.addEventListener('change', (e) => this.setMode(e.target.value));
     }
     
     updateUploadZone(filename) {
@@ -88,7 +91,7 @@ class TreeManager {
         try {
             this.showToast('Inserting into tree...', 'info');
             
-            const response = await fetch(`${this.apiBaseUrl}/insert`, {
+            const response = await fetch(WorkspaceSession.url(`${this.apiBaseUrl}/insert`), {
                 method: 'POST',
                 body: formData
             });
@@ -122,7 +125,7 @@ class TreeManager {
             this.showToast('Searching for: ' + filename, 'info');
             
             const response = await fetch(
-                `${this.apiBaseUrl}/search?filename=${encodeURIComponent(filename)}`
+                WorkspaceSession.url(`${this.apiBaseUrl}/search?filename=${encodeURIComponent(filename)}`)
             );
             
             const data = await response.json();
@@ -147,11 +150,16 @@ class TreeManager {
     
     async loadCurrentState() {
         try {
-            const response = await fetch(`${this.apiBaseUrl}/state`);
+            const response = await fetch(WorkspaceSession.url(`${this.apiBaseUrl}/state`));
             const data = await response.json();
             
             document.getElementById('tree-size').textContent = data.size || 0;
             
+            const modeSelect = document.getElementById('mode-select');
+            if (modeSelect && data.mode) {
+                modeSelect.value = data.mode;
+            }
+            
             if (data.isEmpty) {
                 document.getElementById('empty-state')?.classList.remove('hidden');
             }
@@ -161,11 +169,31 @@ class TreeManager {
         }
     }
     
+    async setMode(mode) {
+        try {
+            const response = await fetch(
+                WorkspaceSession.url(`${this.apiBaseUrl}/mode?mode=${encodeURIComponent(mode)}`),
+                { method: 'POST' }
+            );
+            
+            const data = await response.json();
+            
+            if (data.success) {
+                this.showToast(data.message, 'success');
+            } else {
+                this.showToast(data.message, 'error');
+                this.loadCurrentState();
+            }
+        } catch (error) {
+            this.showToast('Mode change failed: ' + error.message, 'error');
+        }
+    }
+    
     async clearTree() {
         if (!confirm('Clear the entire tree? This cannot be undone!')) return;
         
         try {
-            const response = await fetch(`${this.apiBaseUrl}/clear`, {
+            const response = await fetch(WorkspaceSession.url(`${this.apiBaseUrl}/clear`), {
                 method: 'DELETE'
             });
             
@@ -4,6 +4,7 @@ class TreeVisualizer {
         this.ctx = this.canvas.getContext('2d');
         this.nodes = [];
         this.animationQueue = [];
+        this.stepDecoder = new StepDecoder();
         this.isAnimating = false;
         
         // Visual settings
@@ -32,9 +33,10 @@ class TreeVisualizer {
             console.log('✅ Tree WebSocket Connected');
             this.updateConnectionStatus(true);
             
-            this.stompClient.subscribe('/topic/tree-visualization', (message) => {
-                const step = JSON.parse(message.body);
-                this.animationQueue.push(step);
+            this.stompClient.subscribe(WorkspaceSession.topic('/topic/tree-visualization'), (message) => {
+                const steps = this.stepDecoder.decodeFrame(JSON.parse(message.body));
+                if (steps.length === 0) return;
+                this.animationQueue.push(...steps);
                 
                 if (!this.isAnimating) {
                     this.processAnimationQueue();
@@ -99,6 +101,9 @@ class TreeVisualizer {
                 break;
             case 'TRAVERSE':
             case 'COMPARE':
+            case 'ROTATE_LEFT':
+            case 'ROTATE_RIGHT':
+            case 'RECOLOR':
                 await this.animateTraverse(step);
                 break;
             case 'GO_LEFT':
@@ -365,9 +370,12 @@ class TreeVisualizer {
         // Node circle
         ctx.beginPath();
         ctx.arc(x, y, radius, 0, Math.PI * 2);
-        ctx.fillStyle = isHighlighted ? 'rgba(0, 255, 136, 0.3)' : 'rgba(44, 62, 80, 0.9)';
+        // Red-black mode colours the node itself
+        const baseFill = node.color === 'RED' ? 'rgba(192, 57, 43, 0.9)'
+            : node.color === 'BLACK' ? 'rgba(10, 10, 10, 0.95)' : 'rgba(44, 62, 80, 0.9)';
+        ctx.fillStyle = isHighlighted ? 'rgba(0, 255, 136, 0.3)' : baseFill;
         ctx.fill();
-        ctx.strokeStyle = isHighlighted ? '#00ff88' : '#34495e';
+        ctx.strokeStyle = isHighlighted ? '#00ff88' : (node.color === 'RED' ? '#e74c3c' : '#34495e');
         ctx.lineWidth = isHighlighted ? 4 : 2;
         ctx.stroke();
         
@@ -388,7 +396,7 @@ class TreeVisualizer {
         // Level indicator
         ctx.font = `${8 * scale}px Arial`;
         ctx.fillStyle = '#95a5a6';
-        ctx.fillText(`L${node.level}`, x, y + 22);
+        ctx.fillText(node.height ? `L${node.level} h${node.height}` : `L${node.level}`, x, y + 22);
         
         ctx.restore();
     }
@@ -510,6 +518,10 @@ class TreeVisualizer {
             'GO_LEFT': 'root.left = insert(root.left, data);',
             'GO_RIGHT': 'root.right = insert(root.right, data);',
             'INSERT_NODE': 'return new Node(data);',
+            'ROTATE_LEFT': 'pivot = node.right; node.right = pivot.left; pivot.left = node;',
+            'ROTATE_RIGHT': 'pivot = node.left; node.left = pivot.right; pivot.right = node;',
+            'RECOLOR': 'parent.red = false; grandparent.red = true;',
+            'INSERT_COMPLETE': 'size++;',
             'FOUND': 'return current; // Found!',
             'NOT_FOUND': 'return null; // Not found'
         };